@@ -105,6 +105,13 @@ public class HystrixCodaHaleMetricsPublisherThreadPool implements HystrixMetrics
             }
         });
 
+        metricRegistry.register(createMetricName("currentConcurrencyLimit"), new Gauge<Number>() {
+            @Override
+            public Number getValue() {
+                return metrics.getCurrentConcurrencyLimit();
+            }
+        });
+
         metricRegistry.register(createMetricName("rollingMaxActiveThreads"), new Gauge<Number>() {
             @Override
             public Number getValue() {
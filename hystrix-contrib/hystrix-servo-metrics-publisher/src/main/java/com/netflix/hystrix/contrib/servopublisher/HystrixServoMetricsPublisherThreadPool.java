@@ -208,6 +208,13 @@ public class HystrixServoMetricsPublisherThreadPool extends HystrixServoMetricsP
             }
         });
 
+        monitors.add(new GaugeMetric(MonitorConfig.builder("currentConcurrencyLimit").build()) {
+            @Override
+            public Number getValue() {
+                return metrics.getCurrentConcurrencyLimit();
+            }
+        });
+
         monitors.add(new GaugeMetric(MonitorConfig.builder("rollingMaxActiveThreads").withTag(DataSourceLevel.DEBUG).build()) {
             @Override
             public Number getValue() {
@@ -101,6 +101,13 @@ public class HystrixYammerMetricsPublisherThreadPool implements HystrixMetricsPu
             }
         });
 
+        metricsRegistry.newGauge(createMetricName("currentConcurrencyLimit"), new Gauge<Number>() {
+            @Override
+            public Number value() {
+                return metrics.getCurrentConcurrencyLimit();
+            }
+        });
+
         metricsRegistry.newGauge(createMetricName("rollingMaxActiveThreads"), new Gauge<Number>() {
             @Override
             public Number value() {
@@ -122,6 +122,10 @@ public class CommandExecutionPerfTest {
         @Param({"THREAD", "SEMAPHORE"})
         public HystrixCommandProperties.ExecutionIsolationStrategy isolationStrategy;
 
+        //only has an effect on SEMAPHORE-isolated commands
+        @Param({"true", "false"})
+        public boolean semaphoreFastPath;
+
         //amount of "work" to give to CPU
         @Param({"1", "100", "10000"})
         public int blackholeConsumption;
@@ -134,7 +138,7 @@ public class CommandExecutionPerfTest {
 
             command = new HystrixCommand<Integer>(
                     HystrixCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("PERF"))
-                            .andCommandPropertiesDefaults(getCommandSetter(isolationStrategy, forceOpen))
+                            .andCommandPropertiesDefaults(getCommandSetter(isolationStrategy, forceOpen).withExecutionIsolationSemaphoreFastPathEnabled(semaphoreFastPath))
                             .andThreadPoolPropertiesDefaults(threadPoolDefaults)
             ) {
                 @Override
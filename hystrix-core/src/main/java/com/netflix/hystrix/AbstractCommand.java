@@ -25,6 +25,7 @@ import com.netflix.hystrix.exception.HystrixTimeoutException;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.concurrency.HystrixContextRunnable;
+import com.netflix.hystrix.strategy.concurrency.HystrixContextScheduler;
 import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
 import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
 import com.netflix.hystrix.strategy.executionhook.HystrixCommandExecutionHook;
@@ -32,6 +33,7 @@ import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherFactory;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
 import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import com.netflix.hystrix.util.HystrixTimer;
 import com.netflix.hystrix.util.HystrixTimer.TimerListener;
 import org.slf4j.Logger;
@@ -39,19 +41,25 @@ import org.slf4j.LoggerFactory;
 import rx.Notification;
 import rx.Observable;
 import rx.Observable.Operator;
+import rx.Producer;
+import rx.Scheduler;
 import rx.Subscriber;
 import rx.Subscription;
 import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func0;
 import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 import rx.subjects.ReplaySubject;
 import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
 
 import java.lang.ref.Reference;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -91,23 +99,33 @@ import java.util.concurrent.atomic.AtomicReference;
     /* FALLBACK Semaphore */
     protected final TryableSemaphore fallbackSemaphoreOverride;
     /* each circuit has a semaphore to restrict concurrent fallback execution */
-    protected static final ConcurrentHashMap<String, TryableSemaphore> fallbackSemaphorePerCircuit = new ConcurrentHashMap<String, TryableSemaphore>();
+    protected static final HystrixKeyIndexedMap<TryableSemaphore> fallbackSemaphorePerCircuit = new HystrixKeyIndexedMap<TryableSemaphore>();
     /* END FALLBACK Semaphore */
 
     /* EXECUTION Semaphore */
     protected final TryableSemaphore executionSemaphoreOverride;
     /* each circuit has a semaphore to restrict concurrent fallback execution */
-    protected static final ConcurrentHashMap<String, TryableSemaphore> executionSemaphorePerCircuit = new ConcurrentHashMap<String, TryableSemaphore>();
+    protected static final HystrixKeyIndexedMap<TryableSemaphore> executionSemaphorePerCircuit = new HystrixKeyIndexedMap<TryableSemaphore>();
     /* END EXECUTION Semaphore */
 
+    /* each circuit has a budget limiting the load added by hedged attempts */
+    protected static final HystrixKeyIndexedMap<HystrixAttemptBudget> hedgeBudgetPerCircuit = new HystrixKeyIndexedMap<HystrixAttemptBudget>();
+
+    /* each circuit has a rate limiter, created once a rate limit is configured */
+    protected static final HystrixKeyIndexedMap<HystrixRateLimiter> rateLimiterPerCircuit = new HystrixKeyIndexedMap<HystrixRateLimiter>();
+
+    /* each circuit has a budget limiting the load added by retries */
+    protected static final HystrixKeyIndexedMap<HystrixAttemptBudget> retryBudgetPerCircuit = new HystrixKeyIndexedMap<HystrixAttemptBudget>();
+
     protected final AtomicReference<Reference<TimerListener>> timeoutTimer = new AtomicReference<Reference<TimerListener>>();
 
     protected AtomicReference<CommandState> commandState = new AtomicReference<CommandState>(CommandState.NOT_STARTED);
     protected AtomicReference<ThreadState> threadState = new AtomicReference<ThreadState>(ThreadState.NOT_USING_THREAD);
 
     /*
-     * {@link ExecutionResult} refers to what happened as the user-provided code ran.  If request-caching is used,
-     * then multiple command instances will have a reference to the same {@link ExecutionResult}.  So all values there
+     * {@link ExecutionResult} refers to what happened as the user-provided code ran.  It is recorded in place by this
+     * command and only turned into an immutable {@link ExecutionResult} when published.  If request-caching is used,
+     * then multiple command instances will have a reference to the same published {@link ExecutionResult}.  So all values there
      * should be the same, even in the presence of request-caching.
      *
      * If some values are not properly shareable, then they belong on the command instance, so they are not visible to
@@ -115,7 +133,7 @@ import java.util.concurrent.atomic.AtomicReference;
      *
      * Examples: RESPONSE_FROM_CACHE, CANCELLED HystrixEventTypes
      */
-    protected volatile ExecutionResult executionResult = ExecutionResult.EMPTY; //state on shared execution
+    /* package */ final ExecutionResult.Builder executionResult = new ExecutionResult.Builder(); //state on shared execution
 
     protected volatile boolean isResponseFromCache = false;
     protected volatile ExecutionResult executionResultAtTimeOfCancellation;
@@ -137,6 +155,19 @@ import java.util.concurrent.atomic.AtomicReference;
 
     protected static ConcurrentHashMap<HystrixCommandKey, Boolean> commandContainsFallback = new ConcurrentHashMap<HystrixCommandKey, Boolean>();
 
+    /**
+     * Forget the semaphores, attempt budgets and rate limiter of the given key.  They are recreated by the next command
+     * that needs them.
+     */
+    /* package */static void removeByKey(HystrixCommandKey key) {
+        fallbackSemaphorePerCircuit.remove(key);
+        executionSemaphorePerCircuit.remove(key);
+        hedgeBudgetPerCircuit.remove(key);
+        rateLimiterPerCircuit.remove(key);
+        retryBudgetPerCircuit.remove(key);
+        commandContainsFallback.remove(key);
+    }
+
     /* package */static String getDefaultNameFromClass(Class<?> cls) {
         String fromCache = defaultNameCache.get(cls);
         if (fromCache != null) {
@@ -158,40 +189,90 @@ import java.util.concurrent.atomic.AtomicReference;
             HystrixCommandProperties.Setter commandPropertiesDefaults, HystrixThreadPoolProperties.Setter threadPoolPropertiesDefaults,
             HystrixCommandMetrics metrics, TryableSemaphore fallbackSemaphore, TryableSemaphore executionSemaphore,
             HystrixPropertiesStrategy propertiesStrategy, HystrixCommandExecutionHook executionHook) {
-        //设置group
-        this.commandGroup = initGroupKey(group);
+        // resolved once per command class and keys, unless collaborators are injected (which is only used for unit testing)
+        final HystrixCommandDescriptor descriptor = initDescriptor(getClass(), group, key, threadPoolKey, circuitBreaker, threadPool,
+                commandPropertiesDefaults, threadPoolPropertiesDefaults, metrics, propertiesStrategy, executionHook);
+        this.commandGroup = descriptor.getCommandGroup();
+        this.commandKey = descriptor.getCommandKey();
+        this.properties = descriptor.getProperties();
+        this.threadPoolKey = descriptor.getThreadPoolKey();
+        this.metrics = descriptor.getMetrics();
+        this.metrics.markUsed();
+        this.circuitBreaker = descriptor.getCircuitBreaker();
+        this.threadPool = descriptor.getThreadPool();
+        this.eventNotifier = descriptor.getEventNotifier();
+        this.concurrencyStrategy = descriptor.getConcurrencyStrategy();
+        this.executionHook = descriptor.getExecutionHook();
+        this.requestCache = descriptor.getRequestCache();
+        //通过HystrixRequestLog获得当前的HystrixRequestLog。
+        this.currentRequestLog = initRequestLog(this.properties.requestLogEnabled().get(), this.concurrencyStrategy);
+
+        /* fallback semaphore override if applicable */
+        /* 设置fallback的并发量 */
+        this.fallbackSemaphoreOverride = fallbackSemaphore;
+
+        /* execution semaphore override if applicable */
+        /* 设置excution的并发量 */
+        this.executionSemaphoreOverride = executionSemaphore;
+    }
+
+    private static HystrixCommandDescriptor initDescriptor(Class<?> commandClass, HystrixCommandGroupKey group, HystrixCommandKey key, HystrixThreadPoolKey threadPoolKey,
+                                                           HystrixCircuitBreaker circuitBreaker, HystrixThreadPool threadPool,
+                                                           HystrixCommandProperties.Setter commandPropertiesDefaults, HystrixThreadPoolProperties.Setter threadPoolPropertiesDefaults,
+                                                           HystrixCommandMetrics metrics, HystrixPropertiesStrategy propertiesStrategy, HystrixCommandExecutionHook executionHook) {
+        final HystrixCommandGroupKey commandGroup = initGroupKey(group);
+        final boolean cacheable = circuitBreaker == null && threadPool == null && metrics == null && propertiesStrategy == null && executionHook == null;
+        if (cacheable) {
+            HystrixCommandDescriptor cached = HystrixCommandDescriptor.getInstance(commandClass, commandGroup, key, threadPoolKey);
+            if (cached != null && cached.isCurrent()) {
+                return cached;
+            }
+        }
+        final long generation = HystrixCommandDescriptor.getGeneration();
+
         //正常为方法名，不设置，就是类
-        this.commandKey = initCommandKey(key, getClass());
+        final HystrixCommandKey commandKey = initCommandKey(key, commandClass);
         //这里做了优化，将组装好的CommandProperties放入了ConcurrentHashMap缓存了起来（如果是动态生成方法溢出？）
-        this.properties = initCommandProperties(this.commandKey, propertiesStrategy, commandPropertiesDefaults);
+        final HystrixCommandProperties properties = initCommandProperties(commandKey, propertiesStrategy, commandPropertiesDefaults);
         //初始化线程池的key，如果为null，则用groupKey.name()
-        this.threadPoolKey = initThreadPoolKey(threadPoolKey, this.commandGroup, this.properties.executionIsolationThreadPoolKeyOverride().get());
+        final String threadPoolKeyOverride = properties.executionIsolationThreadPoolKeyOverride().get();
+        final HystrixThreadPoolKey resolvedThreadPoolKey = initThreadPoolKey(threadPoolKey, commandGroup, threadPoolKeyOverride);
         //初始化指标，以commandKey缓存
-        this.metrics = initMetrics(metrics, this.commandGroup, this.threadPoolKey, this.commandKey, this.properties);
+        final HystrixCommandMetrics resolvedMetrics = initMetrics(metrics, commandGroup, resolvedThreadPoolKey, commandKey, properties);
         //初始化断路器，也是以commandKey缓存
-        this.circuitBreaker = initCircuitBreaker(this.properties.circuitBreakerEnabled().get(), circuitBreaker, this.commandGroup, this.commandKey, this.properties, this.metrics);
+        final boolean circuitBreakerEnabled = properties.circuitBreakerEnabled().get();
+        final HystrixCircuitBreaker resolvedCircuitBreaker = initCircuitBreaker(circuitBreakerEnabled, circuitBreaker, commandGroup, commandKey, properties, resolvedMetrics);
         //初始化线程池，传入有就用，没有就创建一个缓存，还是commandKey维度，最终是通过concurrencyStrategy.getThreadPool(threadPoolKey, properties)创建
-        this.threadPool = initThreadPool(threadPool, this.threadPoolKey, threadPoolPropertiesDefaults);
+        final HystrixThreadPool resolvedThreadPool = initThreadPool(threadPool, resolvedThreadPoolKey, threadPoolPropertiesDefaults);
+        addLatencySource(resolvedThreadPool, commandKey, properties);
 
         //Strategies from plugins
         //通过HystrixPlugins获得自定义插架HystrixEventNotifier、HystrixConcurrencyStrategy。
-        this.eventNotifier = HystrixPlugins.getInstance().getEventNotifier();
-        //通过HystrixPlugins获得自定义插架HystrixEventNotifier、HystrixConcurrencyStrategy。
-        this.concurrencyStrategy = HystrixPlugins.getInstance().getConcurrencyStrategy();
-        HystrixMetricsPublisherFactory.createOrRetrievePublisherForCommand(this.commandKey, this.commandGroup, this.metrics, this.circuitBreaker, this.properties);
-        this.executionHook = initExecutionHook(executionHook);
+        final HystrixEventNotifier eventNotifier = HystrixPlugins.getInstance().getEventNotifier();
+        final HystrixConcurrencyStrategy concurrencyStrategy = HystrixPlugins.getInstance().getConcurrencyStrategy();
+        HystrixMetricsPublisherFactory.createOrRetrievePublisherForCommand(commandKey, commandGroup, resolvedMetrics, resolvedCircuitBreaker, properties);
         //通过HystrixRequestCache获得指定commandKey的HystrixRequestCache。
-        this.requestCache = HystrixRequestCache.getInstance(this.commandKey, this.concurrencyStrategy);
-        //通过HystrixRequestLog获得当前的HystrixRequestLog。
-        this.currentRequestLog = initRequestLog(this.properties.requestLogEnabled().get(), this.concurrencyStrategy);
+        final HystrixCommandDescriptor descriptor = new HystrixCommandDescriptor(commandGroup, commandKey, properties, threadPoolKeyOverride,
+                resolvedThreadPoolKey, resolvedMetrics, circuitBreakerEnabled, resolvedCircuitBreaker, resolvedThreadPool, eventNotifier,
+                concurrencyStrategy, initExecutionHook(executionHook), HystrixRequestCache.getInstance(commandKey, concurrencyStrategy));
 
-        /* fallback semaphore override if applicable */
-        /* 设置fallback的并发量 */
-        this.fallbackSemaphoreOverride = fallbackSemaphore;
+        // properties that aren't cached by the properties strategy may differ between constructions, so neither is the descriptor
+        if (cacheable && HystrixPlugins.getInstance().getPropertiesStrategy().getCommandPropertiesCacheKey(commandKey, commandPropertiesDefaults) != null) {
+            HystrixCommandDescriptor.cache(commandClass, commandGroup, key, threadPoolKey, descriptor, generation);
+        }
+        return descriptor;
+    }
 
-        /* execution semaphore override if applicable */
-        /* 设置excution的并发量 */
-        this.executionSemaphoreOverride = executionSemaphore;
+    /**
+     * Let the latency of a thread-isolated command drive the adaptive limit of its thread-pool.  Done once, when the
+     * thread-pool of the command is resolved, rather than on every execution.
+     */
+    private static void addLatencySource(HystrixThreadPool threadPool, HystrixCommandKey commandKey, HystrixCommandProperties properties) {
+        final ExecutionIsolationStrategy isolationStrategy = properties.executionIsolationStrategy().get();
+        if (threadPool instanceof HystrixThreadPool.HystrixThreadPoolDefault
+                && (isolationStrategy == ExecutionIsolationStrategy.THREAD || isolationStrategy == ExecutionIsolationStrategy.VIRTUAL_THREAD)) {
+            ((HystrixThreadPool.HystrixThreadPoolDefault) threadPool).addLatencySource(commandKey, properties);
+        }
     }
 
     private static HystrixCommandGroupKey initGroupKey(final HystrixCommandGroupKey fromConstructor) {
@@ -317,7 +398,7 @@ import java.util.concurrent.atomic.AtomicReference;
      */
     /* package */void markAsCollapsedCommand(HystrixCollapserKey collapserKey, int sizeOfBatch) {
         eventNotifier.markEvent(HystrixEventType.COLLAPSED, this.commandKey);
-        executionResult = executionResult.markCollapsed(collapserKey, sizeOfBatch);
+        executionResult.markCollapsed(collapserKey, sizeOfBatch);
     }
 
     /**
@@ -359,6 +440,14 @@ import java.util.concurrent.atomic.AtomicReference;
 
     protected abstract Observable<R> getExecutionObservable();
 
+    /**
+     * Observable of the user code for the hedged attempt of a hedged execution.  Commands that keep track of the thread
+     * running their user code override this to track the thread of the hedged attempt apart from it.
+     */
+    /* package */ Observable<R> getHedgedExecutionObservable() {
+        return getExecutionObservable();
+    }
+
     protected abstract Observable<R> getFallbackObservable();
 
     /**
@@ -397,11 +486,7 @@ import java.util.concurrent.atomic.AtomicReference;
             @Override
             public void call() {
                 //没有订阅不执行
-                if (_cmd.commandState.compareAndSet(CommandState.OBSERVABLE_CHAIN_CREATED, CommandState.TERMINAL)) {
-                    handleCommandEnd(false); //user code never ran
-                } else if (_cmd.commandState.compareAndSet(CommandState.USER_CODE_EXECUTED, CommandState.TERMINAL)) {
-                    handleCommandEnd(true); //user code did run
-                }
+                handleCommandTermination();
             }
         };
 
@@ -418,7 +503,7 @@ import java.util.concurrent.atomic.AtomicReference;
                         } catch (Throwable hookEx) {
                             logger.warn("Error calling HystrixCommandExecutionHook.onUnsubscribe", hookEx);
                         }
-                        _cmd.executionResultAtTimeOfCancellation = _cmd.executionResult
+                        _cmd.executionResultAtTimeOfCancellation = _cmd.executionResult.build()
                                 .addEvent((int) (System.currentTimeMillis() - _cmd.commandStartTimestamp), HystrixEventType.CANCELLED);
                     }
                     handleCommandEnd(false); //user code never ran
@@ -430,7 +515,7 @@ import java.util.concurrent.atomic.AtomicReference;
                         } catch (Throwable hookEx) {
                             logger.warn("Error calling HystrixCommandExecutionHook.onUnsubscribe", hookEx);
                         }
-                        _cmd.executionResultAtTimeOfCancellation = _cmd.executionResult
+                        _cmd.executionResultAtTimeOfCancellation = _cmd.executionResult.build()
                                 .addEvent((int) (System.currentTimeMillis() - _cmd.commandStartTimestamp), HystrixEventType.CANCELLED);
                     }
                     handleCommandEnd(true); //user code did run
@@ -455,20 +540,7 @@ import java.util.concurrent.atomic.AtomicReference;
         final Func1<R, R> wrapWithAllOnNextHooks = new Func1<R, R>() {
             @Override
             public R call(R r) {
-                R afterFirstApplication = r;
-
-                try {
-                    afterFirstApplication = executionHook.onComplete(_cmd, r);
-                } catch (Throwable hookEx) {
-                    logger.warn("Error calling HystrixCommandExecutionHook.onComplete", hookEx);
-                }
-
-                try {
-                    return executionHook.onEmit(_cmd, afterFirstApplication);
-                } catch (Throwable hookEx) {
-                    logger.warn("Error calling HystrixCommandExecutionHook.onEmit", hookEx);
-                    return afterFirstApplication;
-                }
+                return applyAllOnNextHooks(r);
             }
         };
 
@@ -476,11 +548,7 @@ import java.util.concurrent.atomic.AtomicReference;
         final Action0 fireOnCompletedHook = new Action0() {
             @Override
             public void call() {
-                try {
-                    executionHook.onSuccess(_cmd);
-                } catch (Throwable hookEx) {
-                    logger.warn("Error calling HystrixCommandExecutionHook.onSuccess", hookEx);
-                }
+                fireOnSuccessHook();
             }
         };
         //通过defer创建Observable
@@ -492,9 +560,7 @@ import java.util.concurrent.atomic.AtomicReference;
                 /* 每个command对象，只能被执行一次 */
                 //通过cas来判断命令状态，初始为NOT_STARTED，如果进来不是NOT_STARTED说明已经有别线程执行了，就抛异常
                 if (!commandState.compareAndSet(CommandState.NOT_STARTED, CommandState.OBSERVABLE_CHAIN_CREATED)) {
-                    IllegalStateException ex = new IllegalStateException("This instance can only be executed once. Please instantiate a new instance.");
-                    //TODO make a new error type for this
-                    throw new HystrixRuntimeException(FailureType.BAD_REQUEST_EXCEPTION, _cmd.getClass(), getLogMessagePrefix() + " command executed multiple times - this is not permitted.", ex, null);
+                    throw executedMultipleTimesException();
                 }
                 //命令开始时间
                 commandStartTimestamp = System.currentTimeMillis();
@@ -558,6 +624,216 @@ import java.util.concurrent.atomic.AtomicReference;
         });
     }
 
+    /**
+     * Whether {@link #executeOnCallingThread(Callable)} may be used instead of subscribing to {@link #toObservable()}.
+     * <p>
+     * The request cache needs the shared {@link Observable}, so only semaphore-isolated commands without a cache key qualify.
+     * Retries are only implemented by the Rx chain, so commands that may retry don't qualify either.
+     */
+    /* package */ boolean isCallingThreadExecutionEligible() {
+        return properties.executionIsolationSemaphoreFastPathEnabled().get()
+                && properties.executionIsolationStrategy().get() == ExecutionIsolationStrategy.SEMAPHORE
+                && properties.retryMaxAttempts().get() <= 1
+                && !isRequestCachingEnabled();
+    }
+
+    /**
+     * Semaphore fast path used by {@link HystrixCommand#execute()}.
+     * <p>
+     * Performs the same steps as {@link #toObservable()} does for a semaphore-isolated scalar command (circuit check, semaphore
+     * acquire, run, metrics, hooks), but inline on the calling thread, so a successful execution allocates no Rx operators or
+     * closures beyond <code>userCode</code>.  Since the caller is blocked in <code>run()</code> either way, the timeout is checked once <code>run()</code>
+     * returns rather than by a {@link HystrixTimer} listener.
+     * <p>
+     * Anything other than a success (short-circuit, rejection, failure, timeout, hook errors) is handed to the same handlers the
+     * Rx chain uses and the resulting {@link Observable} is awaited, so fallback semantics are unchanged.
+     *
+     * @param userCode invokes the user code synchronously
+     * @return R result of <code>run()</code> or of the fallback
+     * @throws Exception the same exceptions <code>queue().get()</code> throws, for {@link #decomposeException(Exception)}
+     */
+    /* package */ R executeOnCallingThread(Callable<R> userCode) throws Exception {
+        if (!commandState.compareAndSet(CommandState.NOT_STARTED, CommandState.OBSERVABLE_CHAIN_CREATED)) {
+            throw executedMultipleTimesException();
+        }
+        commandStartTimestamp = System.currentTimeMillis();
+        if (properties.requestLogEnabled().get()) {
+            // log this command execution regardless of what happened
+            if (currentRequestLog != null) {
+                currentRequestLog.addExecutedCommand(this);
+            }
+        }
+
+        try {
+            executionHook.onStart(this);
+        } catch (Throwable t) {
+            return awaitOnCallingThread(Observable.<R>error(t));
+        }
+        if (!circuitBreaker.allowRequest()) {
+            return awaitOnCallingThread(handleShortCircuitViaFallback());
+        }
+        if (!tryAcquireRateLimit()) {
+            return awaitOnCallingThread(handleRateLimitViaFallback());
+        }
+        final TryableSemaphore executionSemaphore = getExecutionSemaphore();
+        if (!executionSemaphore.tryAcquire()) {
+            return awaitOnCallingThread(handleSemaphoreRejectionViaFallback());
+        }
+
+        executionResult.setInvocationStartTime(System.currentTimeMillis());
+        executionResult.setExecutionOccurred();
+        if (!commandState.compareAndSet(CommandState.OBSERVABLE_CHAIN_CREATED, CommandState.USER_CODE_EXECUTED)) {
+            return awaitExecutionFailureOnCallingThread(new IllegalStateException("execution attempted while in state : " + commandState.get().name()), executionSemaphore);
+        }
+        metrics.markCommandStart(commandKey, threadPoolKey, ExecutionIsolationStrategy.SEMAPHORE);
+        endCurrentThreadExecutingCommand = Hystrix.startCurrentThreadExecutingCommand(getCommandKey());
+        try {
+            executionHook.onRunStart(this);
+            executionHook.onExecutionStart(this);
+        } catch (Throwable ex) {
+            //If the above hooks throw, then use that as the result of the run method
+            return awaitExecutionFailureOnCallingThread(ex, executionSemaphore);
+        }
+
+        R r;
+        try {
+            r = userCode.call();
+        } catch (Throwable t) {
+            if (isTimedOutOnCallingThread()) {
+                return awaitExecutionFailureOnCallingThread(new HystrixTimeoutException(), executionSemaphore);
+            }
+            Exception e = wrapWithOnExecutionErrorHook(t);
+            try {
+                e = executionHook.onRunError(this, e);
+            } catch (Throwable hookEx) {
+                logger.warn("Error calling HystrixCommandExecutionHook.onRunError", hookEx);
+            }
+            return awaitExecutionFailureOnCallingThread(e, executionSemaphore);
+        }
+        if (isTimedOutOnCallingThread()) {
+            // the result arrived too late and is discarded, as the timeout operator would have done
+            return awaitExecutionFailureOnCallingThread(new HystrixTimeoutException(), executionSemaphore);
+        }
+
+        r = wrapWithOnExecutionEmitHook(r);
+        try {
+            r = executionHook.onRunSuccess(this, r);
+        } catch (Throwable hookEx) {
+            logger.warn("Error calling HystrixCommandExecutionHook.onRunSuccess", hookEx);
+        }
+        markExecutionEmit();
+        r = applyAllOnNextHooks(r);
+        try {
+            executionHook.onExecutionSuccess(this);
+        } catch (Throwable hookEx) {
+            logger.warn("Error calling HystrixCommandExecutionHook.onExecutionSuccess", hookEx);
+        }
+        executionSemaphore.release();
+        handleCommandTermination();
+        fireOnSuccessHook();
+        return r;
+    }
+
+    /**
+     * Plays the role of {@link HystrixObservableTimeoutOperator} for {@link #executeOnCallingThread(Callable)}: whichever of the timeout
+     * and the completion gets to set {@link #isCommandTimedOut} wins.
+     */
+    private boolean isTimedOutOnCallingThread() {
+        if (!properties.executionTimeoutEnabled().get()) {
+            return false;
+        }
+        long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
+        if (latency >= properties.executionTimeoutInMilliseconds().get()) {
+            if (isCommandTimedOut.compareAndSet(TimedOutStatus.NOT_EXECUTED, TimedOutStatus.TIMED_OUT)) {
+                eventNotifier.markEvent(HystrixEventType.TIMEOUT, commandKey);
+                return true;
+            }
+        } else {
+            isCommandTimedOut.compareAndSet(TimedOutStatus.NOT_EXECUTED, TimedOutStatus.COMPLETED);
+        }
+        return false;
+    }
+
+    private R awaitExecutionFailureOnCallingThread(Throwable t, final TryableSemaphore executionSemaphore) throws Exception {
+        return awaitOnCallingThread(handleExecutionFailure(t)
+                .doOnError(new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable t) {
+                        eventNotifier.markEvent(HystrixEventType.EXCEPTION_THROWN, commandKey);
+                    }
+                })
+                .doOnTerminate(new Action0() {
+                    @Override
+                    public void call() {
+                        executionSemaphore.release();
+                    }
+                }));
+    }
+
+    /**
+     * Apply the same terminal operators as {@link #toObservable()} and block for the single value.
+     */
+    private R awaitOnCallingThread(Observable<R> o) throws Exception {
+        return o.map(new Func1<R, R>() {
+                    @Override
+                    public R call(R r) {
+                        return applyAllOnNextHooks(r);
+                    }
+                })
+                .doOnTerminate(new Action0() {
+                    @Override
+                    public void call() {
+                        handleCommandTermination();
+                    }
+                })
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        fireOnSuccessHook();
+                    }
+                })
+                .toBlocking().toFuture().get();
+    }
+
+    private void handleCommandTermination() {
+        if (commandState.compareAndSet(CommandState.OBSERVABLE_CHAIN_CREATED, CommandState.TERMINAL)) {
+            handleCommandEnd(false); //user code never ran
+        } else if (commandState.compareAndSet(CommandState.USER_CODE_EXECUTED, CommandState.TERMINAL)) {
+            handleCommandEnd(true); //user code did run
+        }
+    }
+
+    private R applyAllOnNextHooks(R r) {
+        R afterFirstApplication = r;
+
+        try {
+            afterFirstApplication = executionHook.onComplete(this, r);
+        } catch (Throwable hookEx) {
+            logger.warn("Error calling HystrixCommandExecutionHook.onComplete", hookEx);
+        }
+
+        try {
+            return executionHook.onEmit(this, afterFirstApplication);
+        } catch (Throwable hookEx) {
+            logger.warn("Error calling HystrixCommandExecutionHook.onEmit", hookEx);
+            return afterFirstApplication;
+        }
+    }
+
+    private void fireOnSuccessHook() {
+        try {
+            executionHook.onSuccess(this);
+        } catch (Throwable hookEx) {
+            logger.warn("Error calling HystrixCommandExecutionHook.onSuccess", hookEx);
+        }
+    }
+
+    private HystrixRuntimeException executedMultipleTimesException() {
+        IllegalStateException ex = new IllegalStateException("This instance can only be executed once. Please instantiate a new instance.");
+        //TODO make a new error type for this
+        return new HystrixRuntimeException(FailureType.BAD_REQUEST_EXCEPTION, getClass(), getLogMessagePrefix() + " command executed multiple times - this is not permitted.", ex, null);
+    }
+
     // 如果没有获取到缓存，则需要执行命令获得结果。
     private Observable<R> applyHystrixSemantics(final AbstractCommand<R> _cmd) {
         // mark that we're starting execution on the ExecutionHook
@@ -569,6 +845,9 @@ import java.util.concurrent.atomic.AtomicReference;
         //使用熔断器判断是否熔断；circuitBreaker：断路器的实现；allowRequest：是否允许请求，即断路器是否闭合
         //断路器的默认实现是HystrixCircuitBreakerImpl类，熔断器是以command维度统计的
         if (circuitBreaker.allowRequest()) {
+            if (!tryAcquireRateLimit()) {
+                return handleRateLimitViaFallback();
+            }
             /**
              *如果使用的是信号量返回TryableSemaphoreActual，不是返回
              *TryableSemaphoreNoOp,TryableSemaphoreNoOp.tryAcquire()永远都是返回true
@@ -599,7 +878,7 @@ import java.util.concurrent.atomic.AtomicReference;
                 try {
                     /* used to track userThreadExecutionTime */
                     //设置调用时间
-                    executionResult = executionResult.setInvocationStartTime(System.currentTimeMillis());
+                    executionResult.setInvocationStartTime(System.currentTimeMillis());
                     //如果都成功的话会执行executeCommandAndObserve创建对应的 Observable 实现 线程隔离、请求发送 等操作，同时注册了对应的 生命周期回调
                     return executeCommandAndObserve(_cmd)//执行命令，这块是核心
                             .doOnError(markExceptionThrown)//异常处理
@@ -634,17 +913,7 @@ import java.util.concurrent.atomic.AtomicReference;
         final Action1<R> markEmits = new Action1<R>() {
             @Override
             public void call(R r) {
-                if (shouldOutputOnNextEvents()) {
-                    executionResult = executionResult.addEvent(HystrixEventType.EMIT);
-                    eventNotifier.markEvent(HystrixEventType.EMIT, commandKey);//发送emit事件
-                }
-                if (commandIsScalar()) {
-                    long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
-                    eventNotifier.markCommandExecution(getCommandKey(), properties.executionIsolationStrategy().get(), (int) latency, executionResult.getOrderedList());
-                    eventNotifier.markEvent(HystrixEventType.SUCCESS, commandKey);//发送SUCCESS事件
-                    executionResult = executionResult.addEvent((int) latency, HystrixEventType.SUCCESS);
-                    circuitBreaker.markSuccess();
-                }
+                markExecutionEmit();
             }
         };
 
@@ -654,9 +923,9 @@ import java.util.concurrent.atomic.AtomicReference;
             public void call() {
                 if (!commandIsScalar()) {
                     long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
-                    eventNotifier.markCommandExecution(getCommandKey(), properties.executionIsolationStrategy().get(), (int) latency, executionResult.getOrderedList());
+                    eventNotifier.markCommandExecution(getCommandKey(), properties.executionIsolationStrategy().get(), (int) latency, executionResult.build().getOrderedList());
                     eventNotifier.markEvent(HystrixEventType.SUCCESS, commandKey);
-                    executionResult = executionResult.addEvent((int) latency, HystrixEventType.SUCCESS);
+                    executionResult.addEvent((int) latency, HystrixEventType.SUCCESS);
                     circuitBreaker.markSuccess();
                 }
             }
@@ -666,28 +935,7 @@ import java.util.concurrent.atomic.AtomicReference;
         final Func1<Throwable, Observable<R>> handleFallback = new Func1<Throwable, Observable<R>>() {
             @Override
             public Observable<R> call(Throwable t) {
-                Exception e = getExceptionFromThrowable(t);
-                executionResult = executionResult.setExecutionException(e);
-                if (e instanceof RejectedExecutionException) {
-                    // 线程调度失败回调
-                    return handleThreadPoolRejectionViaFallback(e);
-                } else if (t instanceof HystrixTimeoutException) {
-                    // 超时回调
-                    return handleTimeoutViaFallback();
-                } else if (t instanceof HystrixBadRequestException) {
-                    // HystrixBadRequestException 异常回调
-                    return handleBadRequestByEmittingError(e);
-                } else {
-                    /*
-                     * Treat HystrixBadRequestException from ExecutionHook like a plain HystrixBadRequestException.
-                     */
-                    if (e instanceof HystrixBadRequestException) {
-                        eventNotifier.markEvent(HystrixEventType.BAD_REQUEST, commandKey);
-                        return Observable.error(e);
-                    }
-                    // 降级处理
-                    return handleFailureViaFallback(e);
-                }
+                return handleExecutionFailure(t);
             }
         };
         // doOnEach 回调
@@ -723,16 +971,75 @@ import java.util.concurrent.atomic.AtomicReference;
                 .doOnEach(setRequestContext);
     }
 
+    private void markExecutionEmit() {
+        if (shouldOutputOnNextEvents()) {
+            executionResult.addEvent(HystrixEventType.EMIT);
+            eventNotifier.markEvent(HystrixEventType.EMIT, commandKey);//发送emit事件
+        }
+        if (commandIsScalar()) {
+            long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
+            eventNotifier.markCommandExecution(getCommandKey(), properties.executionIsolationStrategy().get(), (int) latency, executionResult.build().getOrderedList());
+            eventNotifier.markEvent(HystrixEventType.SUCCESS, commandKey);//发送SUCCESS事件
+            executionResult.addEvent((int) latency, HystrixEventType.SUCCESS);
+            circuitBreaker.markSuccess();
+        }
+    }
+
+    private Observable<R> handleExecutionFailure(Throwable t) {
+        Exception e = getExceptionFromThrowable(t);
+        executionResult.setExecutionException(e);
+        if (!(e instanceof HystrixBadRequestException)) {
+            // a bad request says nothing about the dependency, anything else counts against a half-open circuit
+            circuitBreaker.markNonSuccess();
+        }
+        if (e instanceof RejectedExecutionException) {
+            // 线程调度失败回调
+            return handleThreadPoolRejectionViaFallback(e);
+        } else if (t instanceof HystrixTimeoutException) {
+            // 超时回调
+            return handleTimeoutViaFallback();
+        } else if (t instanceof HystrixBadRequestException) {
+            // HystrixBadRequestException 异常回调
+            return handleBadRequestByEmittingError(e);
+        } else {
+            /*
+             * Treat HystrixBadRequestException from ExecutionHook like a plain HystrixBadRequestException.
+             */
+            if (e instanceof HystrixBadRequestException) {
+                eventNotifier.markEvent(HystrixEventType.BAD_REQUEST, commandKey);
+                return Observable.error(e);
+            }
+            // 降级处理
+            return handleFailureViaFallback(e);
+        }
+    }
+
+    /**
+     * VIRTUAL_THREAD executions get a thread of their own, admitted by the bulkhead of the default {@link HystrixThreadPool}
+     * implementation.  Custom thread-pools don't know about virtual threads, so they run the command like THREAD does.
+     */
+    private Scheduler getIsolationScheduler(ExecutionIsolationStrategy isolationStrategy, Func0<Boolean> shouldInterruptThread) {
+        if (threadPool instanceof HystrixThreadPool.HystrixThreadPoolDefault) {
+            HystrixThreadPool.HystrixThreadPoolDefault threadPoolDefault = (HystrixThreadPool.HystrixThreadPoolDefault) threadPool;
+            if (isolationStrategy == ExecutionIsolationStrategy.VIRTUAL_THREAD) {
+                return threadPoolDefault.getVirtualThreadScheduler(shouldInterruptThread);
+            }
+        }
+        return threadPool.getScheduler(shouldInterruptThread);
+    }
+
     //真正执行命令的方法，有两种方式执行，一种是使用线程池执行，一种是使用当前线程执行
     private Observable<R> executeCommandWithSpecifiedIsolation(final AbstractCommand<R> _cmd) {
+        final ExecutionIsolationStrategy isolationStrategy = properties.executionIsolationStrategy().get();
         // 线程隔离
-        if (properties.executionIsolationStrategy().get() == ExecutionIsolationStrategy.THREAD) {
+        if (isolationStrategy == ExecutionIsolationStrategy.THREAD || isolationStrategy == ExecutionIsolationStrategy.VIRTUAL_THREAD) {
+            final HedgeRace race = commandIsScalar() && properties.hedgingEnabled().get() ? new HedgeRace() : null;
             // mark that we are executing in a thread (even if we end up being rejected we still were a THREAD execution and not SEMAPHORE)
             //使用线程池执行
-            return Observable.defer(new Func0<Observable<R>>() {
+            final Observable<R> execution = Observable.defer(new Func0<Observable<R>>() {
                 @Override
                 public Observable<R> call() {
-                    executionResult = executionResult.setExecutionOccurred();
+                    executionResult.setExecutionOccurred();
                     if (!commandState.compareAndSet(CommandState.OBSERVABLE_CHAIN_CREATED, CommandState.USER_CODE_EXECUTED)) {
                         return Observable.error(new IllegalStateException("execution attempted while in state : " + commandState.get().name()));
                     }
@@ -755,7 +1062,7 @@ import java.util.concurrent.atomic.AtomicReference;
                         // store the command that is being run
                         endCurrentThreadExecutingCommand = Hystrix.startCurrentThreadExecutingCommand(getCommandKey());
                         //设置在线程池中执行
-                        executionResult = executionResult.setExecutedInThread();
+                        executionResult.setExecutedInThread();
                         /**
                          * If any of these hooks throw an exception, then it appears as if the actual execution threw an error
                          */
@@ -767,7 +1074,7 @@ import java.util.concurrent.atomic.AtomicReference;
                             //调用hook的onExecutionStart
                             executionHook.onExecutionStart(_cmd);
                             // 请求服务
-                            return getUserExecutionObservable(_cmd);
+                            return getUserExecutionObservable(_cmd, race);
                         } catch (Throwable ex) {
                             return Observable.error(ex);
                         }
@@ -806,12 +1113,17 @@ import java.util.concurrent.atomic.AtomicReference;
                  * subscribeOn 通过接受一个 Scheduler，来指定数据的处理运行在特定的 Scheduler 上
                  * 此处的 Scheduler 由 threadPool.getScheduler 方法提供
                  */
-            }).subscribeOn(threadPool.getScheduler(new Func0<Boolean>() {//使用线程池执行
+            }).subscribeOn(getIsolationScheduler(isolationStrategy, new Func0<Boolean>() {//使用线程池执行
                 @Override
                 public Boolean call() {
-                    return properties.executionIsolationThreadInterruptOnTimeout().get() && _cmd.isCommandTimedOut.get() == TimedOutStatus.TIMED_OUT;
+                    return (properties.executionIsolationThreadInterruptOnTimeout().get() && _cmd.isCommandTimedOut.get() == TimedOutStatus.TIMED_OUT)
+                            || (race != null && race.lost(HedgeRace.FIRST_ATTEMPT));
                 }
             }));
+            if (race != null) {
+                return hedge(_cmd, execution, race, isolationStrategy);
+            }
+            return execution;
         }
         // 非线程隔离
         else {
@@ -819,7 +1131,7 @@ import java.util.concurrent.atomic.AtomicReference;
             return Observable.defer(new Func0<Observable<R>>() {
                 @Override
                 public Observable<R> call() {
-                    executionResult = executionResult.setExecutionOccurred();
+                    executionResult.setExecutionOccurred();
                     if (!commandState.compareAndSet(CommandState.OBSERVABLE_CHAIN_CREATED, CommandState.USER_CODE_EXECUTED)) {
                         return Observable.error(new IllegalStateException("execution attempted while in state : " + commandState.get().name()));
                     }
@@ -833,7 +1145,7 @@ import java.util.concurrent.atomic.AtomicReference;
                         executionHook.onRunStart(_cmd);
                         //调用hook的onExecutionStart
                         executionHook.onExecutionStart(_cmd);
-                        return getUserExecutionObservable(_cmd);  //the getUserExecutionObservable method already wraps sync exceptions, so this shouldn't throw
+                        return getUserExecutionObservable(_cmd, null);  //the getUserExecutionObservable method already wraps sync exceptions, so this shouldn't throw
                     } catch (Throwable ex) {
                         //If the above hooks throw, then use that as the result of the run method
                         return Observable.error(ex);
@@ -843,6 +1155,147 @@ import java.util.concurrent.atomic.AtomicReference;
         }
     }
 
+    /**
+     * Race <code>execution</code> against a second attempt of the user code on the same thread-pool, started if it has not
+     * completed after the configured percentile of the execution latency of this command.
+     * <p>
+     * Whichever attempt emits first wins: only its notifications pass the execution hooks, and the other attempt is
+     * unsubscribed from and its thread interrupted.  Errors of the hedged attempt are ignored, so the outcome is never worse
+     * than without hedging.  The thread-pool metrics and state transitions of the command belong to <code>execution</code>.
+     */
+    private Observable<R> hedge(final AbstractCommand<R> _cmd, final Observable<R> execution, final HedgeRace race, final ExecutionIsolationStrategy isolationStrategy) {
+        final HystrixAttemptBudget budget = getHedgeBudget();
+        final int delay = Math.max(properties.hedgingMinimumDelayInMilliseconds().get(),
+                metrics.getExecutionTimePercentile(properties.hedgingDelayPercentile().get()));
+        budget.deposit();
+        if (delay <= 0 || (properties.executionTimeoutEnabled().get() && delay >= properties.executionTimeoutInMilliseconds().get())) {
+            return execution;
+        }
+
+        final Observable<R> hedgedExecution = Observable.create(new Observable.OnSubscribe<R>() {
+            @Override
+            public void call(final Subscriber<? super R> subscriber) {
+                // capture the request context of the subscribing thread, the timer thread doesn't have one
+                final HystrixContextRunnable startHedge = new HystrixContextRunnable(concurrencyStrategy, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (subscriber.isUnsubscribed() || isExecutionComplete() || race.isDecided() || !budget.tryAcquire()) {
+                            return;
+                        }
+                        race.hedgeStarted();
+                        getHedgedExecutionObservable()
+                                .subscribeOn(getIsolationScheduler(isolationStrategy, new Func0<Boolean>() {
+                                    @Override
+                                    public Boolean call() {
+                                        return (properties.executionIsolationThreadInterruptOnTimeout().get() && _cmd.isCommandTimedOut.get() == TimedOutStatus.TIMED_OUT)
+                                                || race.lost(HedgeRace.HEDGED_ATTEMPT);
+                                    }
+                                }))
+                                .onErrorResumeNext(Observable.<R>never()) // a failed hedge leaves it to the first attempt
+                                .lift(race.gate(HedgeRace.HEDGED_ATTEMPT))
+                                .lift(new ExecutionHookApplication(_cmd))
+                                .lift(new DeprecatedOnRunHookApplication(_cmd))
+                                .unsafeSubscribe(subscriber);
+                    }
+                });
+                final Reference<TimerListener> tl = HystrixTimer.getInstance().addTimeoutListener(new TimerListener() {
+                    @Override
+                    public void tick() {
+                        startHedge.run();
+                    }
+
+                    @Override
+                    public int getIntervalTimeInMilliseconds() {
+                        return delay;
+                    }
+                });
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        tl.clear();
+                    }
+                }));
+            }
+        });
+        return Observable.amb(execution, hedgedExecution);
+    }
+
+    /**
+     * Decides which attempt of a hedged execution wins: the first one to reach its {@link #gate} with any notification.  All
+     * notifications of the other attempt are dropped there, before they reach the execution hooks.
+     */
+    private class HedgeRace {
+        static final int FIRST_ATTEMPT = 1;
+        static final int HEDGED_ATTEMPT = 2;
+
+        private final AtomicInteger winner = new AtomicInteger(0);
+        private final AtomicBoolean hedged = new AtomicBoolean(false);
+
+        void hedgeStarted() {
+            hedged.set(true);
+        }
+
+        boolean isDecided() {
+            return winner.get() != 0;
+        }
+
+        boolean lost(int attempt) {
+            final int w = winner.get();
+            return w != 0 && w != attempt;
+        }
+
+        private boolean wins(int attempt) {
+            if (winner.compareAndSet(0, attempt)) {
+                // recorded by the winner, so it is part of the result before the command completes
+                if (hedged.get()) {
+                    executionResult.addEvent(HystrixEventType.HEDGED);
+                    eventNotifier.markEvent(HystrixEventType.HEDGED, commandKey);
+                }
+                return true;
+            }
+            return winner.get() == attempt;
+        }
+
+        Operator<R, R> gate(final int attempt) {
+            return new Operator<R, R>() {
+                @Override
+                public Subscriber<? super R> call(final Subscriber<? super R> subscriber) {
+                    return new Subscriber<R>(subscriber) {
+                        @Override
+                        public void onCompleted() {
+                            if (wins(attempt)) {
+                                subscriber.onCompleted();
+                            }
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            if (wins(attempt)) {
+                                subscriber.onError(e);
+                            }
+                        }
+
+                        @Override
+                        public void onNext(R r) {
+                            if (wins(attempt)) {
+                                subscriber.onNext(r);
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private HystrixAttemptBudget getHedgeBudget() {
+        HystrixAttemptBudget budget = hedgeBudgetPerCircuit.get(commandKey);
+        if (budget == null) {
+            hedgeBudgetPerCircuit.putIfAbsent(commandKey, new HystrixAttemptBudget(properties.hedgingMaxPercent()));
+            budget = hedgeBudgetPerCircuit.get(commandKey);
+        }
+        return budget;
+    }
+
     /**
      * Execute <code>getFallback()</code> within protection of a semaphore that limits number of concurrent executions.
      * <p>
@@ -863,7 +1316,7 @@ import java.util.concurrent.atomic.AtomicReference;
         long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
         // record the executionResult
         // do this before executing fallback so it can be queried from within getFallback (see See https://github.com/Netflix/Hystrix/pull/144)
-        executionResult = executionResult.addEvent((int) latency, eventType);
+        executionResult.addEvent((int) latency, eventType);
 
         if (shouldNotBeWrapped(originalException)){
             /* executionHook for all errors */
@@ -894,7 +1347,7 @@ import java.util.concurrent.atomic.AtomicReference;
                     @Override
                     public void call(R r) {
                         if (shouldOutputOnNextEvents()) {
-                            executionResult = executionResult.addEvent(HystrixEventType.FALLBACK_EMIT);
+                            executionResult.addEvent(HystrixEventType.FALLBACK_EMIT);
                             eventNotifier.markEvent(HystrixEventType.FALLBACK_EMIT, commandKey);
                         }
                     }
@@ -905,7 +1358,7 @@ import java.util.concurrent.atomic.AtomicReference;
                     public void call() {
                         long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
                         eventNotifier.markEvent(HystrixEventType.FALLBACK_SUCCESS, commandKey);
-                        executionResult = executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_SUCCESS);
+                        executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_SUCCESS);
                     }
                 };
 
@@ -919,7 +1372,7 @@ import java.util.concurrent.atomic.AtomicReference;
                             long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
                             logger.debug("No fallback for HystrixCommand. ", fe); // debug only since we're throwing the exception and someone higher will do something with it
                             eventNotifier.markEvent(HystrixEventType.FALLBACK_MISSING, commandKey);
-                            executionResult = executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_MISSING);
+                            executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_MISSING);
 
                             /* executionHook for all errors */
                             e = wrapWithOnErrorHook(failureType, e);
@@ -929,7 +1382,7 @@ import java.util.concurrent.atomic.AtomicReference;
                             long latency = System.currentTimeMillis() - executionResult.getStartTimestamp();
                             logger.debug("HystrixCommand execution " + failureType.name() + " and fallback failed.", fe);
                             eventNotifier.markEvent(HystrixEventType.FALLBACK_FAILURE, commandKey);
-                            executionResult = executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_FAILURE);
+                            executionResult.addEvent((int) latency, HystrixEventType.FALLBACK_FAILURE);
 
                             /* executionHook for all errors */
                             e = wrapWithOnErrorHook(failureType, e);
@@ -985,7 +1438,7 @@ import java.util.concurrent.atomic.AtomicReference;
         }
     }
 
-    private Observable<R> getUserExecutionObservable(final AbstractCommand<R> _cmd) {
+    private Observable<R> getUserExecutionObservable(final AbstractCommand<R> _cmd, final HedgeRace race) {
         Observable<R> userObservable;
 
         try {
@@ -996,11 +1449,155 @@ import java.util.concurrent.atomic.AtomicReference;
             userObservable = Observable.error(ex);
         }
 
+        if (properties.retryMaxAttempts().get() > 1) {
+            getRetryBudget().deposit();
+            userObservable = retrying(_cmd, userObservable, 1);
+        }
+        if (race != null) {
+            userObservable = userObservable.lift(race.gate(HedgeRace.FIRST_ATTEMPT));
+        }
+
         return userObservable
                 .lift(new ExecutionHookApplication(_cmd))
                 .lift(new DeprecatedOnRunHookApplication(_cmd));
     }
 
+    /**
+     * Subscribe to the user code again when <code>attempt</code> fails without having emitted anything, as long as
+     * {@link HystrixCommandProperties#retryMaxAttempts()}, {@link #isRetriable(Throwable)} and the retry budget of the command
+     * allow.  Retries happen within the execution: under the semaphore it holds or on the thread-pool it runs on, and before
+     * the timeout of the command.
+     */
+    private Observable<R> retrying(final AbstractCommand<R> _cmd, final Observable<R> attempt, final int attemptNumber) {
+        final AtomicBoolean emitted = new AtomicBoolean(false);
+        return attempt.doOnNext(new Action1<R>() {
+            @Override
+            public void call(R r) {
+                emitted.set(true);
+            }
+        }).onErrorResumeNext(new Func1<Throwable, Observable<R>>() {
+            @Override
+            public Observable<R> call(Throwable t) {
+                if (emitted.get() || attemptNumber >= properties.retryMaxAttempts().get()
+                        || isCommandTimedOut.get() == TimedOutStatus.TIMED_OUT
+                        || !isRetriable(t) || !getRetryBudget().tryAcquire()) {
+                    return Observable.error(t);
+                }
+                executionResult.addEvent(HystrixEventType.RETRY);
+                eventNotifier.markEvent(HystrixEventType.RETRY, commandKey);
+                return retrying(_cmd, getRetryObservable(_cmd, attemptNumber), attemptNumber + 1);
+            }
+        });
+    }
+
+    /**
+     * The user code, subscribed to after the exponential backoff for the given number of failed attempts.  User code never
+     * runs on a {@link HystrixTimer} thread: a thread-isolated command is timed by the {@link HystrixTimer} and moves back onto
+     * its thread-pool, the blocking run() of any other {@link HystrixCommand} backs off on the thread that executes it, and
+     * any other {@link HystrixObservableCommand} is subscribed to again on the computation scheduler.
+     */
+    private Observable<R> getRetryObservable(final AbstractCommand<R> _cmd, int failedAttempts) {
+        final Observable<R> userObservable = Observable.defer(new Func0<Observable<R>>() {
+            @Override
+            public Observable<R> call() {
+                try {
+                    return getExecutionObservable();
+                } catch (Throwable ex) {
+                    return Observable.error(ex);
+                }
+            }
+        });
+        final int backoff = (int) Math.min(Integer.MAX_VALUE, (long) properties.retryBackoffInMilliseconds().get() << Math.min(failedAttempts - 1, 31));
+        if (backoff <= 0) {
+            return userObservable;
+        }
+        if (threadState.get() != ThreadState.STARTED) {
+            if (this instanceof HystrixCommand) {
+                // sleeps on the calling thread, which is blocked on run() anyway
+                return userObservable.delaySubscription(backoff, TimeUnit.MILLISECONDS, Schedulers.immediate());
+            } else {
+                return userObservable.delaySubscription(backoff, TimeUnit.MILLISECONDS, new HystrixContextScheduler(concurrencyStrategy, Schedulers.computation()));
+            }
+        }
+        final Observable<R> retry = userObservable.subscribeOn(getIsolationScheduler(properties.executionIsolationStrategy().get(), new Func0<Boolean>() {
+            @Override
+            public Boolean call() {
+                return properties.executionIsolationThreadInterruptOnTimeout().get() && _cmd.isCommandTimedOut.get() == TimedOutStatus.TIMED_OUT;
+            }
+        }));
+        return Observable.create(new Observable.OnSubscribe<R>() {
+            @Override
+            public void call(final Subscriber<? super R> subscriber) {
+                final HystrixContextRunnable startRetry = new HystrixContextRunnable(concurrencyStrategy, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!subscriber.isUnsubscribed()) {
+                            // only schedules the user code onto the thread-pool
+                            retry.unsafeSubscribe(subscriber);
+                        }
+                    }
+                });
+                final Reference<TimerListener> tl = HystrixTimer.getInstance().addTimeoutListener(new TimerListener() {
+                    @Override
+                    public void tick() {
+                        startRetry.run();
+                    }
+
+                    @Override
+                    public int getIntervalTimeInMilliseconds() {
+                        return backoff;
+                    }
+                });
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        tl.clear();
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Take a permit from the rate limiter of the command, if it has a rate limit.
+     *
+     * @return true if the execution may proceed
+     */
+    private boolean tryAcquireRateLimit() {
+        if (properties.executionRateLimitPermitsPerSecond().get() <= 0) {
+            return true;
+        }
+        HystrixRateLimiter rateLimiter = rateLimiterPerCircuit.get(commandKey);
+        if (rateLimiter == null) {
+            rateLimiterPerCircuit.putIfAbsent(commandKey, new HystrixRateLimiter(properties.executionRateLimitPermitsPerSecond(), properties.executionRateLimitMaxBurst()));
+            rateLimiter = rateLimiterPerCircuit.get(commandKey);
+        }
+        return rateLimiter.tryAcquire();
+    }
+
+    private HystrixAttemptBudget getRetryBudget() {
+        HystrixAttemptBudget budget = retryBudgetPerCircuit.get(commandKey);
+        if (budget == null) {
+            retryBudgetPerCircuit.putIfAbsent(commandKey, new HystrixAttemptBudget(properties.retryMaxPercent()));
+            budget = retryBudgetPerCircuit.get(commandKey);
+        }
+        return budget;
+    }
+
+    /**
+     * Whether a failure of the user code may be retried, see {@link HystrixCommandProperties#retryMaxAttempts()}.
+     * <p>
+     * DEFAULT BEHAVIOR: any exception is retried except for {@link HystrixBadRequestException}, exceptions that are not wrapped
+     * by Hystrix and errors.  Override this to only retry failures that are known to be transient.
+     *
+     * @param t
+     *            failure of the last attempt
+     * @return true if the user code may be attempted again
+     */
+    protected boolean isRetriable(Throwable t) {
+        return !(t instanceof HystrixBadRequestException) && !(t instanceof Error) && !shouldNotBeWrapped(t) && !isUnrecoverable(t);
+    }
+
     //在获取缓存结束后，需要更新command状态，记录执行时间，输出metrics，发送消息
     private Observable<R> handleRequestCacheHitAndEmitValues(final HystrixCommandResponseFromCache<R> fromCache, final AbstractCommand<R> _cmd) {
         try {
@@ -1039,7 +1636,7 @@ import java.util.concurrent.atomic.AtomicReference;
         }
 
         final long latency = System.currentTimeMillis() - commandStartTimestamp;
-        executionResult = executionResult
+        executionResult
                 .addEvent(-1, HystrixEventType.RESPONSE_FROM_CACHE)
                 .markUserThreadCompletion(latency)
                 .setNotExecutedInThread();
@@ -1056,9 +1653,9 @@ import java.util.concurrent.atomic.AtomicReference;
         }
 
         long userThreadLatency = System.currentTimeMillis() - commandStartTimestamp;
-        executionResult = executionResult.markUserThreadCompletion((int) userThreadLatency);
+        executionResult.markUserThreadCompletion((int) userThreadLatency);
         if (executionResultAtTimeOfCancellation == null) {
-            metrics.markCommandDone(executionResult, commandKey, threadPoolKey, commandExecutionStarted);
+            metrics.markCommandDone(executionResult.build(), commandKey, threadPoolKey, commandExecutionStarted);
         } else {
             metrics.markCommandDone(executionResultAtTimeOfCancellation, commandKey, threadPoolKey, commandExecutionStarted);
         }
@@ -1070,7 +1667,8 @@ import java.util.concurrent.atomic.AtomicReference;
 
     private Observable<R> handleSemaphoreRejectionViaFallback() {
         Exception semaphoreRejectionException = new RuntimeException("could not acquire a semaphore for execution");
-        executionResult = executionResult.setExecutionException(semaphoreRejectionException);
+        executionResult.setExecutionException(semaphoreRejectionException);
+        circuitBreaker.markNonSuccess();
         eventNotifier.markEvent(HystrixEventType.SEMAPHORE_REJECTED, commandKey);
         logger.debug("HystrixCommand Execution Rejection by Semaphore."); // debug only since we're throwing the exception and someone higher will do something with it
         // retrieve a fallback or throw an exception if no fallback available
@@ -1078,12 +1676,22 @@ import java.util.concurrent.atomic.AtomicReference;
                 "could not acquire a semaphore for execution", semaphoreRejectionException);
     }
 
+    private Observable<R> handleRateLimitViaFallback() {
+        Exception rateLimitException = new RuntimeException("rate limit exceeded");
+        executionResult.setExecutionException(rateLimitException);
+        eventNotifier.markEvent(HystrixEventType.RATE_LIMITED, commandKey);
+        logger.debug("HystrixCommand Execution Rejection by Rate Limiter."); // debug only since we're throwing the exception and someone higher will do something with it
+        // retrieve a fallback or throw an exception if no fallback available
+        return getFallbackOrThrowException(this, HystrixEventType.RATE_LIMITED, FailureType.REJECTED_RATE_LIMIT,
+                "rate limit exceeded", rateLimitException);
+    }
+
     private Observable<R> handleShortCircuitViaFallback() {
         // record that we are returning a short-circuited fallback
         eventNotifier.markEvent(HystrixEventType.SHORT_CIRCUITED, commandKey);
         // short-circuit and go directly to fallback (or throw an exception if no fallback implemented)
         Exception shortCircuitException = new RuntimeException("Hystrix circuit short-circuited and is OPEN");
-        executionResult = executionResult.setExecutionException(shortCircuitException);
+        executionResult.setExecutionException(shortCircuitException);
         try {
             return getFallbackOrThrowException(this, HystrixEventType.SHORT_CIRCUITED, FailureType.SHORTCIRCUIT,
                     "short-circuited", shortCircuitException);
@@ -1112,7 +1720,7 @@ import java.util.concurrent.atomic.AtomicReference;
         try {
             long executionLatency = System.currentTimeMillis() - executionResult.getStartTimestamp();
             eventNotifier.markEvent(HystrixEventType.BAD_REQUEST, commandKey);
-            executionResult = executionResult.addEvent((int) executionLatency, HystrixEventType.BAD_REQUEST);
+            executionResult.addEvent((int) executionLatency, HystrixEventType.BAD_REQUEST);
             Exception decorated = executionHook.onError(this, FailureType.BAD_REQUEST_EXCEPTION, underlying);
 
             if (decorated instanceof HystrixBadRequestException) {
@@ -1140,14 +1748,14 @@ import java.util.concurrent.atomic.AtomicReference;
         eventNotifier.markEvent(HystrixEventType.FAILURE, commandKey);
 
         // record the exception
-        executionResult = executionResult.setException(underlying);
+        executionResult.setException(underlying);
         return getFallbackOrThrowException(this, HystrixEventType.FAILURE, FailureType.COMMAND_EXCEPTION, "failed", underlying);
     }
 
     private Observable<R> handleFallbackRejectionByEmittingError() {
         long latencyWithFallback = System.currentTimeMillis() - executionResult.getStartTimestamp();
         eventNotifier.markEvent(HystrixEventType.FALLBACK_REJECTION, commandKey);
-        executionResult = executionResult.addEvent((int) latencyWithFallback, HystrixEventType.FALLBACK_REJECTION);
+        executionResult.addEvent((int) latencyWithFallback, HystrixEventType.FALLBACK_REJECTION);
         logger.debug("HystrixCommand Fallback Rejection."); // debug only since we're throwing the exception and someone higher will do something with it
         // if we couldn't acquire a permit, we "fail fast" by throwing an exception
         return Observable.error(new HystrixRuntimeException(FailureType.REJECTED_SEMAPHORE_FALLBACK, this.getClass(), getLogMessagePrefix() + " fallback execution rejected.", null, null));
@@ -1279,7 +1887,8 @@ import java.util.concurrent.atomic.AtomicReference;
                 }
             };
             // 将TimeListener加到HystrixTimer，线程池调度
-            final Reference<TimerListener> tl = HystrixTimer.getInstance().addTimerListener(listener);
+            // the timeout only ever needs to fire once, so don't schedule it at a fixed rate
+            final Reference<TimerListener> tl = HystrixTimer.getInstance().addTimeoutListener(listener);
 
             // set externally so execute/queue can see this
             originalCommand.timeoutTimer.set(tl);
@@ -1314,6 +1923,12 @@ import java.util.concurrent.atomic.AtomicReference;
                     }
                 }
 
+                @Override
+                public void setProducer(Producer p) {
+                    // pass the child's demand through to the command's Observable rather than requesting everything
+                    child.setProducer(p);
+                }
+
                 private boolean isNotTimedOut() {
                     // if already marked COMPLETED (by onNext) or succeeds in setting to COMPLETED
                     return originalCommand.isCommandTimedOut.get() == TimedOutStatus.COMPLETED ||
@@ -1344,12 +1959,12 @@ import java.util.concurrent.atomic.AtomicReference;
      */
     protected TryableSemaphore getFallbackSemaphore() {
         if (fallbackSemaphoreOverride == null) {
-            TryableSemaphore _s = fallbackSemaphorePerCircuit.get(commandKey.name());
+            TryableSemaphore _s = fallbackSemaphorePerCircuit.get(commandKey);
             if (_s == null) {
                 // we didn't find one cache so setup
-                fallbackSemaphorePerCircuit.putIfAbsent(commandKey.name(), new TryableSemaphoreActual(properties.fallbackIsolationSemaphoreMaxConcurrentRequests()));
+                fallbackSemaphorePerCircuit.putIfAbsent(commandKey, new TryableSemaphoreActual(properties.fallbackIsolationSemaphoreMaxConcurrentRequests()));
                 // assign whatever got set (this or another thread)
-                return fallbackSemaphorePerCircuit.get(commandKey.name());
+                return fallbackSemaphorePerCircuit.get(commandKey);
             } else {
                 return _s;
             }
@@ -1366,12 +1981,12 @@ import java.util.concurrent.atomic.AtomicReference;
     protected TryableSemaphore getExecutionSemaphore() {
         if (properties.executionIsolationStrategy().get() == ExecutionIsolationStrategy.SEMAPHORE) {
             if (executionSemaphoreOverride == null) {
-                TryableSemaphore _s = executionSemaphorePerCircuit.get(commandKey.name());
+                TryableSemaphore _s = executionSemaphorePerCircuit.get(commandKey);
                 if (_s == null) {
                     // we didn't find one cache so setup
-                    executionSemaphorePerCircuit.putIfAbsent(commandKey.name(), new TryableSemaphoreActual(properties.executionIsolationSemaphoreMaxConcurrentRequests()));
+                    executionSemaphorePerCircuit.putIfAbsent(commandKey, new TryableSemaphoreActual(getExecutionSemaphorePermits()));
                     // assign whatever got set (this or another thread)
-                    return executionSemaphorePerCircuit.get(commandKey.name());
+                    return executionSemaphorePerCircuit.get(commandKey);
                 } else {
                     return _s;
                 }
@@ -1384,6 +1999,16 @@ import java.util.concurrent.atomic.AtomicReference;
         }
     }
 
+    private HystrixProperty<Integer> getExecutionSemaphorePermits() {
+        if (properties.executionIsolationSemaphoreAdaptiveLimitEnabled().get()) {
+            HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(properties.executionIsolationSemaphoreMaxConcurrentRequests());
+            limit.addLatencySource(commandKey, properties);
+            return limit;
+        } else {
+            return properties.executionIsolationSemaphoreMaxConcurrentRequests();
+        }
+    }
+
     /**
      * Each concrete implementation of AbstractCommand should return the name of the fallback method as a String
      * This will be used to determine if the fallback "exists" for firing the onFallbackStart/onFallbackError hooks
@@ -1993,7 +2618,16 @@ import java.util.concurrent.atomic.AtomicReference;
     }
 
     /**
-     * Whether the response received was a fallback as result of being rejected (either via threadpool or semaphore)
+     * Whether the response received was a fallback as result of being rejected by the rate limiter
+     *
+     * @return boolean
+     */
+    public boolean isResponseRateLimited() {
+        return getCommandResult().isResponseRateLimited();
+    }
+
+    /**
+     * Whether the response received was a fallback as result of being rejected (either via threadpool, semaphore or rate limiter)
      *
      * @return boolean
      */
@@ -2012,10 +2646,20 @@ import java.util.concurrent.atomic.AtomicReference;
         return getCommandResult().getOrderedList();
     }
 
+    /**
+     * What happened so far as the user-provided code ran, for subclasses.  Recorded in place by the command, so this is a
+     * snapshot: it is built anew only after the state changed.
+     *
+     * @return {@link ExecutionResult} of this command
+     */
+    protected ExecutionResult getExecutionResult() {
+        return executionResult.build();
+    }
+
     private ExecutionResult getCommandResult() {
         ExecutionResult resultToReturn;
         if (executionResultAtTimeOfCancellation == null) {
-            resultToReturn = executionResult;
+            resultToReturn = executionResult.build();
         } else {
             resultToReturn = executionResultAtTimeOfCancellation;
         }
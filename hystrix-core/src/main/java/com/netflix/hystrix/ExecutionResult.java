@@ -16,8 +16,11 @@
 package com.netflix.hystrix;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Immutable holder class for the status of command execution.
@@ -60,19 +63,22 @@ public class ExecutionResult {
         private final int numEmissions;
         private final int numFallbackEmissions;
         private final int numCollapsed;
+        private final int numRetries;
 
         EventCounts() {
             this.events = new BitSet(NUM_EVENT_TYPES);
             this.numEmissions = 0;
             this.numFallbackEmissions = 0;
             this.numCollapsed = 0;
+            this.numRetries = 0;
         }
 
-        EventCounts(BitSet events, int numEmissions, int numFallbackEmissions, int numCollapsed) {
+        EventCounts(BitSet events, int numEmissions, int numFallbackEmissions, int numCollapsed, int numRetries) {
             this.events = events;
             this.numEmissions = numEmissions;
             this.numFallbackEmissions = numFallbackEmissions;
             this.numCollapsed = numCollapsed;
+            this.numRetries = numRetries;
         }
 
         EventCounts(HystrixEventType... eventTypes) {
@@ -80,6 +86,7 @@ public class ExecutionResult {
             int localNumEmits = 0;
             int localNumFallbackEmits = 0;
             int localNumCollapsed = 0;
+            int localNumRetries = 0;
             for (HystrixEventType eventType: eventTypes) {
                 switch (eventType) {
                     case EMIT:
@@ -94,6 +101,10 @@ public class ExecutionResult {
                         newBitSet.set(HystrixEventType.COLLAPSED.ordinal());
                         localNumCollapsed++;
                         break;
+                    case RETRY:
+                        newBitSet.set(HystrixEventType.RETRY.ordinal());
+                        localNumRetries++;
+                        break;
                     default:
                         newBitSet.set(eventType.ordinal());
                         break;
@@ -103,6 +114,7 @@ public class ExecutionResult {
             this.numEmissions = localNumEmits;
             this.numFallbackEmissions = localNumFallbackEmits;
             this.numCollapsed = localNumCollapsed;
+            this.numRetries = localNumRetries;
         }
 
         EventCounts plus(HystrixEventType eventType) {
@@ -114,6 +126,7 @@ public class ExecutionResult {
             int localNumEmits = numEmissions;
             int localNumFallbackEmits =  numFallbackEmissions;
             int localNumCollapsed = numCollapsed;
+            int localNumRetries = numRetries;
             switch (eventType) {
                 case EMIT:
                     newBitSet.set(HystrixEventType.EMIT.ordinal());
@@ -127,11 +140,15 @@ public class ExecutionResult {
                     newBitSet.set(HystrixEventType.COLLAPSED.ordinal());
                     localNumCollapsed += count;
                     break;
+                case RETRY:
+                    newBitSet.set(HystrixEventType.RETRY.ordinal());
+                    localNumRetries += count;
+                    break;
                 default:
                     newBitSet.set(eventType.ordinal());
                     break;
             }
-            return new EventCounts(newBitSet, localNumEmits, localNumFallbackEmits, localNumCollapsed);
+            return new EventCounts(newBitSet, localNumEmits, localNumFallbackEmits, localNumCollapsed, localNumRetries);
         }
 
         public boolean contains(HystrixEventType eventType) {
@@ -148,6 +165,7 @@ public class ExecutionResult {
                 case FALLBACK_EMIT: return numFallbackEmissions;
                 case EXCEPTION_THROWN: return containsAnyOf(EXCEPTION_PRODUCING_EVENTS) ? 1 : 0;
                 case COLLAPSED: return numCollapsed;
+                case RETRY: return numRetries;
                 default: return contains(eventType) ? 1 : 0;
             }
         }
@@ -162,6 +180,7 @@ public class ExecutionResult {
             if (numEmissions != that.numEmissions) return false;
             if (numFallbackEmissions != that.numFallbackEmissions) return false;
             if (numCollapsed != that.numCollapsed) return false;
+            if (numRetries != that.numRetries) return false;
             return events.equals(that.events);
 
         }
@@ -172,6 +191,7 @@ public class ExecutionResult {
             result = 31 * result + numEmissions;
             result = 31 * result + numFallbackEmissions;
             result = 31 * result + numCollapsed;
+            result = 31 * result + numRetries;
             return result;
         }
 
@@ -182,6 +202,7 @@ public class ExecutionResult {
                     ", numEmissions=" + numEmissions +
                     ", numFallbackEmissions=" + numFallbackEmissions +
                     ", numCollapsed=" + numCollapsed +
+                    ", numRetries=" + numRetries +
                     '}';
         }
     }
@@ -336,8 +357,12 @@ public class ExecutionResult {
         return eventCounts.contains(HystrixEventType.THREAD_POOL_REJECTED);
     }
 
+    public boolean isResponseRateLimited() {
+        return eventCounts.contains(HystrixEventType.RATE_LIMITED);
+    }
+
     public boolean isResponseRejected() {
-        return isResponseThreadPoolRejected() || isResponseSemaphoreRejected();
+        return isResponseThreadPoolRejected() || isResponseSemaphoreRejected() || isResponseRateLimited();
     }
 
     public List<HystrixEventType> getOrderedList() {
@@ -362,6 +387,242 @@ public class ExecutionResult {
         return eventCounts.containsAnyOf(TERMINAL_EVENTS);
     }
 
+    /**
+     * Mutable counterpart of {@link ExecutionResult} that is owned by a single command instance.
+     * <p>
+     * The immutable "setters" above allocate a new {@link ExecutionResult} (and usually a new {@link EventCounts} with a
+     * cloned {@link BitSet}) for every event, which adds up to several objects per command execution.  This builder records
+     * the same state in place instead, and only creates the immutable view when it is published via {@link #build()}: to
+     * the metrics on command completion, to the request log and to getters on the command.  The view is cached until the
+     * next mutation, so repeated reads of a completed command don't allocate.
+     * <p>
+     * The caller thread, the isolation thread and the timer thread may record state concurrently, for instance when a
+     * timeout races the completion of the user code.  Events and the version are therefore updated atomically, so neither
+     * an event nor the invalidation of the cached view can be lost; the other fields are volatile so readers on other
+     * threads see the latest values.
+     */
+    /* package-private */ static class Builder {
+        private static final long TERMINAL_EVENTS_MASK = maskOf(HystrixEventType.TERMINAL_EVENT_TYPES);
+        private static final long REJECTED_EVENTS_MASK = maskOf(HystrixEventType.THREAD_POOL_REJECTED, HystrixEventType.SEMAPHORE_REJECTED, HystrixEventType.RATE_LIMITED);
+
+        /* one bit per HystrixEventType ordinal, there are far fewer than 64 of them */
+        private final AtomicLong events = new AtomicLong(0L);
+        private volatile int numEmissions = 0;
+        private volatile int numFallbackEmissions = 0;
+        private volatile int numCollapsed = 0;
+        private volatile int numRetries = 0;
+        private volatile Exception failedExecutionException = null;
+        private volatile Exception executionException = null;
+        private volatile long startTimestamp = -1L;
+        private volatile int executionLatency = -1;
+        private volatile int userThreadLatency = -1;
+        private volatile boolean executionOccurred = false;
+        private volatile boolean isExecutedInThread = false;
+        private volatile HystrixCollapserKey collapserKey = null;
+
+        /* bumped after every mutation so a cached view can tell whether it is stale; mutations come from several threads */
+        private final AtomicInteger version = new AtomicInteger(0);
+        private volatile Published published = new Published(0, EMPTY);
+
+        private static long maskOf(HystrixEventType... eventTypes) {
+            return maskOf(Arrays.asList(eventTypes));
+        }
+
+        private static long maskOf(Iterable<HystrixEventType> eventTypes) {
+            long mask = 0L;
+            for (HystrixEventType eventType: eventTypes) {
+                mask |= 1L << eventType.ordinal();
+            }
+            return mask;
+        }
+
+        private Builder modified() {
+            version.incrementAndGet();
+            return this;
+        }
+
+        public Builder setExecutionOccurred() {
+            executionOccurred = true;
+            return modified();
+        }
+
+        public Builder setExecutionLatency(int executionLatency) {
+            this.executionLatency = executionLatency;
+            return modified();
+        }
+
+        public Builder setException(Exception e) {
+            failedExecutionException = e;
+            return modified();
+        }
+
+        public Builder setExecutionException(Exception executionException) {
+            this.executionException = executionException;
+            return modified();
+        }
+
+        public Builder setInvocationStartTime(long startTimestamp) {
+            this.startTimestamp = startTimestamp;
+            return modified();
+        }
+
+        public Builder setExecutedInThread() {
+            isExecutedInThread = true;
+            return modified();
+        }
+
+        public Builder setNotExecutedInThread() {
+            isExecutedInThread = false;
+            return modified();
+        }
+
+        public Builder markCollapsed(HystrixCollapserKey collapserKey, int sizeOfBatch) {
+            this.collapserKey = collapserKey;
+            return addEvent(HystrixEventType.COLLAPSED, sizeOfBatch);
+        }
+
+        public Builder markUserThreadCompletion(long userThreadLatency) {
+            if (startTimestamp > 0 && !isResponseRejected()) {
+                this.userThreadLatency = (int) userThreadLatency;
+                return modified();
+            } else {
+                return this;
+            }
+        }
+
+        public Builder addEvent(HystrixEventType eventType) {
+            return addEvent(eventType, 1);
+        }
+
+        public Builder addEvent(int executionLatency, HystrixEventType eventType) {
+            if (startTimestamp >= 0 && !isResponseRejected()) {
+                this.executionLatency = executionLatency;
+            }
+            return addEvent(eventType);
+        }
+
+        private Builder addEvent(HystrixEventType eventType, int count) {
+            switch (eventType) {
+                case EMIT:
+                    numEmissions += count;
+                    break;
+                case FALLBACK_EMIT:
+                    numFallbackEmissions += count;
+                    break;
+                case COLLAPSED:
+                    numCollapsed += count;
+                    break;
+                case RETRY:
+                    numRetries += count;
+                    break;
+                default:
+                    break;
+            }
+            final long eventBit = 1L << eventType.ordinal();
+            long current;
+            do {
+                current = events.get();
+            } while ((current & eventBit) == 0 && !events.compareAndSet(current, current | eventBit));
+            return modified();
+        }
+
+        /**
+         * Overwrite all state with the given result, e.g. to adopt the outcome of the command a response was cached from.
+         * The given instance is published as-is, so commands sharing a cached response also share the same view.
+         */
+        public Builder from(ExecutionResult executionResult) {
+            long localEvents = 0L;
+            for (HystrixEventType eventType: ALL_EVENT_TYPES) {
+                if (executionResult.eventCounts.contains(eventType)) {
+                    localEvents |= 1L << eventType.ordinal();
+                }
+            }
+            events.set(localEvents);
+            numEmissions = executionResult.eventCounts.numEmissions;
+            numFallbackEmissions = executionResult.eventCounts.numFallbackEmissions;
+            numCollapsed = executionResult.eventCounts.numCollapsed;
+            numRetries = executionResult.eventCounts.numRetries;
+            failedExecutionException = executionResult.failedExecutionException;
+            executionException = executionResult.executionException;
+            startTimestamp = executionResult.startTimestamp;
+            executionLatency = executionResult.executionLatency;
+            userThreadLatency = executionResult.userThreadLatency;
+            executionOccurred = executionResult.executionOccurred;
+            isExecutedInThread = executionResult.isExecutedInThread;
+            collapserKey = executionResult.collapserKey;
+            published = new Published(version.incrementAndGet(), executionResult);
+            return this;
+        }
+
+        /**
+         * Immutable view of the current state.  Only allocates if the state changed since the last call.
+         *
+         * @return {@link ExecutionResult} reflecting all mutations so far
+         */
+        public ExecutionResult build() {
+            final int currentVersion = version.get();
+            final Published lastPublished = published;
+            if (lastPublished.version == currentVersion) {
+                return lastPublished.executionResult;
+            }
+            final long localEvents = events.get();
+            final BitSet eventBits = new BitSet(NUM_EVENT_TYPES);
+            for (int i = 0; i < NUM_EVENT_TYPES; i++) {
+                if ((localEvents & (1L << i)) != 0) {
+                    eventBits.set(i);
+                }
+            }
+            final ExecutionResult executionResult = new ExecutionResult(
+                    new EventCounts(eventBits, numEmissions, numFallbackEmissions, numCollapsed, numRetries), startTimestamp,
+                    executionLatency, userThreadLatency, failedExecutionException, executionException, executionOccurred,
+                    isExecutedInThread, collapserKey);
+            published = new Published(currentVersion, executionResult);
+            return executionResult;
+        }
+
+        public long getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        public int getExecutionLatency() {
+            return executionLatency;
+        }
+
+        public long getCommandRunStartTimeInNanos() {
+            return startTimestamp * 1000 * 1000;
+        }
+
+        public Exception getException() {
+            return failedExecutionException;
+        }
+
+        public Exception getExecutionException() {
+            return executionException;
+        }
+
+        public HystrixCollapserKey getCollapserKey() {
+            return collapserKey;
+        }
+
+        public boolean isResponseRejected() {
+            return (events.get() & REJECTED_EVENTS_MASK) != 0;
+        }
+
+        public boolean containsTerminalEvent() {
+            return (events.get() & TERMINAL_EVENTS_MASK) != 0;
+        }
+
+        private static class Published {
+            private final int version;
+            private final ExecutionResult executionResult;
+
+            private Published(int version, ExecutionResult executionResult) {
+                this.version = version;
+                this.executionResult = executionResult;
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "ExecutionResult{" +
@@ -76,6 +76,7 @@ public class Hystrix {
         HystrixCircuitBreaker.Factory.reset();
         HystrixPlugins.reset();
         HystrixPropertiesFactory.reset();
+        HystrixIdleKeyReclaimer.reset();
         currentCommand.set(new ConcurrentStack<HystrixCommandKey>());
     }
 
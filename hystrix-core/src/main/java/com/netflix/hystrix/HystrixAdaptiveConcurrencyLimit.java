@@ -0,0 +1,168 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.metric.CachedValuesHistogram;
+import com.netflix.hystrix.metric.consumer.RollingCommandLatencyDistributionStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that adapts to the execution latency of the commands it guards, for use as the number of permits of an
+ * execution semaphore or as the admission limit of a {@link HystrixThreadPool}.
+ * <p>
+ * The configured limit is the upper bound.  Every time a new rolling latency distribution is available from the
+ * {@link RollingCommandLatencyDistributionStream} of a command, its mean latency is compared with the latency the command
+ * normally takes (a baseline that follows improvements immediately and degradations only slowly), and the limit is
+ * adjusted with a gradient:
+ * <pre>
+ *   gradient = clamp(TOLERANCE * baseline / latency, MIN_GRADIENT, 1)
+ *   newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ * So the limit shrinks (by at most half per sample) while latency is well above normal, which rejects work early instead of
+ * letting it queue, and grows back by sqrt(limit) per sample once latency is normal again.
+ * <p>
+ * A thread-pool is used by several commands, so each command is a separate latency source with its own baseline.
+ * <p>
+ * {@link #get()} is called on every admission.  It only looks for new distributions every {@link #SAMPLE_INTERVAL_IN_MS},
+ * and otherwise just reads a volatile field.
+ */
+public class HystrixAdaptiveConcurrencyLimit implements HystrixProperty<Integer> {
+
+    /* the distributions only change once per percentile bucket, so there's no point looking more often than this */
+    private static final long SAMPLE_INTERVAL_IN_MS = 100;
+    /* latency up to this multiple of the baseline doesn't lower the limit */
+    private static final double TOLERANCE = 1.5;
+    /* the limit shrinks by at most half per sample */
+    private static final double MIN_GRADIENT = 0.5;
+    /* weight of a new sample in the estimated limit */
+    private static final double SMOOTHING = 0.2;
+    /* weight of a new sample in the baseline when latency is worse than the baseline */
+    private static final double BASELINE_DRIFT = 0.05;
+    private static final int MIN_LIMIT = 1;
+
+    private final HystrixProperty<Integer> maxLimit;
+    private final ConcurrentMap<String, LatencySource> latencySources = new ConcurrentHashMap<String, LatencySource>();
+    private final AtomicLong nextSampleTime = new AtomicLong(0L);
+
+    private volatile int limit;
+
+    /* guarded by this */
+    private double estimatedLimit;
+    private final Map<String, Double> baselineLatencies = new HashMap<String, Double>();
+
+    /**
+     * @param maxLimit configured limit, which is the upper bound of the adaptive limit
+     */
+    public HystrixAdaptiveConcurrencyLimit(HystrixProperty<Integer> maxLimit) {
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = maxLimit.get();
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Adjust the limit to the latency distribution of the given command as well.
+     */
+    public void addLatencySource(HystrixCommandKey commandKey, HystrixCommandProperties properties) {
+        if (!latencySources.containsKey(commandKey.name())) {
+            latencySources.putIfAbsent(commandKey.name(), new LatencySource(commandKey, properties));
+        }
+    }
+
+    /**
+     * Stop adjusting the limit to the latency distribution of the given command.
+     */
+    public void removeLatencySource(HystrixCommandKey commandKey) {
+        if (latencySources.remove(commandKey.name()) != null) {
+            synchronized (this) {
+                baselineLatencies.remove(commandKey.name());
+            }
+        }
+    }
+
+    /**
+     * @return currently permitted concurrency
+     */
+    @Override
+    public Integer get() {
+        final long now = System.currentTimeMillis();
+        final long next = nextSampleTime.get();
+        if (now >= next && nextSampleTime.compareAndSet(next, now + SAMPLE_INTERVAL_IN_MS)) {
+            sampleLatencySources();
+        }
+        return Math.max(MIN_LIMIT, Math.min(limit, maxLimit.get()));
+    }
+
+    private void sampleLatencySources() {
+        for (LatencySource source: latencySources.values()) {
+            // look the stream up every time, so we follow it being reset
+            CachedValuesHistogram distribution = RollingCommandLatencyDistributionStream.getInstance(source.commandKey, source.properties).getLatest();
+            if (distribution != null && distribution != source.lastDistribution) {
+                source.lastDistribution = distribution;
+                if (distribution.getTotalCount() > 0) {
+                    onSample(source.commandKey.name(), distribution.getMean());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adjust the limit to a new latency sample.
+     *
+     * @param sourceName command the latency was measured for
+     * @param latencyInMs mean latency over the rolling window
+     */
+    /* package */ synchronized void onSample(String sourceName, int latencyInMs) {
+        final double latency = Math.max(1, latencyInMs);
+        final Double previousBaseline = baselineLatencies.get(sourceName);
+        final double baseline;
+        if (previousBaseline == null || latency < previousBaseline) {
+            baseline = latency;
+        } else {
+            // let a lasting change in latency become the new normal eventually
+            baseline = previousBaseline + (latency - previousBaseline) * BASELINE_DRIFT;
+        }
+        baselineLatencies.put(sourceName, baseline);
+
+        final int max = maxLimit.get();
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * baseline / latency));
+        final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(MIN_LIMIT, Math.min(max, estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    private static class LatencySource {
+        private final HystrixCommandKey commandKey;
+        private final HystrixCommandProperties properties;
+        /* only touched by the thread that won the sampling CAS */
+        private volatile CachedValuesHistogram lastDistribution;
+
+        private LatencySource(HystrixCommandKey commandKey, HystrixCommandProperties properties) {
+            this.commandKey = commandKey;
+            this.properties = properties;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HystrixAdaptiveConcurrencyLimit[" + get() + " / " + maxLimit.get() + "]";
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.executionhook.HystrixCommandExecutionHook;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
+import rx.Observable;
+import rx.functions.Func0;
+
+/**
+ * Used to wrap code that will execute potentially risky functionality (typically meaning a service call over the network)
+ * with fault and latency tolerance, statistics and performance metrics capture, circuit breaker and bulkhead functionality.
+ * This command is for dependencies with a non-blocking client: {@link #run()} starts the call and returns a
+ * {@link HystrixCompletableFuture} of its result, so no thread is held while the call is in flight.
+ * <p>
+ * Like {@link HystrixObservableCommand} this defaults to SEMAPHORE isolation, so the semaphore bounds the number of calls
+ * in flight, and timeouts are raised by the {@link com.netflix.hystrix.util.HystrixTimer} and cancel the future returned by
+ * {@link #run()}. Metrics, circuit-breaker, request caching and the {@link HystrixRequestLog} apply as for any other command.
+ *
+ * @param <R>
+ *            the return type
+ *
+ * @ThreadSafe
+ */
+public abstract class HystrixAsyncCommand<R> extends AbstractCommand<R> implements HystrixObservable<R>, HystrixInvokableInfo<R> {
+
+    /**
+     * Construct a {@link HystrixAsyncCommand} with defined {@link HystrixCommandGroupKey}.
+     * <p>
+     * The {@link HystrixCommandKey} will be derived from the implementing class name.
+     *
+     * @param group
+     *            {@link HystrixCommandGroupKey} used to group together multiple {@link HystrixAsyncCommand} objects.
+     */
+    protected HystrixAsyncCommand(HystrixCommandGroupKey group) {
+        this(HystrixObservableCommand.Setter.withGroupKey(group));
+    }
+
+    /**
+     * Construct a {@link HystrixAsyncCommand} with defined {@link HystrixObservableCommand.Setter} that allows injecting
+     * property and strategy overrides and other optional arguments.
+     * <p>
+     * This shares its {@link HystrixObservableCommand.Setter}, which defaults to SEMAPHORE isolation, as both run
+     * non-blocking code.
+     *
+     * @param setter
+     *            Fluent interface for constructor arguments
+     */
+    protected HystrixAsyncCommand(HystrixObservableCommand.Setter setter) {
+        // use 'null' to specify use the default
+        this(setter.groupKey, setter.commandKey, setter.threadPoolKey, null, null, setter.commandPropertiesDefaults, setter.threadPoolPropertiesDefaults, null, null, null, null, null);
+    }
+
+    /**
+     * Allow constructing a {@link HystrixAsyncCommand} with injection of most aspects of its functionality.
+     * <p>
+     * Some of these never have a legitimate reason for injection except in unit testing.
+     * <p>
+     * Most of the args will revert to a valid default if 'null' is passed in.
+     */
+    HystrixAsyncCommand(HystrixCommandGroupKey group, HystrixCommandKey key, HystrixThreadPoolKey threadPoolKey, HystrixCircuitBreaker circuitBreaker, HystrixThreadPool threadPool,
+            HystrixCommandProperties.Setter commandPropertiesDefaults, HystrixThreadPoolProperties.Setter threadPoolPropertiesDefaults,
+            HystrixCommandMetrics metrics, TryableSemaphore fallbackSemaphore, TryableSemaphore executionSemaphore,
+            HystrixPropertiesStrategy propertiesStrategy, HystrixCommandExecutionHook executionHook) {
+        super(group, key, threadPoolKey, circuitBreaker, threadPool, commandPropertiesDefaults, threadPoolPropertiesDefaults, metrics, fallbackSemaphore, executionSemaphore, propertiesStrategy, executionHook);
+    }
+
+    /**
+     * Implement this method to start the call when the command is executed. It should not block.
+     *
+     * @return future completed with the result of the call, or with the exception it failed with
+     * @throws Exception
+     *             if the call can not be started
+     */
+    protected abstract HystrixCompletableFuture<R> run() throws Exception;
+
+    /**
+     * If {@link #run()} fails in any way then this method will be invoked to provide an opportunity to return a fallback response.
+     * <p>
+     * This should do work that does not require network transport to produce.
+     * <p>
+     * DEFAULT BEHAVIOR: It fails with UnsupportedOperationException.
+     *
+     * @return future of the fallback response
+     * @throws Exception
+     *             if a fallback is not available
+     */
+    protected HystrixCompletableFuture<R> getFallback() throws Exception {
+        throw new UnsupportedOperationException("No fallback available.");
+    }
+
+    /**
+     * Used for asynchronous execution of command without blocking a thread to consume the result.
+     *
+     * @return {@code HystrixCompletableFuture<R>} that completes with the result of {@link #run()} or a fallback from {@link #getFallback()}
+     * @throws IllegalStateException
+     *             if invoked more than once
+     */
+    public HystrixCompletableFuture<R> toCompletableFuture() {
+        return new HystrixCompletableFuture<R>().subscribe(toObservable());
+    }
+
+    @Override
+    final protected Observable<R> getExecutionObservable() {
+        return Observable.defer(new Func0<Observable<R>>() {
+            @Override
+            public Observable<R> call() {
+                final HystrixCompletableFuture<R> future;
+                try {
+                    future = run();
+                } catch (Throwable ex) {
+                    return Observable.error(ex);
+                }
+                if (future == null) {
+                    return Observable.error(new NullPointerException("run() returned null"));
+                }
+                return future.toObservable();
+            }
+        });
+    }
+
+    @Override
+    final protected Observable<R> getFallbackObservable() {
+        return Observable.defer(new Func0<Observable<R>>() {
+            @Override
+            public Observable<R> call() {
+                final HystrixCompletableFuture<R> future;
+                try {
+                    future = getFallback();
+                } catch (Throwable ex) {
+                    return Observable.error(ex);
+                }
+                if (future == null) {
+                    return Observable.error(new NullPointerException("getFallback() returned null"));
+                }
+                return future.toObservable();
+            }
+        });
+    }
+
+    @Override
+    protected String getFallbackMethodName() {
+        return "getFallback";
+    }
+
+    @Override
+    protected boolean isFallbackUserDefined() {
+        Boolean containsFromMap = commandContainsFallback.get(commandKey);
+        if (containsFromMap != null) {
+            return containsFromMap;
+        } else {
+            Boolean toInsertIntoMap;
+            try {
+                getClass().getDeclaredMethod("getFallback");
+                toInsertIntoMap = true;
+            } catch (NoSuchMethodException nsme) {
+                toInsertIntoMap = false;
+            }
+            commandContainsFallback.put(commandKey, toInsertIntoMap);
+            return toInsertIntoMap;
+        }
+    }
+
+    @Override
+    protected boolean commandIsScalar() {
+        return true;
+    }
+}
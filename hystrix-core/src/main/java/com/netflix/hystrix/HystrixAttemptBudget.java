@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token bucket that limits attempts made on top of the regular executions of a command, such as hedged attempts, to a
+ * percentage of those executions.
+ * <p>
+ * Every execution deposits <code>percent / 100</code> of a token and every extra attempt withdraws a whole one, so over time
+ * at most <code>percent</code> extra attempts are made per 100 executions however slow or broken the dependency is.  The
+ * balance is capped at {@link #MAX_TOKENS} so a long quiet period can't be followed by a burst of extra attempts, and starts
+ * out empty.
+ * <p>
+ * Both operations are a single CAS loop on an int, in hundredths of a token.
+ *
+ * @ThreadSafe
+ */
+public class HystrixAttemptBudget {
+
+    /* most extra attempts that can be saved up */
+    /* package */ static final int MAX_TOKENS = 10;
+    private static final int TOKEN = 100;
+
+    private final HystrixProperty<Integer> percent;
+    private final AtomicInteger balance = new AtomicInteger(0);
+
+    /**
+     * @param percent extra attempts allowed per 100 executions
+     */
+    public HystrixAttemptBudget(HystrixProperty<Integer> percent) {
+        this.percent = percent;
+    }
+
+    /**
+     * Record an execution, which adds to the budget.
+     */
+    public void deposit() {
+        final int amount = percent.get();
+        if (amount <= 0) {
+            return;
+        }
+        final int max = MAX_TOKENS * TOKEN;
+        while (true) {
+            final int current = balance.get();
+            if (current >= max) {
+                return;
+            }
+            if (balance.compareAndSet(current, Math.min(max, current + amount))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Withdraw from the budget for an extra attempt.
+     *
+     * @return true if the attempt may be made
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+}
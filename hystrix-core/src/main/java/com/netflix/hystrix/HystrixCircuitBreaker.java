@@ -15,16 +15,22 @@
  */
 package com.netflix.hystrix;
 
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.netflix.hystrix.HystrixCommandMetrics.HealthCounts;
+import com.netflix.hystrix.metric.CachedValuesHistogram;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
+
+import rx.Subscriber;
+import rx.Subscription;
 
 /**
- * Circuit-breaker logic that is hooked into {@link HystrixCommand} execution and will stop allowing executions if failures have gone past the defined threshold.
+ * Circuit-breaker logic that is hooked into {@link HystrixCommand} execution and will stop allowing executions if failures (or, optionally, latency) have gone past the defined threshold.
  * <p>
- * It will then allow single retries after a defined sleepWindow until the execution succeeds at which point it will again close the circuit and allow executions again.
+ * It will then allow a round of test requests after a defined sleepWindow (half-open) until enough of them succeed, at which point it will again close the circuit and allow executions again.
  */
 
 /**
@@ -59,14 +65,39 @@ public interface HystrixCircuitBreaker {
     // 断路器半开时关闭
     /* package */void markSuccess();
 
+    /**
+     * Invoked on failed, timed-out or rejected executions from {@link HystrixCommand} as part of feedback mechanism when in a half-open state.
+     */
+    // 断路器半开时，测试请求失败
+    /* package */void markNonSuccess();
+
+    /**
+     * Current {@link State} of the circuit.
+     *
+     * @return State of circuit breaker
+     */
+    public State getState();
+
+    /**
+     * States of a {@link HystrixCircuitBreaker}.
+     */
+    public static enum State {
+        /** executions are allowed */
+        CLOSED,
+        /** executions are short-circuited */
+        OPEN,
+        /** a limited number of test executions are allowed to decide whether to close the circuit again */
+        HALF_OPEN
+    }
+
     /**
      * @ExcludeFromJavadoc
      * @ThreadSafe
      */
     //初始化实现
     public static class Factory {
-        // String is HystrixCommandKey.name() (we can't use HystrixCommandKey directly as we can't guarantee it implements hashcode/equals correctly)
-        private static ConcurrentHashMap<String, HystrixCircuitBreaker> circuitBreakersByCommand = new ConcurrentHashMap<String, HystrixCircuitBreaker>();
+        // indexed by the ordinal InternMap assigns to the HystrixCommandKey, falling back to its name() for keys not created through the Factory
+        private static HystrixKeyIndexedMap<HystrixCircuitBreaker> circuitBreakersByCommand = new HystrixKeyIndexedMap<HystrixCircuitBreaker>();
 
         /**
          * Get the {@link HystrixCircuitBreaker} instance for a given {@link HystrixCommandKey}.
@@ -86,7 +117,7 @@ public interface HystrixCircuitBreaker {
         public static HystrixCircuitBreaker getInstance(HystrixCommandKey key, HystrixCommandGroupKey group, HystrixCommandProperties properties, HystrixCommandMetrics metrics) {
             // this should find it for all but the first time
             // 缓存中有，就直接返回
-            HystrixCircuitBreaker previouslyCached = circuitBreakersByCommand.get(key.name());
+            HystrixCircuitBreaker previouslyCached = circuitBreakersByCommand.get(key);
             if (previouslyCached != null) {
                 return previouslyCached;
             }
@@ -97,10 +128,10 @@ public interface HystrixCircuitBreaker {
             // 2 threads hitting this point at the same time and let ConcurrentHashMap provide us our thread-safety
             // If 2 threads hit here only one will get added and the other will get a non-null response instead.
             // 第一次进来，没有就初始化并缓存到map里
-            HystrixCircuitBreaker cbForCommand = circuitBreakersByCommand.putIfAbsent(key.name(), new HystrixCircuitBreakerImpl(key, group, properties, metrics));
+            HystrixCircuitBreaker cbForCommand = circuitBreakersByCommand.putIfAbsent(key, new HystrixCircuitBreakerImpl(key, group, properties, metrics));
             if (cbForCommand == null) {
                 // this means the putIfAbsent step just created a new one so let's retrieve and return it
-                return circuitBreakersByCommand.get(key.name());
+                return circuitBreakersByCommand.get(key);
             } else {
                 // this means a race occurred and while attempting to 'put' another one got there before
                 // and we instead retrieved it and will now return it
@@ -116,14 +147,30 @@ public interface HystrixCircuitBreaker {
          * @return {@link HystrixCircuitBreaker} for {@link HystrixCommandKey}
          */
         public static HystrixCircuitBreaker getInstance(HystrixCommandKey key) {
-            return circuitBreakersByCommand.get(key.name());
+            return circuitBreakersByCommand.get(key);
         }
 
         /**
          * Clears all circuit breakers. If new requests come in instances will be recreated.
          */
         /* package */static void reset() {
+            for (HystrixCircuitBreaker circuitBreaker : circuitBreakersByCommand.values()) {
+                if (circuitBreaker instanceof HystrixCircuitBreakerImpl) {
+                    ((HystrixCircuitBreakerImpl) circuitBreaker).unsubscribe();
+                }
+            }
             circuitBreakersByCommand.clear();
+            HystrixCommandDescriptor.reset();
+        }
+
+        /**
+         * Forget the circuit breaker of the given key.  If new requests come in it will be recreated, closed.
+         */
+        /* package */static void removeByKey(HystrixCommandKey key) {
+            HystrixCircuitBreaker circuitBreaker = circuitBreakersByCommand.remove(key);
+            if (circuitBreaker instanceof HystrixCircuitBreakerImpl) {
+                ((HystrixCircuitBreakerImpl) circuitBreaker).unsubscribe();
+            }
         }
     }
 
@@ -149,20 +196,144 @@ public interface HystrixCircuitBreaker {
         // 断路器打开时间
         private AtomicLong circuitOpenedOrLastTestedTime = new AtomicLong();
 
+        /* the test requests let through since the sleep window last passed, null while closed or fully open */
+        private final AtomicReference<HalfOpenProbes> halfOpenProbes = new AtomicReference<HalfOpenProbes>(null);
+
+        /* whether the latest health counts are past the thresholds, so the circuit should trip (default to false==healthy) */
+        private volatile boolean unhealthy = false;
+
+        /* keeps unhealthy up to date, replaced along with the health counts stream when the circuit closes */
+        private final AtomicReference<Subscription> activeSubscription = new AtomicReference<Subscription>(null);
+
+        /* whether the latest execution latency distribution is past circuitBreakerLatencyThresholdInMilliseconds (default to false==fast enough) */
+        private volatile boolean slow = false;
+
+        /* the latency distribution still holds executions from before the circuit last closed until this time */
+        private volatile long latencyIgnoredUntil = 0;
+
+        /* keeps slow up to date, null unless the circuit watches latency */
+        private final Subscription latencySubscription;
+
         protected HystrixCircuitBreakerImpl(HystrixCommandKey key, HystrixCommandGroupKey commandGroup, HystrixCommandProperties properties, HystrixCommandMetrics metrics) {
             this.properties = properties;
             this.metrics = metrics;
+            activeSubscription.set(subscribeToStream());
+            if (properties.circuitBreakerLatencyThresholdInMilliseconds().get() > 0) {
+                latencySubscription = subscribeToLatency();
+            } else {
+                latencySubscription = null;
+            }
         }
 
-        // 半开状态下关闭断路器，即对 开关 进行 CAS 关闭操作
-        public void markSuccess() {
-            if (circuitOpen.get()) {
-                if (circuitOpen.compareAndSet(true, false)) {
-                    //win the thread race to reset metrics
-                    //Unsubscribe from the current stream to reset the health counts stream.  This only affects the health counts view,
-                    //and all other metric consumers are unaffected by the reset
-                    metrics.resetStream();
+        /**
+         * Evaluate the thresholds once per {@link HealthCounts} emission, rather than on every request, so as long as the
+         * circuit is healthy {@link #isOpen()} only has to read a few volatile fields.
+         */
+        private Subscription subscribeToStream() {
+            return metrics.observeHealthCounts().subscribe(new Subscriber<HealthCounts>() {
+                @Override
+                public void onCompleted() {
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                }
+
+                @Override
+                public void onNext(HealthCounts health) {
+                    /**
+                     * HealthCounts里存储的是一个滑动窗口期间的请求数。
+                     *  totalCount 总请求数 包含：数(失败+成功+超时+ threadPoolRejected +信号量拒绝)
+                     *  errorCount 异常数据 刨除成功就是失败
+                     *  errorPercentage  异常百分比= errorCount/totalCount *100;
+                     */
+                    // check if we are past the statisticalWindowVolumeThreshold
+                    //如果总请求数小于配置的值，不拦截，配置值是hystrix.对应的comandKey.circuitBreaker.requestVolumeThreshold  默认值是20
+                    //如果异常率小于配置的值，也不拦截，配置值是hystrix.对应的comandKey.circuitBreaker.errorThresholdPercentage 默认值是50，也就是有50%异常，就熔断
+                    unhealthy = health.getTotalRequests() >= properties.circuitBreakerRequestVolumeThreshold().get()
+                            && health.getErrorPercentage() >= properties.circuitBreakerErrorThresholdPercentage().get();
+                }
+            });
+        }
+
+        /**
+         * Like the health counts, the execution latency distribution is evaluated once per emission, which happens every time the
+         * rolling percentile window rolls.  The percentiles of an emitted distribution are calculated once and cached by it.
+         */
+        private Subscription subscribeToLatency() {
+            return metrics.observeExecutionTimeDistribution().subscribe(new Subscriber<CachedValuesHistogram>() {
+                @Override
+                public void onCompleted() {
                 }
+
+                @Override
+                public void onError(Throwable e) {
+                }
+
+                @Override
+                public void onNext(CachedValuesHistogram distribution) {
+                    final int latencyThreshold = properties.circuitBreakerLatencyThresholdInMilliseconds().get();
+                    //与错误率一样，请求数小于 requestVolumeThreshold 时不拦截
+                    slow = latencyThreshold > 0
+                            && System.currentTimeMillis() >= latencyIgnoredUntil
+                            && distribution.getTotalCount() >= properties.circuitBreakerRequestVolumeThreshold().get()
+                            && distribution.getValueAtPercentile(properties.circuitBreakerLatencyPercentile().get()) > latencyThreshold;
+                }
+            });
+        }
+
+        // 半开状态下，测试请求成功，达到成功率阈值后关闭断路器
+        public void markSuccess() {
+            HalfOpenProbes probes = halfOpenProbes.get();
+            if (probes == null) {
+                // closed, or open without any test requests out, so this is the result of a request that started before the circuit tripped
+                return;
+            }
+            if (probes.successes.incrementAndGet() * 100 >= properties.circuitBreakerHalfOpenSuccessThresholdPercentage().get() * probes.maxProbes) {
+                closeCircuit(probes);
+            }
+        }
+
+        // 半开状态下，测试请求失败，无法再达到成功率阈值时重新打开断路器
+        public void markNonSuccess() {
+            HalfOpenProbes probes = halfOpenProbes.get();
+            if (probes == null) {
+                return;
+            }
+            if (probes.failures.incrementAndGet() * 100 > (100 - properties.circuitBreakerHalfOpenSuccessThresholdPercentage().get()) * probes.maxProbes) {
+                // stay open, the next round of test requests starts a sleep window after this one started
+                halfOpenProbes.compareAndSet(probes, null);
+            }
+        }
+
+        // 对 开关 进行 CAS 关闭操作
+        private void closeCircuit(HalfOpenProbes probes) {
+            if (halfOpenProbes.compareAndSet(probes, null) && circuitOpen.compareAndSet(true, false)) {
+                //win the thread race to reset metrics
+                //Unsubscribe from the current stream to reset the health counts stream.  This only affects the health counts view,
+                //and all other metric consumers are unaffected by the reset
+                unsubscribeFromHealthCounts();
+                unhealthy = false;
+                metrics.resetStream();
+                activeSubscription.set(subscribeToStream());
+                // the latency distribution can't be reset like the health counts, as it is shared with other consumers,
+                // so stop acting on it until the executions it tripped on have rolled out of the window
+                latencyIgnoredUntil = System.currentTimeMillis() + properties.metricsRollingPercentileWindowInMilliseconds().get();
+                slow = false;
+            }
+        }
+
+        /* package */ void unsubscribe() {
+            unsubscribeFromHealthCounts();
+            if (latencySubscription != null) {
+                latencySubscription.unsubscribe();
+            }
+        }
+
+        private void unsubscribeFromHealthCounts() {
+            Subscription subscription = activeSubscription.getAndSet(null);
+            if (subscription != null) {
+                subscription.unsubscribe();
             }
         }
 
@@ -195,25 +366,32 @@ public interface HystrixCircuitBreaker {
         }
 
         /**
-         * 如果断开超过设置的 重置时间，则半开
+         * 如果断路器半开，且测试请求数未达到上限，则允许请求
+         * 如果断开超过设置的 重置时间，则半开，开始新一轮测试请求
          */
         public boolean allowSingleTest() {
+            HalfOpenProbes probes = halfOpenProbes.get();
+            if (probes != null && probes.tryAcquire()) {
+                return true;
+            }
             long timeCircuitOpenedOrWasLastTested = circuitOpenedOrLastTestedTime.get();
             // 1) if the circuit is open
-            // 2) and it's been longer than 'sleepWindow' since we opened the circuit
+            // 2) and it's been longer than 'sleepWindow' since we opened the circuit or started the last round of test requests
             if (circuitOpen.get() && System.currentTimeMillis() > timeCircuitOpenedOrWasLastTested + properties.circuitBreakerSleepWindowInMilliseconds().get()) {
-                // We push the 'circuitOpenedTime' ahead by 'sleepWindow' since we have allowed one request to try.
-                // If it succeeds the circuit will be closed, otherwise another singleTest will be allowed at the end of the 'sleepWindow'.
+                // We push the 'circuitOpenedTime' ahead by 'sleepWindow' since we are starting a round of test requests.
+                // If enough of them succeed the circuit will be closed, otherwise another round will be allowed at the end of the 'sleepWindow',
+                // which also takes care of a round whose requests never reported back.
                 if (circuitOpenedOrLastTestedTime.compareAndSet(timeCircuitOpenedOrWasLastTested, System.currentTimeMillis())) {
-                    // if this returns true that means we set the time so we'll return true to allow the singleTest
-                    // if it returned false it means another thread raced us and allowed the singleTest before we did
+                    // if this returns true that means we set the time so we'll return true to allow the first test request of the round
+                    // if it returned false it means another thread raced us and started the round before we did
+                    halfOpenProbes.set(new HalfOpenProbes(properties.circuitBreakerHalfOpenMaxProbes().get()));
                     return true;
                 }
             }
             return false;
         }
 
-        //如果 断路器 打开，直接返回 true，如果是关闭的，则根据其服务指标，决定是否打开断路器
+        //如果 断路器 打开，直接返回 true，如果是关闭的，则根据最近一次健康统计（及延迟分布）的结论，决定是否打开断路器
         @Override
         public boolean isOpen() {
             //如果是open的，拦截，直接返回true
@@ -222,44 +400,49 @@ public interface HystrixCircuitBreaker {
                 return true;
             }
 
-            // we're closed, so let's see if errors have made us so we should trip the circuit open
+            // we're closed, so let's see if the latest health counts (or latency distribution) say we should trip the circuit open
+            if (!unhealthy && !slow) {
+                return false;
+            }
+            // our failure rate is too high, trip the circuit
             /**
-             * HealthCounts里存储的是一个滑动窗口期间的请求数。
-             *  totalCount 总请求数 包含：数(失败+成功+超时+ threadPoolRejected +信号量拒绝)
-             *  errorCount 异常数据 刨除成功就是失败
-             *  errorPercentage  异常百分比= errorCount/totalCount *100;
+             * 失败请求达到阈值，打开断路器并更新打开时间
+             *      此处是 CAS 操作，如果竞争失败，其实
+             *      并不影响结果（断路器打开了，时间设置了）
+             *      因此直接返回 true 即可
              */
-            HealthCounts health = metrics.getHealthCounts();
+            if (circuitOpen.compareAndSet(false, true)) {
+                // if the previousValue was false then we want to set the currentTime
+                // 设置断路器器打开的时间
+                circuitOpenedOrLastTestedTime.set(System.currentTimeMillis());
+            }
+            // if another thread won the race, it set the time and the circuit is open either way
+            return true;
+        }
 
-            // check if we are past the statisticalWindowVolumeThreshold
-            //如果总请求数小于配置的值，不拦截，配置值是hystrix.对应的comandKey.circuitBreaker.requestVolumeThreshold  默认值是20
-            if (health.getTotalRequests() < properties.circuitBreakerRequestVolumeThreshold().get()) {
-                // we are not past the minimum volume threshold for the statisticalWindow so we'll return false immediately and not calculate anything
-                return false;
+        @Override
+        public State getState() {
+            if (!isOpen()) {
+                return State.CLOSED;
             }
-            //如果异常率小于配置的值，也不拦截，配置值是hystrix.对应的comandKey.circuitBreaker.errorThresholdPercentage 默认值是50，也就是有50%异常，就熔断
-            if (health.getErrorPercentage() < properties.circuitBreakerErrorThresholdPercentage().get()) {
-                return false;
-            } else {
-                // our failure rate is too high, trip the circuit
-                /**
-                 * 失败请求达到阈值，打开断路器并更新打开时间
-                 *      此处是 CAS 操作，如果竞争失败，其实
-                 *      并不影响结果（断路器打开了，时间设置了）
-                 *      因此直接返回 true 即可
-                 */
-                if (circuitOpen.compareAndSet(false, true)) {
-                    // if the previousValue was false then we want to set the currentTime
-                    // 设置断路器器打开的时间
-                    circuitOpenedOrLastTestedTime.set(System.currentTimeMillis());
-                    return true;
-                } else {
-                    // How could previousValue be true? If another thread was going through this code at the same time a race-condition could have
-                    // caused another thread to set it to true already even though we were in the process of doing the same
-                    // In this case, we know the circuit is open, so let the other thread set the currentTime and report back that the circuit is open
-                    //走到这里，说明本线程没有设置成功，别的线程已经打开了断路器，直接返回
-                    return true;
-                }
+            return halfOpenProbes.get() != null ? State.HALF_OPEN : State.OPEN;
+        }
+
+        /**
+         * A round of test requests of a half-open circuit, the first of which is let through when the round is created.
+         */
+        private static class HalfOpenProbes {
+            private final int maxProbes;
+            private final AtomicInteger issued = new AtomicInteger(1);
+            private final AtomicInteger successes = new AtomicInteger();
+            private final AtomicInteger failures = new AtomicInteger();
+
+            HalfOpenProbes(int maxProbes) {
+                this.maxProbes = Math.max(1, maxProbes);
+            }
+
+            boolean tryAcquire() {
+                return issued.get() < maxProbes && issued.incrementAndGet() <= maxProbes;
             }
         }
 
@@ -288,6 +471,16 @@ public interface HystrixCircuitBreaker {
 
         }
 
+        @Override
+        public void markNonSuccess() {
+
+        }
+
+        @Override
+        public State getState() {
+            return State.CLOSED;
+        }
+
     }
 
 }
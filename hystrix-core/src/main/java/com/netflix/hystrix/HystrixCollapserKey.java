@@ -15,14 +15,16 @@
  */
 package com.netflix.hystrix;
 
-import java.util.concurrent.ConcurrentHashMap;
+import com.netflix.hystrix.util.InternMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A key to represent a {@link HystrixCollapser} for monitoring, circuit-breakers, metrics publishing, caching and other such uses.
  * <p>
  * This interface is intended to work natively with Enums so that implementing code can be an enum that implements this interface.
  */
-public interface HystrixCollapserKey {
+public interface HystrixCollapserKey extends HystrixKey {
 
     /**
      * The word 'name' is used instead of 'key' so that Enums can implement this interface and it work natively.
@@ -36,8 +38,18 @@ public interface HystrixCollapserKey {
         private Factory() {
         }
 
+        // dense index handed out to each interned instance
+        private static final AtomicInteger ordinals = new AtomicInteger();
+
         // used to intern instances so we don't keep re-creating them millions of times for the same key
-        private static ConcurrentHashMap<String, HystrixCollapserKey> intern = new ConcurrentHashMap<String, HystrixCollapserKey>();
+        private static final InternMap<String, HystrixCollapserKey> intern
+                = new InternMap<String, HystrixCollapserKey>(
+                new InternMap.ValueConstructor<String, HystrixCollapserKey>() {
+                    @Override
+                    public HystrixCollapserKey create(String key) {
+                        return new HystrixCollapserKeyDefault(key, ordinals.getAndIncrement());
+                    }
+                });
 
         /**
          * Retrieve (or create) an interned HystrixCollapserKey instance for a given name.
@@ -46,29 +58,13 @@ public interface HystrixCollapserKey {
          * @return HystrixCollapserKey instance that is interned (cached) so a given name will always retrieve the same instance.
          */
         public static HystrixCollapserKey asKey(String name) {
-            HystrixCollapserKey k = intern.get(name);
-            if (k == null) {
-                intern.putIfAbsent(name, new HystrixCollapserKeyDefault(name));
-            }
-            return intern.get(name);
+            return intern.interned(name);
         }
 
-        private static class HystrixCollapserKeyDefault implements HystrixCollapserKey {
-
-            private String name;
+        private static class HystrixCollapserKeyDefault extends HystrixKeyDefault implements HystrixCollapserKey {
 
-            private HystrixCollapserKeyDefault(String name) {
-                this.name = name;
-            }
-
-            @Override
-            public String name() {
-                return name;
-            }
-            
-            @Override
-            public String toString() {
-            	return name;
+            private HystrixCollapserKeyDefault(String name, int ordinal) {
+                super(name, ordinal);
             }
         }
     }
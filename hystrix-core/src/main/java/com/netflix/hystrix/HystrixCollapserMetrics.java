@@ -115,6 +115,11 @@ public class HystrixCollapserMetrics extends HystrixMetrics {
     private final CumulativeCollapserEventCounterStream cumulativeCollapserEventCounterStream;
     private final RollingCollapserBatchSizeDistributionStream rollingCollapserBatchSizeDistributionStream;
 
+    /* weight of a new measurement in the batch latency mean */
+    private static final double BATCH_LATENCY_SMOOTHING = 0.1;
+    /* exponentially-weighted mean of batch execution latency, negative until the first batch completes */
+    private volatile double batchLatencyMean = -1;
+
     /* package */HystrixCollapserMetrics(HystrixCollapserKey key, HystrixCollapserProperties properties) {
         super(null);
         this.collapserKey = key;
@@ -205,4 +210,31 @@ public class HystrixCollapserMetrics extends HystrixMetrics {
 
     public void markShards(int numShards) {
     }
+
+    /**
+     * Invoked each time a batch completes, with the time from its dispatch until all its responses were delivered.
+     *
+     * @param latencyInMilliseconds batch latency
+     */
+    public void markBatchLatency(long latencyInMilliseconds) {
+        // concurrent updates may overwrite each other, which is fine for a moving average
+        final double previous = batchLatencyMean;
+        if (previous < 0) {
+            batchLatencyMean = latencyInMilliseconds;
+        } else {
+            batchLatencyMean = previous + (latencyInMilliseconds - previous) * BATCH_LATENCY_SMOOTHING;
+        }
+    }
+
+    /**
+     * Exponentially-weighted moving average of the batch latencies given to {@link #markBatchLatency(long)}.
+     * <p>
+     * This is only tracked while {@link HystrixCollapserProperties#batchDispatchAdaptiveEnabled()}.
+     *
+     * @return mean batch latency in milliseconds, or -1 if no batch has completed yet
+     */
+    public int getBatchLatencyMean() {
+        final double mean = batchLatencyMean;
+        return mean < 0 ? -1 : (int) Math.round(mean);
+    }
 }
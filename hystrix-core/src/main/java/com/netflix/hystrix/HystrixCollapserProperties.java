@@ -41,6 +41,8 @@ public abstract class HystrixCollapserProperties {
     private static final Integer default_metricsRollingPercentileWindow = 60000; // default to 1 minute for RollingPercentile
     private static final Integer default_metricsRollingPercentileWindowBuckets = 6; // default to 6 buckets (10 seconds each in 60 second window)
     private static final Integer default_metricsRollingPercentileBucketSize = 100; // default to 100 values max per bucket
+    private static final Integer default_batchDispatchTargetSize = 0; // default => don't execute a batch early before maxRequestsInBatch is hit
+    private static final Boolean default_batchDispatchAdaptiveEnabled = false; // default => always wait timerDelayInMilliseconds
 
     private final HystrixProperty<Integer> maxRequestsInBatch;
     private final HystrixProperty<Integer> timerDelayInMilliseconds;
@@ -51,6 +53,8 @@ public abstract class HystrixCollapserProperties {
     private final HystrixProperty<Integer> metricsRollingPercentileWindowInMilliseconds; // number of milliseconds that will be tracked in RollingPercentile
     private final HystrixProperty<Integer> metricsRollingPercentileWindowBuckets; // number of buckets percentileWindow will be divided into
     private final HystrixProperty<Integer> metricsRollingPercentileBucketSize; // how many values will be stored in each percentileWindowBucket
+    private final HystrixProperty<Integer> batchDispatchTargetSize; // number of requests at which a batch executes right away
+    private final HystrixProperty<Boolean> batchDispatchAdaptiveEnabled; // whether to shorten the wait for a batch based on arrival rate and batch latency
 
     protected HystrixCollapserProperties(HystrixCollapserKey collapserKey) {
         this(collapserKey, new Setter(), "hystrix");
@@ -70,6 +74,8 @@ public abstract class HystrixCollapserProperties {
         this.metricsRollingPercentileWindowInMilliseconds = getProperty(propertyPrefix, key, "metrics.rollingPercentile.timeInMilliseconds", builder.getMetricsRollingPercentileWindowInMilliseconds(), default_metricsRollingPercentileWindow);
         this.metricsRollingPercentileWindowBuckets = getProperty(propertyPrefix, key, "metrics.rollingPercentile.numBuckets", builder.getMetricsRollingPercentileWindowBuckets(), default_metricsRollingPercentileWindowBuckets);
         this.metricsRollingPercentileBucketSize = getProperty(propertyPrefix, key, "metrics.rollingPercentile.bucketSize", builder.getMetricsRollingPercentileBucketSize(), default_metricsRollingPercentileBucketSize);
+        this.batchDispatchTargetSize = getProperty(propertyPrefix, key, "batchDispatch.targetSize", builder.getBatchDispatchTargetSize(), default_batchDispatchTargetSize);
+        this.batchDispatchAdaptiveEnabled = getProperty(propertyPrefix, key, "batchDispatch.adaptive.enabled", builder.getBatchDispatchAdaptiveEnabled(), default_batchDispatchAdaptiveEnabled);
     }
 
     private static HystrixProperty<Integer> getProperty(String propertyPrefix, HystrixCollapserKey key, String instanceProperty, Integer builderOverrideValue, Integer defaultValue) {
@@ -127,6 +133,32 @@ public abstract class HystrixCollapserProperties {
         return timerDelayInMilliseconds;
     }
 
+    /**
+     * Number of requests at which a batch executes immediately, without waiting for {@link #timerDelayInMilliseconds}.
+     * <p>
+     * Unlike {@link #maxRequestsInBatch} this doesn't limit the batch: requests arriving while it is being dispatched still
+     * join it.  0 or less disables it.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> batchDispatchTargetSize() {
+        return batchDispatchTargetSize;
+    }
+
+    /**
+     * Whether a batch may execute before {@link #timerDelayInMilliseconds} based on how fast requests have been arriving and
+     * how long batches take to execute.
+     * <p>
+     * When few requests arrive, a request that is unlikely to be joined by another within the delay executes right away;
+     * when many arrive, the batch waits no longer than it takes to fill up to {@link #batchDispatchTargetSize}.  The wait
+     * is also capped at the mean batch execution latency so that collapsing never more than doubles it.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> batchDispatchAdaptiveEnabled() {
+        return batchDispatchAdaptiveEnabled;
+    }
+
     /**
      * Duration of statistical rolling window in milliseconds. This is passed into {@link HystrixRollingNumber} inside {@link HystrixCommandMetrics}.
      *
@@ -223,6 +255,8 @@ public abstract class HystrixCollapserProperties {
         private Boolean metricsRollingPercentileEnabled = null;
         private Integer metricsRollingPercentileWindowInMilliseconds = null;
         private Integer metricsRollingPercentileWindowBuckets = null;
+        private Integer batchDispatchTargetSize = null;
+        private Boolean batchDispatchAdaptiveEnabled = null;
 
         private Setter() {
         }
@@ -271,6 +305,14 @@ public abstract class HystrixCollapserProperties {
             return metricsRollingPercentileWindowBuckets;
         }
 
+        public Integer getBatchDispatchTargetSize() {
+            return batchDispatchTargetSize;
+        }
+
+        public Boolean getBatchDispatchAdaptiveEnabled() {
+            return batchDispatchAdaptiveEnabled;
+        }
+
         /**
          * Deprecated because the collapsingEnabled setting doesn't do anything.
          */
@@ -325,6 +367,16 @@ public abstract class HystrixCollapserProperties {
             return this;
         }
 
+        public Setter withBatchDispatchTargetSize(int value) {
+            this.batchDispatchTargetSize = value;
+            return this;
+        }
+
+        public Setter withBatchDispatchAdaptiveEnabled(boolean value) {
+            this.batchDispatchAdaptiveEnabled = value;
+            return this;
+        }
+
         /**
          * Base properties for unit testing.
          */
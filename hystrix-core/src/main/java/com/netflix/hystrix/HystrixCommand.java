@@ -15,11 +15,10 @@
  */
 package com.netflix.hystrix;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -264,6 +263,7 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
     }
 
 	private final AtomicReference<Thread> executionThread = new AtomicReference<Thread>();
+	private final AtomicReference<Thread> hedgedExecutionThread = new AtomicReference<Thread>();
 	private final AtomicBoolean interruptOnFutureCancel = new AtomicBoolean(false);
 
 	/**
@@ -295,6 +295,15 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
 
     @Override
     final protected Observable<R> getExecutionObservable() {
+        return runObservable(executionThread);
+    }
+
+    @Override
+    final Observable<R> getHedgedExecutionObservable() {
+        return runObservable(hedgedExecutionThread);
+    }
+
+    private Observable<R> runObservable(final AtomicReference<Thread> thread) {
         return Observable.defer(new Func0<Observable<R>>() {
             @Override
             public Observable<R> call() {
@@ -309,7 +318,7 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
             @Override
             public void call() {
                 // Save thread on which we get subscribed so that we can interrupt it later if needed
-                executionThread.set(Thread.currentThread());
+                thread.set(Thread.currentThread());
             }
         });
     }
@@ -343,6 +352,17 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
     //调用后直接 block 住，属于同步调用，直到依赖服务返回单条结果，或者抛出异常
     public R execute() {
         try {
+            if (isCallingThreadExecutionEligible()) {
+                // semaphore-isolated, so run() happens on this thread anyway; skip building the Rx chain
+                return executeOnCallingThread(new Callable<R>() {
+                    @Override
+                    public R call() throws Exception {
+                        // Save thread on which we execute so that we can interrupt it later if needed
+                        executionThread.set(Thread.currentThread());
+                        return run();
+                    }
+                });
+            }
             //通过queue().get()来同步执行
             return queue().get();
         } catch (Exception e) {
@@ -374,66 +394,8 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
      */
     //返回一个 Future，属于异步调用，后面可以通过 Future 获取单条结果，什么时候get()，由调用者决定，get()的时候会阻塞
     public Future<R> queue() {
-        /*
-         * The Future returned by Observable.toBlocking().toFuture() does not implement the
-         * interruption of the execution thread when the "mayInterrupt" flag of Future.cancel(boolean) is set to true;
-         * thus, to comply with the contract of Future, we must wrap around it.
-         */
         //核心处理，最终定位到了AbstractCommand里的toObservable()里
-        final Future<R> delegate = toObservable().toBlocking().toFuture();
-    	
-        final Future<R> f = new Future<R>() {
-
-            @Override
-            public boolean cancel(boolean mayInterruptIfRunning) {
-                if (delegate.isCancelled()) {
-                    return false;
-                }
-
-                if (HystrixCommand.this.getProperties().executionIsolationThreadInterruptOnFutureCancel().get()) {
-                    /*
-                     * The only valid transition here is false -> true. If there are two futures, say f1 and f2, created by this command
-                     * (which is super-weird, but has never been prohibited), and calls to f1.cancel(true) and to f2.cancel(false) are
-                     * issued by different threads, it's unclear about what value would be used by the time mayInterruptOnCancel is checked.
-                     * The most consistent way to deal with this scenario is to say that if *any* cancellation is invoked with interruption,
-                     * than that interruption request cannot be taken back.
-                     */
-                    interruptOnFutureCancel.compareAndSet(false, mayInterruptIfRunning);
-        		}
-
-                final boolean res = delegate.cancel(interruptOnFutureCancel.get());
-
-                if (!isExecutionComplete() && interruptOnFutureCancel.get()) {
-                    final Thread t = executionThread.get();
-                    if (t != null && !t.equals(Thread.currentThread())) {
-                        t.interrupt();
-                    }
-                }
-
-                return res;
-			}
-
-            @Override
-            public boolean isCancelled() {
-                return delegate.isCancelled();
-			}
-
-            @Override
-            public boolean isDone() {
-                return delegate.isDone();
-			}
-
-            @Override
-            public R get() throws InterruptedException, ExecutionException {
-                return delegate.get();
-            }
-
-            @Override
-            public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-                return delegate.get(timeout, unit);
-            }
-        	
-        };
+        final Future<R> f = toCompletableFuture();
 
         /* special handling of error states that throw immediately */
         //特殊处理了下，已经执行完了，get()也不会阻塞了
@@ -465,6 +427,57 @@ public abstract class HystrixCommand<R> extends AbstractCommand<R> implements Hy
         return f;
     }
 
+    /**
+     * Used for asynchronous execution of command without blocking a thread to consume the result.
+     * <p>
+     * This will queue up the command on the thread pool like {@link #queue()}, but the returned future is completed directly
+     * from the terminal event of the command and accepts callbacks, so many commands can be composed without parking threads.
+     * <p>
+     * Unlike {@link #queue()} nothing is thrown immediately: rejections and short-circuits complete the future exceptionally
+     * like any other failure.
+     *
+     * @return {@code HystrixCompletableFuture<R>} Result of {@link #run()} execution or a fallback from {@link #getFallback()} if the command fails for any reason.
+     * @throws IllegalStateException
+     *             if invoked more than once
+     */
+    public HystrixCompletableFuture<R> toCompletableFuture() {
+        final HystrixCompletableFuture<R> future = new HystrixCompletableFuture<R>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (isDone()) {
+                    return false;
+                }
+
+                if (HystrixCommand.this.getProperties().executionIsolationThreadInterruptOnFutureCancel().get()) {
+                    /*
+                     * The only valid transition here is false -> true. If there are two futures, say f1 and f2, created by this command
+                     * (which is super-weird, but has never been prohibited), and calls to f1.cancel(true) and to f2.cancel(false) are
+                     * issued by different threads, it's unclear about what value would be used by the time mayInterruptOnCancel is checked.
+                     * The most consistent way to deal with this scenario is to say that if *any* cancellation is invoked with interruption,
+                     * than that interruption request cannot be taken back.
+                     */
+                    interruptOnFutureCancel.compareAndSet(false, mayInterruptIfRunning);
+                }
+
+                final boolean res = super.cancel(interruptOnFutureCancel.get());
+
+                if (!isExecutionComplete() && interruptOnFutureCancel.get()) {
+                    interrupt(executionThread.get());
+                    interrupt(hedgedExecutionThread.get());
+                }
+
+                return res;
+            }
+        };
+        return future.subscribe(toObservable());
+    }
+
+    private static void interrupt(Thread t) {
+        if (t != null && !t.equals(Thread.currentThread())) {
+            t.interrupt();
+        }
+    }
+
     @Override
     protected String getFallbackMethodName() {
         return "getFallback";
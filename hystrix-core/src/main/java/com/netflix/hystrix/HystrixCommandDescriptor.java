@@ -0,0 +1,215 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
+import com.netflix.hystrix.strategy.executionhook.HystrixCommandExecutionHook;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything a command resolves from its class and keys when it is constructed: properties, metrics, circuit-breaker,
+ * thread-pool, plugins and request cache.
+ * <p>
+ * These are the same for every instance of a command class constructed with the same keys, so they are resolved once and
+ * cached here. Properties are cached per command key by {@link com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory}
+ * already, so the property defaults given to later constructions are ignored as before.
+ * <p>
+ * The cache is cleared by {@link Hystrix#reset()}, {@link com.netflix.hystrix.strategy.HystrixPlugins#reset()} and
+ * {@link com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory#reset()}, among others.
+ *
+ * @ExcludeFromJavadoc
+ * @ThreadSafe
+ */
+public final class HystrixCommandDescriptor {
+
+    private static final ConcurrentHashMap<DescriptorKey, HystrixCommandDescriptor> descriptors = new ConcurrentHashMap<DescriptorKey, HystrixCommandDescriptor>();
+
+    // incremented by reset() so a descriptor resolved before a reset is not cached after it
+    private static long generation = 0;
+
+    private final HystrixCommandGroupKey commandGroup;
+    private final HystrixCommandKey commandKey;
+    private final HystrixCommandProperties properties;
+    private final String threadPoolKeyOverride;
+    private final HystrixThreadPoolKey threadPoolKey;
+    private final HystrixCommandMetrics metrics;
+    private final boolean circuitBreakerEnabled;
+    private final HystrixCircuitBreaker circuitBreaker;
+    private final HystrixThreadPool threadPool;
+    private final HystrixEventNotifier eventNotifier;
+    private final HystrixConcurrencyStrategy concurrencyStrategy;
+    private final HystrixCommandExecutionHook executionHook;
+    private final HystrixRequestCache requestCache;
+
+    /* package */ HystrixCommandDescriptor(HystrixCommandGroupKey commandGroup, HystrixCommandKey commandKey, HystrixCommandProperties properties,
+                                           String threadPoolKeyOverride, HystrixThreadPoolKey threadPoolKey, HystrixCommandMetrics metrics,
+                                           boolean circuitBreakerEnabled, HystrixCircuitBreaker circuitBreaker, HystrixThreadPool threadPool,
+                                           HystrixEventNotifier eventNotifier, HystrixConcurrencyStrategy concurrencyStrategy,
+                                           HystrixCommandExecutionHook executionHook, HystrixRequestCache requestCache) {
+        this.commandGroup = commandGroup;
+        this.commandKey = commandKey;
+        this.properties = properties;
+        this.threadPoolKeyOverride = threadPoolKeyOverride;
+        this.threadPoolKey = threadPoolKey;
+        this.metrics = metrics;
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+        this.circuitBreaker = circuitBreaker;
+        this.threadPool = threadPool;
+        this.eventNotifier = eventNotifier;
+        this.concurrencyStrategy = concurrencyStrategy;
+        this.executionHook = executionHook;
+        this.requestCache = requestCache;
+    }
+
+    /**
+     * @return cached descriptor of a command class constructed with the given keys, or null if there is none
+     */
+    /* package */ static HystrixCommandDescriptor getInstance(Class<?> commandClass, HystrixCommandGroupKey group, HystrixCommandKey key, HystrixThreadPoolKey threadPoolKey) {
+        return descriptors.get(new DescriptorKey(commandClass, group, key, threadPoolKey));
+    }
+
+    /* package */ static synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Cache a descriptor, unless {@link #reset()} was invoked since <code>generation</code> was read, as it may refer to
+     * state that has been reset.
+     */
+    /* package */ static synchronized void cache(Class<?> commandClass, HystrixCommandGroupKey group, HystrixCommandKey key, HystrixThreadPoolKey threadPoolKey,
+                                                 HystrixCommandDescriptor descriptor, long generation) {
+        if (generation == HystrixCommandDescriptor.generation) {
+            descriptors.put(new DescriptorKey(commandClass, group, key, threadPoolKey), descriptor);
+        }
+    }
+
+    /**
+     * Clears all cached descriptors. If new commands are constructed descriptors will be resolved again.
+     */
+    public static synchronized void reset() {
+        generation++;
+        descriptors.clear();
+    }
+
+    /**
+     * Clears the cached descriptors of the given command key.
+     */
+    /* package */ static synchronized void removeByKey(HystrixCommandKey key) {
+        generation++;
+        Iterator<HystrixCommandDescriptor> iterator = descriptors.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getCommandKey().name().equals(key.name())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return false if a dynamic property this descriptor was resolved with has changed since
+     */
+    /* package */ boolean isCurrent() {
+        if (properties.circuitBreakerEnabled().get() != circuitBreakerEnabled) {
+            return false;
+        }
+        String override = properties.executionIsolationThreadPoolKeyOverride().get();
+        return override == null ? threadPoolKeyOverride == null : override.equals(threadPoolKeyOverride);
+    }
+
+    /* package */ HystrixCommandGroupKey getCommandGroup() {
+        return commandGroup;
+    }
+
+    /* package */ HystrixCommandKey getCommandKey() {
+        return commandKey;
+    }
+
+    /* package */ HystrixCommandProperties getProperties() {
+        return properties;
+    }
+
+    /* package */ HystrixThreadPoolKey getThreadPoolKey() {
+        return threadPoolKey;
+    }
+
+    /* package */ HystrixCommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    /* package */ HystrixCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /* package */ HystrixThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    /* package */ HystrixEventNotifier getEventNotifier() {
+        return eventNotifier;
+    }
+
+    /* package */ HystrixConcurrencyStrategy getConcurrencyStrategy() {
+        return concurrencyStrategy;
+    }
+
+    /* package */ HystrixCommandExecutionHook getExecutionHook() {
+        return executionHook;
+    }
+
+    /* package */ HystrixRequestCache getRequestCache() {
+        return requestCache;
+    }
+
+    /*
+     * Keys are compared by name, as we can't rely on them implementing hashcode/equals. A missing command or thread-pool key
+     * is resolved from the class and group, which are part of the key already.
+     */
+    private static final class DescriptorKey {
+        private final Class<?> commandClass;
+        private final String group;
+        private final String command;
+        private final String threadPool;
+
+        private DescriptorKey(Class<?> commandClass, HystrixCommandGroupKey group, HystrixCommandKey command, HystrixThreadPoolKey threadPool) {
+            this.commandClass = commandClass;
+            this.group = group.name();
+            this.command = command == null ? null : command.name();
+            this.threadPool = threadPool == null ? null : threadPool.name();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DescriptorKey)) return false;
+            DescriptorKey that = (DescriptorKey) o;
+            return commandClass == that.commandClass
+                    && group.equals(that.group)
+                    && (command == null ? that.command == null : command.equals(that.command))
+                    && (threadPool == null ? that.threadPool == null : threadPool.equals(that.threadPool));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = commandClass.hashCode();
+            result = 31 * result + group.hashCode();
+            result = 31 * result + (command != null ? command.hashCode() : 0);
+            result = 31 * result + (threadPool != null ? threadPool.hashCode() : 0);
+            return result;
+        }
+    }
+}
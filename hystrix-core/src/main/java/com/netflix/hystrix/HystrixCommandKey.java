@@ -17,6 +17,8 @@ package com.netflix.hystrix;
 
 import com.netflix.hystrix.util.InternMap;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A key to represent a {@link HystrixCommand} for monitoring, circuit-breakers, metrics publishing, caching and other such uses.
  * <p>
@@ -27,13 +29,16 @@ public interface HystrixCommandKey extends HystrixKey {
         private Factory() {
         }
 
+        // dense index handed out to each interned instance
+        private static final AtomicInteger ordinals = new AtomicInteger();
+
         // used to intern instances so we don't keep re-creating them millions of times for the same key
         private static final InternMap<String, HystrixCommandKeyDefault> intern
                 = new InternMap<String, HystrixCommandKeyDefault>(
                 new InternMap.ValueConstructor<String, HystrixCommandKeyDefault>() {
                     @Override
                     public HystrixCommandKeyDefault create(String key) {
-                        return new HystrixCommandKeyDefault(key);
+                        return new HystrixCommandKeyDefault(key, ordinals.getAndIncrement());
                     }
                 });
 
@@ -49,8 +54,8 @@ public interface HystrixCommandKey extends HystrixKey {
         }
 
         private static class HystrixCommandKeyDefault extends HystrixKey.HystrixKeyDefault implements HystrixCommandKey {
-            public HystrixCommandKeyDefault(String name) {
-                super(name);
+            public HystrixCommandKeyDefault(String name, int ordinal) {
+                super(name, ordinal);
             }
         }
 
@@ -15,9 +15,15 @@
  */
 package com.netflix.hystrix;
 
+import com.netflix.hystrix.metric.CachedValuesHistogram;
 import com.netflix.hystrix.metric.HystrixCommandCompletion;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.metric.HystrixCommandStartStream;
 import com.netflix.hystrix.metric.HystrixThreadEventStream;
+import com.netflix.hystrix.metric.HystrixThreadPoolCompletionStream;
 import com.netflix.hystrix.metric.consumer.CumulativeCommandEventCounterStream;
+import com.netflix.hystrix.metric.consumer.HealthCountsCallWindow;
+import com.netflix.hystrix.metric.consumer.HealthCountsRingBuffer;
 import com.netflix.hystrix.metric.consumer.HealthCountsStream;
 import com.netflix.hystrix.metric.consumer.RollingCommandEventCounterStream;
 import com.netflix.hystrix.metric.consumer.RollingCommandLatencyDistributionStream;
@@ -25,15 +31,16 @@ import com.netflix.hystrix.metric.consumer.RollingCommandMaxConcurrencyStream;
 import com.netflix.hystrix.metric.consumer.RollingCommandUserLatencyDistributionStream;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import com.netflix.hystrix.util.HystrixRollingNumberEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rx.Observable;
 import rx.functions.Func0;
 import rx.functions.Func2;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -81,8 +88,8 @@ public class HystrixCommandMetrics extends HystrixMetrics {
         }
     };
 
-    // String is HystrixCommandKey.name() (we can't use HystrixCommandKey directly as we can't guarantee it implements hashcode/equals correctly)
-    private static final ConcurrentHashMap<String, HystrixCommandMetrics> metrics = new ConcurrentHashMap<String, HystrixCommandMetrics>();
+    // indexed by the ordinal InternMap assigns to the HystrixCommandKey, falling back to its name() for keys not created through the Factory
+    private static final HystrixKeyIndexedMap<HystrixCommandMetrics> metrics = new HystrixKeyIndexedMap<HystrixCommandMetrics>();
 
     /**
      * Get or create the {@link HystrixCommandMetrics} instance for a given {@link HystrixCommandKey}.
@@ -116,12 +123,12 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      */
     public static HystrixCommandMetrics getInstance(HystrixCommandKey key, HystrixCommandGroupKey commandGroup, HystrixThreadPoolKey threadPoolKey, HystrixCommandProperties properties) {
         // attempt to retrieve from cache first
-        HystrixCommandMetrics commandMetrics = metrics.get(key.name());
+        HystrixCommandMetrics commandMetrics = metrics.get(key);
         if (commandMetrics != null) {
             return commandMetrics;
         } else {
             synchronized (HystrixCommandMetrics.class) {
-                HystrixCommandMetrics existingMetrics = metrics.get(key.name());
+                HystrixCommandMetrics existingMetrics = metrics.get(key);
                 if (existingMetrics != null) {
                     return existingMetrics;
                 } else {
@@ -132,7 +139,7 @@ public class HystrixCommandMetrics extends HystrixMetrics {
                         nonNullThreadPoolKey = threadPoolKey;
                     }
                     HystrixCommandMetrics newCommandMetrics = new HystrixCommandMetrics(key, commandGroup, nonNullThreadPoolKey, properties, HystrixPlugins.getInstance().getEventNotifier());
-                    metrics.putIfAbsent(key.name(), newCommandMetrics);
+                    metrics.putIfAbsent(key, newCommandMetrics);
                     return newCommandMetrics;
                 }
             }
@@ -147,7 +154,7 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return {@link HystrixCommandMetrics}
      */
     public static HystrixCommandMetrics getInstance(HystrixCommandKey key) {
-        return metrics.get(key.name());
+        return metrics.get(key);
     }
 
     /**
@@ -167,6 +174,30 @@ public class HystrixCommandMetrics extends HystrixMetrics {
             metricsInstance.unsubscribeAll();
         }
         metrics.clear();
+        HystrixCommandDescriptor.reset();
+    }
+
+    /**
+     * Release the metrics of the given key, stopping and forgetting its streams.  If new requests come in they will be
+     * recreated and metrics started from scratch.
+     */
+    /* package */ static void removeByKey(HystrixCommandKey key) {
+        synchronized (HystrixCommandMetrics.class) {
+            HystrixCommandMetrics removed = metrics.remove(key);
+            if (removed != null) {
+                removed.unsubscribeAll();
+            }
+        }
+        HealthCountsStream.removeByKey(key);
+        HealthCountsRingBuffer.removeByKey(key);
+        HealthCountsCallWindow.removeByKey(key);
+        RollingCommandEventCounterStream.removeByKey(key);
+        CumulativeCommandEventCounterStream.removeByKey(key);
+        RollingCommandLatencyDistributionStream.removeByKey(key);
+        RollingCommandUserLatencyDistributionStream.removeByKey(key);
+        RollingCommandMaxConcurrencyStream.removeByKey(key);
+        HystrixCommandStartStream.removeByKey(key);
+        HystrixCommandCompletionStream.removeByKey(key);
     }
 
     private final HystrixCommandProperties properties;
@@ -174,13 +205,19 @@ public class HystrixCommandMetrics extends HystrixMetrics {
     private final HystrixCommandGroupKey group;
     private final HystrixThreadPoolKey threadPoolKey;
     private final AtomicInteger concurrentExecutionCount = new AtomicInteger();
+    // only moved on once a second, so that commands constructed concurrently mostly read it
+    private volatile long lastUsedTime = System.currentTimeMillis();
 
     private HealthCountsStream healthCountsStream;
-    private final RollingCommandEventCounterStream rollingCommandEventCounterStream;
-    private final CumulativeCommandEventCounterStream cumulativeCommandEventCounterStream;
-    private final RollingCommandLatencyDistributionStream rollingCommandLatencyDistributionStream;
-    private final RollingCommandUserLatencyDistributionStream rollingCommandUserLatencyDistributionStream;
-    private final RollingCommandMaxConcurrencyStream rollingCommandMaxConcurrencyStream;
+    private HealthCountsRingBuffer healthCountsRingBuffer;
+    private HealthCountsCallWindow healthCountsCallWindow;
+    private final boolean directWrite;
+    // created when first read, the circuit-breaker only needs the health counts
+    private volatile RollingCommandEventCounterStream rollingCommandEventCounterStream;
+    private volatile CumulativeCommandEventCounterStream cumulativeCommandEventCounterStream;
+    private volatile RollingCommandLatencyDistributionStream rollingCommandLatencyDistributionStream;
+    private volatile RollingCommandUserLatencyDistributionStream rollingCommandUserLatencyDistributionStream;
+    private volatile RollingCommandMaxConcurrencyStream rollingCommandMaxConcurrencyStream;
 
     /* package */HystrixCommandMetrics(final HystrixCommandKey key, HystrixCommandGroupKey commandGroup, HystrixThreadPoolKey threadPoolKey, HystrixCommandProperties properties, HystrixEventNotifier eventNotifier) {
         super(null);
@@ -189,19 +226,48 @@ public class HystrixCommandMetrics extends HystrixMetrics {
         this.threadPoolKey = threadPoolKey;
         this.properties = properties;
 
-        healthCountsStream = HealthCountsStream.getInstance(key, properties);
-        rollingCommandEventCounterStream = RollingCommandEventCounterStream.getInstance(key, properties);
-        cumulativeCommandEventCounterStream = CumulativeCommandEventCounterStream.getInstance(key, properties);
+        this.directWrite = properties.metricsDirectWriteEnabled().get();
+        if (properties.circuitBreakerCallCountWindowSize().get() > 0) {
+            healthCountsCallWindow = HealthCountsCallWindow.getInstance(key, properties);
+        } else if (directWrite || properties.metricsHealthCountsRingBufferEnabled().get()) {
+            healthCountsRingBuffer = HealthCountsRingBuffer.getInstance(key, properties);
+        } else {
+            healthCountsStream = HealthCountsStream.getInstance(key, properties);
+        }
 
-        rollingCommandLatencyDistributionStream = RollingCommandLatencyDistributionStream.getInstance(key, properties);
-        rollingCommandUserLatencyDistributionStream = RollingCommandUserLatencyDistributionStream.getInstance(key, properties);
-        rollingCommandMaxConcurrencyStream = RollingCommandMaxConcurrencyStream.getInstance(key, properties);
+        if (properties.metricsIdleKeyReclamationTimeInMilliseconds().get() > 0) {
+            HystrixIdleKeyReclaimer.startIfUnstarted();
+        }
     }
 
     /* package */ synchronized void resetStream() {
-        healthCountsStream.unsubscribe();
-        HealthCountsStream.removeByKey(key);
-        healthCountsStream = HealthCountsStream.getInstance(key, properties);
+        if (healthCountsCallWindow != null) {
+            healthCountsCallWindow.unsubscribe();
+            HealthCountsCallWindow.removeByKey(key);
+            healthCountsCallWindow = HealthCountsCallWindow.getInstance(key, properties);
+        } else if (healthCountsRingBuffer != null) {
+            healthCountsRingBuffer.unsubscribe();
+            HealthCountsRingBuffer.removeByKey(key);
+            healthCountsRingBuffer = HealthCountsRingBuffer.getInstance(key, properties);
+        } else {
+            healthCountsStream.unsubscribe();
+            HealthCountsStream.removeByKey(key);
+            healthCountsStream = HealthCountsStream.getInstance(key, properties);
+        }
+    }
+
+    /**
+     * Record that a command with this key is in use, see {@link HystrixCommandProperties#metricsIdleKeyReclamationTimeInMilliseconds()}.
+     */
+    /* package */ void markUsed() {
+        final long now = System.currentTimeMillis();
+        if (now - lastUsedTime >= 1000) {
+            lastUsedTime = now;
+        }
+    }
+
+    /* package */ long getLastUsedTime() {
+        return lastUsedTime;
     }
 
     /**
@@ -240,12 +306,63 @@ public class HystrixCommandMetrics extends HystrixMetrics {
         return properties;
     }
 
+    private RollingCommandEventCounterStream getRollingCommandEventCounterStream() {
+        RollingCommandEventCounterStream stream = rollingCommandEventCounterStream;
+        if (stream == null) {
+            // getInstance is idempotent, so racing readers end up with the same stream
+            stream = RollingCommandEventCounterStream.getInstance(key, properties);
+            stream.stopCachingWhenUnreadFor(properties.metricsIdleStreamTimeoutInMilliseconds());
+            rollingCommandEventCounterStream = stream;
+        }
+        return stream;
+    }
+
+    private CumulativeCommandEventCounterStream getCumulativeCommandEventCounterStream() {
+        CumulativeCommandEventCounterStream stream = cumulativeCommandEventCounterStream;
+        if (stream == null) {
+            stream = CumulativeCommandEventCounterStream.getInstance(key, properties);
+            stream.stopCachingWhenUnreadFor(properties.metricsIdleStreamTimeoutInMilliseconds());
+            cumulativeCommandEventCounterStream = stream;
+        }
+        return stream;
+    }
+
+    private RollingCommandLatencyDistributionStream getRollingCommandLatencyDistributionStream() {
+        RollingCommandLatencyDistributionStream stream = rollingCommandLatencyDistributionStream;
+        if (stream == null) {
+            stream = RollingCommandLatencyDistributionStream.getInstance(key, properties);
+            stream.stopCachingWhenUnreadFor(properties.metricsIdleStreamTimeoutInMilliseconds());
+            rollingCommandLatencyDistributionStream = stream;
+        }
+        return stream;
+    }
+
+    private RollingCommandUserLatencyDistributionStream getRollingCommandUserLatencyDistributionStream() {
+        RollingCommandUserLatencyDistributionStream stream = rollingCommandUserLatencyDistributionStream;
+        if (stream == null) {
+            stream = RollingCommandUserLatencyDistributionStream.getInstance(key, properties);
+            stream.stopCachingWhenUnreadFor(properties.metricsIdleStreamTimeoutInMilliseconds());
+            rollingCommandUserLatencyDistributionStream = stream;
+        }
+        return stream;
+    }
+
+    private RollingCommandMaxConcurrencyStream getRollingCommandMaxConcurrencyStream() {
+        RollingCommandMaxConcurrencyStream stream = rollingCommandMaxConcurrencyStream;
+        if (stream == null) {
+            stream = RollingCommandMaxConcurrencyStream.getInstance(key, properties);
+            stream.stopCachingWhenUnreadFor(properties.metricsIdleStreamTimeoutInMilliseconds());
+            rollingCommandMaxConcurrencyStream = stream;
+        }
+        return stream;
+    }
+
     public long getRollingCount(HystrixEventType eventType) {
-        return rollingCommandEventCounterStream.getLatest(eventType);
+        return getRollingCommandEventCounterStream().getLatest(eventType);
     }
 
     public long getCumulativeCount(HystrixEventType eventType) {
-        return cumulativeCommandEventCounterStream.getLatest(eventType);
+        return getCumulativeCommandEventCounterStream().getLatest(eventType);
     }
 
     @Override
@@ -268,7 +385,17 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return int time in milliseconds
      */
     public int getExecutionTimePercentile(double percentile) {
-        return rollingCommandLatencyDistributionStream.getLatestPercentile(percentile);
+        return getRollingCommandLatencyDistributionStream().getLatestPercentile(percentile);
+    }
+
+    /**
+     * Stream of the execution time distribution that {@link #getExecutionTimePercentile(double)} reads from, emitting every
+     * time the rolling percentile window rolls.
+     *
+     * @return {@code Observable<CachedValuesHistogram>}
+     */
+    /* package */ Observable<CachedValuesHistogram> observeExecutionTimeDistribution() {
+        return getRollingCommandLatencyDistributionStream().observe();
     }
 
     /**
@@ -279,7 +406,7 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return int time in milliseconds
      */
     public int getExecutionTimeMean() {
-        return rollingCommandLatencyDistributionStream.getLatestMean();
+        return getRollingCommandLatencyDistributionStream().getLatestMean();
     }
 
     /**
@@ -304,7 +431,7 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return int time in milliseconds
      */
     public int getTotalTimePercentile(double percentile) {
-        return rollingCommandUserLatencyDistributionStream.getLatestPercentile(percentile);
+        return getRollingCommandUserLatencyDistributionStream().getLatestPercentile(percentile);
     }
 
     /**
@@ -315,11 +442,11 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return int time in milliseconds
      */
     public int getTotalTimeMean() {
-        return rollingCommandUserLatencyDistributionStream.getLatestMean();
+        return getRollingCommandUserLatencyDistributionStream().getLatestMean();
     }
 
     public long getRollingMaxConcurrentExecutions() {
-        return rollingCommandMaxConcurrencyStream.getLatestRollingMax();
+        return getRollingCommandMaxConcurrencyStream().getLatestRollingMax();
     }
 
     /**
@@ -337,14 +464,40 @@ public class HystrixCommandMetrics extends HystrixMetrics {
     }
 
     /* package-private */ void markCommandDone(ExecutionResult executionResult, HystrixCommandKey commandKey, HystrixThreadPoolKey threadPoolKey, boolean executionStarted) {
-        HystrixThreadEventStream.getInstance().executionDone(executionResult, commandKey, threadPoolKey);
+        if (directWrite) {
+            if (healthCountsCallWindow != null) {
+                healthCountsCallWindow.record(executionResult.getEventCounts());
+            } else {
+                healthCountsRingBuffer.record(executionResult.getEventCounts());
+            }
+            if (isCompletionObserved(executionResult, commandKey, threadPoolKey)) {
+                HystrixThreadEventStream.getInstance().executionDone(executionResult, commandKey, threadPoolKey);
+            }
+        } else {
+            HystrixThreadEventStream.getInstance().executionDone(executionResult, commandKey, threadPoolKey);
+        }
         if (executionStarted) {
             concurrentExecutionCount.decrementAndGet();
         }
     }
 
+    /**
+     * In direct-write mode, a completion only needs to go through the {@link HystrixThreadEventStream} if some consumer
+     * (rolling counters, latency distributions, dashboard streams, ...) is subscribed to where it would end up.
+     */
+    private static boolean isCompletionObserved(ExecutionResult executionResult, HystrixCommandKey commandKey, HystrixThreadPoolKey threadPoolKey) {
+        if (HystrixCommandCompletionStream.getInstance(commandKey).hasSubscribers()) {
+            return true;
+        }
+        return (executionResult.isExecutedInThread() || executionResult.isResponseThreadPoolRejected())
+                && HystrixThreadPoolCompletionStream.getInstance(threadPoolKey).hasSubscribers();
+    }
+
     /**
      * Retrieve a snapshot of total requests, error count and error percentage.
+     * <p>
+     * These are over the rolling statistical window, or over the last executions if
+     * {@link HystrixCommandProperties#circuitBreakerCallCountWindowSize()} is set.
      *
      * This metrics should measure the actual health of a {@link HystrixCommand}.  For that reason, the following are included:
      * <p><ul>
@@ -358,6 +511,7 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * <p><ul>
      * <li>{@link HystrixEventType#BAD_REQUEST} - this event denotes bad arguments to the command and not a problem with the command
      * <li>{@link HystrixEventType#SHORT_CIRCUITED} - this event measures a health problem in the past, not a problem with the current state
+     * <li>{@link HystrixEventType#RATE_LIMITED} - this event denotes a limit the caller imposed on itself, not a problem with the dependency
      * <li>{@link HystrixEventType#CANCELLED} - this event denotes a user-cancelled command.  It's not known if it would have been a success or failure, so it shouldn't count for either
      * <li>All Fallback metrics
      * <li>{@link HystrixEventType#EMIT} - this event is not a terminal state for the command
@@ -367,16 +521,58 @@ public class HystrixCommandMetrics extends HystrixMetrics {
      * @return {@link HealthCounts}
      */
     public HealthCounts getHealthCounts() {
+        HealthCountsCallWindow callWindow = healthCountsCallWindow;
+        if (callWindow != null) {
+            return callWindow.getLatest();
+        }
+        HealthCountsRingBuffer ringBuffer = healthCountsRingBuffer;
+        if (ringBuffer != null) {
+            return ringBuffer.getLatest();
+        }
         return healthCountsStream.getLatest();
     }
 
+    /**
+     * Stream of the {@link HealthCounts} that {@link #getHealthCounts()} returns, emitting every time they are recalculated.
+     * The stream is replaced by {@link #resetStream()}, so subscribers need to subscribe again after calling it.
+     *
+     * @return {@code Observable<HealthCounts>}
+     */
+    /* package */ synchronized Observable<HealthCounts> observeHealthCounts() {
+        HealthCountsCallWindow callWindow = healthCountsCallWindow;
+        if (callWindow != null) {
+            return callWindow.observe();
+        }
+        HealthCountsRingBuffer ringBuffer = healthCountsRingBuffer;
+        if (ringBuffer != null) {
+            return ringBuffer.observe();
+        }
+        return healthCountsStream.observe();
+    }
+
     private void unsubscribeAll() {
-        healthCountsStream.unsubscribe();
-        rollingCommandEventCounterStream.unsubscribe();
-        cumulativeCommandEventCounterStream.unsubscribe();
-        rollingCommandLatencyDistributionStream.unsubscribe();
-        rollingCommandUserLatencyDistributionStream.unsubscribe();
-        rollingCommandMaxConcurrencyStream.unsubscribe();
+        if (healthCountsCallWindow != null) {
+            healthCountsCallWindow.unsubscribe();
+        } else if (healthCountsRingBuffer != null) {
+            healthCountsRingBuffer.unsubscribe();
+        } else {
+            healthCountsStream.unsubscribe();
+        }
+        if (rollingCommandEventCounterStream != null) {
+            rollingCommandEventCounterStream.unsubscribe();
+        }
+        if (cumulativeCommandEventCounterStream != null) {
+            cumulativeCommandEventCounterStream.unsubscribe();
+        }
+        if (rollingCommandLatencyDistributionStream != null) {
+            rollingCommandLatencyDistributionStream.unsubscribe();
+        }
+        if (rollingCommandUserLatencyDistributionStream != null) {
+            rollingCommandUserLatencyDistributionStream.unsubscribe();
+        }
+        if (rollingCommandMaxConcurrencyStream != null) {
+            rollingCommandMaxConcurrencyStream.unsubscribe();
+        }
     }
 
     /**
@@ -18,13 +18,16 @@ package com.netflix.hystrix;
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forBoolean;
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forInteger;
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forString;
+import static com.netflix.hystrix.strategy.properties.HystrixPropertiesSnapshot.compiled;
 
 import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.properties.HystrixDynamicProperty;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesSnapshot;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
 import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import com.netflix.hystrix.util.HystrixRollingNumber;
@@ -48,6 +51,11 @@ public abstract class HystrixCommandProperties {
     //是否开启监控统计功能,默认:true
     private static final Integer default_circuitBreakerRequestVolumeThreshold = 20;// default => statisticalWindowVolumeThreshold: 20 requests in 10 seconds must occur before statistics matter
     private static final Integer default_circuitBreakerSleepWindowInMilliseconds = 5000;// default => sleepWindow: 5000 = 5 seconds that we will sleep before trying again after tripping the circuit
+    private static final Integer default_circuitBreakerHalfOpenMaxProbes = 1; // default => a single test request per sleep window
+    private static final Integer default_circuitBreakerHalfOpenSuccessThresholdPercentage = 100; // default => every test request has to succeed
+    private static final Integer default_circuitBreakerCallCountWindowSize = 0; // default => health counts over metrics.rollingStats.timeInMilliseconds
+    private static final Integer default_circuitBreakerLatencyThresholdInMilliseconds = 0; // default => latency never trips the circuit
+    private static final Integer default_circuitBreakerLatencyPercentile = 99; // default => trip on the latency of the slowest 1% of executions
     private static final Integer default_circuitBreakerErrorThresholdPercentage = 50;// default => errorThresholdPercentage = 50 = if 50%+ of requests in 10 seconds are failures or latent then we will trip the circuit
     private static final Boolean default_circuitBreakerForceOpen = false;// default => forceCircuitOpen = false (we want to allow traffic)
     /* package */ static final Boolean default_circuitBreakerForceClosed = false;// default => ignoreErrors = false 
@@ -61,18 +69,39 @@ public abstract class HystrixCommandProperties {
     private static final Integer default_fallbackIsolationSemaphoreMaxConcurrentRequests = 10;
     private static final Boolean default_fallbackEnabled = true;
     private static final Integer default_executionIsolationSemaphoreMaxConcurrentRequests = 10;
+    private static final Integer default_executionRateLimitPermitsPerSecond = 0; // default => no rate limit
+    private static final Integer default_executionRateLimitMaxBurst = 0; // default => allow a burst of one second worth of executions
+    private static final Boolean default_executionIsolationSemaphoreFastPathEnabled = false; // default => execute() always builds the Rx chain
+    private static final Boolean default_executionIsolationSemaphoreAdaptiveLimitEnabled = false; // default => maxConcurrentRequests is a fixed limit
+    private static final Boolean default_propertySnapshotEnabled = false; // default => properties are read through on every get()
     private static final Boolean default_requestLogEnabled = true;
     private static final Boolean default_circuitBreakerEnabled = true;
     private static final Integer default_metricsRollingPercentileWindow = 60000; // default to 1 minute for RollingPercentile 
     private static final Integer default_metricsRollingPercentileWindowBuckets = 6; // default to 6 buckets (10 seconds each in 60 second window)
     private static final Integer default_metricsRollingPercentileBucketSize = 100; // default to 100 values max per bucket
     private static final Integer default_metricsHealthSnapshotIntervalInMilliseconds = 500; // default to 500ms as max frequency between allowing snapshots of health (error percentage etc)
+    private static final Boolean default_metricsHealthCountsRingBufferEnabled = false; // default to the Rx window() based HealthCountsStream
+    private static final Boolean default_metricsDirectWriteEnabled = false; // default to publishing every completion through HystrixThreadEventStream
+    private static final Integer default_metricsIdleKeyReclamationTimeInMilliseconds = 0; // default => state of a command key is kept for the lifetime of the JVM
+    private static final Integer default_metricsIdleStreamTimeoutInMilliseconds = 0; // default => metrics streams keep running once read
+    private static final Boolean default_hedgingEnabled = false; // default => a single attempt per execution
+    private static final Integer default_hedgingDelayPercentile = 95; // default => hedge attempts slower than 95% of executions
+    private static final Integer default_hedgingMinimumDelayInMilliseconds = 10; // default => never hedge before 10ms
+    private static final Integer default_hedgingMaxPercent = 10; // default => hedges add at most 10% of load
+    private static final Integer default_retryMaxAttempts = 1; // default => no retries
+    private static final Integer default_retryBackoffInMilliseconds = 10; // default => wait 10ms before the first retry
+    private static final Integer default_retryMaxPercent = 20; // default => retries add at most 20% of load
 
     @SuppressWarnings("unused") private final HystrixCommandKey key;
     // 熔断器在整个统计时间内是否开启的阀值，默认20。也就是在metricsRollingStatisticalWindowInMilliseconds（默认10s）内至少请求20次，熔断器才发挥起作用
     private final HystrixProperty<Integer> circuitBreakerRequestVolumeThreshold; // number of requests that must be made within a statisticalWindow before open/close decisions are made using stats
     // 熔断时间窗口，默认:5秒.熔断器中断请求5秒后会进入半打开状态,放下一个请求进来重试，如果该请求成功就关闭熔断器，否则继续等待一个熔断时间窗口
     private final HystrixProperty<Integer> circuitBreakerSleepWindowInMilliseconds; // milliseconds after tripping circuit before allowing retry
+    private final HystrixProperty<Integer> circuitBreakerHalfOpenMaxProbes; // number of requests let through to test a tripped circuit once the sleep window has passed
+    private final HystrixProperty<Integer> circuitBreakerHalfOpenSuccessThresholdPercentage; // % of the half-open test requests that must succeed to close the circuit
+    private final HystrixProperty<Integer> circuitBreakerCallCountWindowSize; // number of most recent executions the health counts are calculated over instead of a window of time
+    private final HystrixProperty<Integer> circuitBreakerLatencyThresholdInMilliseconds; // execution latency at circuitBreakerLatencyPercentile above which the circuit trips
+    private final HystrixProperty<Integer> circuitBreakerLatencyPercentile; // percentile of execution latency compared against circuitBreakerLatencyThresholdInMilliseconds
     //是否启用熔断器,默认true. 启动
     private final HystrixProperty<Boolean> circuitBreakerEnabled; // Whether circuit breaker should be enabled.
     //默认:50%。当出错率超过50%后熔断器启动，也就是在10秒的滑动窗口内错误率达50%，就会开启熔断
@@ -91,6 +120,10 @@ public abstract class HystrixCommandProperties {
     /* --------------信号量相关------------------*/
     //使用信号量隔离时，命令调用最大的并发数,默认:10
     private final HystrixProperty<Integer> executionIsolationSemaphoreMaxConcurrentRequests; // Number of permits for execution semaphore
+    private final HystrixProperty<Integer> executionRateLimitPermitsPerSecond; // number of executions per second allowed by the rate limiter
+    private final HystrixProperty<Integer> executionRateLimitMaxBurst; // number of executions the rate limiter allows at once after a quiet period
+    private final HystrixProperty<Boolean> executionIsolationSemaphoreFastPathEnabled; // Whether execute() runs semaphore-isolated commands without building the Rx chain
+    private final HystrixProperty<Boolean> executionIsolationSemaphoreAdaptiveLimitEnabled; // Whether the execution semaphore lowers its permits when latency rises
     //使用信号量隔离时，命令fallback(降级)调用最大的并发数,默认:10
     private final HystrixProperty<Integer> fallbackIsolationSemaphoreMaxConcurrentRequests; // Number of permits for fallback semaphore
     //是否开启fallback降级策略 默认:true
@@ -109,10 +142,22 @@ public abstract class HystrixCommandProperties {
     private final HystrixProperty<Integer> metricsRollingPercentileWindowBuckets; // number of buckets percentileWindow will be divided into
     private final HystrixProperty<Integer> metricsRollingPercentileBucketSize; // how many values will be stored in each percentileWindowBucket
     private final HystrixProperty<Integer> metricsHealthSnapshotIntervalInMilliseconds; // time between health snapshots
+    private final HystrixProperty<Boolean> metricsHealthCountsRingBufferEnabled; // whether health counts are kept in a pre-allocated ring buffer instead of an Rx stream
+    private final HystrixProperty<Boolean> metricsDirectWriteEnabled; // whether completions are recorded directly and only published to Rx streams when observed
+    private final HystrixProperty<Integer> metricsIdleKeyReclamationTimeInMilliseconds; // milliseconds a command key may go unused before its metrics, streams and circuit-breaker are released
+    private final HystrixProperty<Integer> metricsIdleStreamTimeoutInMilliseconds; // milliseconds without reads after which the rolling counter, percentile and concurrency streams stop
+    private final HystrixProperty<Boolean> hedgingEnabled; // whether a second attempt is started when the first is slower than usual
+    private final HystrixProperty<Integer> hedgingDelayPercentile; // percentile of execution latency after which a hedged attempt is started
+    private final HystrixProperty<Integer> hedgingMinimumDelayInMilliseconds; // lower bound of the delay before a hedged attempt is started
+    private final HystrixProperty<Integer> hedgingMaxPercent; // hedged attempts as a percentage of executions that may be started
+    private final HystrixProperty<Integer> retryMaxAttempts; // number of attempts of the user code per execution, including the first
+    private final HystrixProperty<Integer> retryBackoffInMilliseconds; // delay before the first retry, doubled for every further retry
+    private final HystrixProperty<Integer> retryMaxPercent; // retries as a percentage of executions that may be made
     // 是否开启请求日志,默认:true
     private final HystrixProperty<Boolean> requestLogEnabled; // whether command request logging is enabled.
     //是否开启请求缓存,默认:true
     private final HystrixProperty<Boolean> requestCacheEnabled; // Whether request caching is enabled.
+    private final HystrixProperty<Boolean> propertySnapshotEnabled; // Whether the other properties are compiled into a snapshot that is updated on change
 
     /**
      * Isolation strategy to use when executing a {@link HystrixCommand}.
@@ -120,10 +165,12 @@ public abstract class HystrixCommandProperties {
      * <ul>
      * <li>THREAD: Execute the {@link HystrixCommand#run()} method on a separate thread and restrict concurrent executions using the thread-pool size.</li>
      * <li>SEMAPHORE: Execute the {@link HystrixCommand#run()} method on the calling thread and restrict concurrent executions using the semaphore permit count.</li>
+     * <li>VIRTUAL_THREAD: Execute the {@link HystrixCommand#run()} method on a new virtual thread and restrict concurrent executions using the thread-pool size and
+     * queue settings, without holding a pooled platform thread.  Behaves like THREAD on JVMs without virtual threads.</li>
      * </ul>
      */
     public static enum ExecutionIsolationStrategy {
-        THREAD, SEMAPHORE
+        THREAD, SEMAPHORE, VIRTUAL_THREAD
     }
 
     protected HystrixCommandProperties(HystrixCommandKey key) {
@@ -137,33 +184,55 @@ public abstract class HystrixCommandProperties {
     // known that we're using deprecated HystrixPropertiesChainedServoProperty until ChainedDynamicProperty exists in Archaius
     protected HystrixCommandProperties(HystrixCommandKey key, HystrixCommandProperties.Setter builder, String propertyPrefix) {
         this.key = key;
-        this.circuitBreakerEnabled = getProperty(propertyPrefix, key, "circuitBreaker.enabled", builder.getCircuitBreakerEnabled(), default_circuitBreakerEnabled);
-        this.circuitBreakerRequestVolumeThreshold = getProperty(propertyPrefix, key, "circuitBreaker.requestVolumeThreshold", builder.getCircuitBreakerRequestVolumeThreshold(), default_circuitBreakerRequestVolumeThreshold);
-        this.circuitBreakerSleepWindowInMilliseconds = getProperty(propertyPrefix, key, "circuitBreaker.sleepWindowInMilliseconds", builder.getCircuitBreakerSleepWindowInMilliseconds(), default_circuitBreakerSleepWindowInMilliseconds);
-        this.circuitBreakerErrorThresholdPercentage = getProperty(propertyPrefix, key, "circuitBreaker.errorThresholdPercentage", builder.getCircuitBreakerErrorThresholdPercentage(), default_circuitBreakerErrorThresholdPercentage);
-        this.circuitBreakerForceOpen = getProperty(propertyPrefix, key, "circuitBreaker.forceOpen", builder.getCircuitBreakerForceOpen(), default_circuitBreakerForceOpen);
-        this.circuitBreakerForceClosed = getProperty(propertyPrefix, key, "circuitBreaker.forceClosed", builder.getCircuitBreakerForceClosed(), default_circuitBreakerForceClosed);
-        this.executionIsolationStrategy = getProperty(propertyPrefix, key, "execution.isolation.strategy", builder.getExecutionIsolationStrategy(), default_executionIsolationStrategy);
+        this.propertySnapshotEnabled = getProperty(propertyPrefix, key, "propertySnapshot.enabled", builder.getPropertySnapshotEnabled(), default_propertySnapshotEnabled);
+        final HystrixPropertiesSnapshot snapshot = propertySnapshotEnabled.get() ? new HystrixPropertiesSnapshot() : null;
+        this.circuitBreakerEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.enabled", builder.getCircuitBreakerEnabled(), default_circuitBreakerEnabled));
+        this.circuitBreakerRequestVolumeThreshold = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.requestVolumeThreshold", builder.getCircuitBreakerRequestVolumeThreshold(), default_circuitBreakerRequestVolumeThreshold));
+        this.circuitBreakerSleepWindowInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.sleepWindowInMilliseconds", builder.getCircuitBreakerSleepWindowInMilliseconds(), default_circuitBreakerSleepWindowInMilliseconds));
+        this.circuitBreakerHalfOpenMaxProbes = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.halfOpen.maxProbes", builder.getCircuitBreakerHalfOpenMaxProbes(), default_circuitBreakerHalfOpenMaxProbes));
+        this.circuitBreakerHalfOpenSuccessThresholdPercentage = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.halfOpen.successThresholdPercentage", builder.getCircuitBreakerHalfOpenSuccessThresholdPercentage(), default_circuitBreakerHalfOpenSuccessThresholdPercentage));
+        this.circuitBreakerCallCountWindowSize = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.callCountWindowSize", builder.getCircuitBreakerCallCountWindowSize(), default_circuitBreakerCallCountWindowSize));
+        this.circuitBreakerLatencyThresholdInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.latencyThresholdInMilliseconds", builder.getCircuitBreakerLatencyThresholdInMilliseconds(), default_circuitBreakerLatencyThresholdInMilliseconds));
+        this.circuitBreakerLatencyPercentile = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.latencyPercentile", builder.getCircuitBreakerLatencyPercentile(), default_circuitBreakerLatencyPercentile));
+        this.circuitBreakerErrorThresholdPercentage = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.errorThresholdPercentage", builder.getCircuitBreakerErrorThresholdPercentage(), default_circuitBreakerErrorThresholdPercentage));
+        this.circuitBreakerForceOpen = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.forceOpen", builder.getCircuitBreakerForceOpen(), default_circuitBreakerForceOpen));
+        this.circuitBreakerForceClosed = compiled(snapshot, getProperty(propertyPrefix, key, "circuitBreaker.forceClosed", builder.getCircuitBreakerForceClosed(), default_circuitBreakerForceClosed));
+        this.executionIsolationStrategy = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.strategy", builder.getExecutionIsolationStrategy(), default_executionIsolationStrategy));
         //this property name is now misleading.  //TODO figure out a good way to deprecate this property name
-        this.executionTimeoutInMilliseconds = getProperty(propertyPrefix, key, "execution.isolation.thread.timeoutInMilliseconds", builder.getExecutionIsolationThreadTimeoutInMilliseconds(), default_executionTimeoutInMilliseconds);
-        this.executionTimeoutEnabled = getProperty(propertyPrefix, key, "execution.timeout.enabled", builder.getExecutionTimeoutEnabled(), default_executionTimeoutEnabled);
-        this.executionIsolationThreadInterruptOnTimeout = getProperty(propertyPrefix, key, "execution.isolation.thread.interruptOnTimeout", builder.getExecutionIsolationThreadInterruptOnTimeout(), default_executionIsolationThreadInterruptOnTimeout);
-        this.executionIsolationThreadInterruptOnFutureCancel = getProperty(propertyPrefix, key, "execution.isolation.thread.interruptOnFutureCancel", builder.getExecutionIsolationThreadInterruptOnFutureCancel(), default_executionIsolationThreadInterruptOnFutureCancel);
-        this.executionIsolationSemaphoreMaxConcurrentRequests = getProperty(propertyPrefix, key, "execution.isolation.semaphore.maxConcurrentRequests", builder.getExecutionIsolationSemaphoreMaxConcurrentRequests(), default_executionIsolationSemaphoreMaxConcurrentRequests);
-        this.fallbackIsolationSemaphoreMaxConcurrentRequests = getProperty(propertyPrefix, key, "fallback.isolation.semaphore.maxConcurrentRequests", builder.getFallbackIsolationSemaphoreMaxConcurrentRequests(), default_fallbackIsolationSemaphoreMaxConcurrentRequests);
-        this.fallbackEnabled = getProperty(propertyPrefix, key, "fallback.enabled", builder.getFallbackEnabled(), default_fallbackEnabled);
-        this.metricsRollingStatisticalWindowInMilliseconds = getProperty(propertyPrefix, key, "metrics.rollingStats.timeInMilliseconds", builder.getMetricsRollingStatisticalWindowInMilliseconds(), default_metricsRollingStatisticalWindow);
-        this.metricsRollingStatisticalWindowBuckets = getProperty(propertyPrefix, key, "metrics.rollingStats.numBuckets", builder.getMetricsRollingStatisticalWindowBuckets(), default_metricsRollingStatisticalWindowBuckets);
-        this.metricsRollingPercentileEnabled = getProperty(propertyPrefix, key, "metrics.rollingPercentile.enabled", builder.getMetricsRollingPercentileEnabled(), default_metricsRollingPercentileEnabled);
-        this.metricsRollingPercentileWindowInMilliseconds = getProperty(propertyPrefix, key, "metrics.rollingPercentile.timeInMilliseconds", builder.getMetricsRollingPercentileWindowInMilliseconds(), default_metricsRollingPercentileWindow);
-        this.metricsRollingPercentileWindowBuckets = getProperty(propertyPrefix, key, "metrics.rollingPercentile.numBuckets", builder.getMetricsRollingPercentileWindowBuckets(), default_metricsRollingPercentileWindowBuckets);
-        this.metricsRollingPercentileBucketSize = getProperty(propertyPrefix, key, "metrics.rollingPercentile.bucketSize", builder.getMetricsRollingPercentileBucketSize(), default_metricsRollingPercentileBucketSize);
-        this.metricsHealthSnapshotIntervalInMilliseconds = getProperty(propertyPrefix, key, "metrics.healthSnapshot.intervalInMilliseconds", builder.getMetricsHealthSnapshotIntervalInMilliseconds(), default_metricsHealthSnapshotIntervalInMilliseconds);
-        this.requestCacheEnabled = getProperty(propertyPrefix, key, "requestCache.enabled", builder.getRequestCacheEnabled(), default_requestCacheEnabled);
-        this.requestLogEnabled = getProperty(propertyPrefix, key, "requestLog.enabled", builder.getRequestLogEnabled(), default_requestLogEnabled);
+        this.executionTimeoutInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.thread.timeoutInMilliseconds", builder.getExecutionIsolationThreadTimeoutInMilliseconds(), default_executionTimeoutInMilliseconds));
+        this.executionTimeoutEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "execution.timeout.enabled", builder.getExecutionTimeoutEnabled(), default_executionTimeoutEnabled));
+        this.executionIsolationThreadInterruptOnTimeout = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.thread.interruptOnTimeout", builder.getExecutionIsolationThreadInterruptOnTimeout(), default_executionIsolationThreadInterruptOnTimeout));
+        this.executionIsolationThreadInterruptOnFutureCancel = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.thread.interruptOnFutureCancel", builder.getExecutionIsolationThreadInterruptOnFutureCancel(), default_executionIsolationThreadInterruptOnFutureCancel));
+        this.executionIsolationSemaphoreMaxConcurrentRequests = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.semaphore.maxConcurrentRequests", builder.getExecutionIsolationSemaphoreMaxConcurrentRequests(), default_executionIsolationSemaphoreMaxConcurrentRequests));
+        this.executionRateLimitPermitsPerSecond = compiled(snapshot, getProperty(propertyPrefix, key, "execution.rateLimit.permitsPerSecond", builder.getExecutionRateLimitPermitsPerSecond(), default_executionRateLimitPermitsPerSecond));
+        this.executionRateLimitMaxBurst = compiled(snapshot, getProperty(propertyPrefix, key, "execution.rateLimit.maxBurst", builder.getExecutionRateLimitMaxBurst(), default_executionRateLimitMaxBurst));
+        this.executionIsolationSemaphoreFastPathEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.semaphore.fastPath.enabled", builder.getExecutionIsolationSemaphoreFastPathEnabled(), default_executionIsolationSemaphoreFastPathEnabled));
+        this.executionIsolationSemaphoreAdaptiveLimitEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "execution.isolation.semaphore.adaptiveLimit.enabled", builder.getExecutionIsolationSemaphoreAdaptiveLimitEnabled(), default_executionIsolationSemaphoreAdaptiveLimitEnabled));
+        this.fallbackIsolationSemaphoreMaxConcurrentRequests = compiled(snapshot, getProperty(propertyPrefix, key, "fallback.isolation.semaphore.maxConcurrentRequests", builder.getFallbackIsolationSemaphoreMaxConcurrentRequests(), default_fallbackIsolationSemaphoreMaxConcurrentRequests));
+        this.fallbackEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "fallback.enabled", builder.getFallbackEnabled(), default_fallbackEnabled));
+        this.metricsRollingStatisticalWindowInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingStats.timeInMilliseconds", builder.getMetricsRollingStatisticalWindowInMilliseconds(), default_metricsRollingStatisticalWindow));
+        this.metricsRollingStatisticalWindowBuckets = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingStats.numBuckets", builder.getMetricsRollingStatisticalWindowBuckets(), default_metricsRollingStatisticalWindowBuckets));
+        this.metricsRollingPercentileEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingPercentile.enabled", builder.getMetricsRollingPercentileEnabled(), default_metricsRollingPercentileEnabled));
+        this.metricsRollingPercentileWindowInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingPercentile.timeInMilliseconds", builder.getMetricsRollingPercentileWindowInMilliseconds(), default_metricsRollingPercentileWindow));
+        this.metricsRollingPercentileWindowBuckets = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingPercentile.numBuckets", builder.getMetricsRollingPercentileWindowBuckets(), default_metricsRollingPercentileWindowBuckets));
+        this.metricsRollingPercentileBucketSize = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingPercentile.bucketSize", builder.getMetricsRollingPercentileBucketSize(), default_metricsRollingPercentileBucketSize));
+        this.metricsHealthSnapshotIntervalInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.healthSnapshot.intervalInMilliseconds", builder.getMetricsHealthSnapshotIntervalInMilliseconds(), default_metricsHealthSnapshotIntervalInMilliseconds));
+        this.metricsHealthCountsRingBufferEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.healthSnapshot.ringBuffer.enabled", builder.getMetricsHealthCountsRingBufferEnabled(), default_metricsHealthCountsRingBufferEnabled));
+        this.metricsDirectWriteEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.directWrite.enabled", builder.getMetricsDirectWriteEnabled(), default_metricsDirectWriteEnabled));
+        this.metricsIdleKeyReclamationTimeInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.idleKeyReclamation.timeInMilliseconds", builder.getMetricsIdleKeyReclamationTimeInMilliseconds(), default_metricsIdleKeyReclamationTimeInMilliseconds));
+        this.metricsIdleStreamTimeoutInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.idleStreamTimeout.timeInMilliseconds", builder.getMetricsIdleStreamTimeoutInMilliseconds(), default_metricsIdleStreamTimeoutInMilliseconds));
+        this.hedgingEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "hedging.enabled", builder.getHedgingEnabled(), default_hedgingEnabled));
+        this.hedgingDelayPercentile = compiled(snapshot, getProperty(propertyPrefix, key, "hedging.delayPercentile", builder.getHedgingDelayPercentile(), default_hedgingDelayPercentile));
+        this.hedgingMinimumDelayInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "hedging.minimumDelayInMilliseconds", builder.getHedgingMinimumDelayInMilliseconds(), default_hedgingMinimumDelayInMilliseconds));
+        this.hedgingMaxPercent = compiled(snapshot, getProperty(propertyPrefix, key, "hedging.maxPercent", builder.getHedgingMaxPercent(), default_hedgingMaxPercent));
+        this.retryMaxAttempts = compiled(snapshot, getProperty(propertyPrefix, key, "retry.maxAttempts", builder.getRetryMaxAttempts(), default_retryMaxAttempts));
+        this.retryBackoffInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "retry.backoffInMilliseconds", builder.getRetryBackoffInMilliseconds(), default_retryBackoffInMilliseconds));
+        this.retryMaxPercent = compiled(snapshot, getProperty(propertyPrefix, key, "retry.maxPercent", builder.getRetryMaxPercent(), default_retryMaxPercent));
+        this.requestCacheEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "requestCache.enabled", builder.getRequestCacheEnabled(), default_requestCacheEnabled));
+        this.requestLogEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "requestLog.enabled", builder.getRequestLogEnabled(), default_requestLogEnabled));
 
         // threadpool doesn't have a global override, only instance level makes sense
-        this.executionIsolationThreadPoolKeyOverride = forString().add(propertyPrefix + ".command." + key.name() + ".threadPoolKeyOverride", null).build();
+        this.executionIsolationThreadPoolKeyOverride = compiled(snapshot, forString().add(propertyPrefix + ".command." + key.name() + ".threadPoolKeyOverride", null).build());
     }
 
     /**
@@ -233,6 +302,68 @@ public abstract class HystrixCommandProperties {
         return circuitBreakerSleepWindowInMilliseconds;
     }
 
+    /**
+     * Number of requests the circuit lets through to test the dependency once {@link #circuitBreakerSleepWindowInMilliseconds()} has
+     * passed since it tripped (or since the previous round of test requests started), while it is half-open.
+     * <p>
+     * Once enough of them have succeeded to reach {@link #circuitBreakerHalfOpenSuccessThresholdPercentage()} the circuit closes again,
+     * and once that can no longer be reached it stays open for another sleep window.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> circuitBreakerHalfOpenMaxProbes() {
+        return circuitBreakerHalfOpenMaxProbes;
+    }
+
+    /**
+     * Percentage of the {@link #circuitBreakerHalfOpenMaxProbes()} test requests of a half-open circuit that have to succeed for
+     * the circuit to close again.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> circuitBreakerHalfOpenSuccessThresholdPercentage() {
+        return circuitBreakerHalfOpenSuccessThresholdPercentage;
+    }
+
+    /**
+     * Number of most recent executions that {@link HystrixCommandMetrics#getHealthCounts()}, and so the circuit breaker, looks at
+     * instead of the executions within {@link #metricsRollingStatisticalWindowInMilliseconds()}.  This suits dependencies whose
+     * traffic is too low, or too bursty, for a window of time to hold a meaningful number of executions.
+     * <p>
+     * A value of 0 or less keeps the window of time.  This is read once when the {@link HystrixCommandMetrics} for a command key is created.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> circuitBreakerCallCountWindowSize() {
+        return circuitBreakerCallCountWindowSize;
+    }
+
+    /**
+     * Execution latency, at {@link #circuitBreakerLatencyPercentile()} of the executions in the rolling percentile window, above
+     * which the circuit trips even though executions aren't failing.  This protects the thread-pool from a dependency that got
+     * slow without timing out.  The same {@link #circuitBreakerRequestVolumeThreshold()} applies as for errors.
+     * <p>
+     * The latency distribution is only recalculated every {@link #metricsRollingPercentileWindowInMilliseconds()} /
+     * {@link #metricsRollingPercentileWindowBuckets()} milliseconds, so the circuit reacts to latency more slowly than to errors.
+     * <p>
+     * A value of 0 or less disables this.  Whether the circuit breaker watches latency at all is decided when it is created,
+     * the threshold itself can be changed at runtime.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> circuitBreakerLatencyThresholdInMilliseconds() {
+        return circuitBreakerLatencyThresholdInMilliseconds;
+    }
+
+    /**
+     * Percentile of execution latency that is compared against {@link #circuitBreakerLatencyThresholdInMilliseconds()}.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> circuitBreakerLatencyPercentile() {
+        return circuitBreakerLatencyPercentile;
+    }
+
     /**
      * Number of concurrent requests permitted to {@link HystrixCommand#run()}. Requests beyond the concurrent limit will be rejected.
      * <p>
@@ -244,12 +375,65 @@ public abstract class HystrixCommandProperties {
         return executionIsolationSemaphoreMaxConcurrentRequests;
     }
 
+    /**
+     * Number of executions per second that are allowed before further executions are rejected as RATE_LIMITED and handled by
+     * the fallback, for dependencies that enforce a request rate quota.  The limit applies per {@link HystrixCommandKey} and in
+     * addition to the concurrency limit of the {@link #executionIsolationStrategy()}.
+     * <p>
+     * A value of 0 or less disables the rate limiter.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> executionRateLimitPermitsPerSecond() {
+        return executionRateLimitPermitsPerSecond;
+    }
+
+    /**
+     * Number of executions the rate limiter allows at once after a quiet period, see {@link #executionRateLimitPermitsPerSecond()}.
+     * <p>
+     * A value of 0 or less allows a burst of one second worth of executions.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> executionRateLimitMaxBurst() {
+        return executionRateLimitMaxBurst;
+    }
+
+    /**
+     * Whether {@link HystrixCommand#execute()} should run a semaphore-isolated, non-cached command directly on the calling thread
+     * instead of subscribing to {@link HystrixCommand#toObservable()}.  A successful execution is then recorded without building the
+     * Rx chain; only fallbacks and errors go through the usual operators.
+     * <p>
+     * Applicable only when {@link #executionIsolationStrategy()} == SEMAPHORE.
+     * 
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> executionIsolationSemaphoreFastPathEnabled() {
+        return executionIsolationSemaphoreFastPathEnabled;
+    }
+
+    /**
+     * Whether the number of permits of the execution semaphore should adapt to the execution latency of the command.
+     * {@link #executionIsolationSemaphoreMaxConcurrentRequests()} remains the upper bound, but fewer permits are handed out while
+     * latency is above what the command normally takes.  See {@link HystrixAdaptiveConcurrencyLimit}.
+     * <p>
+     * Applicable only when {@link #executionIsolationStrategy()} == SEMAPHORE.  Read when the semaphore of the command is created.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> executionIsolationSemaphoreAdaptiveLimitEnabled() {
+        return executionIsolationSemaphoreAdaptiveLimitEnabled;
+    }
+
     /**
      * What isolation strategy {@link HystrixCommand#run()} will be executed with.
      * <p>
      * If {@link ExecutionIsolationStrategy#THREAD} then it will be executed on a separate thread and concurrent requests limited by the number of threads in the thread-pool.
      * <p>
      * If {@link ExecutionIsolationStrategy#SEMAPHORE} then it will be executed on the calling thread and concurrent requests limited by the semaphore count.
+     * <p>
+     * If {@link ExecutionIsolationStrategy#VIRTUAL_THREAD} then it will be executed on a virtual thread and concurrent requests limited by the thread-pool
+     * size and queue settings.  See {@link HystrixConcurrencyStrategy#getVirtualThreadFactory(HystrixThreadPoolKey)}.
      * 
      * @return {@code HystrixProperty<Boolean>}
      */
@@ -260,7 +444,7 @@ public abstract class HystrixCommandProperties {
     /**
      * Whether the execution thread should attempt an interrupt (using {@link Future#cancel}) when a thread times out.
      * <p>
-     * Applicable only when {@link #executionIsolationStrategy()} == THREAD.
+     * Applicable only when {@link #executionIsolationStrategy()} == THREAD or VIRTUAL_THREAD.
      * 
      * @return {@code HystrixProperty<Boolean>}
      */
@@ -271,7 +455,7 @@ public abstract class HystrixCommandProperties {
     /**
      * Whether the execution thread should be interrupted if the execution observable is unsubscribed or the future is cancelled via {@link Future#cancel(true)}).
      * <p>
-     * Applicable only when {@link #executionIsolationStrategy()} == THREAD.
+     * Applicable only when {@link #executionIsolationStrategy()} == THREAD or VIRTUAL_THREAD.
      * 
      * @return {@code HystrixProperty<Boolean>}
      */
@@ -369,6 +553,141 @@ public abstract class HystrixCommandProperties {
         return metricsHealthSnapshotIntervalInMilliseconds;
     }
 
+    /**
+     * Whether {@link HystrixCommandMetrics#getHealthCounts()} should be backed by a pre-allocated ring of striped counters rolled by the
+     * {@link com.netflix.hystrix.util.HystrixTimer} instead of the Rx window() pipeline of {@link com.netflix.hystrix.metric.consumer.HealthCountsStream}.
+     * <p>
+     * This is read once when the {@link HystrixCommandMetrics} for a command key is created.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> metricsHealthCountsRingBufferEnabled() {
+        return metricsHealthCountsRingBufferEnabled;
+    }
+
+    /**
+     * Whether command completions should be recorded directly into the health counts ring buffer (see {@link #metricsHealthCountsRingBufferEnabled()})
+     * from the thread completing the command, and only be published through {@link com.netflix.hystrix.metric.HystrixThreadEventStream} while
+     * something is subscribed to the {@link com.netflix.hystrix.metric.HystrixCommandCompletionStream} or
+     * {@link com.netflix.hystrix.metric.HystrixThreadPoolCompletionStream}.
+     * <p>
+     * Enabling this implies the ring buffer for health counts.  This is read once when the {@link HystrixCommandMetrics} for a command key is created.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> metricsDirectWriteEnabled() {
+        return metricsDirectWriteEnabled;
+    }
+
+    /**
+     * Time a command key may go without a command being constructed before the state Hystrix keeps for it is released:
+     * its metrics and their streams, circuit-breaker, semaphores, attempt budgets, rate limiter, request caches and metrics
+     * publisher.  They are recreated, empty, by the next command constructed with the key.  This bounds the memory and timer
+     * subscriptions of services which create command keys per tenant or per endpoint.
+     * <p>
+     * Keys are checked about once a second and only released while no command of the key is executing.  A metrics publisher
+     * is initialized again when its key is recreated, so a publisher that registers its metrics somewhere must allow that.
+     * The properties of the key are kept, as dynamic properties may hold on to them anyway.
+     * <p>
+     * A value of 0 or less disables this.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> metricsIdleKeyReclamationTimeInMilliseconds() {
+        return metricsIdleKeyReclamationTimeInMilliseconds;
+    }
+
+    /**
+     * Time without reads after which the rolling and cumulative counter, latency percentile and concurrency streams of
+     * {@link HystrixCommandMetrics} stop, along with the timer each of them ticks.
+     * <p>
+     * These streams are only created and started when first read, through {@link HystrixCommandMetrics} or a metrics publisher
+     * polling it.  A stopped stream is started again by the next read and starts from an empty window, so cumulative counts
+     * start from zero again too.  The health counts the circuit-breaker needs are never stopped.
+     * <p>
+     * A value of 0 or less disables this.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> metricsIdleStreamTimeoutInMilliseconds() {
+        return metricsIdleStreamTimeoutInMilliseconds;
+    }
+
+    /**
+     * Whether a second, hedged attempt of {@link HystrixCommand#run()} should be started when the first attempt has not completed
+     * after {@link #hedgingDelayPercentile()} of the execution latency of the command.  Whichever attempt succeeds first is used and
+     * the other is unsubscribed from.
+     * <p>
+     * Only enable this for idempotent commands.  Applicable only when {@link #executionIsolationStrategy()} == THREAD or VIRTUAL_THREAD,
+     * the hedged attempt runs on the same thread-pool.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> hedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    /**
+     * Percentile of the rolling execution latency of the command after which a hedged attempt is started, see {@link #hedgingEnabled()}.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> hedgingDelayPercentile() {
+        return hedgingDelayPercentile;
+    }
+
+    /**
+     * Lower bound of the delay before a hedged attempt is started, also used while there is no latency data for the command yet.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> hedgingMinimumDelayInMilliseconds() {
+        return hedgingMinimumDelayInMilliseconds;
+    }
+
+    /**
+     * Maximum number of hedged attempts as a percentage of the executions of the command, so hedging can not multiply the load
+     * on a dependency that is slow for everyone.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> hedgingMaxPercent() {
+        return hedgingMaxPercent;
+    }
+
+    /**
+     * Number of times the user code is attempted per execution, including the first attempt, before its failure is handled
+     * by the fallback.  Retries share the isolation, the timeout and the metrics of the execution, and are only made when
+     * {@link AbstractCommand#isRetriable(Throwable)} and the retry budget, see {@link #retryMaxPercent()}, allow.
+     * <p>
+     * Only set this above 1 for idempotent commands.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> retryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    /**
+     * Delay before the first retry, which is doubled for every further retry of the same execution.  The delay is timed by
+     * the {@link com.netflix.hystrix.util.HystrixTimer}, so no thread is held while waiting.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> retryBackoffInMilliseconds() {
+        return retryBackoffInMilliseconds;
+    }
+
+    /**
+     * Maximum number of retries as a percentage of the executions of the command, so retries can not multiply the load on a
+     * dependency that is failing for everyone.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> retryMaxPercent() {
+        return retryMaxPercent;
+    }
+
     /**
      * Maximum number of values stored in each bucket of the rolling percentile. This is passed into {@link HystrixRollingPercentile} inside {@link HystrixCommandMetrics}.
      * 
@@ -451,6 +770,20 @@ public abstract class HystrixCommandProperties {
         return requestLogEnabled;
     }
 
+    /**
+     * Whether the other properties of this command are compiled into a {@link HystrixPropertiesSnapshot}, so that reading them
+     * on the execution path is an array read instead of a walk down the chain of dynamic properties.
+     * <p>
+     * The snapshot is updated through {@link HystrixDynamicProperty#addCallback(Runnable)}, so only enable this if the
+     * {@link com.netflix.hystrix.strategy.properties.HystrixDynamicProperties} in use report changes (Archaius does, system
+     * properties don't).  Read once when these properties are created.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> propertySnapshotEnabled() {
+        return propertySnapshotEnabled;
+    }
+
     private static HystrixProperty<Boolean> getProperty(String propertyPrefix, HystrixCommandKey key, String instanceProperty, Boolean builderOverrideValue, Boolean defaultValue) {
         return forBoolean()
                 .add(propertyPrefix + ".command." + key.name() + "." + instanceProperty, builderOverrideValue)
@@ -481,7 +814,7 @@ public abstract class HystrixCommandProperties {
     /**
      * HystrixProperty that converts a String to ExecutionIsolationStrategy so we remain TypeSafe.
      */
-    private static final class ExecutionIsolationStrategyHystrixProperty implements HystrixProperty<ExecutionIsolationStrategy> {
+    private static final class ExecutionIsolationStrategyHystrixProperty implements HystrixDynamicProperty<ExecutionIsolationStrategy> {
         private final HystrixDynamicProperty<String> property;
         private volatile ExecutionIsolationStrategy value;
         private final ExecutionIsolationStrategy defaultValue;
@@ -517,6 +850,17 @@ public abstract class HystrixCommandProperties {
             return value;
         }
 
+        @Override
+        public String getName() {
+            return property.getName();
+        }
+
+        @Override
+        public void addCallback(Runnable callback) {
+            // runs after the callback that parses the new value
+            property.addCallback(callback);
+        }
+
         private void parseProperty() {
             try {
                 value = ExecutionIsolationStrategy.valueOf(property.get());
@@ -567,7 +911,17 @@ public abstract class HystrixCommandProperties {
         private Boolean circuitBreakerForceOpen = null;
         private Integer circuitBreakerRequestVolumeThreshold = null;
         private Integer circuitBreakerSleepWindowInMilliseconds = null;
+        private Integer circuitBreakerHalfOpenMaxProbes = null;
+        private Integer circuitBreakerHalfOpenSuccessThresholdPercentage = null;
+        private Integer circuitBreakerCallCountWindowSize = null;
+        private Integer circuitBreakerLatencyThresholdInMilliseconds = null;
+        private Integer circuitBreakerLatencyPercentile = null;
         private Integer executionIsolationSemaphoreMaxConcurrentRequests = null;
+        private Integer executionRateLimitPermitsPerSecond = null;
+        private Integer executionRateLimitMaxBurst = null;
+        private Boolean executionIsolationSemaphoreFastPathEnabled = null;
+        private Boolean executionIsolationSemaphoreAdaptiveLimitEnabled = null;
+        private Boolean propertySnapshotEnabled = null;
         private ExecutionIsolationStrategy executionIsolationStrategy = null;
         private Boolean executionIsolationThreadInterruptOnTimeout = null;
         private Boolean executionIsolationThreadInterruptOnFutureCancel = null;
@@ -576,6 +930,17 @@ public abstract class HystrixCommandProperties {
         private Integer fallbackIsolationSemaphoreMaxConcurrentRequests = null;
         private Boolean fallbackEnabled = null;
         private Integer metricsHealthSnapshotIntervalInMilliseconds = null;
+        private Boolean metricsHealthCountsRingBufferEnabled = null;
+        private Boolean metricsDirectWriteEnabled = null;
+        private Integer metricsIdleKeyReclamationTimeInMilliseconds = null;
+        private Integer metricsIdleStreamTimeoutInMilliseconds = null;
+        private Boolean hedgingEnabled = null;
+        private Integer hedgingDelayPercentile = null;
+        private Integer hedgingMinimumDelayInMilliseconds = null;
+        private Integer hedgingMaxPercent = null;
+        private Integer retryMaxAttempts = null;
+        private Integer retryBackoffInMilliseconds = null;
+        private Integer retryMaxPercent = null;
         private Integer metricsRollingPercentileBucketSize = null;
         private Boolean metricsRollingPercentileEnabled = null;
         private Integer metricsRollingPercentileWindowInMilliseconds = null;
@@ -613,10 +978,50 @@ public abstract class HystrixCommandProperties {
             return circuitBreakerSleepWindowInMilliseconds;
         }
 
+        public Integer getCircuitBreakerHalfOpenMaxProbes() {
+            return circuitBreakerHalfOpenMaxProbes;
+        }
+
+        public Integer getCircuitBreakerHalfOpenSuccessThresholdPercentage() {
+            return circuitBreakerHalfOpenSuccessThresholdPercentage;
+        }
+
+        public Integer getCircuitBreakerCallCountWindowSize() {
+            return circuitBreakerCallCountWindowSize;
+        }
+
+        public Integer getCircuitBreakerLatencyThresholdInMilliseconds() {
+            return circuitBreakerLatencyThresholdInMilliseconds;
+        }
+
+        public Integer getCircuitBreakerLatencyPercentile() {
+            return circuitBreakerLatencyPercentile;
+        }
+
         public Integer getExecutionIsolationSemaphoreMaxConcurrentRequests() {
             return executionIsolationSemaphoreMaxConcurrentRequests;
         }
 
+        public Integer getExecutionRateLimitPermitsPerSecond() {
+            return executionRateLimitPermitsPerSecond;
+        }
+
+        public Integer getExecutionRateLimitMaxBurst() {
+            return executionRateLimitMaxBurst;
+        }
+
+        public Boolean getExecutionIsolationSemaphoreFastPathEnabled() {
+            return executionIsolationSemaphoreFastPathEnabled;
+        }
+
+        public Boolean getExecutionIsolationSemaphoreAdaptiveLimitEnabled() {
+            return executionIsolationSemaphoreAdaptiveLimitEnabled;
+        }
+
+        public Boolean getPropertySnapshotEnabled() {
+            return propertySnapshotEnabled;
+        }
+
         public ExecutionIsolationStrategy getExecutionIsolationStrategy() {
             return executionIsolationStrategy;
         }
@@ -657,6 +1062,50 @@ public abstract class HystrixCommandProperties {
             return metricsHealthSnapshotIntervalInMilliseconds;
         }
 
+        public Boolean getMetricsHealthCountsRingBufferEnabled() {
+            return metricsHealthCountsRingBufferEnabled;
+        }
+
+        public Boolean getMetricsDirectWriteEnabled() {
+            return metricsDirectWriteEnabled;
+        }
+
+        public Integer getMetricsIdleKeyReclamationTimeInMilliseconds() {
+            return metricsIdleKeyReclamationTimeInMilliseconds;
+        }
+
+        public Integer getMetricsIdleStreamTimeoutInMilliseconds() {
+            return metricsIdleStreamTimeoutInMilliseconds;
+        }
+
+        public Boolean getHedgingEnabled() {
+            return hedgingEnabled;
+        }
+
+        public Integer getHedgingDelayPercentile() {
+            return hedgingDelayPercentile;
+        }
+
+        public Integer getHedgingMinimumDelayInMilliseconds() {
+            return hedgingMinimumDelayInMilliseconds;
+        }
+
+        public Integer getHedgingMaxPercent() {
+            return hedgingMaxPercent;
+        }
+
+        public Integer getRetryMaxAttempts() {
+            return retryMaxAttempts;
+        }
+
+        public Integer getRetryBackoffInMilliseconds() {
+            return retryBackoffInMilliseconds;
+        }
+
+        public Integer getRetryMaxPercent() {
+            return retryMaxPercent;
+        }
+
         public Integer getMetricsRollingPercentileBucketSize() {
             return metricsRollingPercentileBucketSize;
         }
@@ -719,11 +1168,61 @@ public abstract class HystrixCommandProperties {
             return this;
         }
 
+        public Setter withCircuitBreakerHalfOpenMaxProbes(int value) {
+            this.circuitBreakerHalfOpenMaxProbes = value;
+            return this;
+        }
+
+        public Setter withCircuitBreakerHalfOpenSuccessThresholdPercentage(int value) {
+            this.circuitBreakerHalfOpenSuccessThresholdPercentage = value;
+            return this;
+        }
+
+        public Setter withCircuitBreakerCallCountWindowSize(int value) {
+            this.circuitBreakerCallCountWindowSize = value;
+            return this;
+        }
+
+        public Setter withCircuitBreakerLatencyThresholdInMilliseconds(int value) {
+            this.circuitBreakerLatencyThresholdInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withCircuitBreakerLatencyPercentile(int value) {
+            this.circuitBreakerLatencyPercentile = value;
+            return this;
+        }
+
         public Setter withExecutionIsolationSemaphoreMaxConcurrentRequests(int value) {
             this.executionIsolationSemaphoreMaxConcurrentRequests = value;
             return this;
         }
 
+        public Setter withExecutionRateLimitPermitsPerSecond(int value) {
+            this.executionRateLimitPermitsPerSecond = value;
+            return this;
+        }
+
+        public Setter withExecutionRateLimitMaxBurst(int value) {
+            this.executionRateLimitMaxBurst = value;
+            return this;
+        }
+
+        public Setter withExecutionIsolationSemaphoreFastPathEnabled(boolean value) {
+            this.executionIsolationSemaphoreFastPathEnabled = value;
+            return this;
+        }
+
+        public Setter withExecutionIsolationSemaphoreAdaptiveLimitEnabled(boolean value) {
+            this.executionIsolationSemaphoreAdaptiveLimitEnabled = value;
+            return this;
+        }
+
+        public Setter withPropertySnapshotEnabled(boolean value) {
+            this.propertySnapshotEnabled = value;
+            return this;
+        }
+
         public Setter withExecutionIsolationStrategy(ExecutionIsolationStrategy value) {
             this.executionIsolationStrategy = value;
             return this;
@@ -773,6 +1272,61 @@ public abstract class HystrixCommandProperties {
             return this;
         }
 
+        public Setter withMetricsHealthCountsRingBufferEnabled(boolean value) {
+            this.metricsHealthCountsRingBufferEnabled = value;
+            return this;
+        }
+
+        public Setter withMetricsDirectWriteEnabled(boolean value) {
+            this.metricsDirectWriteEnabled = value;
+            return this;
+        }
+
+        public Setter withMetricsIdleKeyReclamationTimeInMilliseconds(int value) {
+            this.metricsIdleKeyReclamationTimeInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withMetricsIdleStreamTimeoutInMilliseconds(int value) {
+            this.metricsIdleStreamTimeoutInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withHedgingEnabled(boolean value) {
+            this.hedgingEnabled = value;
+            return this;
+        }
+
+        public Setter withHedgingDelayPercentile(int value) {
+            this.hedgingDelayPercentile = value;
+            return this;
+        }
+
+        public Setter withHedgingMinimumDelayInMilliseconds(int value) {
+            this.hedgingMinimumDelayInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withHedgingMaxPercent(int value) {
+            this.hedgingMaxPercent = value;
+            return this;
+        }
+
+        public Setter withRetryMaxAttempts(int value) {
+            this.retryMaxAttempts = value;
+            return this;
+        }
+
+        public Setter withRetryBackoffInMilliseconds(int value) {
+            this.retryBackoffInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withRetryMaxPercent(int value) {
+            this.retryMaxPercent = value;
+            return this;
+        }
+
         public Setter withMetricsRollingPercentileBucketSize(int value) {
             this.metricsRollingPercentileBucketSize = value;
             return this;
@@ -45,11 +45,12 @@ public class HystrixCommandResponseFromCache<R> extends HystrixCachedObservable<
     }
 
     private void commandCompleted(final AbstractCommand<R> commandToCopyStateInto) {
-        commandToCopyStateInto.executionResult = originalCommand.executionResult;
+        commandToCopyStateInto.executionResult.from(originalCommand.executionResult.build());
     }
 
     private void commandUnsubscribed(final AbstractCommand<R> commandToCopyStateInto) {
-        commandToCopyStateInto.executionResult = commandToCopyStateInto.executionResult.addEvent(HystrixEventType.CANCELLED);
-        commandToCopyStateInto.executionResult = commandToCopyStateInto.executionResult.setExecutionLatency(-1);
+        commandToCopyStateInto.executionResult
+                .addEvent(HystrixEventType.CANCELLED)
+                .setExecutionLatency(-1);
     }
 }
@@ -0,0 +1,324 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action2;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link Future} that is completed explicitly, typically from the terminal event of a command, and that can be composed
+ * with callbacks instead of blocking a thread in {@link #get()}.
+ * <p>
+ * This follows the shape of Java 8's <code>CompletableFuture</code>, which is not available on all the JVMs Hystrix supports.
+ * As with the non-async methods of <code>CompletableFuture</code>, callbacks run on the thread that completes the future,
+ * or on the calling thread if it is already complete, so they should not block.
+ *
+ * @param <R>
+ *            the result type
+ *
+ * @ThreadSafe
+ */
+public class HystrixCompletableFuture<R> implements Future<R> {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    // guarded by this until completed, then immutable
+    private boolean completed = false;
+    private R value;
+    private Throwable error;
+    private List<Runnable> callbacks = new ArrayList<Runnable>(2);
+
+    private volatile Subscription subscription;
+
+    /**
+     * If not already completed, sets the value returned by {@link #get()}.
+     *
+     * @return true if this invocation completed the future
+     */
+    public boolean complete(R value) {
+        return completeWith(value, null);
+    }
+
+    /**
+     * If not already completed, causes {@link #get()} to throw an {@link ExecutionException} with the given cause.
+     *
+     * @return true if this invocation completed the future
+     */
+    public boolean completeExceptionally(Throwable t) {
+        if (t == null) {
+            throw new NullPointerException("Throwable can not be null");
+        }
+        return completeWith(null, t);
+    }
+
+    /**
+     * Completes the future with a {@link CancellationException} and unsubscribes from the {@link Observable} it was
+     * completing from, if any.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!completeWith(null, new CancellationException())) {
+            return false;
+        }
+        final Subscription s = subscription;
+        if (s != null) {
+            s.unsubscribe();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return isDone() && error instanceof CancellationException;
+    }
+
+    @Override
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * @return true if the future completed in any way other than with a value, including cancellation
+     */
+    public boolean isCompletedExceptionally() {
+        return isDone() && error != null;
+    }
+
+    @Override
+    public R get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return report();
+    }
+
+    @Override
+    public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    /**
+     * Invoke <code>action</code> with the value, or the exception, of this future once it completes.
+     *
+     * @return future completed with the result of this future once <code>action</code> has returned, or with the exception
+     *         thrown by <code>action</code> if this future completed normally
+     */
+    public HystrixCompletableFuture<R> whenComplete(final Action2<? super R, ? super Throwable> action) {
+        final HystrixCompletableFuture<R> dependent = new HystrixCompletableFuture<R>();
+        onCompletion(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    action.call(value, error);
+                } catch (Throwable t) {
+                    if (error == null) {
+                        dependent.completeExceptionally(t);
+                        return;
+                    }
+                }
+                dependent.completeWith(value, error);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * @return future completed with the value of this future transformed by <code>fn</code>, or with the exception of this
+     *         future or thrown by <code>fn</code>
+     */
+    public <U> HystrixCompletableFuture<U> thenApply(final Func1<? super R, ? extends U> fn) {
+        final HystrixCompletableFuture<U> dependent = new HystrixCompletableFuture<U>();
+        onCompletion(new Runnable() {
+            @Override
+            public void run() {
+                if (error != null) {
+                    dependent.completeExceptionally(error);
+                    return;
+                }
+                final U applied;
+                try {
+                    applied = fn.call(value);
+                } catch (Throwable t) {
+                    dependent.completeExceptionally(t);
+                    return;
+                }
+                dependent.complete(applied);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Chain a further asynchronous step, such as another command's {@link HystrixCommand#toCompletableFuture()}, onto this
+     * future without blocking on either.
+     *
+     * @return future completed with the result of the future returned by <code>fn</code>, or with the exception of this
+     *         future or thrown by <code>fn</code>
+     */
+    public <U> HystrixCompletableFuture<U> thenCompose(final Func1<? super R, ? extends HystrixCompletableFuture<U>> fn) {
+        final HystrixCompletableFuture<U> dependent = new HystrixCompletableFuture<U>();
+        onCompletion(new Runnable() {
+            @Override
+            public void run() {
+                if (error != null) {
+                    dependent.completeExceptionally(error);
+                    return;
+                }
+                final HystrixCompletableFuture<U> next;
+                try {
+                    next = fn.call(value);
+                } catch (Throwable t) {
+                    dependent.completeExceptionally(t);
+                    return;
+                }
+                if (next == null) {
+                    dependent.completeExceptionally(new NullPointerException("thenCompose function returned null"));
+                    return;
+                }
+                next.onCompletion(new Runnable() {
+                    @Override
+                    public void run() {
+                        dependent.completeWith(next.value, next.error);
+                    }
+                });
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Subscribe to <code>observable</code> and complete this future from its terminal event: with the single value emitted,
+     * null if it completes without emitting, or an {@link IllegalArgumentException} if it emits more than one value.
+     */
+    /* package */ HystrixCompletableFuture<R> subscribe(Observable<? extends R> observable) {
+        final Subscriber<R> subscriber = new Subscriber<R>() {
+            private R last = null;
+            private boolean hasValue = false;
+
+            @Override
+            public void onNext(R r) {
+                if (hasValue) {
+                    unsubscribe();
+                    completeExceptionally(new IllegalArgumentException("Sequence contains too many elements"));
+                } else {
+                    hasValue = true;
+                    last = r;
+                }
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                completeExceptionally(e);
+            }
+
+            @Override
+            public void onCompleted() {
+                complete(last);
+            }
+        };
+        // set before subscribing, as a synchronous source may complete (or a callback cancel) this future meanwhile
+        subscription = subscriber;
+        observable.subscribe(subscriber);
+        return this;
+    }
+
+    /**
+     * @return {@link Observable} that emits the value of this future, or its exception, once it completes, and that cancels
+     *         this future when unsubscribed from before then
+     */
+    /* package */ Observable<R> toObservable() {
+        return Observable.create(new Observable.OnSubscribe<R>() {
+            @Override
+            public void call(final Subscriber<? super R> subscriber) {
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        cancel(false);
+                    }
+                }));
+                onCompletion(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (subscriber.isUnsubscribed()) {
+                            return;
+                        }
+                        if (error != null) {
+                            subscriber.onError(error);
+                        } else {
+                            subscriber.onNext(value);
+                            subscriber.onCompleted();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private boolean completeWith(R value, Throwable error) {
+        final List<Runnable> toRun;
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            this.value = value;
+            this.error = error;
+            this.completed = true;
+            toRun = callbacks;
+            callbacks = null;
+        }
+        // counting down publishes value and error to threads that check isDone() or return from get()
+        latch.countDown();
+        for (Runnable r : toRun) {
+            r.run();
+        }
+        return true;
+    }
+
+    private void onCompletion(Runnable r) {
+        synchronized (this) {
+            if (!completed) {
+                callbacks.add(r);
+                return;
+            }
+        }
+        r.run();
+    }
+
+    private R report() throws ExecutionException {
+        if (error == null) {
+            return value;
+        }
+        if (error instanceof CancellationException) {
+            throw (CancellationException) error;
+        }
+        throw new ExecutionException(error);
+    }
+}
@@ -43,7 +43,10 @@ public enum HystrixEventType {
     RESPONSE_FROM_CACHE(true),
     CANCELLED(true),
     COLLAPSED(false),
-    COMMAND_MAX_ACTIVE(false);
+    COMMAND_MAX_ACTIVE(false),
+    HEDGED(false),
+    RETRY(false),
+    RATE_LIMITED(false);
 
     private final boolean isTerminal;
 
@@ -74,6 +77,9 @@ public enum HystrixEventType {
             case COLLAPSED: return COLLAPSED;
             case BAD_REQUEST: return BAD_REQUEST;
             case COMMAND_MAX_ACTIVE: return COMMAND_MAX_ACTIVE;
+            case HEDGED: return HEDGED;
+            case RETRY: return RETRY;
+            case RATE_LIMITED: return RATE_LIMITED;
             default:
                 throw new RuntimeException("Not an event that can be converted to HystrixEventType : " + event);
         }
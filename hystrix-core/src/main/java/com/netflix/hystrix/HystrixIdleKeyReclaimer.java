@@ -0,0 +1,111 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherFactory;
+import com.netflix.hystrix.util.HystrixTimer;
+import com.netflix.hystrix.util.HystrixTimer.TimerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Releases the state kept for command keys that have gone unused for longer than
+ * {@link HystrixCommandProperties#metricsIdleKeyReclamationTimeInMilliseconds()}.
+ * <p>
+ * Use of a key is recorded on its {@link HystrixCommandMetrics} whenever a command is constructed with it.  A
+ * {@link HystrixTimer} listener, registered when the first key with reclamation enabled gets its metrics, sweeps the keys
+ * once a second.  Everything released is recreated by the next command constructed with the key, as after
+ * {@link Hystrix#reset()}.
+ *
+ * @ExcludeFromJavadoc
+ * @ThreadSafe
+ */
+/* package */ class HystrixIdleKeyReclaimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HystrixIdleKeyReclaimer.class);
+
+    /* package */ static final int SWEEP_INTERVAL_IN_MILLISECONDS = 1000;
+
+    private static final AtomicReference<Reference<TimerListener>> sweeper = new AtomicReference<Reference<TimerListener>>();
+
+    private HystrixIdleKeyReclaimer() {
+    }
+
+    /**
+     * Start sweeping idle keys, unless that has already been started.
+     */
+    /* package */ static void startIfUnstarted() {
+        if (sweeper.get() == null) {
+            synchronized (HystrixIdleKeyReclaimer.class) {
+                if (sweeper.get() == null) {
+                    sweeper.set(HystrixTimer.getInstance().addTimerListener(new TimerListener() {
+                        @Override
+                        public void tick() {
+                            sweep();
+                        }
+
+                        @Override
+                        public int getIntervalTimeInMilliseconds() {
+                            return SWEEP_INTERVAL_IN_MILLISECONDS;
+                        }
+                    }));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop sweeping.  Invoked by {@link Hystrix#reset()}, after which sweeping starts again with the first key that has
+     * reclamation enabled.
+     */
+    /* package */ static void reset() {
+        synchronized (HystrixIdleKeyReclaimer.class) {
+            Reference<TimerListener> s = sweeper.getAndSet(null);
+            if (s != null) {
+                s.clear();
+            }
+        }
+    }
+
+    /**
+     * Release every key that is idle for longer than its reclamation time and has no command executing.
+     */
+    /* package */ static void sweep() {
+        final long now = System.currentTimeMillis();
+        for (HystrixCommandMetrics metrics: HystrixCommandMetrics.getInstances()) {
+            final int idleTime = metrics.getProperties().metricsIdleKeyReclamationTimeInMilliseconds().get();
+            if (idleTime > 0 && now - metrics.getLastUsedTime() > idleTime && metrics.getCurrentConcurrentExecutionCount() == 0) {
+                reclaim(metrics.getCommandKey());
+            }
+        }
+    }
+
+    /* package */ static void reclaim(HystrixCommandKey key) {
+        logger.debug("Releasing state of idle command key : {}", key.name());
+        // forget the cached descriptors first, so no new command picks up what is released below
+        HystrixCommandDescriptor.removeByKey(key);
+        // the circuit-breaker subscribes to the metrics streams, so it has to let go of them before they are stopped
+        HystrixCircuitBreaker.Factory.removeByKey(key);
+        HystrixThreadPoolMetrics.removeLatencySource(key);
+        HystrixCommandMetrics.removeByKey(key);
+        AbstractCommand.removeByKey(key);
+        HystrixRequestCache.removeByKey(key);
+        HystrixMetricsPublisherFactory.removePublisherForCommand(key);
+    }
+}
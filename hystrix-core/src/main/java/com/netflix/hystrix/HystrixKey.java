@@ -16,9 +16,19 @@ public interface HystrixKey {
      */
     abstract class HystrixKeyDefault implements HystrixKey {
         private final String name;
+        private final int ordinal;
 
         public HystrixKeyDefault(String name) {
+            this(name, -1);
+        }
+
+        /**
+         * @param name key name
+         * @param ordinal dense index of this key among the interned keys of its type, see {@link #ordinal()}
+         */
+        protected HystrixKeyDefault(String name, int ordinal) {
             this.name = name;
+            this.ordinal = ordinal;
         }
 
         @Override
@@ -26,6 +36,16 @@ public interface HystrixKey {
             return name;
         }
 
+        /**
+         * Index assigned to this key when it was interned by its <code>Factory</code>, so per-key state can be held in an array
+         * instead of a map keyed by {@link #name()}. Keys of one type are numbered from 0 in the order they are interned.
+         *
+         * @return ordinal of this key, or -1 if this instance was not created by interning
+         */
+        public final int ordinal() {
+            return ordinal;
+        }
+
         @Override
         public String toString() {
             return name;
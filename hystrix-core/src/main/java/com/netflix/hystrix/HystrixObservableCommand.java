@@ -26,6 +26,11 @@ import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
  * Used to wrap code that will execute potentially risky functionality (typically meaning a service call over the network)
  * with fault and latency tolerance, statistics and performance metrics capture, circuit breaker and bulkhead functionality.
  * This command should be used for a purely non-blocking call pattern. The caller of this command will be subscribed to the Observable<R> returned by the run() method.
+ * <p>
+ * Demand requested by the subscriber of {@link #toObservable()} is passed through to the Observable returned by {@link #construct()},
+ * so a backpressure-aware source streams to a slow consumer with bounded memory. This also holds when the command is adapted to
+ * other reactive APIs, such as a Reactive Streams <code>Publisher</code>. Responses of request-cached commands are replayed to
+ * every subscriber and so are buffered in full.
  * 
  * @param <R>
  *            the return type
@@ -221,6 +226,21 @@ public abstract class HystrixObservableCommand<R> extends AbstractCommand<R> imp
 
     }
 
+    /**
+     * Used for asynchronous execution of a command that emits a single value, without blocking a thread to consume it.
+     * <p>
+     * The returned future is completed directly from the terminal event of {@link #toObservable()}: with the value emitted,
+     * null if none is emitted, or an {@link IllegalArgumentException} if more than one is. Cancelling it unsubscribes from the
+     * command.
+     *
+     * @return {@code HystrixCompletableFuture<R>} that completes with the result of {@link #construct()} or {@link #resumeWithFallback()}
+     * @throws IllegalStateException
+     *             if invoked more than once
+     */
+    public HystrixCompletableFuture<R> toCompletableFuture() {
+        return new HystrixCompletableFuture<R>().subscribe(toObservable());
+    }
+
     /**
      * Implement this method with code to be executed when {@link #observe()} or {@link #toObservable()} are invoked.
      * 
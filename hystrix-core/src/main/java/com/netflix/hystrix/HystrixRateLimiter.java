@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that limits the rate at which a command may execute.
+ * <p>
+ * The bucket holds up to <code>maxBurst</code> permits and is refilled with <code>permitsPerSecond</code>.  Instead of a
+ * count that a background task tops up, it is kept as the single instant at which it will be full again: taking a permit
+ * pushes that instant out by the refill interval of one permit, and is refused if that would put it more than a full bucket
+ * ahead of now.  So the refill is computed lazily from {@link System#nanoTime()} and a permit costs one CAS.
+ * <p>
+ * Both limits are read on every call, so they can be changed at runtime.
+ *
+ * @ThreadSafe
+ */
+public class HystrixRateLimiter {
+
+    private final HystrixProperty<Integer> permitsPerSecond;
+    private final HystrixProperty<Integer> maxBurst;
+    private final Time time;
+
+    /* instant, in Time.getNanoTime(), at which the bucket is full again */
+    private final AtomicLong fullAt;
+
+    /**
+     * @param permitsPerSecond
+     *            rate at which the bucket refills, a value of 0 or less means that no permits are handed out
+     * @param maxBurst
+     *            capacity of the bucket, a value of 0 or less means one second worth of permits
+     */
+    public HystrixRateLimiter(HystrixProperty<Integer> permitsPerSecond, HystrixProperty<Integer> maxBurst) {
+        this(permitsPerSecond, maxBurst, ACTUAL_TIME);
+    }
+
+    /* package for testing */ HystrixRateLimiter(HystrixProperty<Integer> permitsPerSecond, HystrixProperty<Integer> maxBurst, Time time) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxBurst = maxBurst;
+        this.time = time;
+        // start out with a full bucket
+        this.fullAt = new AtomicLong(time.getNanoTime());
+    }
+
+    /**
+     * Take a permit if one is available.
+     *
+     * @return true if the execution may proceed
+     */
+    public boolean tryAcquire() {
+        final int rate = permitsPerSecond.get();
+        if (rate <= 0) {
+            return false;
+        }
+        final int burst = maxBurst.get() > 0 ? maxBurst.get() : rate;
+        final long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long capacity = interval * burst;
+        while (true) {
+            final long now = time.getNanoTime();
+            final long current = fullAt.get();
+            // a bucket that was full at some point in the past is full now
+            final long next = (current - now < 0 ? now : current) + interval;
+            if (next - now > capacity) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /* package for testing */ static interface Time {
+        long getNanoTime();
+    }
+
+    private static final Time ACTUAL_TIME = new Time() {
+        @Override
+        public long getNanoTime() {
+            return System.nanoTime();
+        }
+    };
+}
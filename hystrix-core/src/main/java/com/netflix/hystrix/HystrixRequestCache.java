@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import rx.Observable;
 import rx.internal.operators.CachedObservable;
 
+import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -89,6 +90,20 @@ public class HystrixRequestCache {
         return c;
     }
 
+    /**
+     * Forget the request cache of the given command key.  Values cached in the current requests remain reachable, as the
+     * request cache recreated for the key is equal to this one.
+     */
+    /* package */ static void removeByKey(HystrixCommandKey key) {
+        Iterator<RequestCacheKey> iterator = caches.keySet().iterator();
+        while (iterator.hasNext()) {
+            RequestCacheKey rcKey = iterator.next();
+            if (rcKey.type == 1 && key.name().equals(rcKey.key)) {
+                iterator.remove();
+            }
+        }
+    }
+
     /**
      * Retrieve a cached Future for this request scope if a matching command has already been executed/queued.
      * 
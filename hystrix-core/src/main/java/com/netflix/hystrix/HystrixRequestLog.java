@@ -204,6 +204,14 @@ public class HystrixRequestLog {
                                     builder.append(event).append(", ");
                                 }
                                 break;
+                            case RETRY:
+                                int numRetries = command.getEventCounts().getCount(HystrixEventType.RETRY);
+                                if (numRetries > 1) {
+                                    builder.append(event).append("x").append(numRetries).append(", ");
+                                } else {
+                                    builder.append(event).append(", ");
+                                }
+                                break;
                             default:
                                 builder.append(event).append(", ");
                         }
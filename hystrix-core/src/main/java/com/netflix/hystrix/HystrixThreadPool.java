@@ -20,14 +20,16 @@ import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.concurrency.HystrixContextScheduler;
 import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherFactory;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesSnapshot;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Scheduler;
 import rx.functions.Func0;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -91,10 +93,10 @@ public interface HystrixThreadPool {
      */
     /* package */static class Factory {
         /*
-         * Use the String from HystrixThreadPoolKey.name() instead of the HystrixThreadPoolKey instance as it's just an interface and we can't ensure the object
-         * we receive implements hashcode/equals correctly and do not want the default hashcode/equals which would create a new threadpool for every object we get even if the name is the same
+         * Indexed by the ordinal InternMap assigns to the HystrixThreadPoolKey (see HystrixKeyIndexedMap), falling back to HystrixThreadPoolKey.name() for keys not created through the Factory.
+         * Never keyed by the HystrixThreadPoolKey instance, as the default hashcode/equals would create a new threadpool for every object we get even if the name is the same
          */
-        /* package */final static ConcurrentHashMap<String, HystrixThreadPool> threadPools = new ConcurrentHashMap<String, HystrixThreadPool>();
+        /* package */final static HystrixKeyIndexedMap<HystrixThreadPool> threadPools = new HystrixKeyIndexedMap<HystrixThreadPool>();
 
         /**
          * Get the {@link HystrixThreadPool} instance for a given {@link HystrixThreadPoolKey}.
@@ -107,11 +109,8 @@ public interface HystrixThreadPool {
          * 从map中获取线程池，如果不存在则构造一个线程池对象存入
          */
         /* package */static HystrixThreadPool getInstance(HystrixThreadPoolKey threadPoolKey, HystrixThreadPoolProperties.Setter propertiesBuilder) {
-            // get the key to use instead of using the object itself so that if people forget to implement equals/hashcode things will still work
-            String key = threadPoolKey.name();
-
             // this should find it for all but the first time
-            HystrixThreadPool previouslyCached = threadPools.get(key);
+            HystrixThreadPool previouslyCached = threadPools.get(threadPoolKey);
             if (previouslyCached != null) {
                 return previouslyCached;
             }
@@ -119,12 +118,12 @@ public interface HystrixThreadPool {
             // if we get here this is the first time so we need to initialize
             // 加锁 保证单机并发的安全性
             synchronized (HystrixThreadPool.class) {
-                if (!threadPools.containsKey(key)) {
+                if (!threadPools.containsKey(threadPoolKey)) {
                     //通过HystrixThreadPoolDefault类来构造线程池
-                    threadPools.put(key, new HystrixThreadPoolDefault(threadPoolKey, propertiesBuilder));
+                    threadPools.putIfAbsent(threadPoolKey, new HystrixThreadPoolDefault(threadPoolKey, propertiesBuilder));
                 }
             }
-            return threadPools.get(key);
+            return threadPools.get(threadPoolKey);
         }
 
         /**
@@ -139,6 +138,7 @@ public interface HystrixThreadPool {
                 pool.getExecutor().shutdown();
             }
             threadPools.clear();
+            HystrixCommandDescriptor.reset();
         }
 
         /**
@@ -161,6 +161,7 @@ public interface HystrixThreadPool {
                 }
             }
             threadPools.clear();
+            HystrixCommandDescriptor.reset();
         }
     }
 
@@ -176,6 +177,8 @@ public interface HystrixThreadPool {
         private final ThreadPoolExecutor threadPool;
         private final HystrixThreadPoolMetrics metrics;
         private final int queueSize;
+        private final HystrixVirtualThreadExecutor virtualThreadExecutor; // null if virtual threads aren't available
+        private final boolean configPushed; // whether property changes are applied when they happen rather than on each execution
 
         public HystrixThreadPoolDefault(HystrixThreadPoolKey threadPoolKey, HystrixThreadPoolProperties.Setter propertiesDefaults) {
             this.properties = HystrixPropertiesFactory.getThreadPoolProperties(threadPoolKey, propertiesDefaults);
@@ -187,6 +190,29 @@ public interface HystrixThreadPool {
                     properties);
             this.threadPool = this.metrics.getThreadPool();
             this.queue = this.threadPool.getQueue();
+            ThreadFactory virtualThreadFactory = concurrencyStrategy.getVirtualThreadFactory(threadPoolKey);
+            if (virtualThreadFactory != null) {
+                this.virtualThreadExecutor = new HystrixVirtualThreadExecutor(threadPoolKey, virtualThreadFactory, properties, metrics.getAdaptiveConcurrencyLimit());
+                this.metrics.setVirtualThreadExecutor(virtualThreadExecutor);
+            } else {
+                this.virtualThreadExecutor = null;
+            }
+
+            HystrixPropertiesSnapshot snapshot = properties.getSnapshot();
+            if (snapshot != null) {
+                this.configPushed = true;
+                touchConfig();
+                snapshot.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!threadPool.isShutdown()) {
+                            touchConfig();
+                        }
+                    }
+                });
+            } else {
+                this.configPushed = false;
+            }
 
             /* strategy: HystrixMetricsPublisherThreadPool */
             HystrixMetricsPublisherFactory.createOrRetrievePublisherForThreadPool(threadPoolKey, this.metrics, this.properties);
@@ -194,7 +220,9 @@ public interface HystrixThreadPool {
 
         @Override
         public ThreadPoolExecutor getExecutor() {
-            touchConfig();
+            if (!configPushed) {
+                touchConfig();
+            }
             return threadPool;
         }
 
@@ -211,11 +239,38 @@ public interface HystrixThreadPool {
 
         @Override
         public Scheduler getScheduler(Func0<Boolean> shouldInterruptThread) {
-            touchConfig();
+            if (!configPushed) {
+                touchConfig();
+            }
             return new HystrixContextScheduler(HystrixPlugins.getInstance().getConcurrencyStrategy(), this, shouldInterruptThread);
         }
 
-        // allow us to change things via fast-properties by setting it each time
+        /**
+         * Scheduler for {@link HystrixCommandProperties.ExecutionIsolationStrategy#VIRTUAL_THREAD} commands, which starts a
+         * thread per execution but admits executions according to the size and queue settings of this thread-pool.
+         * <p>
+         * Falls back to {@link #getScheduler(Func0)} if {@link HystrixConcurrencyStrategy#getVirtualThreadFactory} provided no factory.
+         */
+        public Scheduler getVirtualThreadScheduler(Func0<Boolean> shouldInterruptThread) {
+            if (virtualThreadExecutor == null) {
+                return getScheduler(shouldInterruptThread);
+            }
+            return new HystrixContextScheduler(HystrixPlugins.getInstance().getConcurrencyStrategy(), this, virtualThreadExecutor, shouldInterruptThread);
+        }
+
+        /* package */ HystrixVirtualThreadExecutor getVirtualThreadExecutor() {
+            return virtualThreadExecutor;
+        }
+
+        /**
+         * Let the latency of the given command drive the admitted concurrency while {@link HystrixThreadPoolProperties#adaptiveLimitEnabled()}.
+         * The command is registered either way, so the property can be switched on at runtime.
+         */
+        public void addLatencySource(HystrixCommandKey commandKey, HystrixCommandProperties commandProperties) {
+            metrics.getAdaptiveConcurrencyLimit().addLatencySource(commandKey, commandProperties);
+        }
+
+        // allow us to change things via fast-properties by setting it each time, or when they change if configPushed
         private void touchConfig() {
             final int dynamicCoreSize = properties.coreSize().get();
             final int configuredMaximumSize = properties.maximumSize().get();
@@ -236,8 +291,14 @@ public interface HystrixThreadPool {
                             dynamicCoreSize + " and maximumSize = " + configuredMaximumSize + ".  Maximum size will be set to " +
                             dynamicMaximumSize + ", the coreSize value, since it must be equal to or greater than the coreSize value");
                 }
-                threadPool.setCorePoolSize(dynamicCoreSize);
-                threadPool.setMaximumPoolSize(dynamicMaximumSize);
+                // newer JDKs reject a core size above the maximum size, so grow the maximum size first and shrink it last
+                if (dynamicMaximumSize >= threadPool.getMaximumPoolSize()) {
+                    threadPool.setMaximumPoolSize(dynamicMaximumSize);
+                    threadPool.setCorePoolSize(dynamicCoreSize);
+                } else {
+                    threadPool.setCorePoolSize(dynamicCoreSize);
+                    threadPool.setMaximumPoolSize(dynamicMaximumSize);
+                }
             }
 
             threadPool.setKeepAliveTime(properties.keepAliveTimeMinutes().get(), TimeUnit.MINUTES);
@@ -267,9 +328,16 @@ public interface HystrixThreadPool {
          * still get checked on each invocation.
          * <p>
          * If a SynchronousQueue implementation is used (<code>maxQueueSize</code> <= 0), it always returns 0 as the size so this would always return true.
+         * <p>
+         * If {@link HystrixThreadPoolProperties#adaptiveLimitEnabled()}, this also returns false once the running and queued
+         * executions reach the {@link HystrixAdaptiveConcurrencyLimit}, so work is rejected early while latency is high.
          */
         @Override
         public boolean isQueueSpaceAvailable() {
+            if (properties.adaptiveLimitEnabled().get()
+                    && metrics.getCurrentConcurrentExecutionCount().intValue() + queue.size() >= metrics.getAdaptiveConcurrencyLimit().get()) {
+                return false;
+            }
             if (queueSize <= 0) {
                 // we don't have a queue so we won't look for space but instead
                 // let the thread-pool reject or not
@@ -17,6 +17,8 @@ package com.netflix.hystrix;
 
 import com.netflix.hystrix.util.InternMap;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A key to represent a {@link HystrixThreadPool} for monitoring, metrics publishing, caching and other such uses.
  * <p>
@@ -32,13 +34,16 @@ public interface HystrixThreadPoolKey extends HystrixKey {
         private Factory() {
         }
 
+        // dense index handed out to each interned instance
+        private static final AtomicInteger ordinals = new AtomicInteger();
+
         // used to intern instances so we don't keep re-creating them millions of times for the same key
         private static final InternMap<String, HystrixThreadPoolKey> intern
                 = new InternMap<String, HystrixThreadPoolKey>(
                 new InternMap.ValueConstructor<String, HystrixThreadPoolKey>() {
                     @Override
                     public HystrixThreadPoolKey create(String key) {
-                        return new HystrixThreadPoolKeyDefault(key);
+                        return new HystrixThreadPoolKeyDefault(key, ordinals.getAndIncrement());
                     }
                 });
 
@@ -53,8 +58,8 @@ public interface HystrixThreadPoolKey extends HystrixKey {
         }
 
         private static class HystrixThreadPoolKeyDefault extends HystrixKeyDefault implements HystrixThreadPoolKey {
-            public HystrixThreadPoolKeyDefault(String name) {
-                super(name);
+            public HystrixThreadPoolKeyDefault(String name, int ordinal) {
+                super(name, ordinal);
             }
         }
 
@@ -19,6 +19,8 @@ import com.netflix.hystrix.metric.HystrixCommandCompletion;
 import com.netflix.hystrix.metric.consumer.CumulativeThreadPoolEventCounterStream;
 import com.netflix.hystrix.metric.consumer.RollingThreadPoolMaxConcurrencyStream;
 import com.netflix.hystrix.metric.consumer.RollingThreadPoolEventCounterStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import com.netflix.hystrix.util.HystrixRollingNumberEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +32,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -43,8 +44,8 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
     private static final HystrixEventType.ThreadPool[] ALL_THREADPOOL_EVENT_TYPES = HystrixEventType.ThreadPool.values();
     private static final int NUMBER_THREADPOOL_EVENT_TYPES = ALL_THREADPOOL_EVENT_TYPES.length;
 
-    // String is HystrixThreadPoolKey.name() (we can't use HystrixThreadPoolKey directly as we can't guarantee it implements hashcode/equals correctly)
-    private static final ConcurrentHashMap<String, HystrixThreadPoolMetrics> metrics = new ConcurrentHashMap<String, HystrixThreadPoolMetrics>();
+    // indexed by the ordinal InternMap assigns to the HystrixThreadPoolKey, falling back to its name() for keys not created through the Factory
+    private static final HystrixKeyIndexedMap<HystrixThreadPoolMetrics> metrics = new HystrixKeyIndexedMap<HystrixThreadPoolMetrics>();
 
     /**
      * Get or create the {@link HystrixThreadPoolMetrics} instance for a given {@link HystrixThreadPoolKey}.
@@ -61,17 +62,17 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
      */
     public static HystrixThreadPoolMetrics getInstance(HystrixThreadPoolKey key, ThreadPoolExecutor threadPool, HystrixThreadPoolProperties properties) {
         // attempt to retrieve from cache first
-        HystrixThreadPoolMetrics threadPoolMetrics = metrics.get(key.name());
+        HystrixThreadPoolMetrics threadPoolMetrics = metrics.get(key);
         if (threadPoolMetrics != null) {
             return threadPoolMetrics;
         } else {
             synchronized (HystrixThreadPoolMetrics.class) {
-                HystrixThreadPoolMetrics existingMetrics = metrics.get(key.name());
+                HystrixThreadPoolMetrics existingMetrics = metrics.get(key);
                 if (existingMetrics != null) {
                     return existingMetrics;
                 } else {
                     HystrixThreadPoolMetrics newThreadPoolMetrics = new HystrixThreadPoolMetrics(key, threadPool, properties);
-                    metrics.putIfAbsent(key.name(), newThreadPoolMetrics);
+                    metrics.putIfAbsent(key, newThreadPoolMetrics);
                     return newThreadPoolMetrics;
                 }
             }
@@ -86,7 +87,7 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
      * @return {@link HystrixThreadPoolMetrics}
      */
     public static HystrixThreadPoolMetrics getInstance(HystrixThreadPoolKey key) {
-        return metrics.get(key.name());
+        return metrics.get(key);
     }
 
     /**
@@ -143,11 +144,22 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
         metrics.clear();
     }
 
+    /**
+     * Stop adjusting the concurrency limits of thread-pools to the latency of the given command.
+     */
+    /* package */ static void removeLatencySource(HystrixCommandKey commandKey) {
+        for (HystrixThreadPoolMetrics threadPoolMetrics: metrics.values()) {
+            threadPoolMetrics.concurrencyLimit.removeLatencySource(commandKey);
+        }
+    }
+
     private final HystrixThreadPoolKey threadPoolKey;
     private final ThreadPoolExecutor threadPool;
+    private volatile HystrixVirtualThreadExecutor virtualThreadExecutor; // null unless the thread-pool runs virtual threads too
     private final HystrixThreadPoolProperties properties;
 
     private final AtomicInteger concurrentExecutionCount = new AtomicInteger();
+    private final HystrixAdaptiveConcurrencyLimit concurrencyLimit;
 
     private final RollingThreadPoolEventCounterStream rollingCounterStream;
     private final CumulativeThreadPoolEventCounterStream cumulativeCounterStream;
@@ -162,6 +174,22 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
         rollingCounterStream = RollingThreadPoolEventCounterStream.getInstance(threadPoolKey, properties);
         cumulativeCounterStream = CumulativeThreadPoolEventCounterStream.getInstance(threadPoolKey, properties);
         rollingThreadPoolMaxConcurrencyStream = RollingThreadPoolMaxConcurrencyStream.getInstance(threadPoolKey, properties);
+        concurrencyLimit = new HystrixAdaptiveConcurrencyLimit(new HystrixProperty<Integer>() {
+            @Override
+            public Integer get() {
+                return getStaticConcurrencyLimit();
+            }
+        });
+    }
+
+    /* the bulkhead size: threads plus queue positions, as long as the queue isn't a SynchronousQueue */
+    private int getStaticConcurrencyLimit() {
+        final int maxQueueSize = properties.maxQueueSize().get();
+        if (maxQueueSize <= 0) {
+            return properties.actualMaximumSize();
+        } else {
+            return properties.actualMaximumSize() + Math.min(maxQueueSize, properties.queueSizeRejectionThreshold().get());
+        }
     }
 
     /**
@@ -173,6 +201,13 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
         return threadPool;
     }
 
+    /**
+     * Executor of the virtual threads of the thread-pool, if it has one, for the gauges to include its tasks.
+     */
+    /* package */ void setVirtualThreadExecutor(HystrixVirtualThreadExecutor virtualThreadExecutor) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
     /**
      * {@link HystrixThreadPoolKey} these metrics represent.
      * 
@@ -192,11 +227,15 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
     }
 
     /**
-     * Value from {@link ThreadPoolExecutor#getActiveCount()}
+     * Value from {@link ThreadPoolExecutor#getActiveCount()}, plus the tasks running on virtual threads
      * 
      * @return Number
      */
     public Number getCurrentActiveCount() {
+        final HystrixVirtualThreadExecutor virtualThreads = virtualThreadExecutor;
+        if (virtualThreads != null) {
+            return threadPool.getActiveCount() + virtualThreads.getActiveCount();
+        }
         return threadPool.getActiveCount();
     }
 
@@ -255,14 +294,47 @@ public class HystrixThreadPoolMetrics extends HystrixMetrics {
     }
 
     /**
-     * Current size of {@link BlockingQueue} used by the thread-pool
+     * Current size of {@link BlockingQueue} used by the thread-pool, plus the tasks waiting for a virtual thread to run on
      * 
      * @return Number
      */
     public Number getCurrentQueueSize() {
+        final HystrixVirtualThreadExecutor virtualThreads = virtualThreadExecutor;
+        if (virtualThreads != null) {
+            return threadPool.getQueue().size() + virtualThreads.getQueueSize();
+        }
         return threadPool.getQueue().size();
     }
 
+    /**
+     * Number of executions (running or queued) the thread-pool currently admits.
+     * <p>
+     * If {@link HystrixThreadPoolProperties#adaptiveLimitEnabled()} this is the limit adapted to the latency of the commands
+     * using the thread-pool, otherwise the configured thread-pool size plus queueSizeRejectionThreshold.
+     *
+     * @return Number
+     */
+    public Number getCurrentConcurrencyLimit() {
+        if (properties.adaptiveLimitEnabled().get()) {
+            return concurrencyLimit.get();
+        } else {
+            return getStaticConcurrencyLimit();
+        }
+    }
+
+    /**
+     * Number of executions currently running on the thread-pool.
+     *
+     * @return Number
+     */
+    public Number getCurrentConcurrentExecutionCount() {
+        return concurrentExecutionCount.get();
+    }
+
+    /* package */ HystrixAdaptiveConcurrencyLimit getAdaptiveConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
     /**
      * Invoked each time a thread is executed.
      */
@@ -17,12 +17,14 @@ package com.netflix.hystrix;
 
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forBoolean;
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forInteger;
+import static com.netflix.hystrix.strategy.properties.HystrixPropertiesSnapshot.compiled;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesSnapshot;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
 import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import com.netflix.hystrix.util.HystrixRollingNumber;
@@ -57,6 +59,8 @@ public abstract class HystrixThreadPoolProperties {
     static int default_queueSizeRejectionThreshold = 5; // number of items in queue
     static int default_threadPoolRollingNumberStatisticalWindow = 10000; // milliseconds for rolling number
     static int default_threadPoolRollingNumberStatisticalWindowBuckets = 10; // number of buckets in rolling number (10 1-second buckets)
+    static boolean default_adaptiveLimitEnabled = false; // whether to lower the admitted concurrency when execution latency rises
+    static boolean default_propertySnapshotEnabled = false; // whether properties are compiled into a snapshot that is updated on change
 
     private final HystrixProperty<Integer> corePoolSize;
     private final HystrixProperty<Integer> maximumPoolSize;
@@ -64,6 +68,9 @@ public abstract class HystrixThreadPoolProperties {
     private final HystrixProperty<Integer> maxQueueSize;
     private final HystrixProperty<Integer> queueSizeRejectionThreshold;
     private final HystrixProperty<Boolean> allowMaximumSizeToDivergeFromCoreSize;
+    private final HystrixProperty<Boolean> adaptiveLimitEnabled;
+    private final HystrixProperty<Boolean> propertySnapshotEnabled;
+    private final HystrixPropertiesSnapshot snapshot;
 
     private final HystrixProperty<Integer> threadPoolRollingNumberStatisticalWindowInMilliseconds;
     private final HystrixProperty<Integer> threadPoolRollingNumberStatisticalWindowBuckets;
@@ -77,19 +84,22 @@ public abstract class HystrixThreadPoolProperties {
     }
 
     protected HystrixThreadPoolProperties(HystrixThreadPoolKey key, Setter builder, String propertyPrefix) {
-        this.allowMaximumSizeToDivergeFromCoreSize = getProperty(propertyPrefix, key, "allowMaximumSizeToDivergeFromCoreSize",
-                builder.getAllowMaximumSizeToDivergeFromCoreSize(), default_allow_maximum_size_to_diverge_from_core_size);
+        this.propertySnapshotEnabled = getProperty(propertyPrefix, key, "propertySnapshot.enabled", builder.getPropertySnapshotEnabled(), default_propertySnapshotEnabled);
+        this.snapshot = propertySnapshotEnabled.get() ? new HystrixPropertiesSnapshot() : null;
+        this.allowMaximumSizeToDivergeFromCoreSize = compiled(snapshot, getProperty(propertyPrefix, key, "allowMaximumSizeToDivergeFromCoreSize",
+                builder.getAllowMaximumSizeToDivergeFromCoreSize(), default_allow_maximum_size_to_diverge_from_core_size));
 
-        this.corePoolSize = getProperty(propertyPrefix, key, "coreSize", builder.getCoreSize(), default_coreSize);
+        this.corePoolSize = compiled(snapshot, getProperty(propertyPrefix, key, "coreSize", builder.getCoreSize(), default_coreSize));
         //this object always contains a reference to the configuration value for the maximumSize of the threadpool
         //it only gets applied if allowMaximumSizeToDivergeFromCoreSize is true
-        this.maximumPoolSize = getProperty(propertyPrefix, key, "maximumSize", builder.getMaximumSize(), default_maximumSize);
-
-        this.keepAliveTime = getProperty(propertyPrefix, key, "keepAliveTimeMinutes", builder.getKeepAliveTimeMinutes(), default_keepAliveTimeMinutes);
-        this.maxQueueSize = getProperty(propertyPrefix, key, "maxQueueSize", builder.getMaxQueueSize(), default_maxQueueSize);
-        this.queueSizeRejectionThreshold = getProperty(propertyPrefix, key, "queueSizeRejectionThreshold", builder.getQueueSizeRejectionThreshold(), default_queueSizeRejectionThreshold);
-        this.threadPoolRollingNumberStatisticalWindowInMilliseconds = getProperty(propertyPrefix, key, "metrics.rollingStats.timeInMilliseconds", builder.getMetricsRollingStatisticalWindowInMilliseconds(), default_threadPoolRollingNumberStatisticalWindow);
-        this.threadPoolRollingNumberStatisticalWindowBuckets = getProperty(propertyPrefix, key, "metrics.rollingStats.numBuckets", builder.getMetricsRollingStatisticalWindowBuckets(), default_threadPoolRollingNumberStatisticalWindowBuckets);
+        this.maximumPoolSize = compiled(snapshot, getProperty(propertyPrefix, key, "maximumSize", builder.getMaximumSize(), default_maximumSize));
+
+        this.keepAliveTime = compiled(snapshot, getProperty(propertyPrefix, key, "keepAliveTimeMinutes", builder.getKeepAliveTimeMinutes(), default_keepAliveTimeMinutes));
+        this.maxQueueSize = compiled(snapshot, getProperty(propertyPrefix, key, "maxQueueSize", builder.getMaxQueueSize(), default_maxQueueSize));
+        this.queueSizeRejectionThreshold = compiled(snapshot, getProperty(propertyPrefix, key, "queueSizeRejectionThreshold", builder.getQueueSizeRejectionThreshold(), default_queueSizeRejectionThreshold));
+        this.threadPoolRollingNumberStatisticalWindowInMilliseconds = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingStats.timeInMilliseconds", builder.getMetricsRollingStatisticalWindowInMilliseconds(), default_threadPoolRollingNumberStatisticalWindow));
+        this.threadPoolRollingNumberStatisticalWindowBuckets = compiled(snapshot, getProperty(propertyPrefix, key, "metrics.rollingStats.numBuckets", builder.getMetricsRollingStatisticalWindowBuckets(), default_threadPoolRollingNumberStatisticalWindowBuckets));
+        this.adaptiveLimitEnabled = compiled(snapshot, getProperty(propertyPrefix, key, "adaptiveLimit.enabled", builder.getAdaptiveLimitEnabled(), default_adaptiveLimitEnabled));
     }
 
     private static HystrixProperty<Integer> getProperty(String propertyPrefix, HystrixThreadPoolKey key, String instanceProperty, Integer builderOverrideValue, Integer defaultValue) {
@@ -186,6 +196,40 @@ public abstract class HystrixThreadPoolProperties {
         return allowMaximumSizeToDivergeFromCoreSize;
     }
 
+    /**
+     * Whether the number of executions admitted to the thread-pool (running plus queued) should adapt to the execution latency
+     * of the commands using it.  {@link #actualMaximumSize()} plus {@link #queueSizeRejectionThreshold()} (if queueing is enabled)
+     * remains the upper bound, but the limit is lowered when latency grows above what the commands normally take, so
+     * executions get rejected before they pile up in the pool.
+     * <p>
+     * See {@link HystrixAdaptiveConcurrencyLimit}.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> adaptiveLimitEnabled() {
+        return adaptiveLimitEnabled;
+    }
+
+    /**
+     * Whether the other properties of this thread-pool are compiled into a {@link HystrixPropertiesSnapshot}.  The thread-pool
+     * is then resized when the snapshot changes instead of checking its size on every execution.
+     * <p>
+     * See {@link HystrixCommandProperties#propertySnapshotEnabled()} for when this can be enabled.  Read once when these
+     * properties are created.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> propertySnapshotEnabled() {
+        return propertySnapshotEnabled;
+    }
+
+    /**
+     * @return snapshot the other properties are compiled into if {@link #propertySnapshotEnabled()}, otherwise null
+     */
+    public HystrixPropertiesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Duration of statistical rolling window in milliseconds. This is passed into {@link HystrixRollingNumber} inside each {@link HystrixThreadPoolMetrics} instance.
      * 
@@ -243,6 +287,8 @@ public abstract class HystrixThreadPoolProperties {
         private Integer maxQueueSize = null;
         private Integer queueSizeRejectionThreshold = null;
         private Boolean allowMaximumSizeToDivergeFromCoreSize = null;
+        private Boolean adaptiveLimitEnabled = null;
+        private Boolean propertySnapshotEnabled = null;
         private Integer rollingStatisticalWindowInMilliseconds = null;
         private Integer rollingStatisticalWindowBuckets = null;
 
@@ -273,6 +319,14 @@ public abstract class HystrixThreadPoolProperties {
             return allowMaximumSizeToDivergeFromCoreSize;
         }
 
+        public Boolean getAdaptiveLimitEnabled() {
+            return adaptiveLimitEnabled;
+        }
+
+        public Boolean getPropertySnapshotEnabled() {
+            return propertySnapshotEnabled;
+        }
+
         public Integer getMetricsRollingStatisticalWindowInMilliseconds() {
             return rollingStatisticalWindowInMilliseconds;
         }
@@ -321,6 +375,16 @@ public abstract class HystrixThreadPoolProperties {
             return this;
         }
 
+        public Setter withAdaptiveLimitEnabled(boolean value) {
+            this.adaptiveLimitEnabled = value;
+            return this;
+        }
+
+        public Setter withPropertySnapshotEnabled(boolean value) {
+            this.propertySnapshotEnabled = value;
+            return this;
+        }
+
 
 
 
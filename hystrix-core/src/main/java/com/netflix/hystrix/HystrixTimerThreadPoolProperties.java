@@ -1,5 +1,6 @@
 package com.netflix.hystrix;
 
+import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forBoolean;
 import static com.netflix.hystrix.strategy.properties.HystrixPropertiesChainedProperty.forInteger;
 
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
@@ -13,6 +14,13 @@ import com.netflix.hystrix.strategy.properties.HystrixProperty;
 public abstract class HystrixTimerThreadPoolProperties {
 
     private final HystrixProperty<Integer> corePoolSize;
+    private final HystrixProperty<Boolean> wheelEnabled;
+    private final HystrixProperty<Integer> wheelTickDurationInMilliseconds;
+    private final HystrixProperty<Integer> wheelSize;
+
+    private static final Boolean default_wheelEnabled = false; // default to scheduling timeouts on the ScheduledThreadPoolExecutor
+    private static final Integer default_wheelTickDurationInMilliseconds = 10; // default => timeouts fire within 10ms of their deadline
+    private static final Integer default_wheelSize = 512; // default => 512 buckets per revolution of the wheel
 
     protected HystrixTimerThreadPoolProperties() {
         this(new Setter().withCoreSize(Runtime.getRuntime().availableProcessors()));
@@ -20,6 +28,9 @@ public abstract class HystrixTimerThreadPoolProperties {
 
     protected HystrixTimerThreadPoolProperties(Setter setter) {
         this.corePoolSize = getProperty("hystrix", "coreSize", setter.getCoreSize());
+        this.wheelEnabled = getProperty("hystrix", "wheel.enabled", setter.getWheelEnabled(), default_wheelEnabled);
+        this.wheelTickDurationInMilliseconds = getProperty("hystrix", "wheel.tickDurationInMilliseconds", setter.getWheelTickDurationInMilliseconds(), default_wheelTickDurationInMilliseconds);
+        this.wheelSize = getProperty("hystrix", "wheel.size", setter.getWheelSize(), default_wheelSize);
     }
 
     private static HystrixProperty<Integer> getProperty(String propertyPrefix, String instanceProperty, Integer defaultValue) {
@@ -29,10 +40,50 @@ public abstract class HystrixTimerThreadPoolProperties {
                 .build();
     }
 
+    private static HystrixProperty<Integer> getProperty(String propertyPrefix, String instanceProperty, Integer builderOverrideValue, Integer defaultValue) {
+        return getProperty(propertyPrefix, instanceProperty, builderOverrideValue != null ? builderOverrideValue : defaultValue);
+    }
+
+    private static HystrixProperty<Boolean> getProperty(String propertyPrefix, String instanceProperty, Boolean builderOverrideValue, Boolean defaultValue) {
+        return forBoolean()
+                .add(propertyPrefix + ".timer.threadpool.default." + instanceProperty, builderOverrideValue != null ? builderOverrideValue : defaultValue)
+                .build();
+    }
+
     public HystrixProperty<Integer> getCorePoolSize() {
         return corePoolSize;
     }
 
+    /**
+     * Whether one-shot timeouts (such as {@link HystrixCommand} execution timeouts) are scheduled on a hashed timing wheel
+     * instead of the {@link java.util.concurrent.ScheduledThreadPoolExecutor}.  Periodic listeners always use the executor.
+     * <p>
+     * Read when the timer is (re)started.
+     *
+     * @return {@code HystrixProperty<Boolean>}
+     */
+    public HystrixProperty<Boolean> getWheelEnabled() {
+        return wheelEnabled;
+    }
+
+    /**
+     * Duration of one tick of the timing wheel.  Timeouts fire up to one tick late.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> getWheelTickDurationInMilliseconds() {
+        return wheelTickDurationInMilliseconds;
+    }
+
+    /**
+     * Number of buckets in the timing wheel, rounded up to a power of 2.
+     *
+     * @return {@code HystrixProperty<Integer>}
+     */
+    public HystrixProperty<Integer> getWheelSize() {
+        return wheelSize;
+    }
+
     /**
      * Factory method to retrieve the default Setter.
      */
@@ -56,6 +107,9 @@ public abstract class HystrixTimerThreadPoolProperties {
      */
     public static class Setter {
         private Integer coreSize = null;
+        private Boolean wheelEnabled = null;
+        private Integer wheelTickDurationInMilliseconds = null;
+        private Integer wheelSize = null;
 
         private Setter() {
         }
@@ -64,9 +118,36 @@ public abstract class HystrixTimerThreadPoolProperties {
             return coreSize;
         }
 
+        public Boolean getWheelEnabled() {
+            return wheelEnabled;
+        }
+
+        public Integer getWheelTickDurationInMilliseconds() {
+            return wheelTickDurationInMilliseconds;
+        }
+
+        public Integer getWheelSize() {
+            return wheelSize;
+        }
+
         public Setter withCoreSize(int value) {
             this.coreSize = value;
             return this;
         }
+
+        public Setter withWheelEnabled(boolean value) {
+            this.wheelEnabled = value;
+            return this;
+        }
+
+        public Setter withWheelTickDurationInMilliseconds(int value) {
+            this.wheelTickDurationInMilliseconds = value;
+            return this;
+        }
+
+        public Setter withWheelSize(int value) {
+            this.wheelSize = value;
+            return this;
+        }
     }
 }
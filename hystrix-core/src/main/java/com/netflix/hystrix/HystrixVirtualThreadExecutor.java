@@ -0,0 +1,252 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executor behind {@link HystrixCommandProperties.ExecutionIsolationStrategy#VIRTUAL_THREAD} which starts a new thread from
+ * the given {@link ThreadFactory} for every task, while applying the same bulkhead as the {@link HystrixThreadPool}:
+ * <ul>
+ * <li>at most {@link HystrixThreadPoolProperties#actualMaximumSize()} tasks run at the same time</li>
+ * <li>up to {@link HystrixThreadPoolProperties#queueSizeRejectionThreshold()} more tasks (bounded by
+ * {@link HystrixThreadPoolProperties#maxQueueSize()}) are admitted and wait for a slot, parked on their own thread</li>
+ * <li>anything beyond that is rejected with a {@link RejectedExecutionException}</li>
+ * </ul>
+ * As with the {@link java.util.concurrent.ThreadPoolExecutor}, the sizes are read on every submission so they can be
+ * changed at runtime, but whether queueing is allowed at all is fixed by the maxQueueSize at construction.
+ * <p>
+ * If {@link HystrixThreadPoolProperties#adaptiveLimitEnabled()}, the number of admitted tasks is further bounded by the
+ * given concurrency limit.
+ */
+/* package */ class HystrixVirtualThreadExecutor extends AbstractExecutorService {
+
+    private final HystrixThreadPoolKey threadPoolKey;
+    private final ThreadFactory threadFactory;
+    private final HystrixThreadPoolProperties properties;
+    private final HystrixProperty<Integer> concurrencyLimit;
+    private final int queueSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotAvailable = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+
+    /* guarded by lock */
+    private int admitted = 0;
+    private int running = 0;
+    private boolean shutdown = false;
+
+    /* package */ HystrixVirtualThreadExecutor(HystrixThreadPoolKey threadPoolKey, ThreadFactory threadFactory, HystrixThreadPoolProperties properties,
+                                           HystrixProperty<Integer> concurrencyLimit) {
+        this.threadPoolKey = threadPoolKey;
+        this.threadFactory = threadFactory;
+        this.properties = properties;
+        this.concurrencyLimit = concurrencyLimit;
+        this.queueSize = properties.maxQueueSize().get();
+    }
+
+    private int maxConcurrent() {
+        return properties.actualMaximumSize();
+    }
+
+    private int maxWaiting() {
+        if (queueSize <= 0) {
+            return 0;
+        } else {
+            return Math.min(queueSize, properties.queueSizeRejectionThreshold().get());
+        }
+    }
+
+    private int maxAdmitted() {
+        final int maxAdmitted = maxConcurrent() + maxWaiting();
+        if (properties.adaptiveLimitEnabled().get()) {
+            return Math.min(maxAdmitted, concurrencyLimit.get());
+        } else {
+            return maxAdmitted;
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Rejected command because thread-pool " + threadPoolKey.name() + " is shut down.");
+            }
+            if (admitted >= maxAdmitted()) {
+                throw new RejectedExecutionException("Rejected command because thread-pool " + threadPoolKey.name() + " is at its concurrency and queueSize limits.");
+            }
+            admitted++;
+        } finally {
+            lock.unlock();
+        }
+
+        final Thread thread;
+        try {
+            thread = threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    acquireSlot();
+                    try {
+                        task.run();
+                    } finally {
+                        releaseSlot();
+                    }
+                }
+            });
+            thread.start();
+        } catch (RuntimeException e) {
+            release();
+            throw new RejectedExecutionException("Rejected command because a thread could not be started for thread-pool " + threadPoolKey.name(), e);
+        } catch (Error e) {
+            release();
+            throw new RejectedExecutionException("Rejected command because a thread could not be started for thread-pool " + threadPoolKey.name(), e);
+        }
+    }
+
+    private void acquireSlot() {
+        lock.lock();
+        try {
+            // a FutureTask cancelled while waiting here just returns immediately once it gets to run, so don't give up the wait on interrupt
+            while (running >= maxConcurrent()) {
+                slotAvailable.awaitUninterruptibly();
+            }
+            running++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            running--;
+            slotAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        release();
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            admitted--;
+            if (shutdown && admitted == 0) {
+                terminated.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of tasks currently running
+     */
+    /* package */ int getActiveCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of tasks admitted but waiting for a slot to run in
+     */
+    /* package */ int getQueueSize() {
+        lock.lock();
+        try {
+            return admitted - running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            if (admitted == 0) {
+                terminated.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tasks are never held by this executor itself, so there is nothing to return.  Already started tasks are not interrupted.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && admitted == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && admitted == 0)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HystrixVirtualThreadExecutor(" + threadPoolKey.name() + ")";
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.collapser;
+
+import com.netflix.hystrix.HystrixCollapserMetrics;
+import com.netflix.hystrix.HystrixCollapserProperties;
+import com.netflix.hystrix.HystrixEventType;
+
+/**
+ * Decides whether a batch should execute as soon as a request was added to it, rather than wait for the next tick of the
+ * collapser timer.
+ * <p>
+ * See {@link HystrixCollapserProperties#batchDispatchTargetSize()} and {@link HystrixCollapserProperties#batchDispatchAdaptiveEnabled()}.
+ */
+/* package */ class BatchDispatchPolicy {
+
+    /* the shortest wait for company when requests arrive often enough to expect some */
+    private static final int MIN_WINDOW_IN_MS = 1;
+
+    private final HystrixCollapserProperties properties;
+    private final HystrixCollapserMetrics metrics;
+
+    /* package */ BatchDispatchPolicy(HystrixCollapserProperties properties, HystrixCollapserMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    /* package */ boolean shouldDispatch(RequestBatch<?, ?, ?> batch) {
+        final int targetSize = properties.batchDispatchTargetSize().get();
+        if (targetSize > 0 && batch.getSize() >= targetSize) {
+            return true;
+        }
+        if (properties.batchDispatchAdaptiveEnabled().get()) {
+            final long firstOfferTime = batch.getFirstOfferTime();
+            final long age = firstOfferTime > 0 ? System.currentTimeMillis() - firstOfferTime : 0;
+            return age >= getWindowInMilliseconds();
+        }
+        return false;
+    }
+
+    /**
+     * @return how long the current batch should wait for more requests
+     */
+    /* package */ int getWindowInMilliseconds() {
+        final double arrivalsPerMs = metrics.getRollingCount(HystrixEventType.Collapser.ADDED_TO_BATCH)
+                / (double) properties.metricsRollingStatisticalWindowInMilliseconds().get();
+        return getWindowInMilliseconds(properties.timerDelayInMilliseconds().get(), properties.batchDispatchTargetSize().get(),
+                arrivalsPerMs, metrics.getBatchLatencyMean());
+    }
+
+    /**
+     * @param timerDelay configured (and longest) wait
+     * @param targetSize batch size that is worth waiting for, 0 or less if any size is
+     * @param arrivalsPerMs rate at which requests have been arriving
+     * @param batchLatency mean batch latency, negative if unknown
+     * @return how long a batch should wait for more requests
+     */
+    /* package */ static int getWindowInMilliseconds(int timerDelay, int targetSize, double arrivalsPerMs, int batchLatency) {
+        double window = timerDelay;
+        if (targetSize > 0 && arrivalsPerMs > 0) {
+            // no point waiting longer than it takes to fill the batch
+            window = Math.min(window, targetSize / arrivalsPerMs);
+        }
+        if (batchLatency >= 0) {
+            // waiting must not add more latency than the batch itself takes
+            window = Math.min(window, Math.max(MIN_WINDOW_IN_MS, batchLatency));
+        }
+        if (arrivalsPerMs * window < 1) {
+            // another request isn't expected within the window, so don't keep this one waiting
+            return 0;
+        }
+        return (int) Math.ceil(window);
+    }
+}
@@ -50,6 +50,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
     private final Observable<T> subjectWithAccounting;
 
     private volatile int outstandingSubscriptions = 0;
+    private volatile boolean removedFromBatch = false;
 
     public CollapsedRequestSubject(final R arg, final RequestBatch<?, T, R> containingBatch) {
         if (arg == RequestCollapser.NULL_SENTINEL) {
@@ -69,7 +70,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
                     public void call() {
                         outstandingSubscriptions--;
                         if (outstandingSubscriptions == 0) {
-                            containingBatch.remove(arg);
+                            containingBatch.remove(CollapsedRequestSubject.this);
                         }
                     }
                 });
@@ -175,6 +176,23 @@ import java.util.concurrent.atomic.AtomicBoolean;
         }
     }
 
+    /* package */ void markRemovedFromBatch() {
+        removedFromBatch = true;
+    }
+
+    /* package */ boolean isRemovedFromBatch() {
+        return removedFromBatch;
+    }
+
+    /**
+     * Emit whatever this request receives to the given request as well, which carries the same argument.
+     *
+     * @param duplicate request left out of the batch in favor of this one
+     */
+    /* package */ void forwardResponseTo(CollapsedRequestSubject<T, R> duplicate) {
+        subject.subscribe(duplicate.subject);
+    }
+
     private boolean isTerminated() {
         return (subject.hasCompleted() || subject.hasThrowable());
     }
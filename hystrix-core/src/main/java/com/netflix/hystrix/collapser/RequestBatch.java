@@ -15,11 +15,16 @@
  */
 package com.netflix.hystrix.collapser;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +34,16 @@ import rx.functions.Action0;
 import rx.functions.Action1;
 
 import com.netflix.hystrix.HystrixCollapser.CollapsedRequest;
+import com.netflix.hystrix.HystrixCollapserMetrics;
 import com.netflix.hystrix.HystrixCollapserProperties;
 
 /**
  * A batch of requests collapsed together by a RequestCollapser instance. When full or time has expired it will execute and stop accepting further submissions.
+ * <p>
+ * Submissions are pushed onto a lock-free stack with a single CAS of its head.  Starting (or shutting down) the batch swaps
+ * the head for a sealed marker, so a submission either made it into the batch or sees the seal and goes to the next batch;
+ * nothing needs to wait for in-flight submissions.  The maximum batch size limits the number of distinct arguments, which
+ * are counted as they are submitted; duplicate arguments don't count against it and are resolved when the batch executes.
  * 
  * @param <BatchReturnType>
  * @param <ResponseType>
@@ -42,15 +53,32 @@ public class RequestBatch<BatchReturnType, ResponseType, RequestArgumentType> {
 
     private static final Logger logger = LoggerFactory.getLogger(RequestBatch.class);
 
+    /* head of a batch that was started or shut down */
+    private static final Node<?, ?> SEALED = new Node<Object, Object>(null, null);
+
     private final HystrixCollapserBridge<BatchReturnType, ResponseType, RequestArgumentType> commandCollapser;
     private final int maxBatchSize;
-    private final AtomicBoolean batchStarted = new AtomicBoolean();
 
-    private final ConcurrentMap<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>> argumentMap =
-            new ConcurrentHashMap<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>>();
+    /* most recent submission, null while empty, SEALED once started */
+    private final AtomicReference<Node<ResponseType, RequestArgumentType>> head = new AtomicReference<Node<ResponseType, RequestArgumentType>>();
     private final HystrixCollapserProperties properties;
+    private volatile long firstOfferTime = 0;
+
+    /* distinct arguments submitted so far, numArguments reserves their slots below maxBatchSize */
+    private final ConcurrentMap<RequestArgumentType, Boolean> arguments = new ConcurrentHashMap<RequestArgumentType, Boolean>();
+    private final AtomicInteger numArguments = new AtomicInteger(0);
 
-    private ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private static final class Node<ResponseType, RequestArgumentType> {
+        private final CollapsedRequestSubject<ResponseType, RequestArgumentType> request;
+        private final Node<ResponseType, RequestArgumentType> next;
+        private final int size;
+
+        private Node(CollapsedRequestSubject<ResponseType, RequestArgumentType> request, Node<ResponseType, RequestArgumentType> next) {
+            this.request = request;
+            this.next = next;
+            this.size = next == null ? 1 : next.size + 1;
+        }
+    }
 
     public RequestBatch(HystrixCollapserProperties properties, HystrixCollapserBridge<BatchReturnType, ResponseType, RequestArgumentType> commandCollapser, int maxBatchSize) {
         this.properties = properties;
@@ -58,87 +86,128 @@ public class RequestBatch<BatchReturnType, ResponseType, RequestArgumentType> {
         this.maxBatchSize = maxBatchSize;
     }
 
+    @SuppressWarnings("unchecked")
+    private Node<ResponseType, RequestArgumentType> sealed() {
+        return (Node<ResponseType, RequestArgumentType>) SEALED;
+    }
+
     /**
      * @return Observable if offer accepted, null if batch is full, already started or completed
      */
     public Observable<ResponseType> offer(RequestArgumentType arg) {
-        /* short-cut - if the batch is started we reject the offer */
-        if (batchStarted.get()) {
+        /* if the batch is started we reject the offer */
+        if (head.get() == SEALED) {
             return null;
         }
-
-        /*
-         * The 'read' just means non-exclusive even though we are writing.
-         */
-        if (batchLock.readLock().tryLock()) {
-            try {
-                /* double-check now that we have the lock - if the batch is started we reject the offer */
-                if (batchStarted.get()) {
-                    return null;
+        /* a new argument needs a free slot, a duplicate gets its response from the request it duplicates */
+        if (!arguments.containsKey(arg)) {
+            if (!reserveArgumentSlot()) {
+                return null;
+            }
+            if (arguments.putIfAbsent(arg, Boolean.TRUE) != null) {
+                // submitted concurrently, so this is a duplicate after all
+                numArguments.decrementAndGet();
+            }
+        }
+        final CollapsedRequestSubject<ResponseType, RequestArgumentType> collapsedRequest = new CollapsedRequestSubject<ResponseType, RequestArgumentType>(arg, this);
+        while (true) {
+            final Node<ResponseType, RequestArgumentType> current = head.get();
+            if (current == SEALED) {
+                return null;
+            }
+            if (head.compareAndSet(current, new Node<ResponseType, RequestArgumentType>(collapsedRequest, current))) {
+                if (current == null) {
+                    firstOfferTime = System.currentTimeMillis();
                 }
+                return collapsedRequest.toObservable();
+            }
+        }
+    }
 
-                if (argumentMap.size() >= maxBatchSize) {
-                    return null;
-                } else {
-                    CollapsedRequestSubject<ResponseType, RequestArgumentType> collapsedRequest =
-                            new CollapsedRequestSubject<ResponseType, RequestArgumentType>(arg, this);
-                    final CollapsedRequestSubject<ResponseType, RequestArgumentType> existing = (CollapsedRequestSubject<ResponseType, RequestArgumentType>) argumentMap.putIfAbsent(arg, collapsedRequest);
-                    /**
-                     * If the argument already exists in the batch, then there are 2 options:
-                     * A) If request caching is ON (the default): only keep 1 argument in the batch and let all responses
-                     * be hooked up to that argument
-                     * B) If request caching is OFF: return an error to all duplicate argument requests
-                     *
-                     * This maintains the invariant that each batch has no duplicate arguments.  This prevents the impossible
-                     * logic (in a user-provided mapResponseToRequests for HystrixCollapser and the internals of HystrixObservableCollapser)
-                     * of trying to figure out which argument of a set of duplicates should get attached to a response.
-                     *
-                     * See https://github.com/Netflix/Hystrix/pull/1176 for further discussion.
-                     */
-                    if (existing != null) {
-                        boolean requestCachingEnabled = properties.requestCacheEnabled().get();
-                        if (requestCachingEnabled) {
-                            return existing.toObservable();
-                        } else {
-                            return Observable.error(new IllegalArgumentException("Duplicate argument in collapser batch : [" + arg + "]  This is not supported.  Please turn request-caching on for HystrixCollapser:" + commandCollapser.getCollapserKey().name() + " or prevent duplicates from making it into the batch!"));
-                        }
-                    } else {
-                        return collapsedRequest.toObservable();
-                    }
-
-                }
-            } finally {
-                batchLock.readLock().unlock();
+    private boolean reserveArgumentSlot() {
+        while (true) {
+            final int current = numArguments.get();
+            if (current >= maxBatchSize) {
+                return false;
+            }
+            if (numArguments.compareAndSet(current, current + 1)) {
+                return true;
             }
-        } else {
-            return null;
         }
     }
 
     /**
-     * Best-effort attempt to remove an argument from a batch.  This may get invoked when a cancellation occurs somewhere downstream.
-     * This method finds the argument in the batch, and removes it.
+     * Best-effort attempt to remove a request from a batch.  This may get invoked when a cancellation occurs somewhere downstream.
+     * The request is marked so that it is left out if the batch has not started executing yet.
      *
-     * @param arg argument to remove from batch
+     * @param request request to remove from batch
      */
-    /* package-private */ void remove(RequestArgumentType arg) {
-        if (batchStarted.get()) {
+    /* package-private */ void remove(CollapsedRequestSubject<ResponseType, RequestArgumentType> request) {
+        if (head.get() == SEALED) {
             //nothing we can do
             return;
         }
+        request.markRemovedFromBatch();
+    }
 
-        if (batchLock.readLock().tryLock()) {
-            try {
-                /* double-check now that we have the lock - if the batch is started, deleting is useless */
-                if (batchStarted.get()) {
-                    return;
-                }
+    /**
+     * @return when the first request was added to this batch, or 0 if none has been (yet)
+     */
+    /* package */ long getFirstOfferTime() {
+        return firstOfferTime;
+    }
 
-                argumentMap.remove(arg);
-            } finally {
-                batchLock.readLock().unlock();
+    /**
+     * Seal the batch against further offers.
+     *
+     * @return the submitted requests in submission order, or null if the batch was already sealed
+     */
+    private List<CollapsedRequestSubject<ResponseType, RequestArgumentType>> seal() {
+        Node<ResponseType, RequestArgumentType> node = head.getAndSet(sealed());
+        if (node == SEALED) {
+            return null;
+        }
+        final List<CollapsedRequestSubject<ResponseType, RequestArgumentType>> requests = new ArrayList<CollapsedRequestSubject<ResponseType, RequestArgumentType>>(node == null ? 0 : node.size);
+        for (; node != null; node = node.next) {
+            requests.add(node.request);
+        }
+        Collections.reverse(requests);
+        return requests;
+    }
+
+    /**
+     * Keep 1 request per argument.
+     * <p>
+     * If the argument already exists in the batch, then there are 2 options:
+     * A) If request caching is ON (the default): only keep 1 argument in the batch and let all responses
+     * be hooked up to that argument
+     * B) If request caching is OFF: return an error to all duplicate argument requests
+     * <p>
+     * This maintains the invariant that each batch has no duplicate arguments.  This prevents the impossible
+     * logic (in a user-provided mapResponseToRequests for HystrixCollapser and the internals of HystrixObservableCollapser)
+     * of trying to figure out which argument of a set of duplicates should get attached to a response.
+     * <p>
+     * See https://github.com/Netflix/Hystrix/pull/1176 for further discussion.
+     */
+    private Map<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>> removeDuplicates(List<CollapsedRequestSubject<ResponseType, RequestArgumentType>> requests) {
+        final Map<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>> argumentMap =
+                new LinkedHashMap<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>>();
+        boolean requestCachingEnabled = properties.requestCacheEnabled().get();
+        for (CollapsedRequestSubject<ResponseType, RequestArgumentType> request : requests) {
+            if (request.isRemovedFromBatch()) {
+                continue;
+            }
+            final RequestArgumentType arg = request.getArgument();
+            final CollapsedRequestSubject<ResponseType, RequestArgumentType> existing = (CollapsedRequestSubject<ResponseType, RequestArgumentType>) argumentMap.get(arg);
+            if (existing == null) {
+                argumentMap.put(arg, request);
+            } else if (requestCachingEnabled) {
+                existing.forwardResponseTo(request);
+            } else {
+                request.setException(new IllegalArgumentException("Duplicate argument in collapser batch : [" + arg + "]  This is not supported.  Please turn request-caching on for HystrixCollapser:" + commandCollapser.getCollapserKey().name() + " or prevent duplicates from making it into the batch!"));
             }
         }
+        return argumentMap;
     }
 
     /**
@@ -158,9 +227,17 @@ public class RequestBatch<BatchReturnType, ResponseType, RequestArgumentType> {
          * - check that we only execute once since there's multiple paths to do so (timer, waiting thread or max batch size hit)
          * - close the gate so 'offer' can no longer be invoked and we turn those threads away so they create a new batch
          */
-        if (batchStarted.compareAndSet(false, true)) {
-            /* wait for 'offer'/'remove' threads to finish before executing the batch so 'requests' is complete */
-            batchLock.writeLock().lock();
+        final List<CollapsedRequestSubject<ResponseType, RequestArgumentType>> requests = seal();
+        if (requests != null) {
+            final Map<RequestArgumentType, CollapsedRequest<ResponseType, RequestArgumentType>> argumentMap = removeDuplicates(requests);
+            if (argumentMap.isEmpty()) {
+                // everything submitted was cancelled already
+                return;
+            }
+
+            final HystrixCollapserMetrics metrics = properties.batchDispatchAdaptiveEnabled().get()
+                    ? HystrixCollapserMetrics.getInstance(commandCollapser.getCollapserKey(), properties) : null;
+            final long dispatchTime = System.currentTimeMillis();
 
             try {
                 // shard batches
@@ -217,6 +294,18 @@ public class RequestBatch<BatchReturnType, ResponseType, RequestArgumentType> {
                                 }
                             }
 
+                        }).doOnTerminate(new Action0() {
+
+                            /**
+                             * Feeds the adaptive batch dispatch
+                             */
+                            @Override
+                            public void call() {
+                                if (metrics != null) {
+                                    metrics.markBatchLatency(System.currentTimeMillis() - dispatchTime);
+                                }
+                            }
+
                         }).subscribe();
                         
                     } catch (Exception e) {
@@ -242,48 +331,45 @@ public class RequestBatch<BatchReturnType, ResponseType, RequestArgumentType> {
                         logger.debug("Failed trying to setException on CollapsedRequest", e2);
                     }
                 }
-            } finally {
-                batchLock.writeLock().unlock();
             }
         }
     }
 
     public void shutdown() {
-        // take the 'batchStarted' state so offers and execution will not be triggered elsewhere
-        if (batchStarted.compareAndSet(false, true)) {
-            // get the write lock so offers are synced with this (we don't really need to unlock as this is a one-shot deal to shutdown)
-            batchLock.writeLock().lock();
-            try {
-                // if we win the 'start' and once we have the lock we can now shut it down otherwise another thread will finish executing this batch
-                if (argumentMap.size() > 0) {
-                    logger.warn("Requests still exist in queue but will not be executed due to RequestCollapser shutdown: " + argumentMap.size(), new IllegalStateException());
-                    /*
-                     * In the event that there is a concurrency bug or thread scheduling prevents the timer from ticking we need to handle this so the Future.get() calls do not block.
-                     * 
-                     * I haven't been able to reproduce this use case on-demand but when stressing a machine saw this occur briefly right after the JVM paused (logs stopped scrolling).
-                     * 
-                     * This safety-net just prevents the CollapsedRequestFutureImpl.get() from waiting on the CountDownLatch until its max timeout.
-                     */
-                    for (CollapsedRequest<ResponseType, RequestArgumentType> request : argumentMap.values()) {
-                        try {
-                            ((CollapsedRequestSubject<ResponseType, RequestArgumentType>) request).setExceptionIfResponseNotReceived(new IllegalStateException("Requests not executed before shutdown."));
-                        } catch (Exception e) {
-                            logger.debug("Failed to setException on CollapsedRequestFutureImpl instances.", e);
-                        }
-                        /**
-                         * https://github.com/Netflix/Hystrix/issues/78 Include more info when collapsed requests remain in queue
-                         */
-                        logger.warn("Request still in queue but not be executed due to RequestCollapser shutdown. Argument => " + request.getArgument() + "   Request Object => " + request, new IllegalStateException());
-                    }
-
+        // seal the batch so offers and execution will not be triggered elsewhere
+        final List<CollapsedRequestSubject<ResponseType, RequestArgumentType>> requests = seal();
+        // if we win the seal we can now shut it down otherwise another thread will finish executing this batch
+        if (requests != null && requests.size() > 0) {
+            logger.warn("Requests still exist in queue but will not be executed due to RequestCollapser shutdown: " + requests.size(), new IllegalStateException());
+            /*
+             * In the event that there is a concurrency bug or thread scheduling prevents the timer from ticking we need to handle this so the Future.get() calls do not block.
+             * 
+             * I haven't been able to reproduce this use case on-demand but when stressing a machine saw this occur briefly right after the JVM paused (logs stopped scrolling).
+             * 
+             * This safety-net just prevents the CollapsedRequestFutureImpl.get() from waiting on the CountDownLatch until its max timeout.
+             */
+            for (CollapsedRequestSubject<ResponseType, RequestArgumentType> request : requests) {
+                try {
+                    request.setExceptionIfResponseNotReceived(new IllegalStateException("Requests not executed before shutdown."));
+                } catch (Exception e) {
+                    logger.debug("Failed to setException on CollapsedRequestFutureImpl instances.", e);
                 }
-            } finally {
-                batchLock.writeLock().unlock();
+                /**
+                 * https://github.com/Netflix/Hystrix/issues/78 Include more info when collapsed requests remain in queue
+                 */
+                logger.warn("Request still in queue but not be executed due to RequestCollapser shutdown. Argument => " + request.getArgument() + "   Request Object => " + request, new IllegalStateException());
             }
         }
     }
 
+    /**
+     * @return number of requests submitted to this batch, including duplicates and cancelled ones, or 0 once it has started
+     */
     public int getSize() {
-        return argumentMap.size();
+        final Node<ResponseType, RequestArgumentType> current = head.get();
+        if (current == null || current == SEALED) {
+            return 0;
+        }
+        return current.size;
     }
 }
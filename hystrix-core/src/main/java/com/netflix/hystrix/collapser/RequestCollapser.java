@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import rx.Observable;
 
+import com.netflix.hystrix.HystrixCollapserMetrics;
 import com.netflix.hystrix.HystrixCollapserProperties;
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.concurrency.HystrixContextCallable;
@@ -51,6 +52,7 @@ public class RequestCollapser<BatchReturnType, ResponseType, RequestArgumentType
     private final CollapserTimer timer;
     private final HystrixCollapserProperties properties;
     private final HystrixConcurrencyStrategy concurrencyStrategy;
+    private final BatchDispatchPolicy dispatchPolicy;
 
     /**
      * @param commandCollapser collapser which will create the batched requests and demultiplex the results
@@ -63,11 +65,14 @@ public class RequestCollapser<BatchReturnType, ResponseType, RequestArgumentType
         this.concurrencyStrategy = concurrencyStrategy;
         this.properties = properties;
         this.timer = timer;
+        this.dispatchPolicy = new BatchDispatchPolicy(properties, HystrixCollapserMetrics.getInstance(commandCollapser.getCollapserKey(), properties));
         batch.set(new RequestBatch<BatchReturnType, ResponseType, RequestArgumentType>(properties, commandCollapser, properties.maxRequestsInBatch().get()));
     }
 
     /**
      * Submit a request to a batch. If the batch maxSize is hit trigger the batch immediately.
+     * <p>
+     * The batch is also triggered right after the request was added if the {@link BatchDispatchPolicy} says waiting any longer isn't worth it.
      * 
      * @param arg argument to a {@link RequestCollapser}
      * @return Observable<ResponseType>
@@ -98,6 +103,9 @@ public class RequestCollapser<BatchReturnType, ResponseType, RequestArgumentType
             }
             // it will always get an Observable unless we hit the max batch size
             if (response != null) {
+                if (dispatchPolicy.shouldDispatch(b)) {
+                    createNewBatchAndExecutePreviousIfNeeded(b);
+                }
                 return response;
             } else {
                 // this batch can't accept requests so create a new one and set it if another thread doesn't beat us
@@ -21,76 +21,61 @@ public class CachedValuesHistogram {
 
     private final static int NUMBER_SIGNIFICANT_DIGITS = 3;
 
-    private final int mean;
-    private final int p0;
-    private final int p5;
-    private final int p10;
-    private final int p15;
-    private final int p20;
-    private final int p25;
-    private final int p30;
-    private final int p35;
-    private final int p40;
-    private final int p45;
-    private final int p50;
-    private final int p55;
-    private final int p60;
-    private final int p65;
-    private final int p70;
-    private final int p75;
-    private final int p80;
-    private final int p85;
-    private final int p90;
-    private final int p95;
-    private final int p99;
-    private final int p99_5;
-    private final int p99_9;
-    private final int p99_95;
-    private final int p99_99;
-    private final int p100;
+    /* the percentiles getValueAtPercentile answers, in the order of the values array (after the mean) */
+    private final static double[] CACHED_PERCENTILES = {
+            0, 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 60, 65, 70, 75, 80, 85, 90, 95, 99, 99.5, 99.9, 99.95, 99.99, 100
+    };
 
+    private final Histogram underlying;
     private final long totalCount;
 
+    /* mean followed by CACHED_PERCENTILES, computed on first read */
+    private volatile int[] values;
+
+    /**
+     * The histogram is owned by the returned instance from now on, and must not be changed until {@link #release()}.
+     */
     public static CachedValuesHistogram backedBy(Histogram underlying) {
         return new CachedValuesHistogram(underlying);
     }
 
     private CachedValuesHistogram(Histogram underlying) {
-        /**
-         * Single thread calculates a variety of commonly-accessed quantities.
-         * This way, all threads can access the cached values without synchronization
-         * Synchronization is only required for values that are not cached
-         */
+        this.underlying = underlying;
+        this.totalCount = underlying.getTotalCount();
+    }
 
-        mean = (int) underlying.getMean();
-        p0 = (int) underlying.getValueAtPercentile(0);
-        p5 = (int) underlying.getValueAtPercentile(5);
-        p10 = (int) underlying.getValueAtPercentile(10);
-        p15 = (int) underlying.getValueAtPercentile(15);
-        p20 = (int) underlying.getValueAtPercentile(20);
-        p25 = (int) underlying.getValueAtPercentile(25);
-        p30 = (int) underlying.getValueAtPercentile(30);
-        p35 = (int) underlying.getValueAtPercentile(35);
-        p40 = (int) underlying.getValueAtPercentile(40);
-        p45 = (int) underlying.getValueAtPercentile(45);
-        p50 = (int) underlying.getValueAtPercentile(50);
-        p55 = (int) underlying.getValueAtPercentile(55);
-        p60 = (int) underlying.getValueAtPercentile(60);
-        p65 = (int) underlying.getValueAtPercentile(65);
-        p70 = (int) underlying.getValueAtPercentile(70);
-        p75 = (int) underlying.getValueAtPercentile(75);
-        p80 = (int) underlying.getValueAtPercentile(80);
-        p85 = (int) underlying.getValueAtPercentile(85);
-        p90 = (int) underlying.getValueAtPercentile(90);
-        p95 = (int) underlying.getValueAtPercentile(95);
-        p99 = (int) underlying.getValueAtPercentile(99);
-        p99_5 = (int) underlying.getValueAtPercentile(99.5);
-        p99_9 = (int) underlying.getValueAtPercentile(99.9);
-        p99_95 = (int) underlying.getValueAtPercentile(99.95);
-        p99_99 = (int) underlying.getValueAtPercentile(99.99);
-        p100 = (int) underlying.getValueAtPercentile(100);
+    private int[] getValues() {
+        int[] cached = values;
+        if (cached == null) {
+            synchronized (this) {
+                cached = values;
+                if (cached == null) {
+                    /**
+                     * Single thread calculates a variety of commonly-accessed quantities, the first time any is read.
+                     * This way, all threads can access the cached values without synchronization afterwards, and
+                     * distributions nobody reads never pay for them.
+                     */
+                    cached = new int[CACHED_PERCENTILES.length + 1];
+                    cached[0] = (int) underlying.getMean();
+                    for (int i = 0; i < CACHED_PERCENTILES.length; i++) {
+                        cached[i + 1] = (int) underlying.getValueAtPercentile(CACHED_PERCENTILES[i]);
+                    }
+                    values = cached;
+                }
+            }
+        }
+        return cached;
+    }
 
-        totalCount = underlying.getTotalCount();
+    /**
+     * Compute the cached values if that hasn't happened yet, and give up the underlying {@link Histogram} so that the
+     * caller may reuse it.  The values stay readable.
+     *
+     * @return the histogram this was backed by
+     */
+    public Histogram release() {
+        getValues();
+        return underlying;
     }
 
     /**
@@ -98,7 +83,7 @@ public class CachedValuesHistogram {
      * @return cached distribution mean
      */
     public int getMean() {
-        return mean;
+        return getValues()[0];
     }
 
     /**
@@ -110,32 +95,32 @@ public class CachedValuesHistogram {
     public int getValueAtPercentile(double percentile) {
         int permyriad = (int) percentile * 100;
         switch (permyriad) {
-            case 0: return p0;
-            case 500: return p5;
-            case 1000: return p10;
-            case 1500: return p15;
-            case 2000: return p20;
-            case 2500: return p25;
-            case 3000: return p30;
-            case 3500: return p35;
-            case 4000: return p40;
-            case 4500: return p45;
-            case 5000: return p50;
-            case 5500: return p55;
-            case 6000: return p60;
-            case 6500: return p65;
-            case 7000: return p70;
-            case 7500: return p75;
-            case 8000: return p80;
-            case 8500: return p85;
-            case 9000: return p90;
-            case 9500: return p95;
-            case 9900: return p99;
-            case 9950: return p99_5;
-            case 9990: return p99_9;
-            case 9995: return p99_95;
-            case 9999: return p99_99;
-            case 10000: return p100;
+            case 0: return getValues()[1];
+            case 500: return getValues()[2];
+            case 1000: return getValues()[3];
+            case 1500: return getValues()[4];
+            case 2000: return getValues()[5];
+            case 2500: return getValues()[6];
+            case 3000: return getValues()[7];
+            case 3500: return getValues()[8];
+            case 4000: return getValues()[9];
+            case 4500: return getValues()[10];
+            case 5000: return getValues()[11];
+            case 5500: return getValues()[12];
+            case 6000: return getValues()[13];
+            case 6500: return getValues()[14];
+            case 7000: return getValues()[15];
+            case 7500: return getValues()[16];
+            case 8000: return getValues()[17];
+            case 8500: return getValues()[18];
+            case 9000: return getValues()[19];
+            case 9500: return getValues()[20];
+            case 9900: return getValues()[21];
+            case 9950: return getValues()[22];
+            case 9990: return getValues()[23];
+            case 9995: return getValues()[24];
+            case 9999: return getValues()[25];
+            case 10000: return getValues()[26];
             default: throw new IllegalArgumentException("Percentile (" + percentile + ") is not currently cached");
         }
     }
@@ -16,14 +16,12 @@
 package com.netflix.hystrix.metric;
 
 import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import rx.Observable;
 import rx.subjects.PublishSubject;
 import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Per-Command stream of {@link HystrixCommandCompletion}s.  This gets written to by {@link HystrixThreadEventStream}s.
  * Events are emitted synchronously in the same thread that performs the command execution.
@@ -34,18 +32,18 @@ public class HystrixCommandCompletionStream implements HystrixEventStream<Hystri
     private final Subject<HystrixCommandCompletion, HystrixCommandCompletion> writeOnlySubject;
     private final Observable<HystrixCommandCompletion> readOnlyStream;
 
-    private static final ConcurrentMap<String, HystrixCommandCompletionStream> streams = new ConcurrentHashMap<String, HystrixCommandCompletionStream>();
+    private static final HystrixKeyIndexedMap<HystrixCommandCompletionStream> streams = new HystrixKeyIndexedMap<HystrixCommandCompletionStream>();
 
     public static HystrixCommandCompletionStream getInstance(HystrixCommandKey commandKey) {
-        HystrixCommandCompletionStream initialStream = streams.get(commandKey.name());
+        HystrixCommandCompletionStream initialStream = streams.get(commandKey);
         if (initialStream != null) {
             return initialStream;
         } else {
             synchronized (HystrixCommandCompletionStream.class) {
-                HystrixCommandCompletionStream existingStream = streams.get(commandKey.name());
+                HystrixCommandCompletionStream existingStream = streams.get(commandKey);
                 if (existingStream == null) {
                     HystrixCommandCompletionStream newStream = new HystrixCommandCompletionStream(commandKey);
-                    streams.putIfAbsent(commandKey.name(), newStream);
+                    streams.putIfAbsent(commandKey, newStream);
                     return newStream;
                 } else {
                     return existingStream;
@@ -65,10 +63,24 @@ public class HystrixCommandCompletionStream implements HystrixEventStream<Hystri
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key);
+    }
+
     public void write(HystrixCommandCompletion event) {
         writeOnlySubject.onNext(event);
     }
 
+    /**
+     * Whether anything is currently subscribed to {@link #observe()}.  Writers that keep their own accumulators may use
+     * this to skip publishing events nobody is listening to.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return writeOnlySubject.hasObservers();
+    }
+
 
     @Override
     public Observable<HystrixCommandCompletion> observe() {
@@ -16,14 +16,12 @@
 package com.netflix.hystrix.metric;
 
 import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import rx.Observable;
 import rx.subjects.PublishSubject;
 import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Per-Command stream of {@link HystrixCommandExecutionStarted}s.  This gets written to by {@link HystrixThreadEventStream}s.
  * Events are emitted synchronously in the same thread that performs the command execution.
@@ -34,18 +32,18 @@ public class HystrixCommandStartStream implements HystrixEventStream<HystrixComm
     private final Subject<HystrixCommandExecutionStarted, HystrixCommandExecutionStarted> writeOnlySubject;
     private final Observable<HystrixCommandExecutionStarted> readOnlyStream;
 
-    private static final ConcurrentMap<String, HystrixCommandStartStream> streams = new ConcurrentHashMap<String, HystrixCommandStartStream>();
+    private static final HystrixKeyIndexedMap<HystrixCommandStartStream> streams = new HystrixKeyIndexedMap<HystrixCommandStartStream>();
 
     public static HystrixCommandStartStream getInstance(HystrixCommandKey commandKey) {
-        HystrixCommandStartStream initialStream = streams.get(commandKey.name());
+        HystrixCommandStartStream initialStream = streams.get(commandKey);
         if (initialStream != null) {
             return initialStream;
         } else {
             synchronized (HystrixCommandStartStream.class) {
-                HystrixCommandStartStream existingStream = streams.get(commandKey.name());
+                HystrixCommandStartStream existingStream = streams.get(commandKey);
                 if (existingStream == null) {
                     HystrixCommandStartStream newStream = new HystrixCommandStartStream(commandKey);
-                    streams.putIfAbsent(commandKey.name(), newStream);
+                    streams.putIfAbsent(commandKey, newStream);
                     return newStream;
                 } else {
                     return existingStream;
@@ -65,6 +63,10 @@ public class HystrixCommandStartStream implements HystrixEventStream<HystrixComm
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key);
+    }
+
     public void write(HystrixCommandExecutionStarted event) {
         writeOnlySubject.onNext(event);
     }
@@ -16,14 +16,12 @@
 package com.netflix.hystrix.metric;
 
 import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import rx.Observable;
 import rx.subjects.PublishSubject;
 import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Per-ThreadPool stream of {@link HystrixCommandCompletion}s.  This gets written to by {@link HystrixThreadEventStream}s.
  * Events are emitted synchronously in the same thread that performs the command execution.
@@ -35,18 +33,18 @@ public class HystrixThreadPoolCompletionStream implements HystrixEventStream<Hys
     private final Subject<HystrixCommandCompletion, HystrixCommandCompletion> writeOnlySubject;
     private final Observable<HystrixCommandCompletion> readOnlyStream;
 
-    private static final ConcurrentMap<String, HystrixThreadPoolCompletionStream> streams = new ConcurrentHashMap<String, HystrixThreadPoolCompletionStream>();
+    private static final HystrixKeyIndexedMap<HystrixThreadPoolCompletionStream> streams = new HystrixKeyIndexedMap<HystrixThreadPoolCompletionStream>();
 
     public static HystrixThreadPoolCompletionStream getInstance(HystrixThreadPoolKey threadPoolKey) {
-        HystrixThreadPoolCompletionStream initialStream = streams.get(threadPoolKey.name());
+        HystrixThreadPoolCompletionStream initialStream = streams.get(threadPoolKey);
         if (initialStream != null) {
             return initialStream;
         } else {
             synchronized (HystrixThreadPoolCompletionStream.class) {
-                HystrixThreadPoolCompletionStream existingStream = streams.get(threadPoolKey.name());
+                HystrixThreadPoolCompletionStream existingStream = streams.get(threadPoolKey);
                 if (existingStream == null) {
                     HystrixThreadPoolCompletionStream newStream = new HystrixThreadPoolCompletionStream(threadPoolKey);
-                    streams.putIfAbsent(threadPoolKey.name(), newStream);
+                    streams.putIfAbsent(threadPoolKey, newStream);
                     return newStream;
                 } else {
                     return existingStream;
@@ -70,6 +68,16 @@ public class HystrixThreadPoolCompletionStream implements HystrixEventStream<Hys
         writeOnlySubject.onNext(event);
     }
 
+    /**
+     * Whether anything is currently subscribed to {@link #observe()}.  Writers that keep their own accumulators may use
+     * this to skip publishing events nobody is listening to.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return writeOnlySubject.hasObservers();
+    }
+
     @Override
     public Observable<HystrixCommandCompletion> observe() {
         return readOnlyStream;
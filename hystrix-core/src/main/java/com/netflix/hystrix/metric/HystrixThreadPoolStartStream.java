@@ -16,14 +16,12 @@
 package com.netflix.hystrix.metric;
 
 import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import rx.Observable;
 import rx.subjects.PublishSubject;
 import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Per-ThreadPool stream of {@link HystrixCommandExecutionStarted}s.  This gets written to by {@link HystrixThreadEventStream}s.
  * Events are emitted synchronously in the same thread that performs the command execution.
@@ -35,18 +33,18 @@ public class HystrixThreadPoolStartStream implements HystrixEventStream<HystrixC
     private final Subject<HystrixCommandExecutionStarted, HystrixCommandExecutionStarted> writeOnlySubject;
     private final Observable<HystrixCommandExecutionStarted> readOnlyStream;
 
-    private static final ConcurrentMap<String, HystrixThreadPoolStartStream> streams = new ConcurrentHashMap<String, HystrixThreadPoolStartStream>();
+    private static final HystrixKeyIndexedMap<HystrixThreadPoolStartStream> streams = new HystrixKeyIndexedMap<HystrixThreadPoolStartStream>();
 
     public static HystrixThreadPoolStartStream getInstance(HystrixThreadPoolKey threadPoolKey) {
-        HystrixThreadPoolStartStream initialStream = streams.get(threadPoolKey.name());
+        HystrixThreadPoolStartStream initialStream = streams.get(threadPoolKey);
         if (initialStream != null) {
             return initialStream;
         } else {
             synchronized (HystrixThreadPoolStartStream.class) {
-                HystrixThreadPoolStartStream existingStream = streams.get(threadPoolKey.name());
+                HystrixThreadPoolStartStream existingStream = streams.get(threadPoolKey);
                 if (existingStream == null) {
                     HystrixThreadPoolStartStream newStream = new HystrixThreadPoolStartStream(threadPoolKey);
-                    streams.putIfAbsent(threadPoolKey.name(), newStream);
+                    streams.putIfAbsent(threadPoolKey, newStream);
                     return newStream;
                 } else {
                     return existingStream;
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import rx.Observable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock that rolls the buckets of the bucketed streams in this package.
+ * <p>
+ * Streams cut their events into buckets with {@link Observable#window(Observable)} on the ticks of this clock, rather than
+ * with {@link Observable#window(long, TimeUnit)}, which schedules a task per stream.  There is a single interval per bucket
+ * size, shared by all streams with that bucket size, so their buckets roll in one pass and at the same instants.  An
+ * interval stops when the last stream using it is unsubscribed, and starts again with the next one.
+ */
+/* package */ final class BucketClock {
+
+    private static final ConcurrentMap<Integer, Observable<Long>> ticksByBucketSize = new ConcurrentHashMap<Integer, Observable<Long>>();
+
+    private BucketClock() {
+    }
+
+    /**
+     * @param bucketSizeInMs time between ticks
+     * @return ticks every bucketSizeInMs milliseconds, shared by every subscriber with the same bucket size
+     */
+    /* package */ static Observable<Long> ticks(int bucketSizeInMs) {
+        Observable<Long> ticks = ticksByBucketSize.get(bucketSizeInMs);
+        if (ticks == null) {
+            Observable<Long> newTicks = Observable.interval(bucketSizeInMs, bucketSizeInMs, TimeUnit.MILLISECONDS).share();
+            ticks = ticksByBucketSize.putIfAbsent(bucketSizeInMs, newTicks);
+            if (ticks == null) {
+                ticks = newTicks;
+            }
+        }
+        return ticks;
+    }
+}
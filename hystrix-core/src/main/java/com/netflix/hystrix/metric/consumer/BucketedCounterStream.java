@@ -17,8 +17,10 @@ package com.netflix.hystrix.metric.consumer;
 
 import com.netflix.hystrix.metric.HystrixEvent;
 import com.netflix.hystrix.metric.HystrixEventStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import rx.Observable;
 import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.functions.Func2;
@@ -26,7 +28,6 @@ import rx.subjects.BehaviorSubject;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -45,6 +46,14 @@ public abstract class BucketedCounterStream<Event extends HystrixEvent, Bucket,
 
     private final BehaviorSubject<Output> counterSubject = BehaviorSubject.create(getEmptyOutputValue());
 
+    private final UnreadCacheTimeout unreadCacheTimeout = new UnreadCacheTimeout();
+    private final Func0<Output> emptyOutputValue = new Func0<Output>() {
+        @Override
+        public Output call() {
+            return getEmptyOutputValue();
+        }
+    };
+
     protected BucketedCounterStream(final HystrixEventStream<Event> inputEventStream, final int numBuckets, final int bucketSizeInMs,
                                     final Func2<Bucket, Event, Bucket> appendRawEventToBucket) {
         this.numBuckets = numBuckets;
@@ -65,7 +74,7 @@ public abstract class BucketedCounterStream<Event extends HystrixEvent, Bucket,
             public Observable<Bucket> call() {
                 return inputEventStream
                         .observe()
-                        .window(bucketSizeInMs, TimeUnit.MILLISECONDS) //bucket it by the counter window so we can emit to the next operator in time chunks, not on every OnNext
+                        .window(BucketClock.ticks(bucketSizeInMs))     //bucket it by the counter window so we can emit to the next operator in time chunks, not on every OnNext
                         .flatMap(reduceBucketToSummary)                //for a given bucket, turn it into a long array containing counts of event types
                         .startWith(emptyEventCountsToStart);           //start it with empty arrays to make consumer logic as generic as possible (windows are always full)
             }
@@ -82,12 +91,25 @@ public abstract class BucketedCounterStream<Event extends HystrixEvent, Bucket,
      */
     public abstract Observable<Output> observe();
 
+    /**
+     * Stop caching the counts once it hasn't been read for <code>idleTimeoutInMs</code> (never if 0 or less).
+     */
+    public void stopCachingWhenUnreadFor(HystrixProperty<Integer> idleTimeoutInMs) {
+        unreadCacheTimeout.set(idleTimeoutInMs);
+    }
+
     public void startCachingStreamValuesIfUnstarted() {
         if (subscription.get() == null) {
             //the stream is not yet started
-            Subscription candidateSubscription = observe().subscribe(counterSubject);
+            Subscription candidateSubscription = observe().subscribe(unreadCacheTimeout.cachingInto(counterSubject, new Action0() {
+                @Override
+                public void call() {
+                    unsubscribe();
+                }
+            }, emptyOutputValue));
             if (subscription.compareAndSet(null, candidateSubscription)) {
                 //won the race to set the subscription
+                unreadCacheTimeout.markRead();
             } else {
                 //lost the race to set the subscription, so we need to cancel this one
                 candidateSubscription.unsubscribe();
@@ -100,6 +122,7 @@ public abstract class BucketedCounterStream<Event extends HystrixEvent, Bucket,
      * @return last calculated bucket
      */
     public Output getLatest() {
+        unreadCacheTimeout.markRead();
         startCachingStreamValuesIfUnstarted();
         if (counterSubject.hasValue()) {
             return counterSubject.getValue();
@@ -77,6 +77,10 @@ public class CumulativeCommandEventCounterStream extends BucketedCumulativeCount
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key.name());
+    }
+
     private CumulativeCommandEventCounterStream(HystrixCommandKey commandKey, int numCounterBuckets, int counterBucketSizeInMs,
                                                 Func2<long[], HystrixCommandCompletion, long[]> reduceCommandCompletion,
                                                 Func2<long[], long[], long[]> reduceBucket) {
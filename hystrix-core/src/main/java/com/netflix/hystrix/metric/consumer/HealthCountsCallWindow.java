@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import com.netflix.hystrix.ExecutionResult;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.metric.HystrixCommandCompletion;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Alternative to {@link HealthCountsStream} which calculates the health counts for a given Command over its last N
+ * health-relevant executions rather than over a window of time.
+ * <p>
+ * The outcomes are kept in a fixed ring of N slots, each recorded execution overwriting the oldest one.  There are no
+ * buckets to wait for: the {@link HystrixCommandMetrics.HealthCounts} snapshot is updated as every execution is recorded,
+ * and emitted by {@link #observe()} right away.
+ * N = {@link HystrixCommandProperties#circuitBreakerCallCountWindowSize()}
+ * <p>
+ * Executions that don't count towards health (see {@link HystrixCommandMetrics#getHealthCounts()}) don't take up a slot.
+ * <p>
+ * As with {@link HealthCountsRingBuffer}, the window is fed by a subscription to {@link HystrixCommandCompletionStream}, or in
+ * direct-write mode ({@link HystrixCommandProperties#metricsDirectWriteEnabled()}) by {@link HystrixCommandMetrics} calling
+ * {@link #record(ExecutionResult.EventCounts)} from the thread completing the command.
+ */
+public class HealthCountsCallWindow {
+
+    private static final HystrixKeyIndexedMap<HealthCountsCallWindow> callWindows = new HystrixKeyIndexedMap<HealthCountsCallWindow>();
+
+    private static final int NUM_EVENT_TYPES = HystrixEventType.values().length;
+
+    private static final byte EMPTY = 0;
+    private static final byte SUCCESS = 1;
+    private static final byte ERROR = 2;
+
+    public static HealthCountsCallWindow getInstance(HystrixCommandKey commandKey, HystrixCommandProperties properties) {
+        final int windowSize = properties.circuitBreakerCallCountWindowSize().get();
+        if (windowSize <= 0) {
+            throw new RuntimeException("You have set the call count window size to " + windowSize + ".  Please set a positive number, so that the health counts can be calculated");
+        }
+        return getInstance(commandKey, windowSize, properties.metricsDirectWriteEnabled().get());
+    }
+
+    public static HealthCountsCallWindow getInstance(HystrixCommandKey commandKey, int windowSize, boolean directWrite) {
+        HealthCountsCallWindow initialCallWindow = callWindows.get(commandKey);
+        if (initialCallWindow != null) {
+            return initialCallWindow;
+        } else {
+            final HealthCountsCallWindow callWindow;
+            synchronized (HealthCountsCallWindow.class) {
+                HealthCountsCallWindow existingCallWindow = callWindows.get(commandKey);
+                if (existingCallWindow == null) {
+                    HealthCountsCallWindow newCallWindow = new HealthCountsCallWindow(commandKey, windowSize, directWrite);
+                    callWindows.putIfAbsent(commandKey, newCallWindow);
+                    callWindow = newCallWindow;
+                } else {
+                    callWindow = existingCallWindow;
+                }
+            }
+            callWindow.startIfUnstarted();
+            return callWindow;
+        }
+    }
+
+    public static void reset() {
+        for (HealthCountsCallWindow callWindow: callWindows.values()) {
+            callWindow.unsubscribe();
+        }
+        callWindows.clear();
+    }
+
+    public static void removeByKey(HystrixCommandKey key) {
+        callWindows.remove(key);
+    }
+
+    private final HystrixCommandKey commandKey;
+    private final boolean directWrite;
+
+    /* guarded by this */
+    private final byte[] outcomes;
+    private int nextSlot = 0;
+    private long totalCount = 0;
+    private long errorCount = 0;
+    private final long[] eventCounts = new long[NUM_EVENT_TYPES];
+
+    private volatile HystrixCommandMetrics.HealthCounts latest = HystrixCommandMetrics.HealthCounts.empty();
+    /* only ever emitted to while holding the lock, so doesn't need to be serialized */
+    private final Subject<HystrixCommandMetrics.HealthCounts, HystrixCommandMetrics.HealthCounts> healthCountsSubject = PublishSubject.create();
+
+    private final AtomicReference<Subscription> subscription = new AtomicReference<Subscription>(null);
+
+    private HealthCountsCallWindow(final HystrixCommandKey commandKey, final int windowSize, final boolean directWrite) {
+        this.commandKey = commandKey;
+        this.directWrite = directWrite;
+        this.outcomes = new byte[windowSize];
+    }
+
+    /**
+     * Replace the oldest outcome in the window with the outcome of a single command execution, if it is health-relevant.
+     *
+     * @param executionEventCounts events of the command execution
+     */
+    public void record(ExecutionResult.EventCounts executionEventCounts) {
+        final byte outcome;
+        if (executionEventCounts.contains(HystrixEventType.SUCCESS)) {
+            outcome = SUCCESS;
+        } else if (executionEventCounts.contains(HystrixEventType.FAILURE) || executionEventCounts.contains(HystrixEventType.TIMEOUT)
+                || executionEventCounts.contains(HystrixEventType.THREAD_POOL_REJECTED) || executionEventCounts.contains(HystrixEventType.SEMAPHORE_REJECTED)) {
+            outcome = ERROR;
+        } else {
+            return;
+        }
+
+        synchronized (this) {
+            final byte evicted = outcomes[nextSlot];
+            outcomes[nextSlot] = outcome;
+            nextSlot = (nextSlot + 1) % outcomes.length;
+            if (evicted == EMPTY) {
+                totalCount++;
+            } else if (evicted == ERROR) {
+                errorCount--;
+            }
+            if (outcome == ERROR) {
+                errorCount++;
+            }
+
+            eventCounts[HystrixEventType.SUCCESS.ordinal()] = totalCount - errorCount;
+            eventCounts[HystrixEventType.FAILURE.ordinal()] = errorCount;
+            latest = HystrixCommandMetrics.HealthCounts.empty().plus(eventCounts);
+            healthCountsSubject.onNext(latest);
+        }
+    }
+
+    public void startIfUnstarted() {
+        if (subscription.get() == null) {
+            final Subscription candidateSubscription;
+            if (directWrite) {
+                //writers call record() themselves, so there is nothing to subscribe to
+                candidateSubscription = Subscriptions.empty();
+            } else {
+                candidateSubscription = HystrixCommandCompletionStream.getInstance(commandKey).observe().subscribe(new Subscriber<HystrixCommandCompletion>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+
+                    @Override
+                    public void onNext(HystrixCommandCompletion commandCompletion) {
+                        record(commandCompletion.getEventCounts());
+                    }
+                });
+            }
+            if (!subscription.compareAndSet(null, candidateSubscription)) {
+                //lost the race to set the subscription, so we need to cancel this one
+                candidateSubscription.unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * Synchronous call to retrieve the health counts as of the last recorded execution
+     * @return health counts over the last windowSize health-relevant executions
+     */
+    public HystrixCommandMetrics.HealthCounts getLatest() {
+        startIfUnstarted();
+        return latest;
+    }
+
+    /**
+     * @return stream of the health counts calculated on every recorded execution, starting with the next one
+     */
+    public Observable<HystrixCommandMetrics.HealthCounts> observe() {
+        startIfUnstarted();
+        return healthCountsSubject;
+    }
+
+    public int getWindowSize() {
+        return outcomes.length;
+    }
+
+    public boolean isDirectWrite() {
+        return directWrite;
+    }
+
+    public void unsubscribe() {
+        Subscription s = subscription.get();
+        if (s != null) {
+            s.unsubscribe();
+            subscription.compareAndSet(s, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HealthCountsCallWindow(" + commandKey.name() + ")";
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import com.netflix.hystrix.ExecutionResult;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.metric.HystrixCommandCompletion;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
+import com.netflix.hystrix.util.HystrixTimer;
+import com.netflix.hystrix.util.HystrixTimer.TimerListener;
+import com.netflix.hystrix.util.LongAdder;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Alternative to {@link HealthCountsStream} which maintains the rolling health counts for a given Command in a fixed,
+ * pre-allocated ring of buckets rather than with an Rx window() pipeline.
+ * <p>
+ * Each bucket holds one {@link LongAdder} per health-relevant {@link HystrixEventType}, so concurrent writers only
+ * contend on striped cells.  The ring has b + 1 buckets: b sealed buckets that make up the window and 1 bucket currently
+ * being written to.  Every t2 (=t1/b) milliseconds the {@link HystrixTimer} rolls the ring, which seals the current bucket,
+ * recycles the oldest one and recalculates the {@link HystrixCommandMetrics.HealthCounts} snapshot.
+ * t1 = {@link HystrixCommandProperties#metricsRollingStatisticalWindowInMilliseconds()}
+ * b = {@link HystrixCommandProperties#metricsRollingStatisticalWindowBuckets()}
+ * <p>
+ * As with {@link HealthCountsStream}, there's no peeking into a bucket until it is sealed.  The latest value may be
+ * queried using {@link #getLatest()}, which only reads a volatile field and does not allocate, and every new snapshot is
+ * emitted by {@link #observe()}.
+ * <p>
+ * Enabled via {@link HystrixCommandProperties#metricsHealthCountsRingBufferEnabled()}.
+ * <p>
+ * By default the ring is fed by a subscription to {@link HystrixCommandCompletionStream}.  In direct-write mode
+ * ({@link HystrixCommandProperties#metricsDirectWriteEnabled()}) it does not subscribe at all, and
+ * {@link HystrixCommandMetrics} calls {@link #record(ExecutionResult.EventCounts)} from the thread completing the command.
+ */
+public class HealthCountsRingBuffer {
+
+    private static final HystrixKeyIndexedMap<HealthCountsRingBuffer> ringBuffers = new HystrixKeyIndexedMap<HealthCountsRingBuffer>();
+
+    private static final int NUM_EVENT_TYPES = HystrixEventType.values().length;
+
+    private static final HystrixEventType[] HEALTH_EVENT_TYPES = new HystrixEventType[] {
+            HystrixEventType.SUCCESS, HystrixEventType.FAILURE, HystrixEventType.TIMEOUT,
+            HystrixEventType.THREAD_POOL_REJECTED, HystrixEventType.SEMAPHORE_REJECTED
+    };
+
+    public static HealthCountsRingBuffer getInstance(HystrixCommandKey commandKey, HystrixCommandProperties properties) {
+        final int healthCountBucketSizeInMs = properties.metricsHealthSnapshotIntervalInMilliseconds().get();
+        if (healthCountBucketSizeInMs == 0) {
+            throw new RuntimeException("You have set the bucket size to 0ms.  Please set a positive number, so that the metric stream can be properly consumed");
+        }
+        final int numHealthCountBuckets = properties.metricsRollingStatisticalWindowInMilliseconds().get() / healthCountBucketSizeInMs;
+
+        return getInstance(commandKey, numHealthCountBuckets, healthCountBucketSizeInMs, properties.metricsDirectWriteEnabled().get());
+    }
+
+    public static HealthCountsRingBuffer getInstance(HystrixCommandKey commandKey, int numBuckets, int bucketSizeInMs) {
+        return getInstance(commandKey, numBuckets, bucketSizeInMs, false);
+    }
+
+    public static HealthCountsRingBuffer getInstance(HystrixCommandKey commandKey, int numBuckets, int bucketSizeInMs, boolean directWrite) {
+        HealthCountsRingBuffer initialRingBuffer = ringBuffers.get(commandKey);
+        if (initialRingBuffer != null) {
+            return initialRingBuffer;
+        } else {
+            final HealthCountsRingBuffer ringBuffer;
+            synchronized (HealthCountsRingBuffer.class) {
+                HealthCountsRingBuffer existingRingBuffer = ringBuffers.get(commandKey);
+                if (existingRingBuffer == null) {
+                    HealthCountsRingBuffer newRingBuffer = new HealthCountsRingBuffer(commandKey, numBuckets, bucketSizeInMs, directWrite);
+                    ringBuffers.putIfAbsent(commandKey, newRingBuffer);
+                    ringBuffer = newRingBuffer;
+                } else {
+                    ringBuffer = existingRingBuffer;
+                }
+            }
+            ringBuffer.startIfUnstarted();
+            return ringBuffer;
+        }
+    }
+
+    public static void reset() {
+        for (HealthCountsRingBuffer ringBuffer: ringBuffers.values()) {
+            ringBuffer.unsubscribe();
+        }
+        ringBuffers.clear();
+    }
+
+    public static void removeByKey(HystrixCommandKey key) {
+        ringBuffers.remove(key);
+    }
+
+    private final HystrixCommandKey commandKey;
+    private final int numBuckets;
+    private final int bucketSizeInMs;
+    private final boolean directWrite;
+
+    /* [bucket][index into HEALTH_EVENT_TYPES] */
+    private final LongAdder[][] buckets;
+    /* scratch array reused on every roll (only ever touched by the timer thread) */
+    private final long[] rollingEventCounts = new long[NUM_EVENT_TYPES];
+
+    private volatile int currentBucketIndex = 0;
+    private volatile HystrixCommandMetrics.HealthCounts latest = HystrixCommandMetrics.HealthCounts.empty();
+    /* only ever emitted to from roll(), so doesn't need to be serialized */
+    private final Subject<HystrixCommandMetrics.HealthCounts, HystrixCommandMetrics.HealthCounts> healthCountsSubject = PublishSubject.create();
+
+    private final AtomicReference<Subscription> subscription = new AtomicReference<Subscription>(null);
+    private final AtomicReference<Reference<TimerListener>> timerReference = new AtomicReference<Reference<TimerListener>>(null);
+
+    private HealthCountsRingBuffer(final HystrixCommandKey commandKey, final int numBuckets, final int bucketSizeInMs, final boolean directWrite) {
+        this.commandKey = commandKey;
+        this.numBuckets = numBuckets;
+        this.bucketSizeInMs = bucketSizeInMs;
+        this.directWrite = directWrite;
+        this.buckets = new LongAdder[numBuckets + 1][HEALTH_EVENT_TYPES.length];
+        for (int i = 0; i < buckets.length; i++) {
+            for (int j = 0; j < HEALTH_EVENT_TYPES.length; j++) {
+                buckets[i][j] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Add the health-relevant events of a single command execution to the bucket currently being written to.
+     *
+     * @param eventCounts events of the command execution
+     */
+    public void record(ExecutionResult.EventCounts eventCounts) {
+        final LongAdder[] bucket = buckets[currentBucketIndex];
+        for (int i = 0; i < HEALTH_EVENT_TYPES.length; i++) {
+            int count = eventCounts.getCount(HEALTH_EVENT_TYPES[i]);
+            if (count > 0) {
+                bucket[i].add(count);
+            }
+        }
+    }
+
+    /**
+     * Seal the current bucket, recycle the oldest one and recalculate the snapshot.  Invoked by the {@link HystrixTimer}
+     * every bucketSizeInMs, which never runs a given listener concurrently with itself.
+     */
+    /* package-private */ void roll() {
+        final int nextBucketIndex = (currentBucketIndex + 1) % buckets.length;
+        // the next bucket is the oldest sealed bucket, so it is no longer part of the window
+        for (LongAdder counter: buckets[nextBucketIndex]) {
+            counter.reset();
+        }
+        currentBucketIndex = nextBucketIndex;
+
+        for (int i = 0; i < HEALTH_EVENT_TYPES.length; i++) {
+            long sum = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                if (b != nextBucketIndex) {
+                    sum += buckets[b][i].sum();
+                }
+            }
+            rollingEventCounts[HEALTH_EVENT_TYPES[i].ordinal()] = sum;
+        }
+        latest = HystrixCommandMetrics.HealthCounts.empty().plus(rollingEventCounts);
+        healthCountsSubject.onNext(latest);
+    }
+
+    public void startIfUnstarted() {
+        if (subscription.get() == null) {
+            final Subscription candidateSubscription;
+            if (directWrite) {
+                //writers call record() themselves, so there is nothing to subscribe to
+                candidateSubscription = Subscriptions.empty();
+            } else {
+                candidateSubscription = HystrixCommandCompletionStream.getInstance(commandKey).observe().subscribe(new Subscriber<HystrixCommandCompletion>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+
+                    @Override
+                    public void onNext(HystrixCommandCompletion commandCompletion) {
+                        record(commandCompletion.getEventCounts());
+                    }
+                });
+            }
+            if (subscription.compareAndSet(null, candidateSubscription)) {
+                //won the race to set the subscription, so we also own the timer
+                timerReference.set(HystrixTimer.getInstance().addTimerListener(new TimerListener() {
+                    @Override
+                    public void tick() {
+                        roll();
+                    }
+
+                    @Override
+                    public int getIntervalTimeInMilliseconds() {
+                        return bucketSizeInMs;
+                    }
+                }));
+            } else {
+                //lost the race to set the subscription, so we need to cancel this one
+                candidateSubscription.unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * Synchronous call to retrieve the last calculated health counts without waiting for a roll
+     * @return health counts over the last numBuckets sealed buckets
+     */
+    public HystrixCommandMetrics.HealthCounts getLatest() {
+        startIfUnstarted();
+        return latest;
+    }
+
+    /**
+     * @return stream of the health counts calculated on every roll, starting with the next one
+     */
+    public Observable<HystrixCommandMetrics.HealthCounts> observe() {
+        startIfUnstarted();
+        return healthCountsSubject;
+    }
+
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    public int getBucketSizeInMs() {
+        return bucketSizeInMs;
+    }
+
+    public boolean isDirectWrite() {
+        return directWrite;
+    }
+
+    public void unsubscribe() {
+        Subscription s = subscription.get();
+        if (s != null) {
+            s.unsubscribe();
+            Reference<TimerListener> tl = timerReference.getAndSet(null);
+            if (tl != null) {
+                tl.clear();
+            }
+            subscription.compareAndSet(s, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HealthCountsRingBuffer(" + commandKey.name() + ")";
+    }
+}
@@ -21,11 +21,9 @@ import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.HystrixEventType;
 import com.netflix.hystrix.metric.HystrixCommandCompletion;
 import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.util.HystrixKeyIndexedMap;
 import rx.functions.Func2;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Maintains a stream of rolling health counts for a given Command.
  * There is a rolling window abstraction on this stream.
@@ -40,7 +38,7 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class HealthCountsStream extends BucketedRollingCounterStream<HystrixCommandCompletion, long[], HystrixCommandMetrics.HealthCounts> {
 
-    private static final ConcurrentMap<String, HealthCountsStream> streams = new ConcurrentHashMap<String, HealthCountsStream>();
+    private static final HystrixKeyIndexedMap<HealthCountsStream> streams = new HystrixKeyIndexedMap<HealthCountsStream>();
 
     private static final int NUM_EVENT_TYPES = HystrixEventType.values().length;
 
@@ -63,18 +61,18 @@ public class HealthCountsStream extends BucketedRollingCounterStream<HystrixComm
     }
 
     public static HealthCountsStream getInstance(HystrixCommandKey commandKey, int numBuckets, int bucketSizeInMs) {
-        HealthCountsStream initialStream = streams.get(commandKey.name());
+        HealthCountsStream initialStream = streams.get(commandKey);
         if (initialStream != null) {
             return initialStream;
         } else {
             final HealthCountsStream healthStream;
             synchronized (HealthCountsStream.class) {
-                HealthCountsStream existingStream = streams.get(commandKey.name());
+                HealthCountsStream existingStream = streams.get(commandKey);
                 if (existingStream == null) {
                     HealthCountsStream newStream = new HealthCountsStream(commandKey, numBuckets, bucketSizeInMs,
                             HystrixCommandMetrics.appendEventToBucket);
 
-                    streams.putIfAbsent(commandKey.name(), newStream);
+                    streams.putIfAbsent(commandKey, newStream);
                     healthStream = newStream;
                 } else {
                     healthStream = existingStream;
@@ -90,7 +88,7 @@ public class HealthCountsStream extends BucketedRollingCounterStream<HystrixComm
     }
 
     public static void removeByKey(HystrixCommandKey key) {
-        streams.remove(key.name());
+        streams.remove(key);
     }
 
     private HealthCountsStream(final HystrixCommandKey commandKey, final int numBuckets, final int bucketSizeInMs,
@@ -75,6 +75,10 @@ public class RollingCommandEventCounterStream extends BucketedRollingCounterStre
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key.name());
+    }
+
     private RollingCommandEventCounterStream(HystrixCommandKey commandKey, int numCounterBuckets, int counterBucketSizeInMs,
                                              Func2<long[], HystrixCommandCompletion, long[]> reduceCommandCompletion,
                                              Func2<long[], long[], long[]> reduceBucket) {
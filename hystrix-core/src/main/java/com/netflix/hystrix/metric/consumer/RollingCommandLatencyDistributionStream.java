@@ -89,6 +89,10 @@ public class RollingCommandLatencyDistributionStream extends RollingDistribution
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key.name());
+    }
+
     private RollingCommandLatencyDistributionStream(HystrixCommandKey commandKey, int numPercentileBuckets, int percentileBucketSizeInMs) {
         super(HystrixCommandCompletionStream.getInstance(commandKey), numPercentileBuckets, percentileBucketSizeInMs, addValuesToBucket);
     }
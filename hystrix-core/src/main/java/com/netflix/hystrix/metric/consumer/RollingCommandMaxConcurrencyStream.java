@@ -68,6 +68,10 @@ public class RollingCommandMaxConcurrencyStream extends RollingConcurrencyStream
         streams.clear();
     }
 
+    public static void removeByKey(HystrixCommandKey key) {
+        streams.remove(key.name());
+    }
+
     private RollingCommandMaxConcurrencyStream(final HystrixCommandKey commandKey, final int numBuckets, final int bucketSizeInMs) {
         super(HystrixCommandStartStream.getInstance(commandKey), numBuckets, bucketSizeInMs);
     }
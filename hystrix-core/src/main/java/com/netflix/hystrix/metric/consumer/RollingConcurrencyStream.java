@@ -18,8 +18,10 @@ package com.netflix.hystrix.metric.consumer;
 import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.metric.HystrixCommandExecutionStarted;
 import com.netflix.hystrix.metric.HystrixEventStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import rx.Observable;
 import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.functions.Func2;
@@ -27,7 +29,6 @@ import rx.subjects.BehaviorSubject;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -47,6 +48,15 @@ public abstract class RollingConcurrencyStream {
     private final BehaviorSubject<Integer> rollingMax = BehaviorSubject.create(0);
     private final Observable<Integer> rollingMaxStream;
 
+    private final UnreadCacheTimeout unreadCacheTimeout = new UnreadCacheTimeout();
+
+    private static final Func0<Integer> emptyRollingMax = new Func0<Integer>() {
+        @Override
+        public Integer call() {
+            return 0;
+        }
+    };
+
     private static final Func2<Integer, Integer, Integer> reduceToMax = new Func2<Integer, Integer, Integer>() {
         @Override
         public Integer call(Integer a, Integer b) {
@@ -77,7 +87,7 @@ public abstract class RollingConcurrencyStream {
         rollingMaxStream = inputEventStream
                 .observe()
                 .map(getConcurrencyCountFromEvent)
-                .window(bucketSizeInMs, TimeUnit.MILLISECONDS)
+                .window(BucketClock.ticks(bucketSizeInMs))
                 .flatMap(reduceStreamToMax)
                 .startWith(emptyRollingMaxBuckets)
                 .window(numBuckets, 1)
@@ -86,12 +96,25 @@ public abstract class RollingConcurrencyStream {
                 .onBackpressureDrop();
     }
 
+    /**
+     * Stop caching the rolling max once it hasn't been read for <code>idleTimeoutInMs</code> (never if 0 or less).
+     */
+    public void stopCachingWhenUnreadFor(HystrixProperty<Integer> idleTimeoutInMs) {
+        unreadCacheTimeout.set(idleTimeoutInMs);
+    }
+
     public void startCachingStreamValuesIfUnstarted() {
         if (rollingMaxSubscription.get() == null) {
             //the stream is not yet started
-            Subscription candidateSubscription = observe().subscribe(rollingMax);
+            Subscription candidateSubscription = observe().subscribe(unreadCacheTimeout.cachingInto(rollingMax, new Action0() {
+                @Override
+                public void call() {
+                    unsubscribe();
+                }
+            }, emptyRollingMax));
             if (rollingMaxSubscription.compareAndSet(null, candidateSubscription)) {
                 //won the race to set the subscription
+                unreadCacheTimeout.markRead();
             } else {
                 //lost the race to set the subscription, so we need to cancel this one
                 candidateSubscription.unsubscribe();
@@ -100,6 +123,7 @@ public abstract class RollingConcurrencyStream {
     }
 
     public long getLatestRollingMax() {
+        unreadCacheTimeout.markRead();
         startCachingStreamValuesIfUnstarted();
         if (rollingMax.hasValue()) {
             return rollingMax.getValue();
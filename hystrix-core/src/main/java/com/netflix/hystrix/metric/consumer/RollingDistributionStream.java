@@ -19,17 +19,19 @@ package com.netflix.hystrix.metric.consumer;
 import com.netflix.hystrix.metric.CachedValuesHistogram;
 import com.netflix.hystrix.metric.HystrixEvent;
 import com.netflix.hystrix.metric.HystrixEventStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import org.HdrHistogram.Histogram;
 import rx.Observable;
 import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Func0;
 import rx.functions.Func1;
 import rx.functions.Func2;
 import rx.subjects.BehaviorSubject;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -49,25 +51,12 @@ public class RollingDistributionStream<Event extends HystrixEvent> {
     private final BehaviorSubject<CachedValuesHistogram> rollingDistribution = BehaviorSubject.create(CachedValuesHistogram.backedBy(CachedValuesHistogram.getNewHistogram()));
     private final Observable<CachedValuesHistogram> rollingDistributionStream;
 
-    private static final Func2<Histogram, Histogram, Histogram> distributionAggregator = new Func2<Histogram, Histogram, Histogram>() {
-        @Override
-        public Histogram call(Histogram initialDistribution, Histogram distributionToAdd) {
-            initialDistribution.add(distributionToAdd);
-            return initialDistribution;
-        }
-    };
-
-    private static final Func1<Observable<Histogram>, Observable<Histogram>> reduceWindowToSingleDistribution = new Func1<Observable<Histogram>, Observable<Histogram>>() {
-        @Override
-        public Observable<Histogram> call(Observable<Histogram> window) {
-            return window.reduce(distributionAggregator);
-        }
-    };
+    private final UnreadCacheTimeout unreadCacheTimeout = new UnreadCacheTimeout();
 
-    private static final Func1<Histogram, CachedValuesHistogram> cacheHistogramValues = new Func1<Histogram, CachedValuesHistogram>() {
+    private static final Func0<CachedValuesHistogram> emptyDistribution = new Func0<CachedValuesHistogram>() {
         @Override
-        public CachedValuesHistogram call(Histogram histogram) {
-            return CachedValuesHistogram.backedBy(histogram);
+        public CachedValuesHistogram call() {
+            return CachedValuesHistogram.backedBy(CachedValuesHistogram.getNewHistogram());
         }
     };
 
@@ -81,26 +70,33 @@ public class RollingDistributionStream<Event extends HystrixEvent> {
 
     protected RollingDistributionStream(final HystrixEventStream<Event> stream, final int numBuckets, final int bucketSizeInMs,
                                         final Func2<Histogram, Event, Histogram> addValuesToBucket) {
-        final List<Histogram> emptyDistributionsToStart = new ArrayList<Histogram>();
-        for (int i = 0; i < numBuckets; i++) {
-            emptyDistributionsToStart.add(CachedValuesHistogram.getNewHistogram());
-        }
-
-        final Func1<Observable<Event>, Observable<Histogram>> reduceBucketToSingleDistribution = new Func1<Observable<Event>, Observable<Histogram>>() {
+        rollingDistributionStream = Observable.defer(new Func0<Observable<CachedValuesHistogram>>() {
             @Override
-            public Observable<Histogram> call(Observable<Event> bucket) {
-                return bucket.reduce(CachedValuesHistogram.getNewHistogram(), addValuesToBucket);
+            public Observable<CachedValuesHistogram> call() {
+                final RollingHistogramWindow window = new RollingHistogramWindow(numBuckets);
+
+                final Func1<Observable<Event>, Observable<Histogram>> reduceBucketToSingleDistribution = new Func1<Observable<Event>, Observable<Histogram>>() {
+                    @Override
+                    public Observable<Histogram> call(Observable<Event> bucket) {
+                        return bucket.reduce(window.acquireBucket(), addValuesToBucket);
+                    }
+                };
+
+                final Func1<Histogram, CachedValuesHistogram> rollWindow = new Func1<Histogram, CachedValuesHistogram>() {
+                    @Override
+                    public CachedValuesHistogram call(Histogram bucket) {
+                        return window.roll(bucket);
+                    }
+                };
+
+                return stream
+                        .observe()
+                        .window(BucketClock.ticks(bucketSizeInMs))     //stream of unaggregated buckets
+                        .flatMap(reduceBucketToSingleDistribution)     //stream of aggregated Histograms
+                        .startWith(window.acquireBucket())             //start with an empty bucket, so a distribution is available right away
+                        .map(rollWindow);                              //add each bucket to the window (and drop the oldest) to get the distribution over the window
             }
-        };
-
-        rollingDistributionStream = stream
-                .observe()
-                .window(bucketSizeInMs, TimeUnit.MILLISECONDS) //stream of unaggregated buckets
-                .flatMap(reduceBucketToSingleDistribution)     //stream of aggregated Histograms
-                .startWith(emptyDistributionsToStart)          //stream of aggregated Histograms that starts with n empty
-                .window(numBuckets, 1)                         //windowed stream: each OnNext is a stream of n Histograms
-                .flatMap(reduceWindowToSingleDistribution)     //reduced stream: each OnNext is a single Histogram
-                .map(cacheHistogramValues)                     //convert to CachedValueHistogram (commonly-accessed values are cached)
+        })
                 .share()
                 .onBackpressureDrop();
     }
@@ -127,12 +123,25 @@ public class RollingDistributionStream<Event extends HystrixEvent> {
         }
     }
 
+    /**
+     * Stop caching the distribution once it hasn't been read for <code>idleTimeoutInMs</code> (never if 0 or less).
+     */
+    public void stopCachingWhenUnreadFor(HystrixProperty<Integer> idleTimeoutInMs) {
+        unreadCacheTimeout.set(idleTimeoutInMs);
+    }
+
     public void startCachingStreamValuesIfUnstarted() {
         if (rollingDistributionSubscription.get() == null) {
             //the stream is not yet started
-            Subscription candidateSubscription = observe().subscribe(rollingDistribution);
+            Subscription candidateSubscription = observe().subscribe(unreadCacheTimeout.cachingInto(rollingDistribution, new Action0() {
+                @Override
+                public void call() {
+                    unsubscribe();
+                }
+            }, emptyDistribution));
             if (rollingDistributionSubscription.compareAndSet(null, candidateSubscription)) {
                 //won the race to set the subscription
+                unreadCacheTimeout.markRead();
             } else {
                 //lost the race to set the subscription, so we need to cancel this one
                 candidateSubscription.unsubscribe();
@@ -140,7 +149,12 @@ public class RollingDistributionStream<Event extends HystrixEvent> {
         }
     }
 
-    CachedValuesHistogram getLatest() {
+    /**
+     * @return the distribution over the current rolling window, or null if none has been computed yet.  A new instance is
+     * returned every time the window rolls.
+     */
+    public CachedValuesHistogram getLatest() {
+        unreadCacheTimeout.markRead();
         startCachingStreamValuesIfUnstarted();
         if (rollingDistribution.hasValue()) {
             return rollingDistribution.getValue();
@@ -149,6 +163,59 @@ public class RollingDistributionStream<Event extends HystrixEvent> {
         }
     }
 
+    /**
+     * Distribution over the last numBuckets buckets, maintained incrementally: every new bucket is added to a running sum
+     * and the bucket falling out of the window is subtracted from it.  Bucket histograms and the snapshots handed out
+     * as {@link CachedValuesHistogram} are recycled, so rolling the window doesn't allocate histograms once warmed up.
+     * <p>
+     * A snapshot is reused once {@link #SNAPSHOTS_RETAINED} newer ones have been published; its values are computed
+     * before that (see {@link CachedValuesHistogram#release()}) so anyone still holding it can read them.
+     */
+    private static class RollingHistogramWindow {
+        private static final int SNAPSHOTS_RETAINED = 2;
+
+        private final Histogram[] buckets;
+        private final Histogram sum = CachedValuesHistogram.getNewHistogram();
+        private final Deque<Histogram> bucketPool = new ArrayDeque<Histogram>();
+        private final Deque<Histogram> snapshotPool = new ArrayDeque<Histogram>();
+        private final Deque<CachedValuesHistogram> published = new ArrayDeque<CachedValuesHistogram>();
+        private int nextBucket = 0;
+
+        private RollingHistogramWindow(int numBuckets) {
+            this.buckets = new Histogram[numBuckets];
+        }
+
+        // buckets are acquired when a time window opens, which may be on a different thread than the one rolling
+        synchronized Histogram acquireBucket() {
+            Histogram bucket = bucketPool.poll();
+            return bucket != null ? bucket : CachedValuesHistogram.getNewHistogram();
+        }
+
+        synchronized CachedValuesHistogram roll(Histogram bucket) {
+            sum.add(bucket);
+            Histogram evicted = buckets[nextBucket];
+            buckets[nextBucket] = bucket;
+            nextBucket = (nextBucket + 1) % buckets.length;
+            if (evicted != null) {
+                sum.subtract(evicted);
+                evicted.reset();
+                bucketPool.offer(evicted);
+            }
+
+            Histogram snapshot = snapshotPool.poll();
+            if (snapshot == null) {
+                snapshot = CachedValuesHistogram.getNewHistogram();
+            }
+            sum.copyInto(snapshot);
+            CachedValuesHistogram distribution = CachedValuesHistogram.backedBy(snapshot);
+            published.offer(distribution);
+            if (published.size() > SNAPSHOTS_RETAINED) {
+                snapshotPool.offer(published.poll().release());
+            }
+            return distribution;
+        }
+    }
+
     public void unsubscribe() {
         Subscription s = rollingDistributionSubscription.get();
         if (s != null) {
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.subjects.Subject;
+
+/**
+ * Lets a stream stop caching its values, and with that its window timer, once they haven't been read for a while.  The
+ * next read starts caching again, from an empty window.
+ * <p>
+ * Shared by the streams in this package, which cache their latest value in a subject fed by a subscription started on the
+ * first read.
+ */
+/* package */ final class UnreadCacheTimeout {
+
+    // null unless caching stops when the cached values aren't read
+    private volatile HystrixProperty<Integer> idleTimeoutInMs;
+    private volatile long lastReadTime;
+
+    /**
+     * @param idleTimeoutInMs time without reads after which caching stops, caching doesn't stop if 0 or less
+     */
+    /* package */ void set(HystrixProperty<Integer> idleTimeoutInMs) {
+        this.lastReadTime = System.currentTimeMillis();
+        this.idleTimeoutInMs = idleTimeoutInMs;
+    }
+
+    /**
+     * Record a read of the cached values, or the start of caching.
+     */
+    /* package */ void markRead() {
+        if (idleTimeoutInMs != null) {
+            lastReadTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @param cache subject that caches the values of the stream
+     * @param stopCaching unsubscribes the returned subscriber
+     * @param emptyValue value cached once caching stopped, so the next read starts from an empty window rather than from
+     *                   what was cached before
+     * @return subscriber to the stream that feeds <code>cache</code> and stops caching when the values are unread
+     */
+    /* package */ <T> Subscriber<T> cachingInto(final Subject<T, T> cache, final Action0 stopCaching, final Func0<T> emptyValue) {
+        return new Subscriber<T>() {
+            @Override
+            public void onCompleted() {
+                cache.onCompleted();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                cache.onError(e);
+            }
+
+            @Override
+            public void onNext(T value) {
+                cache.onNext(value);
+                if (isUnread()) {
+                    stopCaching.call();
+                    cache.onNext(emptyValue.call());
+                }
+            }
+        };
+    }
+
+    private boolean isUnread() {
+        final HystrixProperty<Integer> idleTimeout = idleTimeoutInMs;
+        if (idleTimeout != null) {
+            final int timeout = idleTimeout.get();
+            return timeout > 0 && System.currentTimeMillis() - lastReadTime > timeout;
+        }
+        return false;
+    }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.hystrix.HystrixCommandDescriptor;
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
 import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategyDefault;
 import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
@@ -113,6 +114,7 @@ public class HystrixPlugins {
         getInstance().propertiesFactory.set(null);
         getInstance().commandExecutionHook.set(null);
         HystrixMetricsPublisherFactory.reset();
+        HystrixCommandDescriptor.reset();
     }
 
     /**
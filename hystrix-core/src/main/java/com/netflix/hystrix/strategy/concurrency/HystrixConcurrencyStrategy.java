@@ -16,6 +16,7 @@
 package com.netflix.hystrix.strategy.concurrency;
 
 import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.HystrixThreadPool;
 import com.netflix.hystrix.HystrixThreadPoolKey;
 import com.netflix.hystrix.HystrixThreadPoolProperties;
@@ -133,6 +134,26 @@ public abstract class HystrixConcurrencyStrategy {
         }
     }
 
+    /**
+     * Factory method to provide the {@link ThreadFactory} used to start a thread per execution for commands using
+     * {@link HystrixCommandProperties.ExecutionIsolationStrategy#VIRTUAL_THREAD}.  Concurrency is still bounded by the
+     * {@link HystrixThreadPool} settings, so the threads returned here are not pooled.
+     * <p>
+     * <b>Default Implementation</b>
+     * <p>
+     * Virtual threads named "hystrix-{threadPoolKey}-virtual-N" if the JVM supports them (Java 21+).
+     *
+     * @param threadPoolKey
+     *            {@link HystrixThreadPoolKey} representing the {@link HystrixThreadPool} whose limits apply to these threads.
+     * @return ThreadFactory or null to run VIRTUAL_THREAD commands on the {@link ThreadPoolExecutor} from {@link #getThreadPool} instead
+     */
+    public ThreadFactory getVirtualThreadFactory(final HystrixThreadPoolKey threadPoolKey) {
+        if (PlatformSpecific.isAppEngineStandardEnvironment()) {
+            return null;
+        }
+        return PlatformSpecific.getVirtualThreadFactory("hystrix-" + threadPoolKey.name() + "-virtual-");
+    }
+
     /**
      * Factory method to provide instance of {@code BlockingQueue<Runnable>} used for each {@link ThreadPoolExecutor} as constructed in {@link #getThreadPool}.
      * <p>
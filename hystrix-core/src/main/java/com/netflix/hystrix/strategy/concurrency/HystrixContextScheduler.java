@@ -60,7 +60,17 @@ public class HystrixContextScheduler extends Scheduler {
     public HystrixContextScheduler(HystrixConcurrencyStrategy concurrencyStrategy, HystrixThreadPool threadPool, Func0<Boolean> shouldInterruptThread) {
         this.concurrencyStrategy = concurrencyStrategy;
         this.threadPool = threadPool;
-        this.actualScheduler = new ThreadPoolScheduler(threadPool, shouldInterruptThread);
+        this.actualScheduler = new ThreadPoolScheduler(threadPool, null, shouldInterruptThread);
+    }
+
+    /**
+     * Schedule on the given executor instead of {@link HystrixThreadPool#getExecutor()}.  The executor is expected to enforce
+     * the bulkhead itself by throwing {@link RejectedExecutionException}, so the queue of the {@link HystrixThreadPool} is not checked.
+     */
+    public HystrixContextScheduler(HystrixConcurrencyStrategy concurrencyStrategy, HystrixThreadPool threadPool, ExecutorService executor, Func0<Boolean> shouldInterruptThread) {
+        this.concurrencyStrategy = concurrencyStrategy;
+        this.threadPool = null;
+        this.actualScheduler = new ThreadPoolScheduler(threadPool, executor, shouldInterruptThread);
     }
 
     @Override
@@ -111,16 +121,18 @@ public class HystrixContextScheduler extends Scheduler {
     private static class ThreadPoolScheduler extends Scheduler {
 
         private final HystrixThreadPool threadPool;
+        private final ExecutorService executor;
         private final Func0<Boolean> shouldInterruptThread;
 
-        public ThreadPoolScheduler(HystrixThreadPool threadPool, Func0<Boolean> shouldInterruptThread) {
+        public ThreadPoolScheduler(HystrixThreadPool threadPool, ExecutorService executor, Func0<Boolean> shouldInterruptThread) {
             this.threadPool = threadPool;
+            this.executor = executor;
             this.shouldInterruptThread = shouldInterruptThread;
         }
 
         @Override
         public Worker createWorker() {
-            return new ThreadPoolWorker(threadPool, shouldInterruptThread);
+            return new ThreadPoolWorker(threadPool, executor, shouldInterruptThread);
         }
 
     }
@@ -137,11 +149,13 @@ public class HystrixContextScheduler extends Scheduler {
     private static class ThreadPoolWorker extends Worker {
 
         private final HystrixThreadPool threadPool;
+        private final ExecutorService executor; // null to use the executor of the threadPool
         private final CompositeSubscription subscription = new CompositeSubscription();
         private final Func0<Boolean> shouldInterruptThread;
 
-        public ThreadPoolWorker(HystrixThreadPool threadPool, Func0<Boolean> shouldInterruptThread) {
+        public ThreadPoolWorker(HystrixThreadPool threadPool, ExecutorService executor, Func0<Boolean> shouldInterruptThread) {
             this.threadPool = threadPool;
+            this.executor = executor;
             this.shouldInterruptThread = shouldInterruptThread;
         }
 
@@ -168,7 +182,7 @@ public class HystrixContextScheduler extends Scheduler {
             subscription.add(sa);
             sa.addParent(subscription);
 
-            ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.getExecutor();
+            ExecutorService executor = this.executor != null ? this.executor : threadPool.getExecutor();
             FutureTask<?> f = (FutureTask<?>) executor.submit(sa);
             sa.add(new FutureCompleterWithConfigurableInterrupt(f, shouldInterruptThread, executor));
 
@@ -187,9 +201,9 @@ public class HystrixContextScheduler extends Scheduler {
     private static class FutureCompleterWithConfigurableInterrupt implements Subscription {
         private final FutureTask<?> f;
         private final Func0<Boolean> shouldInterruptThread;
-        private final ThreadPoolExecutor executor;
+        private final ExecutorService executor;
 
-        private FutureCompleterWithConfigurableInterrupt(FutureTask<?> f, Func0<Boolean> shouldInterruptThread, ThreadPoolExecutor executor) {
+        private FutureCompleterWithConfigurableInterrupt(FutureTask<?> f, Func0<Boolean> shouldInterruptThread, ExecutorService executor) {
             this.f = f;
             this.shouldInterruptThread = shouldInterruptThread;
             this.executor = executor;
@@ -197,7 +211,9 @@ public class HystrixContextScheduler extends Scheduler {
 
         @Override
         public void unsubscribe() {
-            executor.remove(f);
+            if (executor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) executor).remove(f);
+            }
             if (shouldInterruptThread.call()) {
                 f.cancel(true);
             } else {
@@ -23,6 +23,7 @@ import com.netflix.hystrix.HystrixCollapserKey;
 import com.netflix.hystrix.HystrixCollapserMetrics;
 import com.netflix.hystrix.HystrixCollapserProperties;
 import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandDescriptor;
 import com.netflix.hystrix.HystrixCommandGroupKey;
 import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixCommandMetrics;
@@ -93,6 +94,17 @@ public class HystrixMetricsPublisherFactory {
         SINGLETON.commandPublishers.clear();
         SINGLETON.threadPoolPublishers.clear();
         SINGLETON.collapserPublishers.clear();
+        HystrixCommandDescriptor.reset();
+    }
+
+    /**
+     * Forget the publisher of the given command key.  If new requests come in it will be recreated and initialized again.
+     *
+     * @param commandKey
+     *            key of the command whose publisher to forget
+     */
+    public static void removePublisherForCommand(HystrixCommandKey commandKey) {
+        SINGLETON.commandPublishers.remove(commandKey.name());
     }
 
     /* package */ HystrixMetricsPublisherFactory()  {}
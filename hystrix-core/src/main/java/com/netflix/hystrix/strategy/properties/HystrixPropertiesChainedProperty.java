@@ -94,6 +94,10 @@ public abstract class HystrixPropertiesChainedProperty {
                 pReference.set(next);
             }
 
+            runCallbacks();
+        }
+
+        protected void runCallbacks() {
             for (Runnable r : callbacks) {
                 r.run();
             }
@@ -111,10 +115,16 @@ public abstract class HystrixPropertiesChainedProperty {
         }
 
         /**
+         * Callbacks are added to the rest of the chain as well, as a change further down changes the value of this property
+         * unless it has a value of its own.
+         *
          * @param r callback to execut
          */
         public void addCallback(Runnable r) {
             callbacks.add(r);
+            if (next != null) {
+                next.addCallback(r);
+            }
         }
 
         /**
@@ -223,6 +233,14 @@ public abstract class HystrixPropertiesChainedProperty {
         public ChainProperty(HystrixDynamicProperty<T> sProperty) {
             super();
             sProp = sProperty;
+            // end node, nothing to flip to but its callbacks still need to know about changes
+            sProp.addCallback(new Runnable() {
+                @Override
+                public void run() {
+                    logger.debug("Property changed: '{} = {}'", getName(), getValue());
+                    runCallbacks();
+                }
+            });
         }
 
 
@@ -20,6 +20,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import com.netflix.hystrix.HystrixCollapserKey;
 import com.netflix.hystrix.HystrixCollapserProperties;
 import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandDescriptor;
 import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.HystrixThreadPool;
@@ -44,6 +45,7 @@ public class HystrixPropertiesFactory {
         commandProperties.clear();
         threadPoolProperties.clear();
         collapserProperties.clear();
+        HystrixCommandDescriptor.reset();
     }
 
     // String is CommandKey.name() (we can't use CommandKey directly as we can't guarantee it implements hashcode/equals correctly)
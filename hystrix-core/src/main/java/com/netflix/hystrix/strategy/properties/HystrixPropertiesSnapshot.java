@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.strategy.properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Compiles the current values of a group of properties into one flat array, so that reading a property is an array read
+ * instead of a walk down a chain of dynamic properties.
+ * <p>
+ * The array is immutable and recompiled as a whole whenever one of the properties reports a change through
+ * {@link HystrixDynamicProperty#addCallback(Runnable)}, so all values read from one snapshot are consistent with each
+ * other. Properties that are not {@link HystrixDynamicProperty}s are only read when compiling, so they must be constant.
+ * <p>
+ * Listeners added via {@link #addListener(Runnable)} run after each recompilation, on the thread that reported the change.
+ *
+ * @ExcludeFromJavadoc
+ * @ThreadSafe
+ */
+public class HystrixPropertiesSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(HystrixPropertiesSnapshot.class);
+
+    private final List<HystrixProperty<?>> sources = new ArrayList<HystrixProperty<?>>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+    private volatile Object[] values = new Object[0];
+
+    private final Runnable recompile = new Runnable() {
+        @Override
+        public void run() {
+            compile();
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    logger.error("Error running listener after properties changed", e);
+                }
+            }
+        }
+    };
+
+    /**
+     * Add a property to this snapshot.
+     *
+     * @return property that reads the compiled value of <code>source</code>
+     */
+    public synchronized <T> HystrixProperty<T> add(final HystrixProperty<T> source) {
+        final int index = sources.size();
+        sources.add(source);
+        if (source instanceof HystrixDynamicProperty) {
+            ((HystrixDynamicProperty<T>) source).addCallback(recompile);
+        }
+        compile();
+        return new HystrixProperty<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get() {
+                return (T) values[index];
+            }
+
+            @Override
+            public String toString() {
+                return String.valueOf(get());
+            }
+        };
+    }
+
+    /**
+     * Run <code>listener</code> whenever a property of this snapshot has changed.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private synchronized void compile() {
+        final Object[] compiled = new Object[sources.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = sources.get(i).get();
+        }
+        values = compiled;
+    }
+
+    /**
+     * @return <code>property</code> compiled into <code>snapshot</code>, or <code>property</code> itself if <code>snapshot</code> is null
+     */
+    public static <T> HystrixProperty<T> compiled(HystrixPropertiesSnapshot snapshot, HystrixProperty<T> property) {
+        return snapshot == null ? property : snapshot.add(property);
+    }
+}
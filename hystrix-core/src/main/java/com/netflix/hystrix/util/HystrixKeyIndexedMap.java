@@ -0,0 +1,154 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.util;
+
+import com.netflix.hystrix.HystrixKey;
+import com.netflix.hystrix.HystrixKey.HystrixKeyDefault;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-key state (circuit-breakers, metrics, streams, semaphores) looked up on every execution.
+ * <p>
+ * Entries are held by {@link HystrixKey#name()}, as we can't rely on keys implementing hashcode/equals, so a key of a given
+ * name always sees the same value. Keys interned by their <code>Factory</code> additionally carry a dense
+ * {@link HystrixKeyDefault#ordinal()}, which indexes an array that caches the entry for that name. Lookups with such a key
+ * are a single array read instead of hashing the name; other keys (such as enums) fall back to the name.
+ *
+ * @param <V> type of the per-key state
+ * @ThreadSafe
+ */
+public class HystrixKeyIndexedMap<V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ConcurrentHashMap<String, V> byName = new ConcurrentHashMap<String, V>();
+
+    /*
+     * Cache of byName, indexed by ordinal. Removing an entry clears its slot only. A value read from byName before the
+     * removal may still be cached after it, so whoever caches a value checks byName again afterwards and clears the slot
+     * if the value is gone.
+     */
+    private volatile AtomicReferenceArray<V> byOrdinal = new AtomicReferenceArray<V>(INITIAL_CAPACITY);
+
+    public V get(HystrixKey key) {
+        final int ordinal = ordinalOf(key);
+        if (ordinal < 0) {
+            return byName.get(key.name());
+        }
+        final AtomicReferenceArray<V> cache = byOrdinal;
+        if (ordinal < cache.length()) {
+            V value = cache.get(ordinal);
+            if (value != null) {
+                return value;
+            }
+        }
+        V value = byName.get(key.name());
+        if (value != null) {
+            cache(cache, ordinal, key.name(), value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value previously associated with the name of the key, or null if <code>value</code> was added
+     */
+    public V putIfAbsent(HystrixKey key, V value) {
+        final int ordinal = ordinalOf(key);
+        final AtomicReferenceArray<V> cache = byOrdinal;
+        V existing = byName.putIfAbsent(key.name(), value);
+        if (ordinal >= 0) {
+            cache(cache, ordinal, key.name(), existing != null ? existing : value);
+        }
+        return existing;
+    }
+
+    public V remove(HystrixKey key) {
+        V removed = byName.remove(key.name());
+        final int ordinal = ordinalOf(key);
+        if (removed != null && ordinal >= 0) {
+            uncache(ordinal, removed);
+        }
+        return removed;
+    }
+
+    public boolean containsKey(HystrixKey key) {
+        return get(key) != null;
+    }
+
+    public Collection<V> values() {
+        return byName.values();
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    public void clear() {
+        byName.clear();
+        synchronized (this) {
+            byOrdinal = new AtomicReferenceArray<V>(byOrdinal.length());
+        }
+    }
+
+    /*
+     * Synchronized with grow, so the slot can't be copied into a grown array after it has been cleared in the old one.
+     */
+    private synchronized void uncache(int ordinal, V removed) {
+        final AtomicReferenceArray<V> cache = byOrdinal;
+        if (ordinal < cache.length()) {
+            cache.compareAndSet(ordinal, removed, null);
+        }
+    }
+
+    private void cache(AtomicReferenceArray<V> cache, int ordinal, String name, V value) {
+        if (ordinal >= cache.length()) {
+            cache = grow(cache, ordinal);
+            if (cache == null) {
+                return;
+            }
+        }
+        if (cache.compareAndSet(ordinal, null, value) && byName.get(name) != value) {
+            // removed meanwhile, possibly before its slot was filled here; the array may have grown since, too
+            cache.compareAndSet(ordinal, value, null);
+            uncache(ordinal, value);
+        }
+    }
+
+    private synchronized AtomicReferenceArray<V> grow(AtomicReferenceArray<V> cache, int ordinal) {
+        if (cache != byOrdinal) {
+            // cleared or grown meanwhile; skip caching and let the next lookup do so
+            return null;
+        }
+        final AtomicReferenceArray<V> current = byOrdinal;
+        int capacity = current.length();
+        while (capacity <= ordinal) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<V> grown = new AtomicReferenceArray<V>(capacity);
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        byOrdinal = grown;
+        return grown;
+    }
+
+    private static int ordinalOf(HystrixKey key) {
+        return key instanceof HystrixKeyDefault ? ((HystrixKeyDefault) key).ordinal() : -1;
+    }
+}
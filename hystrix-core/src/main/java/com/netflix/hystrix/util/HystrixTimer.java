@@ -17,6 +17,7 @@ package com.netflix.hystrix.util;
 
 import com.netflix.hystrix.HystrixCollapser;
 import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixTimerThreadPoolProperties;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
 import org.slf4j.Logger;
@@ -62,6 +63,9 @@ public class HystrixTimer {
         if (ex != null && ex.getThreadPool() != null) {
             ex.getThreadPool().shutdownNow();
         }
+        if (ex != null && ex.getTimerWheel() != null) {
+            ex.getTimerWheel().shutdown();
+        }
     }
 
     /* package */ AtomicReference<ScheduledExecutor> executor = new AtomicReference<ScheduledExecutor>();
@@ -108,6 +112,41 @@ public class HystrixTimer {
         return new TimerReference(listener, f);
     }
 
+    /**
+     * Add a {@link TimerListener} that will be executed once, <code>getIntervalTimeInMilliseconds()</code> from now, unless the
+     * returned {@link Reference} is cleared first.
+     * <p>
+     * This is intended for timeouts, which almost always get cleared before they fire.  If
+     * {@link HystrixTimerThreadPoolProperties#getWheelEnabled()} is set, the listener is scheduled on a hashed timing wheel with
+     * O(1) add and clear rather than on the {@link ScheduledThreadPoolExecutor}.  Either way <code>tick()</code> is invoked on a
+     * HystrixTimer thread.
+     *
+     * @param listener
+     *            TimerListener implementation that will be triggered once after its <code>getIntervalTimeInMilliseconds()</code>
+     * @return reference to the TimerListener that allows cancellation via the <code>clear()</code> method
+     */
+    public Reference<TimerListener> addTimeoutListener(final TimerListener listener) {
+        startThreadIfNeeded();
+        Runnable r = new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    listener.tick();
+                } catch (Exception e) {
+                    logger.error("Failed while ticking TimerListener", e);
+                }
+            }
+        };
+        ScheduledExecutor ex = executor.get();
+        HystrixTimerWheel wheel = ex.getTimerWheel();
+        if (wheel != null) {
+            return new TimeoutReference(listener, wheel.newTimeout(r, listener.getIntervalTimeInMilliseconds()));
+        }
+        ScheduledFuture<?> f = ex.getThreadPool().schedule(r, listener.getIntervalTimeInMilliseconds(), TimeUnit.MILLISECONDS);
+        return new TimerReference(listener, f);
+    }
+
     private static class TimerReference extends SoftReference<TimerListener> {
 
         private final ScheduledFuture<?> f;
@@ -126,6 +165,24 @@ public class HystrixTimer {
 
     }
 
+    private static class TimeoutReference extends SoftReference<TimerListener> {
+
+        private final HystrixTimerWheel.Timeout timeout;
+
+        TimeoutReference(TimerListener referent, HystrixTimerWheel.Timeout timeout) {
+            super(referent);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            // stop the timeout from firing if it hasn't yet
+            timeout.cancel();
+        }
+
+    }
+
     /**
      * Since we allow resetting the timer (shutting down the thread) we need to lazily re-start it if it starts being used again.
      * <p>
@@ -143,6 +200,7 @@ public class HystrixTimer {
 
     /* package */ static class ScheduledExecutor {
         /* package */ volatile ScheduledThreadPoolExecutor executor;
+        /* package */ volatile HystrixTimerWheel timerWheel;
         private volatile boolean initialized;
 
         /**
@@ -151,7 +209,8 @@ public class HystrixTimer {
         public void initialize() {
 
             HystrixPropertiesStrategy propertiesStrategy = HystrixPlugins.getInstance().getPropertiesStrategy();
-            int coreSize = propertiesStrategy.getTimerThreadPoolProperties().getCorePoolSize().get();
+            HystrixTimerThreadPoolProperties timerProperties = propertiesStrategy.getTimerThreadPoolProperties();
+            int coreSize = timerProperties.getCorePoolSize().get();
 
             ThreadFactory threadFactory = null;
             if (!PlatformSpecific.isAppEngineStandardEnvironment()) {
@@ -171,6 +230,13 @@ public class HystrixTimer {
             }
 
             executor = new ScheduledThreadPoolExecutor(coreSize, threadFactory);
+            if (timerProperties.getWheelEnabled().get()) {
+                // expired timeouts are dispatched to the executor so a slow listener can't hold up the wheel
+                timerWheel = new HystrixTimerWheel(threadFactory,
+                        timerProperties.getWheelTickDurationInMilliseconds().get(),
+                        timerProperties.getWheelSize().get(), executor);
+                timerWheel.start();
+            }
             initialized = true;
         }
 
@@ -178,6 +244,10 @@ public class HystrixTimer {
             return executor;
         }
 
+        public HystrixTimerWheel getTimerWheel() {
+            return timerWheel;
+        }
+
         public boolean isInitialized() {
             return initialized;
         }
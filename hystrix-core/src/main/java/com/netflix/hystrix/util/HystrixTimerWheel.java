@@ -0,0 +1,310 @@
+/**
+ * Copyright 2012 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Hashed timing wheel used by {@link HystrixTimer} for one-shot timeouts.
+ * <p>
+ * Adding and cancelling a timeout are O(1) and lock-free: both only enqueue onto a {@link ConcurrentLinkedQueue}.  A single
+ * worker thread wakes up every tick, moves new timeouts into their bucket, unlinks cancelled ones and expires the bucket of
+ * the current tick in one batch.  Expired tasks are handed to the given {@link Executor} so that a slow task cannot delay
+ * the wheel.
+ * <p>
+ * Timeouts fire at most one tick after their deadline.
+ */
+/* package */ class HystrixTimerWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HystrixTimerWheel.class);
+
+    /* bound on how many new timeouts are moved into the wheel per tick so a burst can't stall expiry */
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickDurationInNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor dispatcher;
+    private final Thread workerThread;
+
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private final long startTime;
+    private volatile boolean shutdown = false;
+
+    /* only touched by the worker thread */
+    private long tick = 0;
+
+    /* package */ HystrixTimerWheel(ThreadFactory threadFactory, int tickDurationInMilliseconds, int wheelSize, Executor dispatcher) {
+        if (tickDurationInMilliseconds <= 0) {
+            throw new IllegalArgumentException("tickDurationInMilliseconds must be greater than 0: " + tickDurationInMilliseconds);
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheelSize must be greater than 0: " + wheelSize);
+        }
+        this.tickDurationInNanos = TimeUnit.MILLISECONDS.toNanos(tickDurationInMilliseconds);
+        this.wheel = createWheel(wheelSize);
+        this.mask = wheel.length - 1;
+        this.dispatcher = dispatcher;
+        this.startTime = System.nanoTime();
+        this.workerThread = threadFactory.newThread(new Worker());
+    }
+
+    private static Bucket[] createWheel(int wheelSize) {
+        int normalizedWheelSize = 1;
+        while (normalizedWheelSize < wheelSize) {
+            normalizedWheelSize <<= 1;
+        }
+        Bucket[] wheel = new Bucket[normalizedWheelSize];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        return wheel;
+    }
+
+    /* package */ void start() {
+        workerThread.start();
+    }
+
+    /* package */ void shutdown() {
+        shutdown = true;
+        workerThread.interrupt();
+    }
+
+    /* package */ boolean isShutdown() {
+        return shutdown;
+    }
+
+    /* package */ int getWheelSize() {
+        return wheel.length;
+    }
+
+    /**
+     * Schedule the task to run once after the given delay.
+     *
+     * @return handle that allows the timeout to be cancelled
+     */
+    /* package */ Timeout newTimeout(Runnable task, long delayInMilliseconds) {
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delayInMilliseconds);
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                processCancelledTimeouts();
+                transferTimeoutsToBuckets();
+                wheel[(int) (tick & mask)].expireTimeouts();
+                tick++;
+            }
+        }
+
+        /**
+         * Sleep until the start of the next tick.
+         *
+         * @return false if shut down while waiting
+         */
+        private boolean waitForNextTick() {
+            final long deadline = tickDurationInNanos * (tick + 1);
+            while (true) {
+                final long currentTime = System.nanoTime() - startTime;
+                final long sleepTimeInMilliseconds = (deadline - currentTime + 999999) / 1000000;
+                if (sleepTimeInMilliseconds <= 0) {
+                    return true;
+                }
+                try {
+                    Thread.sleep(sleepTimeInMilliseconds);
+                } catch (InterruptedException e) {
+                    if (shutdown) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state != Timeout.ST_INIT) {
+                    // cancelled before it ever made it into the wheel
+                    continue;
+                }
+                long calculated = timeout.deadline / tickDurationInNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // deadlines in the past are expired on the current tick
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts that hash to the same slot of the wheel.  Only accessed by the worker thread.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * Expire every timeout of this bucket that is due in the current round.  Since a timeout is only placed in the
+         * bucket of the tick its deadline falls in (or the current tick if already past), being due means its deadline
+         * has passed.
+         */
+        void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                if (timeout == tail) {
+                    head = tail = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * Handle to a single scheduled task.
+     */
+    /* package */ static class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HystrixTimerWheel timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        /* only touched by the worker thread */
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HystrixTimerWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevent the task from running if it hasn't already been dispatched.
+         *
+         * @return true if this call cancelled the timeout
+         */
+        /* package */ boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            // let the worker unlink it so cancelled timeouts don't pile up in the wheel
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /* package */ boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        /* package */ boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            try {
+                timer.dispatcher.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (!timer.shutdown) {
+                    logger.error("Failed to dispatch expired timeout", e);
+                }
+            }
+        }
+    }
+}
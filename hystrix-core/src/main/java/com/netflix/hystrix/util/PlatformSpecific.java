@@ -73,6 +73,32 @@ public class PlatformSpecific {
         }
     }
 
+    /**
+     * {@link ThreadFactory} that creates a new virtual thread for every task, named with the given prefix and a counter.
+     * <p>
+     * Virtual threads are only available from Java 21, so this is looked up reflectively.
+     *
+     * @return ThreadFactory or null if the JVM does not support virtual threads
+     */
+    public static ThreadFactory getVirtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException e) {
+            // before Java 21
+            return null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // preview feature that wasn't enabled
+            return null;
+        }
+    }
+
     public static ThreadFactory getAppEngineThreadFactory() {
         try {
             return (ThreadFactory) Class.forName("com.google.appengine.api.ThreadManager")
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionResultTest {
+
+    @Test
+    public void testBuilderMatchesImmutableResult() {
+        RuntimeException failure = new RuntimeException("failure");
+        HystrixCollapserKey collapserKey = HystrixCollapserKey.Factory.asKey("Collapser");
+
+        ExecutionResult expected = ExecutionResult.EMPTY
+                .setInvocationStartTime(1000L)
+                .setExecutionOccurred()
+                .setExecutedInThread()
+                .addEvent(HystrixEventType.EMIT)
+                .addEvent(HystrixEventType.EMIT)
+                .addEvent(20, HystrixEventType.FAILURE)
+                .setException(failure)
+                .setExecutionException(failure)
+                .addEvent(HystrixEventType.FALLBACK_EMIT)
+                .addEvent(30, HystrixEventType.FALLBACK_SUCCESS)
+                .markCollapsed(collapserKey, 3)
+                .markUserThreadCompletion(40);
+
+        ExecutionResult actual = new ExecutionResult.Builder()
+                .setInvocationStartTime(1000L)
+                .setExecutionOccurred()
+                .setExecutedInThread()
+                .addEvent(HystrixEventType.EMIT)
+                .addEvent(HystrixEventType.EMIT)
+                .addEvent(20, HystrixEventType.FAILURE)
+                .setException(failure)
+                .setExecutionException(failure)
+                .addEvent(HystrixEventType.FALLBACK_EMIT)
+                .addEvent(30, HystrixEventType.FALLBACK_SUCCESS)
+                .markCollapsed(collapserKey, 3)
+                .markUserThreadCompletion(40)
+                .build();
+
+        assertEquals(expected.getEventCounts(), actual.getEventCounts());
+        assertEquals(expected.getOrderedList(), actual.getOrderedList());
+        assertEquals(expected.getStartTimestamp(), actual.getStartTimestamp());
+        assertEquals(30, actual.getExecutionLatency());
+        assertEquals(expected.getExecutionLatency(), actual.getExecutionLatency());
+        assertEquals(40, actual.getUserThreadLatency());
+        assertEquals(expected.getUserThreadLatency(), actual.getUserThreadLatency());
+        assertSame(failure, actual.getException());
+        assertSame(failure, actual.getExecutionException());
+        assertEquals(collapserKey, actual.getCollapserKey());
+        assertTrue(actual.executionOccurred());
+        assertTrue(actual.isExecutedInThread());
+        assertTrue(actual.containsTerminalEvent());
+        assertEquals(2, actual.getEventCounts().getCount(HystrixEventType.EMIT));
+        assertEquals(1, actual.getEventCounts().getCount(HystrixEventType.FALLBACK_EMIT));
+        assertEquals(3, actual.getEventCounts().getCount(HystrixEventType.COLLAPSED));
+    }
+
+    @Test
+    public void testBuilderIgnoresLatencyOfRejectedExecution() {
+        ExecutionResult.Builder builder = new ExecutionResult.Builder()
+                .setInvocationStartTime(1000L)
+                .addEvent(HystrixEventType.SEMAPHORE_REJECTED)
+                .addEvent(50, HystrixEventType.FALLBACK_SUCCESS)
+                .markUserThreadCompletion(60);
+
+        assertTrue(builder.isResponseRejected());
+        ExecutionResult result = builder.build();
+        assertEquals(-1, result.getExecutionLatency());
+        assertEquals(-1, result.getUserThreadLatency());
+        assertEquals(Arrays.asList(HystrixEventType.SEMAPHORE_REJECTED, HystrixEventType.FALLBACK_SUCCESS), result.getOrderedList());
+    }
+
+    @Test
+    public void testBuildIsCachedUntilNextMutation() {
+        ExecutionResult.Builder builder = new ExecutionResult.Builder();
+        assertSame(ExecutionResult.EMPTY, builder.build());
+
+        builder.addEvent(HystrixEventType.EMIT);
+        ExecutionResult first = builder.build();
+        assertSame(first, builder.build());
+        assertFalse(builder.containsTerminalEvent());
+
+        builder.addEvent(HystrixEventType.SUCCESS);
+        ExecutionResult second = builder.build();
+        assertTrue(builder.containsTerminalEvent());
+        assertTrue(second != first);
+        assertFalse(first.getEventCounts().contains(HystrixEventType.SUCCESS));
+        assertTrue(second.getEventCounts().contains(HystrixEventType.SUCCESS));
+    }
+
+    @Test
+    public void testBuilderFromPublishesGivenResult() {
+        ExecutionResult original = ExecutionResult.from(HystrixEventType.EMIT, HystrixEventType.SUCCESS)
+                .setInvocationStartTime(1000L)
+                .setExecutionLatency(10)
+                .setExecutedInThread();
+
+        ExecutionResult.Builder builder = new ExecutionResult.Builder()
+                .addEvent(HystrixEventType.FAILURE)
+                .from(original);
+        assertSame(original, builder.build());
+        assertEquals(1000L, builder.getStartTimestamp());
+        assertEquals(10, builder.getExecutionLatency());
+
+        ExecutionResult cancelled = builder.addEvent(HystrixEventType.CANCELLED).build();
+        assertEquals(Arrays.asList(HystrixEventType.EMIT, HystrixEventType.SUCCESS, HystrixEventType.CANCELLED), cancelled.getOrderedList());
+        assertTrue(cancelled.isExecutedInThread());
+        assertEquals(1, cancelled.getEventCounts().getCount(HystrixEventType.EMIT));
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HystrixAdaptiveConcurrencyLimitTest {
+
+    private static HystrixProperty<Integer> dynamic(final AtomicInteger value) {
+        return new HystrixProperty<Integer>() {
+            @Override
+            public Integer get() {
+                return value.get();
+            }
+        };
+    }
+
+    @Test
+    public void testStableLatencyKeepsConfiguredLimit() {
+        HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(HystrixProperty.Factory.asProperty(20));
+        assertEquals(20, limit.get().intValue());
+        for (int i = 0; i < 10; i++) {
+            limit.onSample("A", 10);
+        }
+        assertEquals(20, limit.get().intValue());
+    }
+
+    @Test
+    public void testLatencySpikeLowersLimitAndRecoveryRaisesIt() {
+        HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(HystrixProperty.Factory.asProperty(20));
+        for (int i = 0; i < 5; i++) {
+            limit.onSample("A", 10);
+        }
+
+        int previous = limit.get();
+        for (int i = 0; i < 10; i++) {
+            limit.onSample("A", 100);
+            int current = limit.get();
+            assertTrue("limit must not grow while latency is high: " + previous + " -> " + current, current <= previous);
+            previous = current;
+        }
+        assertTrue("limit should have dropped, was " + previous, previous <= 15);
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample("A", 10);
+        }
+        assertEquals(20, limit.get().intValue());
+    }
+
+    @Test
+    public void testSourcesHaveIndependentBaselines() {
+        HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(HystrixProperty.Factory.asProperty(20));
+        for (int i = 0; i < 10; i++) {
+            // a command that's always slow is not a reason to lower the limit for the fast one
+            limit.onSample("Fast", 10);
+            limit.onSample("Slow", 200);
+        }
+        assertEquals(20, limit.get().intValue());
+    }
+
+    @Test
+    public void testLimitNeverDropsBelowOne() {
+        HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(HystrixProperty.Factory.asProperty(2));
+        limit.onSample("A", 1);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample("A", 10000);
+        }
+        assertTrue(limit.get() >= 1);
+    }
+
+    @Test
+    public void testLimitFollowsDynamicMaximum() {
+        AtomicInteger max = new AtomicInteger(20);
+        HystrixAdaptiveConcurrencyLimit limit = new HystrixAdaptiveConcurrencyLimit(dynamic(max));
+        limit.onSample("A", 10);
+        assertEquals(20, limit.get().intValue());
+
+        max.set(5);
+        assertEquals(5, limit.get().intValue());
+        limit.onSample("A", 10);
+        assertEquals(5, limit.get().intValue());
+
+        // raising the maximum again lets the limit grow back, not jump
+        max.set(20);
+        for (int i = 0; i < 3; i++) {
+            limit.onSample("A", 10);
+        }
+        int grown = limit.get();
+        assertTrue("limit should grow gradually, was " + grown, grown > 5 && grown < 20);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.exception.HystrixRuntimeException.FailureType;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HystrixAsyncCommandTest {
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    /**
+     * Completes from a test-controlled future, without any thread of its own.
+     */
+    private static class PendingCommand extends HystrixAsyncCommand<String> {
+        private final HystrixCompletableFuture<String> pending = new HystrixCompletableFuture<String>();
+        private final String fallback;
+        private final String cacheKey;
+
+        PendingCommand(String commandKey, int timeout, String fallback, String cacheKey) {
+            super(HystrixObservableCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("AsyncCommandTest"))
+                    .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                    .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                            .withExecutionTimeoutInMilliseconds(timeout)
+                            .withExecutionIsolationSemaphoreMaxConcurrentRequests(1)));
+            this.fallback = fallback;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        protected HystrixCompletableFuture<String> run() {
+            return pending;
+        }
+
+        @Override
+        protected HystrixCompletableFuture<String> getFallback() throws Exception {
+            if (fallback == null) {
+                return super.getFallback();
+            }
+            HystrixCompletableFuture<String> f = new HystrixCompletableFuture<String>();
+            f.complete(fallback);
+            return f;
+        }
+
+        @Override
+        protected String getCacheKey() {
+            return cacheKey;
+        }
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        PendingCommand command = new PendingCommand("AsyncSuccess", 1000, null, null);
+        HystrixCompletableFuture<String> future = command.toCompletableFuture();
+        assertFalse(future.isDone());
+        assertEquals(ExecutionIsolationStrategy.SEMAPHORE, command.getProperties().executionIsolationStrategy().get());
+
+        command.pending.complete("done");
+        assertEquals("done", future.get());
+        assertTrue(command.isSuccessfulExecution());
+        assertTrue(command.getExecutionEvents().contains(HystrixEventType.SUCCESS));
+        assertEquals(1, HystrixRequestLog.getCurrentRequest().getAllExecutedCommands().size());
+    }
+
+    @Test
+    public void testFailureUsesFallback() throws Exception {
+        PendingCommand command = new PendingCommand("AsyncFallback", 1000, "fallback", null);
+        HystrixCompletableFuture<String> future = command.toCompletableFuture();
+        command.pending.completeExceptionally(new RuntimeException("failed"));
+        assertEquals("fallback", future.get());
+        assertTrue(command.isFailedExecution());
+        assertTrue(command.isResponseFromFallback());
+    }
+
+    @Test(timeout = 5000)
+    public void testTimeoutCancelsRun() throws Exception {
+        PendingCommand command = new PendingCommand("AsyncTimeout", 50, null, null);
+        HystrixCompletableFuture<String> future = command.toCompletableFuture();
+        try {
+            future.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HystrixRuntimeException);
+            assertEquals(FailureType.TIMEOUT, ((HystrixRuntimeException) e.getCause()).getFailureType());
+        }
+        assertTrue(command.isResponseTimedOut());
+        assertTrue(command.pending.isCancelled());
+    }
+
+    @Test
+    public void testSemaphoreLimitsCallsInFlight() throws Exception {
+        PendingCommand first = new PendingCommand("AsyncSemaphore", 1000, null, null);
+        HystrixCompletableFuture<String> inFlight = first.toCompletableFuture();
+
+        PendingCommand second = new PendingCommand("AsyncSemaphore", 1000, null, null);
+        HystrixCompletableFuture<String> rejected = second.toCompletableFuture();
+        assertTrue(rejected.isCompletedExceptionally());
+        assertTrue(second.isResponseSemaphoreRejected());
+
+        first.pending.complete("first");
+        assertEquals("first", inFlight.get());
+
+        PendingCommand third = new PendingCommand("AsyncSemaphore", 1000, null, null);
+        HystrixCompletableFuture<String> admitted = third.toCompletableFuture();
+        third.pending.complete("third");
+        assertEquals("third", admitted.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRequestCache() throws Exception {
+        PendingCommand first = new PendingCommand("AsyncCache", 1000, null, "key");
+        HystrixCompletableFuture<String> original = first.toCompletableFuture();
+        first.pending.complete("cached");
+        assertEquals("cached", original.get());
+
+        PendingCommand second = new PendingCommand("AsyncCache", 1000, null, "key");
+        assertEquals("cached", second.toCompletableFuture().get());
+        assertTrue(second.isResponseFromCache());
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.netflix.hystrix;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -29,6 +30,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import com.netflix.hystrix.HystrixCircuitBreaker.HystrixCircuitBreakerImpl;
+import com.netflix.hystrix.HystrixCircuitBreaker.State;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.executionhook.HystrixCommandExecutionHook;
 import rx.Observable;
@@ -93,6 +95,16 @@ public class HystrixCircuitBreakerTest {
             // we don't need to do anything since we're going to permanently trip the circuit
         }
 
+        @Override
+        public void markNonSuccess() {
+
+        }
+
+        @Override
+        public State getState() {
+            return isOpen() ? State.OPEN : State.CLOSED;
+        }
+
         @Override
         public boolean allowRequest() {
             return !isOpen();
@@ -588,6 +600,165 @@ public class HystrixCircuitBreakerTest {
         THREAD_POOL_ONE, THREAD_POOL_TWO
     }
 
+    /**
+     * Once the sleep window has passed a half-open circuit lets through up to maxProbes test requests, and closes as soon as
+     * enough of them have succeeded.
+     */
+    @Test
+    public void testHalfOpenProbesCloseCircuitOnSuccessRatio() {
+        String key = "cmd-half-open-A";
+        try {
+            HystrixCommandProperties.Setter properties = halfOpenProperties(100, 3, 60);
+            HystrixCommand<Boolean> cmd1 = new PropertiesCommand(key, true, properties);
+            HystrixCircuitBreaker cb = cmd1.circuitBreaker;
+            cmd1.execute();
+            new PropertiesCommand(key, true, properties).execute();
+
+            Thread.sleep(100);
+            assertFalse(cb.allowRequest());
+            assertEquals(State.OPEN, cb.getState());
+
+            Thread.sleep(150);
+            // 3 test requests, but no more
+            assertTrue(cb.allowRequest());
+            assertTrue(cb.allowRequest());
+            assertTrue(cb.allowRequest());
+            assertFalse(cb.allowRequest());
+            assertEquals(State.HALF_OPEN, cb.getState());
+
+            // 1 of 3 is not 60%
+            cb.markSuccess();
+            assertEquals(State.HALF_OPEN, cb.getState());
+            // 2 of 3 is
+            cb.markSuccess();
+            assertEquals(State.CLOSED, cb.getState());
+            assertTrue(cb.allowRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Error occurred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Once the success ratio can no longer be reached the circuit stays open until the next sleep window has passed.
+     */
+    @Test
+    public void testHalfOpenProbesReopenCircuitOnFailures() {
+        String key = "cmd-half-open-B";
+        try {
+            HystrixCommandProperties.Setter properties = halfOpenProperties(100, 3, 60);
+            HystrixCommand<Boolean> cmd1 = new PropertiesCommand(key, true, properties);
+            HystrixCircuitBreaker cb = cmd1.circuitBreaker;
+            cmd1.execute();
+            new PropertiesCommand(key, true, properties).execute();
+
+            Thread.sleep(100);
+            assertFalse(cb.allowRequest());
+
+            Thread.sleep(150);
+            assertTrue(cb.allowRequest());
+            assertTrue(cb.allowRequest());
+            assertEquals(State.HALF_OPEN, cb.getState());
+
+            cb.markNonSuccess();
+            assertEquals(State.HALF_OPEN, cb.getState());
+            // with 2 of 3 failed, 60% can't be reached any more
+            cb.markNonSuccess();
+            assertEquals(State.OPEN, cb.getState());
+            assertFalse(cb.allowRequest());
+
+            // the next round
+            Thread.sleep(150);
+            assertTrue(cb.allowRequest());
+            assertEquals(State.HALF_OPEN, cb.getState());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Error occurred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * With a call count window the health counts cover the last N executions and are up to date as soon as an execution completes.
+     */
+    @Test
+    public void testCallCountWindow() {
+        String key = "cmd-call-count";
+        try {
+            HystrixCommandProperties.Setter properties = halfOpenProperties(5000, 1, 100)
+                    .withCircuitBreakerCallCountWindowSize(4)
+                    .withCircuitBreakerRequestVolumeThreshold(4)
+                    .withCircuitBreakerErrorThresholdPercentage(75);
+            HystrixCommand<Boolean> cmd1 = new PropertiesCommand(key, true, properties);
+            HystrixCircuitBreaker cb = cmd1.circuitBreaker;
+            cmd1.execute();
+            new PropertiesCommand(key, true, properties).execute();
+            new PropertiesCommand(key, false, properties).execute();
+            new PropertiesCommand(key, false, properties).execute();
+            new PropertiesCommand(key, false, properties).execute();
+            new PropertiesCommand(key, false, properties).execute();
+
+            // only the 4 successes are left in the window
+            HystrixCommandMetrics.HealthCounts health = cmd1.getMetrics().getHealthCounts();
+            assertEquals(4, health.getTotalRequests());
+            assertEquals(0, health.getErrorCount());
+            assertTrue(cb.allowRequest());
+
+            new PropertiesCommand(key, true, properties).execute();
+            new PropertiesCommand(key, true, properties).execute();
+            assertTrue(cb.allowRequest());
+            // 3 of the last 4 failed
+            new PropertiesCommand(key, true, properties).execute();
+            assertEquals(75, cmd1.getMetrics().getHealthCounts().getErrorPercentage());
+            assertFalse(cb.allowRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Error occurred: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Test that the circuit trips when executions get slow, even though all of them succeed.
+     */
+    @Test
+    public void testTripCircuitOnLatency() {
+        try {
+            HystrixCommand<Boolean> fast = null;
+            HystrixCommand<Boolean> slow = null;
+            for (int i = 0; i < 3; i++) {
+                fast = new PropertiesCommand("cmd-latency-fast", false, 1, latencyProperties());
+                fast.execute();
+                slow = new PropertiesCommand("cmd-latency-slow", false, 80, latencyProperties());
+                slow.execute();
+            }
+
+            // wait for the percentile window to roll
+            Thread.sleep(250);
+            assertTrue(fast.circuitBreaker.allowRequest());
+            assertFalse(slow.circuitBreaker.allowRequest());
+            assertTrue(slow.circuitBreaker.isOpen());
+            assertEquals(0, slow.getMetrics().getHealthCounts().getErrorCount());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("Error occurred: " + e.getMessage());
+        }
+    }
+
+    private static HystrixCommandProperties.Setter latencyProperties() {
+        return halfOpenProperties(5000, 1, 100)
+                .withCircuitBreakerRequestVolumeThreshold(3)
+                .withCircuitBreakerLatencyThresholdInMilliseconds(50)
+                .withMetricsRollingPercentileWindowInMilliseconds(1000)
+                .withMetricsRollingPercentileWindowBuckets(10);
+    }
+
+    private static HystrixCommandProperties.Setter halfOpenProperties(int sleepWindow, int maxProbes, int successThresholdPercentage) {
+        return HystrixCommandPropertiesTest.getUnitTestPropertiesSetter()
+                .withCircuitBreakerRequestVolumeThreshold(1)
+                .withCircuitBreakerSleepWindowInMilliseconds(sleepWindow)
+                .withCircuitBreakerHalfOpenMaxProbes(maxProbes)
+                .withCircuitBreakerHalfOpenSuccessThresholdPercentage(successThresholdPercentage);
+    }
+
     private static enum CommandKeyForUnitTest implements HystrixCommandKey {
         KEY_ONE, KEY_TWO
     }
@@ -701,6 +872,37 @@ public class HystrixCircuitBreakerTest {
         }
     }
 
+    private class PropertiesCommand extends HystrixCommand<Boolean> {
+
+        private final boolean shouldFail;
+        private final long latencyToAdd;
+
+        PropertiesCommand(String commandKey, boolean shouldFail, HystrixCommandProperties.Setter properties) {
+            this(commandKey, shouldFail, 0, properties);
+        }
+
+        PropertiesCommand(String commandKey, boolean shouldFail, long latencyToAdd, HystrixCommandProperties.Setter properties) {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("Command")).andCommandKey(HystrixCommandKey.Factory.asKey(commandKey)).
+                    andCommandPropertiesDefaults(properties));
+            this.shouldFail = shouldFail;
+            this.latencyToAdd = latencyToAdd;
+        }
+
+        @Override
+        protected Boolean run() throws Exception {
+            Thread.sleep(latencyToAdd);
+            if (shouldFail) {
+                throw new RuntimeException("induced failure");
+            }
+            return true;
+        }
+
+        @Override
+        protected Boolean getFallback() {
+            return false;
+        }
+    }
+
     private class SuccessCommand extends Command {
 
         SuccessCommand(String commandKey, long latencyToAdd) {
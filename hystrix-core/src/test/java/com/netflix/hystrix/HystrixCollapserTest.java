@@ -96,6 +96,36 @@ public class HystrixCollapserTest {
         assertEquals(2, command.getNumberCollapsed());
     }
 
+    @Test
+    public void testBatchExecutesOnReachingTargetSize() throws Exception {
+        TestCollapserTimer timer = new TestCollapserTimer();
+        HystrixCollapserProperties.Setter properties = HystrixCollapserProperties.Setter().withTimerDelayInMilliseconds(10).withBatchDispatchTargetSize(2);
+        Future<String> response1 = new TestRequestCollapser(timer, "1", properties).queue();
+        Future<String> response2 = new TestRequestCollapser(timer, "2", properties).queue();
+        Future<String> response3 = new TestRequestCollapser(timer, "3", properties).queue();
+
+        // no time passes, the first 2 requests are executed because they reached the target size
+        assertEquals("1", response1.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("2", response2.get(1000, TimeUnit.MILLISECONDS));
+        assertFalse(response3.isDone());
+
+        timer.incrementTime(10);
+        assertEquals("3", response3.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(2, HystrixRequestLog.getCurrentRequest().getAllExecutedCommands().size());
+    }
+
+    @Test
+    public void testAdaptiveDispatchDoesNotDelayRequestWithoutTraffic() throws Exception {
+        TestCollapserTimer timer = new TestCollapserTimer();
+        HystrixCollapserProperties.Setter properties = HystrixCollapserProperties.Setter().withTimerDelayInMilliseconds(10).withBatchDispatchAdaptiveEnabled(true);
+        Future<String> response1 = new TestRequestCollapser(timer, "1", properties).queue();
+
+        // nothing else has been arriving, so there's no point waiting for the timer
+        assertEquals("1", response1.get(1000, TimeUnit.MILLISECONDS));
+        HystrixInvokableInfo<?> command = HystrixRequestLog.getCurrentRequest().getAllExecutedCommands().iterator().next();
+        assertEquals(1, command.getNumberCollapsed());
+    }
+
     @Test
     public void testMultipleBatches() throws Exception {
         TestCollapserTimer timer = new TestCollapserTimer();
@@ -1873,6 +1903,11 @@ public class HystrixCollapserTest {
             this(Scope.REQUEST, timer, value, defaultMaxRequestsInBatch, defaultTimerDelayInMilliseconds, executionLog);
         }
 
+        public TestRequestCollapser(TestCollapserTimer timer, String value, HystrixCollapserProperties.Setter propertiesSetter) {
+            super(collapserKeyFromString(timer), Scope.REQUEST, timer, propertiesSetter, createMetrics());
+            this.value = value;
+        }
+
         private static HystrixCollapserMetrics createMetrics() {
             HystrixCollapserKey key = HystrixCollapserKey.Factory.asKey("COLLAPSER_ONE");
             return HystrixCollapserMetrics.getInstance(key, new HystrixPropertiesCollapserDefault(key, HystrixCollapserProperties.Setter()));
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HystrixCommandDescriptorTest {
+
+    private static final HystrixCommandGroupKey GROUP = HystrixCommandGroupKey.Factory.asKey("DescriptorGroup");
+
+    private static class DescribedCommand extends HystrixCommand<Integer> {
+        DescribedCommand() {
+            super(GROUP);
+        }
+
+        DescribedCommand(String commandKey) {
+            super(Setter.withGroupKey(GROUP).andCommandKey(HystrixCommandKey.Factory.asKey(commandKey)));
+        }
+
+        @Override
+        protected Integer run() {
+            return 1;
+        }
+    }
+
+    @After
+    public void cleanup() {
+        Hystrix.reset();
+    }
+
+    @Test
+    public void testConstructionsOfTheSameCommandShareTheDescriptor() {
+        DescribedCommand first = new DescribedCommand();
+        HystrixCommandDescriptor descriptor = HystrixCommandDescriptor.getInstance(DescribedCommand.class, GROUP, null, null);
+        assertNotNull(descriptor);
+
+        DescribedCommand second = new DescribedCommand();
+        assertSame(descriptor, HystrixCommandDescriptor.getInstance(DescribedCommand.class, GROUP, null, null));
+        assertEquals("DescribedCommand", second.getCommandKey().name());
+        assertSame(first.getMetrics(), second.getMetrics());
+        assertSame(first.getProperties(), second.getProperties());
+        assertSame(first.circuitBreaker, second.circuitBreaker);
+        assertSame(first.threadPool, second.threadPool);
+        assertEquals(1, second.execute().intValue());
+    }
+
+    @Test
+    public void testCommandKeysHaveTheirOwnDescriptor() {
+        DescribedCommand a = new DescribedCommand("DescriptorA");
+        DescribedCommand b = new DescribedCommand("DescriptorB");
+        assertEquals("DescriptorA", a.getCommandKey().name());
+        assertEquals("DescriptorB", b.getCommandKey().name());
+        assertNotSame(a.getMetrics(), b.getMetrics());
+        assertSame(a.threadPool, b.threadPool);
+    }
+
+    @Test
+    public void testResetDiscardsDescriptors() {
+        DescribedCommand before = new DescribedCommand();
+        Hystrix.reset();
+        assertNull(HystrixCommandDescriptor.getInstance(DescribedCommand.class, GROUP, null, null));
+        DescribedCommand after = new DescribedCommand();
+        assertNotSame(before.getMetrics(), after.getMetrics());
+
+        new DescribedCommand();
+        HystrixPlugins.reset();
+        assertNull(HystrixCommandDescriptor.getInstance(DescribedCommand.class, GROUP, null, null));
+
+        new DescribedCommand();
+        HystrixPropertiesFactory.reset();
+        assertNull(HystrixCommandDescriptor.getInstance(DescribedCommand.class, GROUP, null, null));
+    }
+}
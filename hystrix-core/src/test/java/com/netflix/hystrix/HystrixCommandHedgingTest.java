@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HystrixCommandHedgingTest {
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    /**
+     * The first attempt of each command instance is slow, any later attempt returns straight away.
+     */
+    private static class SlowFirstAttemptCommand extends HystrixCommand<String> {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final CountDownLatch slowAttemptInterrupted = new CountDownLatch(1);
+        private final TestableExecutionHook hook;
+
+        SlowFirstAttemptCommand(String commandKey, HystrixCommandProperties.Setter properties) {
+            this(commandKey, properties, new TestableExecutionHook());
+        }
+
+        private SlowFirstAttemptCommand(String commandKey, HystrixCommandProperties.Setter properties, TestableExecutionHook hook) {
+            super(HystrixCommandGroupKey.Factory.asKey("HedgingTest"), HystrixCommandKey.Factory.asKey(commandKey), null, null, null,
+                    properties.withExecutionTimeoutInMilliseconds(2000).withHedgingMinimumDelayInMilliseconds(50),
+                    null, null, null, null, null, hook);
+            this.hook = hook;
+        }
+
+        @Override
+        protected String run() throws Exception {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    slowAttemptInterrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            }
+            return "fast";
+        }
+    }
+
+    @Test
+    public void testHedgedAttemptWins() throws InterruptedException {
+        SlowFirstAttemptCommand command = new SlowFirstAttemptCommand("HedgeWins", HystrixCommandProperties.Setter()
+                .withHedgingEnabled(true)
+                .withHedgingMaxPercent(100));
+        assertEquals("fast", command.execute());
+        assertEquals(2, command.attempts.get());
+        assertTrue(command.isSuccessfulExecution());
+        assertTrue(command.getExecutionEvents().contains(HystrixEventType.HEDGED));
+        assertTrue(command.getExecutionTimeInMilliseconds() < 1000);
+        assertTrue(HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString().contains("HEDGED"));
+        // the hooks see the winning attempt only
+        assertTrue(command.hook.executionEventsMatch(1, 0, 1));
+        assertTrue(command.hook.executionSequence.toString().contains("onExecutionEmit - !onRunSuccess"));
+        assertEquals("fast", command.hook.commandEmissions.get(0).getValue());
+        // the losing attempt is interrupted rather than left to run
+        assertTrue(command.slowAttemptInterrupted.await(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() {
+        SlowFirstAttemptCommand command = new SlowFirstAttemptCommand("HedgeNoBudget", HystrixCommandProperties.Setter()
+                .withHedgingEnabled(true)
+                .withHedgingMaxPercent(0));
+        assertEquals("slow", command.execute());
+        assertEquals(1, command.attempts.get());
+        assertFalse(command.getExecutionEvents().contains(HystrixEventType.HEDGED));
+    }
+
+    @Test
+    public void testHedgingDisabledByDefault() {
+        SlowFirstAttemptCommand command = new SlowFirstAttemptCommand("HedgeDisabled", HystrixCommandProperties.Setter()
+                .withHedgingMaxPercent(100));
+        assertFalse(command.getProperties().hedgingEnabled().get());
+        assertEquals("slow", command.execute());
+        assertEquals(1, command.attempts.get());
+    }
+
+    @Test
+    public void testSemaphoreIsolatedCommandIsNotHedged() {
+        SlowFirstAttemptCommand command = new SlowFirstAttemptCommand("HedgeSemaphore", HystrixCommandProperties.Setter()
+                .withExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE)
+                .withHedgingEnabled(true)
+                .withHedgingMaxPercent(100));
+        assertEquals("slow", command.execute());
+        assertEquals(1, command.attempts.get());
+    }
+}
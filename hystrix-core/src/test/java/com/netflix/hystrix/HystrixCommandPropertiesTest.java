@@ -46,6 +46,8 @@ public class HystrixCommandPropertiesTest {
                 .withCircuitBreakerEnabled(true)
                 .withRequestLogEnabled(true)
                 .withExecutionIsolationSemaphoreMaxConcurrentRequests(20)
+                .withExecutionIsolationSemaphoreFastPathEnabled(false)
+                .withExecutionIsolationSemaphoreAdaptiveLimitEnabled(false)
                 .withFallbackIsolationSemaphoreMaxConcurrentRequests(10)
                 .withFallbackEnabled(true)
                 .withCircuitBreakerForceClosed(false)
@@ -102,6 +104,16 @@ public class HystrixCommandPropertiesTest {
                 return HystrixProperty.Factory.asProperty(builder.getExecutionIsolationSemaphoreMaxConcurrentRequests());
             }
 
+            @Override
+            public HystrixProperty<Boolean> executionIsolationSemaphoreFastPathEnabled() {
+                return HystrixProperty.Factory.asProperty(builder.getExecutionIsolationSemaphoreFastPathEnabled());
+            }
+
+            @Override
+            public HystrixProperty<Boolean> executionIsolationSemaphoreAdaptiveLimitEnabled() {
+                return HystrixProperty.Factory.asProperty(builder.getExecutionIsolationSemaphoreAdaptiveLimitEnabled());
+            }
+
             @Override
             public HystrixProperty<ExecutionIsolationStrategy> executionIsolationStrategy() {
                 return HystrixProperty.Factory.asProperty(builder.getExecutionIsolationStrategy());
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.netflix.hystrix.metric.HystrixCommandCompletion;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Action1;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HystrixCommandRetryTest {
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    private static HystrixCommandProperties.Setter retries(int maxAttempts, int maxPercent) {
+        return HystrixCommandProperties.Setter()
+                .withRetryMaxAttempts(maxAttempts)
+                .withRetryMaxPercent(maxPercent)
+                .withRetryBackoffInMilliseconds(5);
+    }
+
+    /**
+     * Fails the given number of attempts, then succeeds.
+     */
+    private static class FlakyCommand extends HystrixCommand<String> {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final List<String> attemptThreads = new CopyOnWriteArrayList<String>();
+        private final int failures;
+        private final boolean badRequest;
+
+        FlakyCommand(String commandKey, HystrixCommandProperties.Setter properties, int failures, boolean badRequest) {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("RetryTest"))
+                    .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                    .andCommandPropertiesDefaults(properties));
+            this.failures = failures;
+            this.badRequest = badRequest;
+        }
+
+        @Override
+        protected String run() {
+            attemptThreads.add(Thread.currentThread().getName());
+            if (attempts.incrementAndGet() <= failures) {
+                if (badRequest) {
+                    throw new HystrixBadRequestException("bad request");
+                }
+                throw new RuntimeException("attempt " + attempts.get() + " failed");
+            }
+            return "success";
+        }
+
+        @Override
+        protected String getFallback() {
+            return "fallback";
+        }
+    }
+
+    /**
+     * Emits a value before failing on the first attempt.
+     */
+    private static class EmitThenFailCommand extends HystrixObservableCommand<Integer> {
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        EmitThenFailCommand() {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("RetryTest"))
+                    .andCommandKey(HystrixCommandKey.Factory.asKey("RetryAfterEmit"))
+                    .andCommandPropertiesDefaults(retries(3, 100)));
+        }
+
+        @Override
+        protected Observable<Integer> construct() {
+            if (attempts.incrementAndGet() == 1) {
+                return Observable.just(1).concatWith(Observable.<Integer>error(new RuntimeException("failed")));
+            }
+            return Observable.just(2);
+        }
+    }
+
+    @Test
+    public void testRetriesUntilSuccess() {
+        FlakyCommand command = new FlakyCommand("RetrySuccess", retries(3, 200), 2, false);
+        assertEquals("success", command.execute());
+        assertEquals(3, command.attempts.get());
+        assertTrue(command.isSuccessfulExecution());
+        assertFalse(command.isResponseFromFallback());
+        assertEquals(2, command.getEventCounts().getCount(HystrixEventType.RETRY));
+        assertTrue(HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString().contains("RETRYx2"));
+    }
+
+    @Test
+    public void testFallbackOnceAttemptsAreExhausted() {
+        FlakyCommand command = new FlakyCommand("RetryExhausted", retries(2, 100), 5, false);
+        assertEquals("fallback", command.execute());
+        assertEquals(2, command.attempts.get());
+        assertTrue(command.isFailedExecution());
+        assertEquals(1, command.getEventCounts().getCount(HystrixEventType.RETRY));
+    }
+
+    @Test
+    public void testNoRetriesByDefault() {
+        FlakyCommand command = new FlakyCommand("RetryDefault", HystrixCommandProperties.Setter(), 1, false);
+        assertEquals("fallback", command.execute());
+        assertEquals(1, command.attempts.get());
+    }
+
+    @Test
+    public void testNoRetryWithoutBudget() {
+        FlakyCommand command = new FlakyCommand("RetryNoBudget", retries(3, 0), 1, false);
+        assertEquals("fallback", command.execute());
+        assertEquals(1, command.attempts.get());
+        assertFalse(command.getEventCounts().contains(HystrixEventType.RETRY));
+    }
+
+    @Test
+    public void testBudgetLimitsRetriesAcrossExecutions() {
+        // each execution adds half a retry to the budget
+        int retried = 0;
+        for (int i = 0; i < 10; i++) {
+            FlakyCommand command = new FlakyCommand("RetryBudget", retries(2, 50), 1, false);
+            if ("success".equals(command.execute())) {
+                retried++;
+            }
+        }
+        assertEquals(5, retried);
+    }
+
+    @Test
+    public void testBadRequestIsNotRetried() {
+        FlakyCommand command = new FlakyCommand("RetryBadRequest", retries(3, 100), 1, true);
+        try {
+            command.execute();
+            fail("expected HystrixBadRequestException");
+        } catch (HystrixBadRequestException e) {
+            // expected
+        }
+        assertEquals(1, command.attempts.get());
+    }
+
+    @Test
+    public void testRetryUnderSemaphoreIsolation() {
+        FlakyCommand command = new FlakyCommand("RetrySemaphore", retries(2, 100)
+                .withExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE), 1, false);
+        assertEquals("success", command.execute());
+        assertEquals(2, command.attempts.get());
+        assertFalse(command.isExecutedInThread());
+        // the retry backs off on the calling thread rather than running on the timer
+        for (String attemptThread: command.attemptThreads) {
+            assertFalse(attemptThread, attemptThread.startsWith("HystrixTimer"));
+            assertEquals(Thread.currentThread().getName(), attemptThread);
+        }
+    }
+
+    @Test
+    public void testRetryWithSemaphoreFastPath() {
+        FlakyCommand command = new FlakyCommand("RetryFastPath", retries(2, 100)
+                .withExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE)
+                .withExecutionIsolationSemaphoreFastPathEnabled(true), 1, false);
+        assertEquals("success", command.execute());
+        assertEquals(2, command.attempts.get());
+    }
+
+    @Test
+    public void testNoRetryAfterEmission() {
+        EmitThenFailCommand command = new EmitThenFailCommand();
+        try {
+            command.observe().toList().toBlocking().single();
+            fail("expected failure");
+        } catch (RuntimeException e) {
+            // expected, there is no fallback
+        }
+        assertEquals(1, command.attempts.get());
+    }
+
+    @Test
+    public void testRetryEventInCompletionStream() throws Exception {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("RetryStream");
+        final CopyOnWriteArrayList<HystrixCommandCompletion> completions = new CopyOnWriteArrayList<HystrixCommandCompletion>();
+        HystrixCommandCompletionStream.getInstance(key).observe().subscribe(new Action1<HystrixCommandCompletion>() {
+            @Override
+            public void call(HystrixCommandCompletion completion) {
+                completions.add(completion);
+            }
+        });
+        assertEquals("success", new FlakyCommand("RetryStream", retries(2, 100), 1, false).execute());
+        assertEquals(1, completions.size());
+        assertEquals(1, completions.get(0).getEventCounts().getCount(HystrixEventType.RETRY));
+    }
+}
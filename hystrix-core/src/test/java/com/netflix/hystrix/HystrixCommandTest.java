@@ -1490,6 +1490,92 @@ public class HystrixCommandTest extends CommonHystrixCommandTests<TestHystrixCom
     /**
      * Tests that semaphores are counted separately for commands with unique keys
      */
+    @Test
+    public void testSemaphoreFastPathSuccess() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(1));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 500, 10, false);
+
+        assertTrue(command.execute());
+        assertFalse(command.ranInsideRxChain);
+        assertFalse(command.isExecutedInThread());
+        assertEquals(0, semaphore.getNumberOfPermitsUsed());
+        assertEquals("onStart - !onRunStart - onExecutionStart - onExecutionEmit - !onRunSuccess - !onComplete - onEmit - onExecutionSuccess - onSuccess - ", command.getBuilder().executionHook.executionSequence.toString());
+        assertCommandExecutionEvents(command, HystrixEventType.SUCCESS);
+        assertEquals(0, circuitBreaker.metrics.getCurrentConcurrentExecutionCount());
+        assertSaneHystrixRequestLog(1);
+    }
+
+    @Test
+    public void testSemaphoreFastPathFailureWithFallback() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(1));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 500, 10, true);
+
+        assertFalse(command.execute());
+        assertEquals(0, semaphore.getNumberOfPermitsUsed());
+        assertEquals("onStart - !onRunStart - onExecutionStart - onExecutionError - !onRunError - onFallbackStart - onFallbackEmit - !onFallbackSuccess - !onComplete - onEmit - onFallbackSuccess - onSuccess - ", command.getBuilder().executionHook.executionSequence.toString());
+        assertCommandExecutionEvents(command, HystrixEventType.FAILURE, HystrixEventType.FALLBACK_SUCCESS);
+        assertEquals(0, circuitBreaker.metrics.getCurrentConcurrentExecutionCount());
+        assertSaneHystrixRequestLog(1);
+    }
+
+    @Test
+    public void testSemaphoreFastPathTimeout() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(1));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 50, 200, false);
+
+        assertFalse(command.execute());
+        assertTrue(command.isResponseTimedOut());
+        assertEquals(0, semaphore.getNumberOfPermitsUsed());
+        assertCommandExecutionEvents(command, HystrixEventType.TIMEOUT, HystrixEventType.FALLBACK_SUCCESS);
+        assertEquals(0, circuitBreaker.metrics.getCurrentConcurrentExecutionCount());
+        assertSaneHystrixRequestLog(1);
+    }
+
+    @Test
+    public void testSemaphoreFastPathShortCircuited() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker().setForceShortCircuit(true);
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(1));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 500, 10, false);
+
+        assertFalse(command.execute());
+        assertTrue(command.isResponseShortCircuited());
+        assertEquals(0, semaphore.getNumberOfPermitsUsed());
+        assertCommandExecutionEvents(command, HystrixEventType.SHORT_CIRCUITED, HystrixEventType.FALLBACK_SUCCESS);
+        assertSaneHystrixRequestLog(1);
+    }
+
+    @Test
+    public void testSemaphoreFastPathRejected() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(0));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 500, 10, false);
+
+        assertFalse(command.execute());
+        assertTrue(command.isResponseSemaphoreRejected());
+        assertCommandExecutionEvents(command, HystrixEventType.SEMAPHORE_REJECTED, HystrixEventType.FALLBACK_SUCCESS);
+        assertSaneHystrixRequestLog(1);
+    }
+
+    @Test
+    public void testSemaphoreFastPathExecutedTwice() {
+        TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
+        TryableSemaphoreActual semaphore = new TryableSemaphoreActual(HystrixProperty.Factory.asProperty(1));
+        SemaphoreFastPathCommand command = new SemaphoreFastPathCommand(circuitBreaker, semaphore, 500, 10, false);
+
+        assertTrue(command.execute());
+        try {
+            command.execute();
+            fail("we should not allow this ... it breaks the state of request logs");
+        } catch (HystrixRuntimeException e) {
+            e.printStackTrace();
+            // we want to get here
+        }
+        assertEquals(0, semaphore.getNumberOfPermitsUsed());
+    }
+
     @Test
     public void testSemaphorePermitsInUse() throws Exception {
         final TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
@@ -5408,6 +5494,46 @@ public class HystrixCommandTest extends CommonHystrixCommandTests<TestHystrixCom
         }
     }
 
+    /**
+     * Semaphore based command with the calling-thread fast path enabled, which records whether run() was invoked from within RxJava
+     */
+    private static class SemaphoreFastPathCommand extends TestHystrixCommand<Boolean> {
+
+        private final long executionSleep;
+        private final boolean fail;
+        volatile boolean ranInsideRxChain = false;
+
+        private SemaphoreFastPathCommand(TestCircuitBreaker circuitBreaker, TryableSemaphore semaphore, int timeout, long executionSleep, boolean fail) {
+            super(testPropsBuilder().setCircuitBreaker(circuitBreaker).setMetrics(circuitBreaker.metrics)
+                    .setCommandPropertiesDefaults(HystrixCommandPropertiesTest.getUnitTestPropertiesSetter()
+                            .withExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE)
+                            .withExecutionIsolationSemaphoreFastPathEnabled(true)
+                            .withExecutionTimeoutInMilliseconds(timeout))
+                    .setExecutionSemaphore(semaphore));
+            this.executionSleep = executionSleep;
+            this.fail = fail;
+        }
+
+        @Override
+        protected Boolean run() throws Exception {
+            for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+                if (element.getClassName().startsWith("rx.")) {
+                    ranInsideRxChain = true;
+                }
+            }
+            Thread.sleep(executionSleep);
+            if (fail) {
+                throw new RuntimeException("SemaphoreFastPathCommand failure");
+            }
+            return true;
+        }
+
+        @Override
+        protected Boolean getFallback() {
+            return false;
+        }
+    }
+
     /**
      * Semaphore based command that allows caller to use latches to know when it has started and signal when it
      * would like the command to finish
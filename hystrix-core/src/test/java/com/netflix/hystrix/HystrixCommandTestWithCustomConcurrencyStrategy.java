@@ -27,6 +27,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -241,6 +245,104 @@ public class HystrixCommandTestWithCustomConcurrencyStrategy {
     }
 
 
+    /**
+     * HystrixConcurrencyStrategy
+     ** getVirtualThreadFactory : test factory
+     * HystrixCommand
+     ** executionIsolationStrategy : VIRTUAL_THREAD
+     *
+     * OUTCOME: run() executes on a thread from the factory and is interrupted on timeout
+     */
+    @Test
+    public void testVirtualThreadIsolationUsesStrategyThreadFactory() {
+        HystrixPlugins.getInstance().registerConcurrencyStrategy(new VirtualThreadConcurrencyStrategy());
+
+        VirtualThreadCommand success = new VirtualThreadCommand("VirtualThreadSuccess", 0);
+        assertTrue(success.execute().startsWith("test-virtual-"));
+        assertTrue(success.isExecutedInThread());
+        assertTrue(success.isSuccessfulExecution());
+
+        VirtualThreadCommand timeout = new VirtualThreadCommand("VirtualThreadTimeout", 5000);
+        assertEquals("fallback", timeout.execute());
+        assertTrue(timeout.isResponseTimedOut());
+        try {
+            assertTrue(timeout.interrupted.await(1000, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * HystrixConcurrencyStrategy
+     ** getVirtualThreadFactory : null
+     * HystrixCommand
+     ** executionIsolationStrategy : VIRTUAL_THREAD
+     *
+     * OUTCOME: run() executes on the platform thread-pool
+     */
+    @Test
+    public void testVirtualThreadIsolationFallsBackToThreadPool() {
+        HystrixPlugins.getInstance().registerConcurrencyStrategy(new HystrixConcurrencyStrategy() {
+            @Override
+            public ThreadFactory getVirtualThreadFactory(HystrixThreadPoolKey threadPoolKey) {
+                return null;
+            }
+        });
+
+        VirtualThreadCommand cmd = new VirtualThreadCommand("VirtualThreadFallsBack", 0);
+        assertTrue(cmd.execute().startsWith("hystrix-VirtualThreadFallsBack-"));
+        assertTrue(cmd.isExecutedInThread());
+    }
+
+    public static class VirtualThreadConcurrencyStrategy extends HystrixConcurrencyStrategy {
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        @Override
+        public ThreadFactory getVirtualThreadFactory(HystrixThreadPoolKey threadPoolKey) {
+            return new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "test-virtual-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+        }
+    }
+
+    public static class VirtualThreadCommand extends HystrixCommand<String> {
+        private final int sleepInMilliseconds;
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        public VirtualThreadCommand(String threadPoolName, int sleepInMilliseconds) {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("TEST"))
+                    .andThreadPoolKey(HystrixThreadPoolKey.Factory.asKey(threadPoolName))
+                    .andCommandPropertiesDefaults(new HystrixCommandProperties.Setter()
+                            .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.VIRTUAL_THREAD)
+                            .withExecutionTimeoutInMilliseconds(100)));
+            this.sleepInMilliseconds = sleepInMilliseconds;
+        }
+
+        @Override
+        protected String run() throws Exception {
+            if (sleepInMilliseconds > 0) {
+                try {
+                    Thread.sleep(sleepInMilliseconds);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+            return Thread.currentThread().getName();
+        }
+
+        @Override
+        protected String getFallback() {
+            return "fallback";
+        }
+    }
+
+
     public static class TestCommand extends HystrixCommand<Boolean> {
 
         public TestCommand(boolean cacheEnabled, boolean logEnabled) {
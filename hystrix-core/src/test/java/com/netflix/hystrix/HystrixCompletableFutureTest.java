@@ -0,0 +1,274 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.functions.Action2;
+import rx.functions.Func1;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HystrixCompletableFutureTest {
+
+    private static final HystrixCommandGroupKey GROUP = HystrixCommandGroupKey.Factory.asKey("CompletableFutureTest");
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    private static class AddOneCommand extends HystrixCommand<Integer> {
+        private final int value;
+        private final boolean fail;
+
+        AddOneCommand(int value, boolean fail) {
+            super(GROUP);
+            this.value = value;
+            this.fail = fail;
+        }
+
+        @Override
+        protected Integer run() throws Exception {
+            if (fail) {
+                throw new RuntimeException("failed");
+            }
+            return value + 1;
+        }
+    }
+
+    private static class AddOneWithFallbackCommand extends AddOneCommand {
+        AddOneWithFallbackCommand(int value) {
+            super(value, true);
+        }
+
+        @Override
+        protected Integer getFallback() {
+            return -1;
+        }
+    }
+
+    private static class BlockingCommand extends HystrixCommand<Integer> {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile boolean interrupted = false;
+
+        BlockingCommand() {
+            super(Setter.withGroupKey(GROUP).andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                    .withExecutionTimeoutEnabled(false)
+                    .withExecutionIsolationThreadInterruptOnFutureCancel(true)));
+        }
+
+        @Override
+        protected Integer run() throws Exception {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                throw e;
+            }
+            return 0;
+        }
+    }
+
+    private static class ValuesCommand extends HystrixObservableCommand<Integer> {
+        private final Integer[] values;
+
+        ValuesCommand(Integer... values) {
+            super(GROUP);
+            this.values = values;
+        }
+
+        @Override
+        protected Observable<Integer> construct() {
+            return Observable.from(values);
+        }
+    }
+
+    @Test
+    public void testCompleteOnlyOnce() throws Exception {
+        HystrixCompletableFuture<String> future = new HystrixCompletableFuture<String>();
+        assertFalse(future.isDone());
+        assertTrue(future.complete("a"));
+        assertFalse(future.complete("b"));
+        assertFalse(future.completeExceptionally(new RuntimeException()));
+        assertFalse(future.cancel(true));
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+        assertEquals("a", future.get());
+    }
+
+    @Test
+    public void testGetThrowsCause() throws Exception {
+        HystrixCompletableFuture<String> future = new HystrixCompletableFuture<String>();
+        RuntimeException cause = new RuntimeException("boom");
+        future.completeExceptionally(cause);
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    @Test
+    public void testGetTimesOut() throws Exception {
+        try {
+            new HystrixCompletableFuture<String>().get(10, TimeUnit.MILLISECONDS);
+            fail("expected TimeoutException");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCallbacksRunOnCompletionAndWhenAlreadyComplete() throws Exception {
+        HystrixCompletableFuture<Integer> future = new HystrixCompletableFuture<Integer>();
+        final AtomicReference<Integer> before = new AtomicReference<Integer>();
+        future.whenComplete(new Action2<Integer, Throwable>() {
+            @Override
+            public void call(Integer value, Throwable error) {
+                before.set(value);
+            }
+        });
+        assertNull(before.get());
+
+        future.complete(1);
+        assertEquals(1, before.get().intValue());
+
+        HystrixCompletableFuture<String> after = future.thenApply(new Func1<Integer, String>() {
+            @Override
+            public String call(Integer value) {
+                return "v" + value;
+            }
+        });
+        assertTrue(after.isDone());
+        assertEquals("v1", after.get());
+    }
+
+    @Test
+    public void testFailuresPropagateThroughThenApply() throws Exception {
+        HystrixCompletableFuture<Integer> future = new HystrixCompletableFuture<Integer>();
+        HystrixCompletableFuture<Integer> applied = future.thenApply(new Func1<Integer, Integer>() {
+            @Override
+            public Integer call(Integer value) {
+                throw new IllegalStateException("not reached");
+            }
+        });
+        RuntimeException cause = new RuntimeException("boom");
+        future.completeExceptionally(cause);
+        try {
+            applied.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        HystrixCompletableFuture<Integer> future = new HystrixCompletableFuture<Integer>();
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertFalse(future.complete(1));
+        try {
+            future.get();
+            fail("expected CancellationException");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCommandCompletesFuture() throws Exception {
+        assertEquals(2, new AddOneCommand(1, false).toCompletableFuture().get().intValue());
+        assertEquals(-1, new AddOneWithFallbackCommand(1).toCompletableFuture().get().intValue());
+    }
+
+    @Test
+    public void testCommandFailureCompletesExceptionally() throws Exception {
+        HystrixCompletableFuture<Integer> future = new AddOneCommand(1, true).toCompletableFuture();
+        try {
+            future.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HystrixRuntimeException);
+        }
+    }
+
+    @Test
+    public void testComposeCommands() throws Exception {
+        HystrixCompletableFuture<Integer> composed = new AddOneCommand(1, false).toCompletableFuture()
+                .thenCompose(new Func1<Integer, HystrixCompletableFuture<Integer>>() {
+                    @Override
+                    public HystrixCompletableFuture<Integer> call(Integer value) {
+                        return new AddOneCommand(value, false).toCompletableFuture();
+                    }
+                });
+        assertEquals(3, composed.get(1, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test(timeout = 5000)
+    public void testCancelInterruptsCommand() throws Exception {
+        BlockingCommand command = new BlockingCommand();
+        HystrixCompletableFuture<Integer> future = command.toCompletableFuture();
+        command.started.await();
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        while (!command.interrupted) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testObservableCommandCompletesFuture() throws Exception {
+        assertEquals(5, new ValuesCommand(5).toCompletableFuture().get().intValue());
+        assertNull(new ValuesCommand().toCompletableFuture().get());
+        try {
+            new ValuesCommand(1, 2).toCompletableFuture().get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
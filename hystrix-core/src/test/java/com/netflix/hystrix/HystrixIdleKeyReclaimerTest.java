@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.metric.consumer.RollingCommandEventCounterStream;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HystrixIdleKeyReclaimerTest {
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    private static class IdleCommand extends HystrixCommand<Boolean> {
+        private final CountDownLatch latch;
+
+        IdleCommand(String commandKey, int idleTime) {
+            this(commandKey, idleTime, null);
+        }
+
+        IdleCommand(String commandKey, int idleTime, CountDownLatch latch) {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("IdleKeyReclaimerTest"))
+                    .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                    .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                            .withMetricsIdleKeyReclamationTimeInMilliseconds(idleTime)));
+            this.latch = latch;
+        }
+
+        @Override
+        protected Boolean run() throws Exception {
+            if (latch != null) {
+                latch.await();
+            }
+            return true;
+        }
+
+        @Override
+        protected Boolean getFallback() {
+            return false;
+        }
+    }
+
+    @Test
+    public void testIdleKeyIsReclaimedAndRecreated() throws Exception {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("IdleKey");
+        IdleCommand first = new IdleCommand(key.name(), 1000);
+        assertTrue(first.execute());
+        HystrixCommandMetrics metrics = first.getMetrics();
+        HystrixCircuitBreaker circuitBreaker = HystrixCircuitBreaker.Factory.getInstance(key);
+        assertNotNull(circuitBreaker);
+        RollingCommandEventCounterStream counterStream = RollingCommandEventCounterStream.getInstance(key, first.getProperties());
+
+        // not idle for long enough yet
+        HystrixIdleKeyReclaimer.sweep();
+        assertSame(metrics, HystrixCommandMetrics.getInstance(key));
+
+        Thread.sleep(1200);
+        HystrixIdleKeyReclaimer.sweep();
+        assertNull(HystrixCommandMetrics.getInstance(key));
+        assertNull(HystrixCircuitBreaker.Factory.getInstance(key));
+
+        IdleCommand next = new IdleCommand(key.name(), 1000);
+        assertTrue(next.execute());
+        assertNotSame(metrics, next.getMetrics());
+        assertSame(next.getMetrics(), HystrixCommandMetrics.getInstance(key));
+        assertNotSame(circuitBreaker, HystrixCircuitBreaker.Factory.getInstance(key));
+        // streams are started from scratch
+        assertNotSame(counterStream, RollingCommandEventCounterStream.getInstance(key, next.getProperties()));
+    }
+
+    @Test
+    public void testKeyWithoutReclamationIsKept() throws Exception {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("KeptKey");
+        IdleCommand command = new IdleCommand(key.name(), 0);
+        assertTrue(command.execute());
+        Thread.sleep(50);
+        HystrixIdleKeyReclaimer.sweep();
+        assertSame(command.getMetrics(), HystrixCommandMetrics.getInstance(key));
+    }
+
+    @Test
+    public void testExecutingKeyIsKept() throws Exception {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("ExecutingKey");
+        CountDownLatch latch = new CountDownLatch(1);
+        IdleCommand command = new IdleCommand(key.name(), 1, latch);
+        Future<Boolean> result = command.queue();
+        Thread.sleep(50);
+        HystrixIdleKeyReclaimer.sweep();
+        assertSame(command.getMetrics(), HystrixCommandMetrics.getInstance(key));
+        latch.countDown();
+        assertTrue(result.get());
+        assertFalse(command.isResponseFromFallback());
+    }
+}
@@ -4471,6 +4471,47 @@ public class HystrixObservableCommandTest extends CommonHystrixCommandTests<Test
         }
     }
 
+    @Test
+    public void testDemandIsPropagatedToConstructedObservable() {
+        final List<Long> requested = Collections.synchronizedList(new ArrayList<Long>());
+
+        class StreamingCommand extends HystrixObservableCommand<Integer> {
+
+            public StreamingCommand() {
+                super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("STREAMING")));
+            }
+
+            @Override
+            protected Observable<Integer> construct() {
+                return Observable.range(1, 1000).doOnRequest(new Action1<Long>() {
+                    @Override
+                    public void call(Long n) {
+                        requested.add(n);
+                    }
+                });
+            }
+        }
+
+        HystrixObservableCommand<Integer> cmd = new StreamingCommand();
+        TestSubscriber<Integer> ts = new TestSubscriber<Integer>(0L);
+        cmd.toObservable().subscribe(ts);
+        ts.assertNoValues();
+
+        ts.requestMore(2);
+        ts.assertValues(1, 2);
+        ts.requestMore(3);
+        ts.assertValues(1, 2, 3, 4, 5);
+        ts.unsubscribe();
+
+        long totalRequested = 0;
+        for (Long n : requested) {
+            totalRequested += n;
+        }
+        assertEquals(5, totalRequested);
+        assertEquals(5, cmd.getNumberEmissions());
+        assertEquals("Number of execution semaphores in use", 0, cmd.getExecutionSemaphore().getNumberOfPermitsUsed());
+    }
+
     @Test
     public void testEarlyUnsubscribeDuringExecutionViaObserve() {
         class AsyncCommand extends HystrixObservableCommand<Boolean> {
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.exception.HystrixRuntimeException.FailureType;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HystrixRateLimiterTest {
+
+    private HystrixRequestContext context;
+
+    @Before
+    public void init() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void cleanup() {
+        if (context != null) {
+            context.shutdown();
+        }
+        Hystrix.reset();
+    }
+
+    private static class MockedTime implements HystrixRateLimiter.Time {
+        private final AtomicInteger time = new AtomicInteger(0);
+
+        @Override
+        public long getNanoTime() {
+            return TimeUnit.MILLISECONDS.toNanos(time.get());
+        }
+
+        public void increment(int millis) {
+            time.addAndGet(millis);
+        }
+    }
+
+    private static int acquireAll(HystrixRateLimiter rateLimiter) {
+        int acquired = 0;
+        while (rateLimiter.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    @Test
+    public void testBurstThenRefill() {
+        MockedTime time = new MockedTime();
+        HystrixRateLimiter rateLimiter = new HystrixRateLimiter(HystrixProperty.Factory.asProperty(100), HystrixProperty.Factory.asProperty(5), time);
+        assertEquals(5, acquireAll(rateLimiter));
+
+        // one permit per 10ms
+        time.increment(25);
+        assertEquals(2, acquireAll(rateLimiter));
+
+        // never refills beyond the burst
+        time.increment(10000);
+        assertEquals(5, acquireAll(rateLimiter));
+    }
+
+    @Test
+    public void testDefaultBurstIsOneSecond() {
+        MockedTime time = new MockedTime();
+        HystrixRateLimiter rateLimiter = new HystrixRateLimiter(HystrixProperty.Factory.asProperty(20), HystrixProperty.Factory.asProperty(0), time);
+        assertEquals(20, acquireAll(rateLimiter));
+    }
+
+    @Test
+    public void testZeroRateRejectsAll() {
+        HystrixRateLimiter rateLimiter = new HystrixRateLimiter(HystrixProperty.Factory.asProperty(0), HystrixProperty.Factory.asProperty(0), new MockedTime());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    private static class RateLimitedCommand extends HystrixCommand<Boolean> {
+        private final boolean hasFallback;
+
+        RateLimitedCommand(String commandKey, HystrixCommandProperties.Setter properties, boolean hasFallback) {
+            super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("RateLimiterTest"))
+                    .andCommandKey(HystrixCommandKey.Factory.asKey(commandKey))
+                    .andCommandPropertiesDefaults(properties
+                            .withExecutionRateLimitPermitsPerSecond(1)
+                            .withExecutionRateLimitMaxBurst(2)));
+            this.hasFallback = hasFallback;
+        }
+
+        @Override
+        protected Boolean run() {
+            return true;
+        }
+
+        @Override
+        protected Boolean getFallback() {
+            if (hasFallback) {
+                return false;
+            }
+            return super.getFallback();
+        }
+    }
+
+    @Test
+    public void testRateLimitedCommandUsesFallback() throws Exception {
+        HystrixCommandProperties.Setter properties = HystrixCommandProperties.Setter()
+                .withMetricsRollingStatisticalWindowInMilliseconds(1000)
+                .withMetricsRollingStatisticalWindowBuckets(10)
+                .withMetricsHealthSnapshotIntervalInMilliseconds(100);
+        RateLimitedCommand first = new RateLimitedCommand("RateLimitFallback", properties, true);
+        // start the counter stream before anything happens
+        HystrixCommandMetrics metrics = first.getMetrics();
+        assertEquals(0, metrics.getCumulativeCount(HystrixEventType.RATE_LIMITED));
+        assertTrue(first.execute());
+        assertTrue(new RateLimitedCommand("RateLimitFallback", properties, true).execute());
+
+        RateLimitedCommand limited = new RateLimitedCommand("RateLimitFallback", properties, true);
+        assertFalse(limited.execute());
+        assertTrue(limited.isResponseRateLimited());
+        assertTrue(limited.isResponseRejected());
+        assertTrue(limited.isResponseFromFallback());
+        assertTrue(limited.getExecutionEvents().contains(HystrixEventType.RATE_LIMITED));
+        assertFalse(limited.isExecutionComplete() && limited.isSuccessfulExecution());
+
+        Thread.sleep(300);
+        assertEquals(1, metrics.getCumulativeCount(HystrixEventType.RATE_LIMITED));
+        // rejections by the rate limiter say nothing about the health of the dependency
+        assertEquals(0, metrics.getHealthCounts().getErrorCount());
+    }
+
+    @Test
+    public void testRateLimitedCommandWithoutFallback() {
+        new RateLimitedCommand("RateLimitNoFallback", HystrixCommandProperties.Setter(), false).execute();
+        new RateLimitedCommand("RateLimitNoFallback", HystrixCommandProperties.Setter(), false).execute();
+        try {
+            new RateLimitedCommand("RateLimitNoFallback", HystrixCommandProperties.Setter(), false).execute();
+            fail("expected HystrixRuntimeException");
+        } catch (HystrixRuntimeException e) {
+            assertEquals(FailureType.REJECTED_RATE_LIMIT, e.getFailureType());
+        }
+    }
+
+    @Test
+    public void testRateLimitOnSemaphoreFastPath() {
+        HystrixCommandProperties.Setter properties = HystrixCommandProperties.Setter()
+                .withExecutionIsolationStrategy(ExecutionIsolationStrategy.SEMAPHORE)
+                .withExecutionIsolationSemaphoreFastPathEnabled(true);
+        assertTrue(new RateLimitedCommand("RateLimitFastPath", properties, true).execute());
+        assertTrue(new RateLimitedCommand("RateLimitFastPath", properties, true).execute());
+        RateLimitedCommand limited = new RateLimitedCommand("RateLimitFastPath", properties, true);
+        assertFalse(limited.execute());
+        assertTrue(limited.isResponseRateLimited());
+    }
+}
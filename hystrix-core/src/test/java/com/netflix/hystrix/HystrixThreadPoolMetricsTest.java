@@ -16,11 +16,17 @@
 package com.netflix.hystrix;
 
 import com.netflix.hystrix.metric.consumer.RollingThreadPoolEventCounterStream;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 
@@ -60,6 +66,51 @@ public class HystrixThreadPoolMetricsTest {
         assertEquals(1, instances.iterator().next().getRollingCountThreadsExecuted());
     }
 
+    @Test(timeout = 2000)
+    public void shouldIncludeVirtualThreadsInGauges() throws Exception {
+        HystrixThreadPoolKey key = HystrixThreadPoolKey.Factory.asKey("HystrixThreadPoolMetrics-VirtualThreads");
+        HystrixThreadPoolProperties properties = HystrixThreadPoolPropertiesTest.asMock(HystrixThreadPoolPropertiesTest.getUnitTestPropertiesBuilder()
+                .withCoreSize(1)
+                .withMaxQueueSize(5)
+                .withQueueSizeRejectionThreshold(5));
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
+        HystrixVirtualThreadExecutor virtualThreads = new HystrixVirtualThreadExecutor(key, Executors.defaultThreadFactory(), properties,
+                HystrixProperty.Factory.asProperty(10));
+        HystrixThreadPoolMetrics metrics = HystrixThreadPoolMetrics.getInstance(key, threadPool, properties);
+        metrics.setVirtualThreadExecutor(virtualThreads);
+
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        try {
+            // one task running on a pooled thread, one running and one waiting for a virtual thread
+            threadPool.execute(blocking);
+            virtualThreads.execute(blocking);
+            virtualThreads.execute(blocking);
+            started.await();
+            while (virtualThreads.getQueueSize() < 1) {
+                Thread.sleep(1);
+            }
+
+            assertEquals(2, metrics.getCurrentActiveCount().intValue());
+            assertEquals(1, metrics.getCurrentQueueSize().intValue());
+        } finally {
+            release.countDown();
+            threadPool.shutdown();
+            virtualThreads.shutdown();
+        }
+    }
+
     private static class NoOpHystrixCommand extends HystrixCommand<Void> {
         public NoOpHystrixCommand() {
             super(Setter.withGroupKey(groupKey)
@@ -84,6 +84,12 @@ public class HystrixThreadPoolPropertiesTest {
                 return HystrixProperty.Factory.asProperty(builder.getMetricsRollingStatisticalWindowBuckets());
             }
 
+            @Override
+            public HystrixProperty<Boolean> adaptiveLimitEnabled() {
+                Boolean enabled = builder.getAdaptiveLimitEnabled();
+                return HystrixProperty.Factory.asProperty(enabled != null ? enabled : default_adaptiveLimitEnabled);
+            }
+
         };
 
     }
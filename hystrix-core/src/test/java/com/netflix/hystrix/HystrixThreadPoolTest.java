@@ -21,6 +21,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.hamcrest.core.Is.is;
 
+import com.netflix.config.ConfigurationManager;
 import com.netflix.hystrix.HystrixThreadPool.Factory;
 import com.netflix.hystrix.strategy.HystrixPlugins;
 import com.netflix.hystrix.strategy.concurrency.*;
@@ -168,4 +169,23 @@ public class HystrixThreadPoolTest {
         }
     }
 
+    @Test
+    public void testSnapshotPropertiesResizePoolWhenChanged() {
+        HystrixThreadPoolKey key = HystrixThreadPoolKey.Factory.asKey("threadPoolSnapshotTest");
+        HystrixThreadPool pool = Factory.getInstance(key, HystrixThreadPoolPropertiesTest.getUnitTestPropertiesBuilder()
+                .withCoreSize(4).withPropertySnapshotEnabled(true));
+        try {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) pool.getExecutor();
+            assertEquals(4, executor.getCorePoolSize());
+
+            // resized as soon as the property changes, without executing anything
+            ConfigurationManager.getConfigInstance().setProperty("hystrix.threadpool.threadPoolSnapshotTest.coreSize", 6);
+            assertEquals(6, executor.getCorePoolSize());
+            assertEquals(6, executor.getMaximumPoolSize());
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("hystrix.threadpool.threadPoolSnapshotTest.coreSize");
+            Factory.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix;
+
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HystrixVirtualThreadExecutorTest {
+
+    private static final HystrixThreadPoolKey KEY = HystrixThreadPoolKey.Factory.asKey("VirtualThreadExecutorTest");
+
+    private static class CountingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "test-virtual-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private static HystrixVirtualThreadExecutor newExecutor(ThreadFactory threadFactory, int maxConcurrent, int maxQueueSize, int queueSizeRejectionThreshold) {
+        return newExecutor(threadFactory, maxConcurrent, maxQueueSize, queueSizeRejectionThreshold, false, 0);
+    }
+
+    private static HystrixVirtualThreadExecutor newExecutor(ThreadFactory threadFactory, int maxConcurrent, int maxQueueSize, int queueSizeRejectionThreshold,
+                                                            boolean adaptiveLimitEnabled, int concurrencyLimit) {
+        HystrixThreadPoolProperties properties = HystrixThreadPoolPropertiesTest.asMock(HystrixThreadPoolPropertiesTest.getUnitTestPropertiesBuilder()
+                .withCoreSize(maxConcurrent)
+                .withMaxQueueSize(maxQueueSize)
+                .withQueueSizeRejectionThreshold(queueSizeRejectionThreshold)
+                .withAdaptiveLimitEnabled(adaptiveLimitEnabled));
+        return new HystrixVirtualThreadExecutor(KEY, threadFactory, properties, HystrixProperty.Factory.asProperty(concurrencyLimit));
+    }
+
+    /* a Future completes inside the task, just before the executor releases its slot */
+    private static void awaitIdle(HystrixVirtualThreadExecutor executor) throws InterruptedException {
+        while (executor.getActiveCount() > 0 || executor.getQueueSize() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static Runnable blockOn(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    @Test(timeout = 2000)
+    public void testRunsEveryTaskOnANewThread() throws Exception {
+        CountingThreadFactory threadFactory = new CountingThreadFactory();
+        HystrixVirtualThreadExecutor executor = newExecutor(threadFactory, 2, -1, 0);
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        Runnable recordThread = new Runnable() {
+            @Override
+            public void run() {
+                threadName.set(Thread.currentThread().getName());
+            }
+        };
+
+        executor.submit(recordThread).get();
+        assertEquals("test-virtual-1", threadName.get());
+        executor.submit(recordThread).get();
+        assertEquals("test-virtual-2", threadName.get());
+        awaitIdle(executor);
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test(timeout = 2000)
+    public void testRejectsBeyondMaxConcurrentWithoutQueue() throws Exception {
+        HystrixVirtualThreadExecutor executor = newExecutor(new CountingThreadFactory(), 2, -1, 5);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> f1 = executor.submit(blockOn(started, release));
+        Future<?> f2 = executor.submit(blockOn(started, release));
+        started.await();
+        try {
+            executor.submit(blockOn(started, release));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(0, executor.getQueueSize());
+
+        release.countDown();
+        f1.get();
+        f2.get();
+        executor.submit(blockOn(new CountDownLatch(1), release)).get();
+    }
+
+    @Test(timeout = 2000)
+    public void testWaitsForSlotUpToQueueThreshold() throws Exception {
+        HystrixVirtualThreadExecutor executor = newExecutor(new CountingThreadFactory(), 1, 5, 1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> f1 = executor.submit(blockOn(firstStarted, release));
+        firstStarted.await();
+        Future<?> f2 = executor.submit(blockOn(secondStarted, release));
+        try {
+            executor.submit(blockOn(new CountDownLatch(1), release));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        // the second task is admitted but must not run while the first holds the only slot
+        assertFalse(secondStarted.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(1, executor.getQueueSize());
+
+        release.countDown();
+        f1.get();
+        f2.get();
+        assertEquals(0, secondStarted.getCount());
+        awaitIdle(executor);
+        assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test(timeout = 2000)
+    public void testRejectsBeyondAdaptiveLimit() throws Exception {
+        HystrixVirtualThreadExecutor executor = newExecutor(new CountingThreadFactory(), 3, 5, 5, true, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> f1 = executor.submit(blockOn(started, release));
+        started.await();
+        try {
+            executor.submit(blockOn(new CountDownLatch(1), release));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(0, executor.getQueueSize());
+
+        release.countDown();
+        f1.get();
+    }
+
+    @Test(timeout = 2000)
+    public void testInterruptOnCancel() throws Exception {
+        HystrixVirtualThreadExecutor executor = newExecutor(new CountingThreadFactory(), 1, -1, 0);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        Future<?> f = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        started.await();
+        f.cancel(true);
+        assertTrue(interrupted.await(1000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = 2000)
+    public void testShutdown() throws Exception {
+        HystrixVirtualThreadExecutor executor = newExecutor(new CountingThreadFactory(), 1, -1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(blockOn(started, release));
+        started.await();
+
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        assertFalse(executor.isTerminated());
+        try {
+            executor.submit(blockOn(started, release));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        release.countDown();
+        assertTrue(executor.awaitTermination(1000, TimeUnit.MILLISECONDS));
+        assertTrue(executor.isTerminated());
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.collapser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchDispatchPolicyTest {
+
+    @Test
+    public void testNoWaitWhenNoOtherRequestIsExpected() {
+        // 1 request per second, so another one isn't expected within 10ms
+        assertEquals(0, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 0.001, -1));
+        assertEquals(0, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 0, -1));
+    }
+
+    @Test
+    public void testFullDelayWhenTrafficIsHighAndBatchesAreSlow() {
+        // 10 requests per ms, no target size, batches take longer than the delay
+        assertEquals(10, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 10, 50));
+    }
+
+    @Test
+    public void testWaitNoLongerThanItTakesToReachTargetSize() {
+        // 10 requests per ms fill a batch of 20 in 2ms
+        assertEquals(2, BatchDispatchPolicy.getWindowInMilliseconds(10, 20, 10, -1));
+    }
+
+    @Test
+    public void testWaitNoLongerThanBatchLatency() {
+        assertEquals(4, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 10, 4));
+        // even very fast batches wait a little when traffic is high
+        assertEquals(1, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 10, 0));
+        // but not when nothing is expected within that little time
+        assertEquals(0, BatchDispatchPolicy.getWindowInMilliseconds(10, 0, 0.5, 0));
+    }
+}
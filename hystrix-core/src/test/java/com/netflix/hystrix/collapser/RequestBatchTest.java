@@ -0,0 +1,236 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.collapser;
+
+import com.netflix.hystrix.HystrixCollapser.CollapsedRequest;
+import com.netflix.hystrix.HystrixCollapserKey;
+import com.netflix.hystrix.HystrixCollapserProperties;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesCollapserDefault;
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Func1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestBatchTest {
+
+    private static final HystrixCollapserKey KEY = HystrixCollapserKey.Factory.asKey("RequestBatchTest");
+
+    /* responds to every argument with the argument followed by '!' and records the arguments of each batch */
+    private static class EchoBridge implements HystrixCollapserBridge<List<String>, String, String> {
+        private final ConcurrentLinkedQueue<List<String>> batches = new ConcurrentLinkedQueue<List<String>>();
+
+        @Override
+        public Collection<Collection<CollapsedRequest<String, String>>> shardRequests(Collection<CollapsedRequest<String, String>> requests) {
+            return Collections.singletonList(requests);
+        }
+
+        @Override
+        public Observable<List<String>> createObservableCommand(Collection<CollapsedRequest<String, String>> requests) {
+            List<String> args = new ArrayList<String>();
+            for (CollapsedRequest<String, String> request : requests) {
+                args.add(request.getArgument());
+            }
+            batches.add(args);
+            return Observable.just(args);
+        }
+
+        @Override
+        public Observable<Void> mapResponseToRequests(Observable<List<String>> batchResponse, final Collection<CollapsedRequest<String, String>> requests) {
+            return batchResponse.flatMap(new Func1<List<String>, Observable<Void>>() {
+                @Override
+                public Observable<Void> call(List<String> args) {
+                    for (CollapsedRequest<String, String> request : requests) {
+                        request.setResponse(request.getArgument() + "!");
+                    }
+                    return Observable.empty();
+                }
+            });
+        }
+
+        @Override
+        public HystrixCollapserKey getCollapserKey() {
+            return KEY;
+        }
+    }
+
+    private static RequestBatch<List<String>, String, String> newBatch(EchoBridge bridge, boolean requestCacheEnabled, int maxBatchSize) {
+        HystrixCollapserProperties properties = new HystrixPropertiesCollapserDefault(KEY, HystrixCollapserProperties.Setter().withRequestCacheEnabled(requestCacheEnabled));
+        return new RequestBatch<List<String>, String, String>(properties, bridge, maxBatchSize);
+    }
+
+    @Test
+    public void testRejectsOffersBeyondMaxBatchSize() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, 2);
+        Observable<String> a = batch.offer("a");
+        Observable<String> b = batch.offer("b");
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNull(batch.offer("c"));
+        assertEquals(2, batch.getSize());
+
+        batch.executeBatchIfNotAlreadyStarted();
+        assertEquals("a!", a.toBlocking().single());
+        assertEquals("b!", b.toBlocking().single());
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), new ArrayList<List<String>>(bridge.batches));
+    }
+
+    @Test
+    public void testDuplicateArgumentsDoNotCountAgainstMaxBatchSize() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, 2);
+        Observable<String> a = batch.offer("a");
+        Observable<String> duplicate = batch.offer("a");
+        Observable<String> b = batch.offer("b");
+        assertNotNull(duplicate);
+        assertNotNull(b);
+        assertNotNull(batch.offer("b"));
+        assertNull(batch.offer("c"));
+
+        batch.executeBatchIfNotAlreadyStarted();
+        assertEquals("a!", a.toBlocking().single());
+        assertEquals("a!", duplicate.toBlocking().single());
+        assertEquals("b!", b.toBlocking().single());
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), new ArrayList<List<String>>(bridge.batches));
+    }
+
+    @Test
+    public void testRejectsOffersOnceStarted() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, 10);
+        batch.offer("a");
+        batch.executeBatchIfNotAlreadyStarted();
+        assertNull(batch.offer("b"));
+        assertEquals(0, batch.getSize());
+
+        // a second start is a no-op
+        batch.executeBatchIfNotAlreadyStarted();
+        assertEquals(1, bridge.batches.size());
+    }
+
+    @Test
+    public void testDuplicateArgumentsShareResponseWithRequestCaching() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, 10);
+        Observable<String> first = batch.offer("a");
+        Observable<String> second = batch.offer("a");
+        batch.executeBatchIfNotAlreadyStarted();
+
+        assertEquals("a!", first.toBlocking().single());
+        assertEquals("a!", second.toBlocking().single());
+        assertEquals(Collections.singletonList(Collections.singletonList("a")), new ArrayList<List<String>>(bridge.batches));
+    }
+
+    @Test
+    public void testDuplicateArgumentsFailWithoutRequestCaching() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, false, 10);
+        Observable<String> first = batch.offer("a");
+        Observable<String> second = batch.offer("a");
+        batch.executeBatchIfNotAlreadyStarted();
+
+        assertEquals("a!", first.toBlocking().single());
+        try {
+            second.toBlocking().single();
+            fail("expected duplicate to fail");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnsubscribedRequestIsLeftOut() {
+        EchoBridge bridge = new EchoBridge();
+        RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, 10);
+        Subscription s = batch.offer("a").subscribe();
+        Observable<String> b = batch.offer("b");
+        s.unsubscribe();
+        batch.executeBatchIfNotAlreadyStarted();
+
+        assertEquals("b!", b.toBlocking().single());
+        assertEquals(Collections.singletonList(Collections.singletonList("b")), new ArrayList<List<String>>(bridge.batches));
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentOffersAreExecutedExactlyOnce() throws InterruptedException {
+        final EchoBridge bridge = new EchoBridge();
+        final RequestBatch<List<String>, String, String> batch = newBatch(bridge, true, Integer.MAX_VALUE);
+        final int numThreads = 8;
+        final int offersPerThread = 1000;
+        final ConcurrentLinkedQueue<Observable<String>> accepted = new ConcurrentLinkedQueue<Observable<String>>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch offering = new CountDownLatch(numThreads);
+        final CountDownLatch done = new CountDownLatch(numThreads);
+
+        for (int t = 0; t < numThreads; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    boolean offered = false;
+                    try {
+                        start.await();
+                        for (int i = 0; i < offersPerThread; i++) {
+                            Observable<String> o = batch.offer(thread + "-" + i);
+                            if (o != null) {
+                                accepted.add(o);
+                                if (!offered) {
+                                    offered = true;
+                                    offering.countDown();
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        if (!offered) {
+                            offering.countDown();
+                        }
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        // seal once every thread has an offer in, while the rest are still coming
+        assertTrue(offering.await(5, TimeUnit.SECONDS));
+        batch.executeBatchIfNotAlreadyStarted();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(accepted.isEmpty() ? 0 : 1, bridge.batches.size());
+        if (!accepted.isEmpty()) {
+            assertEquals(accepted.size(), bridge.batches.peek().size());
+        }
+        for (Observable<String> o : accepted) {
+            assertTrue(o.toBlocking().single().endsWith("!"));
+        }
+    }
+}
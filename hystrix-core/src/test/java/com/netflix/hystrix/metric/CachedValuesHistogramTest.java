@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CachedValuesHistogramTest {
+
+    @Test
+    public void testValuesMatchUnderlyingHistogram() {
+        Histogram histogram = CachedValuesHistogram.getNewHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordValue(i);
+        }
+        CachedValuesHistogram distribution = CachedValuesHistogram.backedBy(histogram);
+
+        assertEquals(100, distribution.getTotalCount());
+        assertEquals((int) histogram.getMean(), distribution.getMean());
+        assertEquals(1, distribution.getValueAtPercentile(0));
+        assertEquals((int) histogram.getValueAtPercentile(50), distribution.getValueAtPercentile(50));
+        assertEquals((int) histogram.getValueAtPercentile(90), distribution.getValueAtPercentile(90));
+        assertEquals(100, distribution.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testValuesSurviveReleaseOfHistogram() {
+        Histogram histogram = CachedValuesHistogram.getNewHistogram();
+        histogram.recordValue(10);
+        histogram.recordValue(30);
+        CachedValuesHistogram distribution = CachedValuesHistogram.backedBy(histogram);
+
+        Histogram released = distribution.release();
+        assertSame(histogram, released);
+        released.reset();
+        released.recordValue(1000);
+
+        assertEquals(2, distribution.getTotalCount());
+        assertEquals(20, distribution.getMean());
+        assertEquals(10, distribution.getValueAtPercentile(0));
+        assertEquals(30, distribution.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BucketClockTest {
+
+    @Test
+    public void testTicksAreSharedPerBucketSize() {
+        assertSame(BucketClock.ticks(25), BucketClock.ticks(25));
+        assertNotSame(BucketClock.ticks(25), BucketClock.ticks(50));
+    }
+
+    @Test
+    public void testSubscribersTickTogether() throws InterruptedException {
+        Observable<Long> ticks = BucketClock.ticks(20);
+        TestSubscriber<Long> first = new TestSubscriber<Long>();
+        ticks.take(6).subscribe(first);
+        while (first.getOnNextEvents().size() < 2) {
+            Thread.sleep(5);
+        }
+
+        TestSubscriber<Long> second = new TestSubscriber<Long>();
+        ticks.take(2).subscribe(second);
+        first.awaitTerminalEvent(1000, TimeUnit.MILLISECONDS);
+        second.awaitTerminalEvent(1000, TimeUnit.MILLISECONDS);
+        first.assertValueCount(6);
+        second.assertValueCount(2);
+
+        // the second subscriber joined the ticks of the first rather than starting its own
+        List<Long> firstTicks = first.getOnNextEvents();
+        List<Long> secondTicks = second.getOnNextEvents();
+        int joinedAt = firstTicks.indexOf(secondTicks.get(0));
+        assertTrue(joinedAt >= 2);
+        assertEquals(firstTicks.subList(joinedAt, joinedAt + 2), secondTicks);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.metric.consumer;
+
+import com.netflix.hystrix.ExecutionResult;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.HystrixRequestLog;
+import com.netflix.hystrix.metric.CommandStreamTest;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HealthCountsRingBufferTest extends CommandStreamTest {
+    HystrixRequestContext context;
+    HealthCountsRingBuffer ringBuffer;
+
+    static HystrixCommandGroupKey groupKey = HystrixCommandGroupKey.Factory.asKey("HealthCountsRingBuffer");
+
+    @Before
+    public void setUp() {
+        context = HystrixRequestContext.initializeContext();
+    }
+
+    @After
+    public void tearDown() {
+        context.shutdown();
+        HealthCountsRingBuffer.reset();
+    }
+
+    @Test
+    public void testEmptyRingBufferProducesZeros() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-A");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+
+        //no writes
+
+        Thread.sleep(300);
+        assertEquals(0L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(0L, ringBuffer.getLatest().getTotalRequests());
+    }
+
+    @Test
+    public void testSingleSuccess() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-B");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+
+        CommandStreamTest.Command cmd = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.SUCCESS, 20);
+        cmd.observe();
+
+        Thread.sleep(300);
+        System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
+        assertEquals(0L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(1L, ringBuffer.getLatest().getTotalRequests());
+    }
+
+    @Test
+    public void testSingleFailure() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-C");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+
+        CommandStreamTest.Command cmd = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.FAILURE, 20);
+        cmd.observe();
+
+        Thread.sleep(300);
+        System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
+        assertEquals(1L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(1L, ringBuffer.getLatest().getTotalRequests());
+    }
+
+    @Test
+    public void testSingleBadRequest() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-D");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+
+        CommandStreamTest.Command cmd = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.BAD_REQUEST);
+        cmd.observe();
+
+        Thread.sleep(300);
+        System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
+        assertEquals(0L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(0L, ringBuffer.getLatest().getTotalRequests());
+    }
+
+    @Test
+    public void testMixedResults() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-E");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+
+        CommandStreamTest.Command cmd1 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.SUCCESS, 10);
+        CommandStreamTest.Command cmd2 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.SUCCESS, 10);
+        CommandStreamTest.Command cmd3 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.FAILURE, 10);
+        CommandStreamTest.Command cmd4 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.TIMEOUT);
+
+        cmd1.observe();
+        cmd2.observe();
+        cmd3.observe();
+        cmd4.observe();
+
+        Thread.sleep(1000);
+        System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
+        HystrixCommandMetrics.HealthCounts healthCounts = ringBuffer.getLatest();
+        assertEquals(2L, healthCounts.getErrorCount());
+        assertEquals(4L, healthCounts.getTotalRequests());
+        assertEquals(50, healthCounts.getErrorPercentage());
+    }
+
+    @Test
+    public void testFailuresAgeOutOfWindow() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-F");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 5, 100);
+
+        CommandStreamTest.Command cmd1 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.FAILURE, 10);
+        CommandStreamTest.Command cmd2 = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.FAILURE, 10);
+
+        cmd1.observe();
+        cmd2.observe();
+
+        Thread.sleep(250);
+        assertEquals(2L, ringBuffer.getLatest().getErrorCount());
+
+        //window is 5 x 100ms, so after another 700ms both failures should have rolled out
+        Thread.sleep(700);
+        System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
+        assertEquals(0L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(0L, ringBuffer.getLatest().getTotalRequests());
+    }
+
+    @Test
+    public void testDirectWriteDoesNotSubscribeToCompletionStream() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-H");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100, true);
+        assertTrue(ringBuffer.isDirectWrite());
+        assertFalse(HystrixCommandCompletionStream.getInstance(key).hasSubscribers());
+
+        ringBuffer.record(ExecutionResult.from(HystrixEventType.SUCCESS).getEventCounts());
+        ringBuffer.record(ExecutionResult.from(HystrixEventType.FAILURE).getEventCounts());
+        ringBuffer.record(ExecutionResult.from(HystrixEventType.BAD_REQUEST).getEventCounts());
+
+        Thread.sleep(300);
+        assertEquals(1L, ringBuffer.getLatest().getErrorCount());
+        assertEquals(2L, ringBuffer.getLatest().getTotalRequests());
+        assertFalse(HystrixCommandCompletionStream.getInstance(key).hasSubscribers());
+    }
+
+    @Test
+    public void testSubscribesToCompletionStreamByDefault() {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-I");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+        assertFalse(ringBuffer.isDirectWrite());
+        assertTrue(HystrixCommandCompletionStream.getInstance(key).hasSubscribers());
+
+        ringBuffer.unsubscribe();
+        assertFalse(HystrixCommandCompletionStream.getInstance(key).hasSubscribers());
+    }
+
+    @Test
+    public void testSameInstanceForKey() {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-HealthRing-G");
+        ringBuffer = HealthCountsRingBuffer.getInstance(key, 10, 100);
+        assertSame(ringBuffer, HealthCountsRingBuffer.getInstance(key, 10, 100));
+    }
+}
@@ -24,6 +24,7 @@ import com.netflix.hystrix.HystrixRequestLog;
 import com.netflix.hystrix.metric.CommandStreamTest;
 import com.netflix.hystrix.strategy.concurrency.HystrixContextRunnable;
 import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -543,4 +544,30 @@ public class RollingCommandEventCounterStreamTest extends CommandStreamTest {
         System.out.println("ReqLog : " + HystrixRequestLog.getCurrentRequest().getExecutedCommandsAsString());
         assertArrayEquals(expected, stream.getLatest());
     }
+
+    @Test
+    public void testCachingStopsWhenUnread() throws InterruptedException {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("CMD-RollingCounter-N");
+        stream = RollingCommandEventCounterStream.getInstance(key, 10, 10);
+        stream.stopCachingWhenUnreadFor(HystrixProperty.Factory.asProperty(100));
+        stream.startCachingStreamValuesIfUnstarted();
+        assertTrue(stream.isSourceCurrentlySubscribed());
+
+        CommandStreamTest.Command cmd = CommandStreamTest.Command.from(groupKey, key, HystrixEventType.SUCCESS, 0);
+        cmd.observe();
+
+        // reads keep the stream running
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(50);
+            stream.getLatest();
+            assertTrue(stream.isSourceCurrentlySubscribed());
+        }
+
+        Thread.sleep(300);
+        assertFalse(stream.isSourceCurrentlySubscribed());
+
+        // the next read starts it again, from an empty window
+        assertArrayEquals(new long[HystrixEventType.values().length], stream.getLatest());
+        assertTrue(stream.isSourceCurrentlySubscribed());
+    }
 }
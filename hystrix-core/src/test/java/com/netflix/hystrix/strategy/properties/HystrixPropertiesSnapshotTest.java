@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.strategy.properties;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HystrixPropertiesSnapshotTest {
+
+    @After
+    public void cleanUp() {
+        ConfigurationManager.getConfigInstance().clear();
+    }
+
+    @Test
+    public void testSnapshotIsUpdatedWhenInstancePropertyChanges() {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("SnapshotInstance");
+        HystrixCommandProperties properties = new HystrixPropertiesCommandDefault(key,
+                HystrixCommandProperties.Setter().withPropertySnapshotEnabled(true).withExecutionTimeoutInMilliseconds(500));
+        assertTrue(properties.propertySnapshotEnabled().get());
+        assertEquals(500, properties.executionTimeoutInMilliseconds().get().intValue());
+        assertFalse(properties.circuitBreakerForceOpen().get());
+
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.SnapshotInstance.execution.isolation.thread.timeoutInMilliseconds", 750);
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.SnapshotInstance.circuitBreaker.forceOpen", true);
+        assertEquals(750, properties.executionTimeoutInMilliseconds().get().intValue());
+        assertTrue(properties.circuitBreakerForceOpen().get());
+
+        ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.SnapshotInstance.execution.isolation.thread.timeoutInMilliseconds");
+        assertEquals(500, properties.executionTimeoutInMilliseconds().get().intValue());
+    }
+
+    @Test
+    public void testSnapshotIsUpdatedWhenDefaultPropertyChanges() {
+        HystrixCommandKey key = HystrixCommandKey.Factory.asKey("SnapshotDefault");
+        HystrixCommandProperties properties = new HystrixPropertiesCommandDefault(key,
+                HystrixCommandProperties.Setter().withPropertySnapshotEnabled(true));
+        assertTrue(properties.requestCacheEnabled().get());
+
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.default.requestCache.enabled", false);
+        assertFalse(properties.requestCacheEnabled().get());
+
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.command.SnapshotDefault.requestCache.enabled", true);
+        assertTrue(properties.requestCacheEnabled().get());
+
+        ConfigurationManager.getConfigInstance().clearProperty("hystrix.command.SnapshotDefault.requestCache.enabled");
+        assertFalse(properties.requestCacheEnabled().get());
+    }
+
+    @Test
+    public void testListenersRunAfterRecompiling() {
+        HystrixThreadPoolKey key = HystrixThreadPoolKey.Factory.asKey("SnapshotListener");
+        final HystrixThreadPoolProperties properties = new HystrixPropertiesThreadPoolDefault(key,
+                HystrixThreadPoolProperties.Setter().withPropertySnapshotEnabled(true).withCoreSize(4));
+        HystrixPropertiesSnapshot snapshot = properties.getSnapshot();
+        assertNotNull(snapshot);
+
+        final AtomicInteger seenCoreSize = new AtomicInteger();
+        snapshot.addListener(new Runnable() {
+            @Override
+            public void run() {
+                seenCoreSize.set(properties.coreSize().get());
+            }
+        });
+
+        ConfigurationManager.getConfigInstance().setProperty("hystrix.threadpool.SnapshotListener.coreSize", 7);
+        assertEquals(7, seenCoreSize.get());
+        assertEquals(7, properties.coreSize().get().intValue());
+    }
+
+    @Test
+    public void testPropertiesAreNotCompiledUnlessEnabled() {
+        HystrixThreadPoolProperties properties = new HystrixPropertiesThreadPoolDefault(HystrixThreadPoolKey.Factory.asKey("SnapshotDisabled"),
+                HystrixThreadPoolProperties.Setter());
+        assertNull(properties.getSnapshot());
+
+        HystrixProperty<Integer> property = HystrixProperty.Factory.asProperty(3);
+        assertSame(property, HystrixPropertiesSnapshot.compiled(null, property));
+    }
+}
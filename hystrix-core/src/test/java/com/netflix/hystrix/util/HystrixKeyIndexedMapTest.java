@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.hystrix.util;
+
+import com.netflix.hystrix.HystrixCollapserKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixKey;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HystrixKeyIndexedMapTest {
+
+    private enum EnumKey implements HystrixCommandKey {
+        IndexedMapEnumKey
+    }
+
+    private static int ordinal(Object key) {
+        return ((HystrixKey.HystrixKeyDefault) key).ordinal();
+    }
+
+    @Test
+    public void testInternedKeysHaveDistinctOrdinals() {
+        HystrixCommandKey a = HystrixCommandKey.Factory.asKey("IndexedMapA");
+        HystrixCommandKey b = HystrixCommandKey.Factory.asKey("IndexedMapB");
+        assertTrue(ordinal(a) >= 0);
+        assertTrue(ordinal(b) >= 0);
+        assertTrue(ordinal(a) != ordinal(b));
+        assertEquals(ordinal(a), ordinal(HystrixCommandKey.Factory.asKey("IndexedMapA")));
+
+        assertTrue(ordinal(HystrixThreadPoolKey.Factory.asKey("IndexedMapA")) >= 0);
+        assertTrue(ordinal(HystrixCollapserKey.Factory.asKey("IndexedMapA")) >= 0);
+    }
+
+    @Test
+    public void testKeysOfTheSameNameShareTheirValue() {
+        HystrixKeyIndexedMap<String> map = new HystrixKeyIndexedMap<String>();
+        HystrixCommandKey interned = HystrixCommandKey.Factory.asKey(EnumKey.IndexedMapEnumKey.name());
+
+        assertNull(map.putIfAbsent(EnumKey.IndexedMapEnumKey, "enum"));
+        assertEquals("enum", map.get(interned));
+        assertEquals("enum", map.putIfAbsent(interned, "interned"));
+        assertEquals("enum", map.get(EnumKey.IndexedMapEnumKey));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testRemoveAndClearAreSeenThroughOrdinals() {
+        HystrixKeyIndexedMap<String> map = new HystrixKeyIndexedMap<String>();
+        HystrixCommandKey a = HystrixCommandKey.Factory.asKey("IndexedMapRemoveA");
+        HystrixCommandKey b = HystrixCommandKey.Factory.asKey("IndexedMapRemoveB");
+        map.putIfAbsent(a, "a1");
+        map.putIfAbsent(b, "b1");
+        assertEquals("a1", map.get(a));
+
+        assertEquals("a1", map.remove(a));
+        assertNull(map.get(a));
+        assertEquals("b1", map.get(b));
+        map.putIfAbsent(a, "a2");
+        assertEquals("a2", map.get(a));
+
+        map.clear();
+        assertNull(map.get(a));
+        assertNull(map.get(b));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testGrowsBeyondInitialCapacity() {
+        HystrixKeyIndexedMap<Integer> map = new HystrixKeyIndexedMap<Integer>();
+        for (int i = 0; i < 200; i++) {
+            map.putIfAbsent(HystrixCommandKey.Factory.asKey("IndexedMapGrow-" + i), i);
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, map.get(HystrixCommandKey.Factory.asKey("IndexedMapGrow-" + i)).intValue());
+        }
+        assertEquals(200, map.values().size());
+    }
+}
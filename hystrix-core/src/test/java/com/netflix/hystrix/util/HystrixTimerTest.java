@@ -41,6 +41,7 @@ public class HystrixTimerTest {
 
     @After
     public void tearDown() {
+        HystrixTimer.reset();
         HystrixPlugins.reset();
     }
 
@@ -207,6 +208,93 @@ public class HystrixTimerTest {
 
     }
 
+    @Test
+    public void testTimeoutListenerTicksOnce() throws InterruptedException {
+        HystrixTimer timer = HystrixTimer.getInstance();
+        TestListener l1 = new TestListener(50, "A");
+        timer.addTimeoutListener(l1);
+
+        Thread.sleep(500);
+
+        System.out.println("l1 ticks: " + l1.tickCount.get());
+        assertEquals(1, l1.tickCount.get());
+    }
+
+    @Test
+    public void testTimeoutListenerCleared() throws InterruptedException {
+        HystrixTimer timer = HystrixTimer.getInstance();
+        TestListener l1 = new TestListener(100, "A");
+        Reference<TimerListener> l1ref = timer.addTimeoutListener(l1);
+        l1ref.clear();
+
+        Thread.sleep(300);
+
+        assertEquals(0, l1.tickCount.get());
+    }
+
+    @Test
+    public void testTimeoutListenerOnWheel() throws InterruptedException {
+        registerTimerProperties(HystrixTimerThreadPoolProperties.Setter().withCoreSize(1).withWheelEnabled(true).withWheelTickDurationInMilliseconds(5).withWheelSize(8));
+
+        HystrixTimer timer = HystrixTimer.getInstance();
+        TestListener l1 = new TestListener(20, "A");
+        // longer than a full revolution of the wheel (8 x 5ms)
+        TestListener l2 = new TestListener(100, "B");
+        TestListener l3 = new TestListener(200, "C");
+        timer.addTimeoutListener(l1);
+        timer.addTimeoutListener(l2);
+        Reference<TimerListener> l3ref = timer.addTimeoutListener(l3);
+
+        assertNotNull(timer.executor.get().getTimerWheel());
+        assertEquals(8, timer.executor.get().getTimerWheel().getWheelSize());
+
+        Thread.sleep(60);
+        assertEquals(1, l1.tickCount.get());
+        assertEquals(0, l2.tickCount.get());
+        l3ref.clear();
+
+        Thread.sleep(300);
+        assertEquals(1, l1.tickCount.get());
+        assertEquals(1, l2.tickCount.get());
+        assertEquals(0, l3.tickCount.get());
+    }
+
+    @Test
+    public void testWheelNotStartedByDefault() {
+        HystrixTimer hystrixTimer = HystrixTimer.getInstance();
+        hystrixTimer.startThreadIfNeeded();
+        assertNull(hystrixTimer.executor.get().getTimerWheel());
+    }
+
+    @Test
+    public void testResetShutsDownWheel() {
+        registerTimerProperties(HystrixTimerThreadPoolProperties.Setter().withCoreSize(1).withWheelEnabled(true));
+
+        HystrixTimer timer = HystrixTimer.getInstance();
+        timer.addTimeoutListener(new TestListener(1000, "A"));
+        HystrixTimerWheel wheel = timer.executor.get().getTimerWheel();
+        assertFalse(wheel.isShutdown());
+
+        HystrixTimer.reset();
+
+        assertTrue(wheel.isShutdown());
+        assertNull(timer.executor.get());
+    }
+
+    private static void registerTimerProperties(HystrixTimerThreadPoolProperties.Setter builder) {
+        final HystrixTimerThreadPoolProperties props = new HystrixTimerThreadPoolProperties(builder) {
+        };
+
+        HystrixPropertiesStrategy strategy = new HystrixPropertiesStrategy() {
+            @Override
+            public HystrixTimerThreadPoolProperties getTimerThreadPoolProperties() {
+                return props;
+            }
+        };
+
+        HystrixPlugins.getInstance().registerPropertiesStrategy(strategy);
+    }
+
     private static class TestListener implements TimerListener {
 
         private final int interval;
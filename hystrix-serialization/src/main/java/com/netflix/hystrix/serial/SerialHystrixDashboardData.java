@@ -152,8 +152,10 @@ public class SerialHystrixDashboardData extends SerialHystrixMetric {
         if (circuitBreaker == null) {
             // circuit breaker is disabled and thus never open
             json.writeBooleanField("isCircuitBreakerOpen", false);
+            json.writeStringField("circuitBreakerState", HystrixCircuitBreaker.State.CLOSED.name());
         } else {
             json.writeBooleanField("isCircuitBreakerOpen", circuitBreaker.isOpen());
+            json.writeStringField("circuitBreakerState", circuitBreaker.getState().name());
         }
         HystrixCommandMetrics.HealthCounts healthCounts = commandMetrics.getHealthCounts();
         json.writeNumberField("errorPercentage", healthCounts.getErrorPercentage());
@@ -294,6 +296,11 @@ public class SerialHystrixDashboardData extends SerialHystrixMetric {
         json.writeNumberField("propertyValue_circuitBreakerRequestVolumeThreshold", commandProperties.circuitBreakerRequestVolumeThreshold().get());
         json.writeNumberField("propertyValue_circuitBreakerSleepWindowInMilliseconds", commandProperties.circuitBreakerSleepWindowInMilliseconds().get());
         json.writeNumberField("propertyValue_circuitBreakerErrorThresholdPercentage", commandProperties.circuitBreakerErrorThresholdPercentage().get());
+        json.writeNumberField("propertyValue_circuitBreakerHalfOpenMaxProbes", commandProperties.circuitBreakerHalfOpenMaxProbes().get());
+        json.writeNumberField("propertyValue_circuitBreakerHalfOpenSuccessThresholdPercentage", commandProperties.circuitBreakerHalfOpenSuccessThresholdPercentage().get());
+        json.writeNumberField("propertyValue_circuitBreakerCallCountWindowSize", commandProperties.circuitBreakerCallCountWindowSize().get());
+        json.writeNumberField("propertyValue_circuitBreakerLatencyThresholdInMilliseconds", commandProperties.circuitBreakerLatencyThresholdInMilliseconds().get());
+        json.writeNumberField("propertyValue_circuitBreakerLatencyPercentile", commandProperties.circuitBreakerLatencyPercentile().get());
         json.writeBooleanField("propertyValue_circuitBreakerForceOpen", commandProperties.circuitBreakerForceOpen().get());
         json.writeBooleanField("propertyValue_circuitBreakerForceClosed", commandProperties.circuitBreakerForceClosed().get());
         json.writeBooleanField("propertyValue_circuitBreakerEnabled", commandProperties.circuitBreakerEnabled().get());